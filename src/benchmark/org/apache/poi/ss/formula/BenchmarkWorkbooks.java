@@ -0,0 +1,141 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Generates the workbooks used by the formula benchmarks.<p/>
+ *
+ * The sheet <tt>Data</tt> holds one record per row: a unique key (<tt>K0</tt>, <tt>K1</tt>, ...)
+ * in column A, one of 20 categories in column B and an amount in column C. The sheet
+ * <tt>Calc</tt> holds {@link #FORMULA_COUNT} rows of formulas of the requested workload
+ * in columns A and B.
+ */
+public final class BenchmarkWorkbooks {
+
+    public static final int FORMULA_COUNT = 200;
+    public static final int CATEGORY_COUNT = 20;
+
+    public enum Workload {
+        /** arithmetic and simple functions on single cells */
+        ARITHMETIC,
+        /** VLOOKUP and INDEX/MATCH over the whole data range */
+        LOOKUP,
+        /** SUMIF and COUNTIFS over the whole data range */
+        CRITERIA,
+    }
+
+    private BenchmarkWorkbooks() {
+        // no instances of this class
+    }
+
+    /**
+     * @param format <tt>HSSF</tt> or <tt>XSSF</tt>
+     */
+    public static Workbook newWorkbook(String format) {
+        if ("HSSF".equals(format)) {
+            return new HSSFWorkbook();
+        }
+        if ("XSSF".equals(format)) {
+            return new XSSFWorkbook();
+        }
+        throw new IllegalArgumentException("Unknown format '" + format + "'");
+    }
+
+    public static FormulaParsingWorkbook createParsingWorkbook(Workbook wb) {
+        if (wb instanceof HSSFWorkbook) {
+            return HSSFEvaluationWorkbook.create((HSSFWorkbook) wb);
+        }
+        return XSSFEvaluationWorkbook.create((XSSFWorkbook) wb);
+    }
+
+    public static Workbook create(String format, int dataRows, Workload workload) {
+        Workbook wb = newWorkbook(format);
+        Sheet data = wb.createSheet("Data");
+        for (int i = 0; i < dataRows; i++) {
+            Row row = data.createRow(i);
+            row.createCell(0).setCellValue("K" + i);
+            row.createCell(1).setCellValue("C" + (i % CATEGORY_COUNT));
+            row.createCell(2).setCellValue(i % 97 + 0.5);
+        }
+
+        Sheet calc = wb.createSheet("Calc");
+        for (int i = 0; i < FORMULA_COUNT; i++) {
+            Row row = calc.createRow(i);
+            String[] formulas = createFormulas(workload, i, dataRows);
+            for (int j = 0; j < formulas.length; j++) {
+                row.createCell(j).setCellFormula(formulas[j]);
+            }
+        }
+        return wb;
+    }
+
+    private static String[] createFormulas(Workload workload, int i, int dataRows) {
+        int r = i % dataRows + 1;
+        String keys = "Data!$A$1:$A$" + dataRows;
+        String categories = "Data!$B$1:$B$" + dataRows;
+        String amounts = "Data!$C$1:$C$" + dataRows;
+        // spread the looked up keys over the whole data range
+        String key = "\"K" + (int) ((long) i * 7919 % dataRows) + "\"";
+        String category = "\"C" + (i % CATEGORY_COUNT) + "\"";
+        switch (workload) {
+            case ARITHMETIC:
+                return new String[] {
+                        "Data!C" + r + "*2+ROUND(Data!C" + r + "/3,2)-ABS(Data!C" + r + "-50)",
+                        "IF(A" + (i + 1) + ">100,A" + (i + 1) + "-100,MAX(A" + (i + 1) + ",Data!C" + r + "))",
+                };
+            case LOOKUP:
+                return new String[] {
+                        "VLOOKUP(" + key + ",Data!$A$1:$C$" + dataRows + ",3,FALSE)",
+                        "INDEX(" + amounts + ",MATCH(" + key + "," + keys + ",0))",
+                };
+            case CRITERIA:
+                return new String[] {
+                        "SUMIF(" + categories + "," + category + "," + amounts + ")",
+                        "COUNTIFS(" + categories + "," + category + "," + amounts + ",\">\"&" + (i % 90) + ")",
+                };
+            default:
+                throw new IllegalArgumentException("Unknown workload " + workload);
+        }
+    }
+
+    /**
+     * @return all formula cells of the <tt>Calc</tt> sheet
+     */
+    public static Cell[] getFormulaCells(Workbook wb) {
+        Sheet calc = wb.getSheet("Calc");
+        int nColumns = calc.getRow(0).getLastCellNum();
+        Cell[] result = new Cell[FORMULA_COUNT * nColumns];
+        int k = 0;
+        for (int i = 0; i < FORMULA_COUNT; i++) {
+            Row row = calc.getRow(i);
+            for (int j = 0; j < nColumns; j++) {
+                result[k++] = row.getCell(j);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures formula evaluation on generated workbooks, see {@link BenchmarkWorkbooks}.<p/>
+ *
+ * <tt>evaluateAll</tt> evaluates all formulas with empty caches, <tt>evaluateSingleCell</tt>
+ * changes one input cell and evaluates one formula depending on it, so it measures the
+ * invalidation of cached results as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormulaEvaluationBenchmark {
+
+    @Param({"HSSF", "XSSF"})
+    public String format;
+
+    @Param({"100", "1000", "10000"})
+    public int dataRows;
+
+    @Param({"ARITHMETIC", "LOOKUP", "CRITERIA"})
+    public String workload;
+
+    private Workbook _workbook;
+    private FormulaEvaluator _evaluator;
+    private Cell[] _formulaCells;
+    private Cell _inputCell;
+    private double _inputValue;
+
+    @Setup
+    public void setup() {
+        _workbook = BenchmarkWorkbooks.create(format, dataRows, BenchmarkWorkbooks.Workload.valueOf(workload));
+        _evaluator = _workbook.getCreationHelper().createFormulaEvaluator();
+        _formulaCells = BenchmarkWorkbooks.getFormulaCells(_workbook);
+        // Calc!A1 depends on Data!C1 in all workloads
+        _inputCell = _workbook.getSheet("Data").getRow(0).getCell(2);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        _workbook.close();
+    }
+
+    @Benchmark
+    public void evaluateAll(Blackhole bh) {
+        _evaluator.clearAllCachedResultValues();
+        for (Cell cell : _formulaCells) {
+            bh.consume(_evaluator.evaluate(cell));
+        }
+    }
+
+    @Benchmark
+    public void evaluateSingleCell(Blackhole bh) {
+        _inputValue = _inputValue == 0 ? 1 : 0;
+        _inputCell.setCellValue(_inputValue);
+        _evaluator.notifyUpdateCell(_inputCell);
+        bh.consume(_evaluator.evaluate(_formulaCells[0]));
+    }
+}
@@ -0,0 +1,88 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the time to parse a mix of typical formulas, with and without the {@link FormulaParseCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormulaParserBenchmark {
+
+    private static final String[] FORMULAS = {
+        "A1+B1*2",
+        "SUM(A1:A100)",
+        "IF(AND(A1>0,B1<10),A1/B1,\"n/a\")",
+        "VLOOKUP(\"K10\",Data!$A$1:$C$1000,3,FALSE)",
+        "INDEX(Data!$C$1:$C$1000,MATCH(A1,Data!$A$1:$A$1000,0))",
+        "SUMIF(Data!$B$1:$B$1000,\"C1\",Data!$C$1:$C$1000)",
+        "COUNTIFS(Data!$B$1:$B$1000,\"C1\",Data!$C$1:$C$1000,\">\"&B1)",
+        "ROUND(SUMPRODUCT((Data!A1:A100>5)*Data!C1:C100)/COUNT(Data!C1:C100),2)",
+        "TEXT(DATE(2016,MONTH(A1),1),\"yyyy-mm-dd\")&\" \"&UPPER(LEFT(B1,3))",
+    };
+
+    @Param({"HSSF", "XSSF"})
+    public String format;
+
+    private Workbook _workbook;
+    private FormulaParsingWorkbook _parsingWorkbook;
+    private int _sheetIndex;
+
+    @Setup
+    public void setup() {
+        _workbook = BenchmarkWorkbooks.create(format, 10, BenchmarkWorkbooks.Workload.ARITHMETIC);
+        _parsingWorkbook = BenchmarkWorkbooks.createParsingWorkbook(_workbook);
+        _sheetIndex = _workbook.getSheetIndex("Calc");
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        for (String formula : FORMULAS) {
+            Ptg[] ptgs = FormulaParser.parseUncached(formula, _parsingWorkbook, FormulaType.CELL, _sheetIndex, -1);
+            bh.consume(ptgs);
+        }
+    }
+
+    @Benchmark
+    public void parseCached(Blackhole bh) {
+        for (String formula : FORMULAS) {
+            bh.consume(FormulaParser.parse(formula, _parsingWorkbook, FormulaType.CELL, _sheetIndex));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.formula.PlainCellCache.Loc;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures lookups in the {@link PlainCellCache}, by packed <tt>long</tt> keys (as done by the
+ * {@link EvaluationCache}) and by {@link Loc} objects allocated per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlainCellCacheBenchmark {
+
+    private static final int COLUMN_COUNT = 10;
+
+    @Param({"1000", "100000"})
+    public int cellCount;
+
+    private PlainCellCache _cache;
+    private PlainValueCellCacheEntry[] _entries;
+
+    @Setup
+    public void setup() {
+        _entries = new PlainValueCellCacheEntry[cellCount];
+        _cache = new PlainCellCache();
+        for (int i = 0; i < cellCount; i++) {
+            _entries[i] = new PlainValueCellCacheEntry(new NumberEval(i));
+            _cache.put(PlainCellCache.toKey(0, 1, i / COLUMN_COUNT, i % COLUMN_COUNT), _entries[i]);
+        }
+    }
+
+    @Benchmark
+    public void getByKey(Blackhole bh) {
+        for (int i = 0; i < cellCount; i++) {
+            bh.consume(_cache.get(PlainCellCache.toKey(0, 1, i / COLUMN_COUNT, i % COLUMN_COUNT)));
+        }
+    }
+
+    @Benchmark
+    public void getByLoc(Blackhole bh) {
+        for (int i = 0; i < cellCount; i++) {
+            bh.consume(_cache.get(new Loc(0, 1, i / COLUMN_COUNT, i % COLUMN_COUNT)));
+        }
+    }
+
+    @Benchmark
+    public void putAndRemove(Blackhole bh) {
+        PlainCellCache cache = new PlainCellCache();
+        for (int i = 0; i < cellCount; i++) {
+            cache.put(PlainCellCache.toKey(0, 1, i / COLUMN_COUNT, i % COLUMN_COUNT), _entries[i]);
+        }
+        for (int i = 0; i < cellCount; i++) {
+            cache.remove(PlainCellCache.toKey(0, 1, i / COLUMN_COUNT, i % COLUMN_COUNT));
+        }
+        bh.consume(cache);
+    }
+}
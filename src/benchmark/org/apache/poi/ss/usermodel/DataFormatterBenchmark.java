@@ -0,0 +1,125 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.usermodel;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.formula.BenchmarkWorkbooks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the extraction of formatted cell values, as done by text and CSV extractors, on
+ * {@link #CELL_COUNT} cells with a mix of number, date and text formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataFormatterBenchmark {
+
+    private static final int CELL_COUNT = 10000;
+
+    private static final String[] FORMATS = {
+        "General", "0.00", "#,##0.00", "0.00E+00", "yyyy-mm-dd", "0%", "# ?/?",
+        "[$-409]d-mmm-yy;@", "#,##0.00_);[Red](#,##0.00)", "@",
+    };
+
+    @Param({"HSSF", "XSSF"})
+    public String format;
+
+    private Workbook _workbook;
+    private Cell[] _cells;
+    private DataFormatter _formatter;
+    private StringBuilder _sb;
+
+    @Setup
+    public void setup() {
+        _workbook = BenchmarkWorkbooks.newWorkbook(format);
+        DataFormat dataFormat = _workbook.createDataFormat();
+        CellStyle[] styles = new CellStyle[FORMATS.length];
+        for (int i = 0; i < styles.length; i++) {
+            styles[i] = _workbook.createCellStyle();
+            styles[i].setDataFormat(dataFormat.getFormat(FORMATS[i]));
+        }
+        Sheet sheet = _workbook.createSheet();
+        _cells = new Cell[CELL_COUNT];
+        for (int i = 0; i < CELL_COUNT; i++) {
+            Cell cell = sheet.createRow(i).createCell(0);
+            if (i % FORMATS.length == FORMATS.length - 1) {
+                cell.setCellValue("text " + i);
+            } else {
+                cell.setCellValue(40000 + i * 1.37);
+            }
+            cell.setCellStyle(styles[i % styles.length]);
+            _cells[i] = cell;
+        }
+        _formatter = new DataFormatter(Locale.US);
+        _sb = new StringBuilder(1024);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        _workbook.close();
+    }
+
+    @Benchmark
+    public void formatCellValue(Blackhole bh) {
+        for (Cell cell : _cells) {
+            bh.consume(_formatter.formatCellValue(cell));
+        }
+    }
+
+    @Benchmark
+    public void formatCellValueIntoBuilder(Blackhole bh) {
+        for (Cell cell : _cells) {
+            _sb.setLength(0);
+            _formatter.formatCellValue(cell, null, _sb);
+            bh.consume(_sb);
+        }
+    }
+
+    /**
+     * A new formatter per 100 cells, e.g. one per row, which re-uses the formats
+     * parsed by other formatters
+     */
+    @Benchmark
+    public void newFormatterPerRow(Blackhole bh) {
+        DataFormatter formatter = null;
+        for (int i = 0; i < CELL_COUNT; i++) {
+            if (i % 100 == 0) {
+                formatter = new DataFormatter(Locale.US);
+            }
+            bh.consume(formatter.formatCellValue(_cells[i]));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.formula.BenchmarkWorkbooks;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures styling {@link #ROW_COUNT} x {@link #COLUMN_COUNT} (one million) cells with
+ * {@link CellUtil}, which finds or creates one of {@link #FILL_COLORS}.length x 4 styles
+ * for each cell, and looking up fonts with {@link Workbook#findFont}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CellStyleBenchmark {
+
+    private static final int ROW_COUNT = 20000;
+    private static final int COLUMN_COUNT = 50;
+
+    private static final short[] FILL_COLORS = {
+        IndexedColors.RED.index, IndexedColors.GREEN.index, IndexedColors.BLUE.index,
+        IndexedColors.YELLOW.index, IndexedColors.GREY_25_PERCENT.index,
+    };
+    private static final BorderStyle[] BORDERS = {
+        BorderStyle.NONE, BorderStyle.THIN, BorderStyle.MEDIUM, BorderStyle.DASHED,
+    };
+
+    @Param({"HSSF", "XSSF"})
+    public String format;
+
+    private Workbook _workbook;
+    private Cell[] _cells;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        _workbook = BenchmarkWorkbooks.newWorkbook(format);
+        Sheet sheet = _workbook.createSheet();
+        _cells = new Cell[ROW_COUNT * COLUMN_COUNT];
+        int k = 0;
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j < COLUMN_COUNT; j++) {
+                _cells[k++] = row.createCell(j);
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+        _workbook.close();
+    }
+
+    @Benchmark
+    public void setCellStyleProperties(Blackhole bh) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(CellUtil.FILL_PATTERN, FillPatternType.SOLID_FOREGROUND);
+        for (int i = 0; i < _cells.length; i++) {
+            properties.put(CellUtil.FILL_FOREGROUND_COLOR, FILL_COLORS[i % FILL_COLORS.length]);
+            properties.put(CellUtil.BORDER_BOTTOM, BORDERS[i / COLUMN_COUNT % BORDERS.length]);
+            CellUtil.setCellStyleProperties(_cells[i], properties);
+        }
+        bh.consume(_workbook.getNumCellStyles());
+    }
+
+    @Benchmark
+    public void findFont(Blackhole bh) {
+        for (int i = 0; i < _cells.length; i++) {
+            boolean bold = (i & 1) != 0;
+            short height = (short) ((10 + i % 7) * 20);
+            Font font = _workbook.findFont(bold, Font.COLOR_NORMAL, height, "Arial", false, false, Font.SS_NONE, Font.U_NONE);
+            if (font == null) {
+                font = _workbook.createFont();
+                font.setBold(bold);
+                font.setFontHeight(height);
+                font.setFontName("Arial");
+                font.setColor(Font.COLOR_NORMAL);
+            }
+            bh.consume(font);
+        }
+    }
+}
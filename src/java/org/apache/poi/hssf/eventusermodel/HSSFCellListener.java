@@ -0,0 +1,89 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Typed callbacks for the values of the cells, which {@link HSSFEventFactory} decodes
+ * straight from the record data, without creating a record for every cell. Register the
+ * listener with {@link HSSFRequest#setCellListener(HSSFCellListener)}.<p/>
+ *
+ * The cells of the NUMBER, RK, MULRK, LABELSST, LABEL, BOOLERR and FORMULA records (and the
+ * STRING records holding the cached text of formulas) are passed to this listener only, not
+ * to the {@link HSSFListener}s. All other records, including the SST and the records of blank
+ * cells, are passed to the {@link HSSFListener}s as usual, in the order of the stream.<p/>
+ *
+ * All indexes are 0-based. The XF index is the index of the cell style in the workbook.
+ */
+public interface HSSFCellListener {
+
+    /**
+     * Called before the first cell of a row which has values. Rows without values don't get
+     * these events.
+     */
+    void onRowStart(int row);
+
+    /**
+     * Called after the last cell of a row, before the next row starts or any other records,
+     * like the next ROW or the EOF record, are passed to the {@link HSSFListener}s.
+     */
+    void onRowEnd(int row);
+
+    /**
+     * A number cell, from a NUMBER, RK or MULRK record
+     */
+    void onNumber(int row, int column, int xfIndex, double value);
+
+    /**
+     * A string cell referring to the shared string table
+     *
+     * @param sstIndex the index of the string in the {@link org.apache.poi.hssf.record.SSTRecord}
+     */
+    void onSSTString(int row, int column, int xfIndex, int sstIndex);
+
+    /**
+     * A string cell holding its text, from a LABEL record (which older applications write
+     * instead of LABELSST records)
+     */
+    void onString(int row, int column, int xfIndex, String value);
+
+    void onBoolean(int row, int column, int xfIndex, boolean value);
+
+    /**
+     * @param errorCode the error code, see {@link org.apache.poi.ss.usermodel.FormulaError}
+     */
+    void onError(int row, int column, int xfIndex, int errorCode);
+
+    /**
+     * A formula cell. The formula itself isn't decoded, only its cached result.
+     *
+     * @param cachedResultType the type of the cached result: <tt>NUMERIC</tt>, <tt>STRING</tt>,
+     *  <tt>BOOLEAN</tt> or <tt>ERROR</tt>
+     * @param cachedValue the cached number of <tt>NUMERIC</tt> results, <tt>1</tt> or <tt>0</tt>
+     *  for <tt>BOOLEAN</tt> results and the error code of <tt>ERROR</tt> results. The text of
+     *  <tt>STRING</tt> results is passed to {@link #onFormulaString(int, int, String)} next.
+     */
+    void onFormula(int row, int column, int xfIndex, CellType cachedResultType, double cachedValue);
+
+    /**
+     * The cached text of the formula cell most recently passed to
+     * {@link #onFormula(int, int, int, CellType, double)}
+     */
+    void onFormulaString(int row, int column, String cachedValue);
+}
@@ -169,6 +169,8 @@ public class HSSFEventFactory {
 
 		// Create a new RecordStream and use that
 		RecordFactoryInputStream recordStream = new RecordFactoryInputStream(in, false);
+		recordStream.setReuseCellRecords(req.isReuseCellRecords());
+		recordStream.setCellListener(req.getCellListener());
 
 		// Process each record as they come in
 		while(true) {
@@ -35,6 +35,8 @@ import org.apache.poi.hssf.record.RecordFactory;
  */
 public class HSSFRequest {
 	private final Map<Short, List<HSSFListener>> _records;
+	private boolean _reuseCellRecords;
+	private HSSFCellListener _cellListener;
 
 	/** Creates a new instance of HSSFRequest */
 	public HSSFRequest() {
@@ -82,6 +84,49 @@ public class HSSFRequest {
 		}
 	}
 
+	/**
+	 * Lets the listeners opt into flyweight cell records. If enabled, HSSFEventFactory passes
+	 * the same {@link org.apache.poi.hssf.record.NumberRecord} instance for all NUMBER, RK and
+	 * MULRK cells and the same {@link org.apache.poi.hssf.record.LabelSSTRecord} instance for all
+	 * LABELSST cells, refilled for every cell. This avoids creating an object per cell, but the
+	 * listeners must not keep references to these records or modify them.
+	 *
+	 * @param reuseCellRecords <code>true</code> to reuse the cell records, the default is
+	 *  <code>false</code>
+	 */
+	public void setReuseCellRecords(boolean reuseCellRecords) {
+		_reuseCellRecords = reuseCellRecords;
+	}
+
+	/**
+	 * @return whether the cell records passed to the listeners are reused
+	 * @see #setReuseCellRecords(boolean)
+	 */
+	public boolean isReuseCellRecords() {
+		return _reuseCellRecords;
+	}
+
+	/**
+	 * Sets the listener receiving the values of the cells. HSSFEventFactory then decodes the
+	 * cell records straight into the typed callbacks of the listener, without creating a record
+	 * for every cell, and doesn't pass these records to the {@link HSSFListener}s.
+	 *
+	 * @param listener the cell listener, <code>null</code> (the default) to pass the cell
+	 *  records to the {@link HSSFListener}s
+	 * @see HSSFCellListener
+	 */
+	public void setCellListener(HSSFCellListener listener) {
+		_cellListener = listener;
+	}
+
+	/**
+	 * @return the listener receiving the values of the cells, <code>null</code> if none
+	 * @see #setCellListener(HSSFCellListener)
+	 */
+	public HSSFCellListener getCellListener() {
+		return _cellListener;
+	}
+
 	/**
 	 * Called by HSSFEventFactory, passes the Record to each listener associated with
 	 * a record.sid.
@@ -44,6 +44,7 @@ import org.apache.poi.hssf.record.IndexRecord;
 import org.apache.poi.hssf.record.IterationRecord;
 import org.apache.poi.hssf.record.MergeCellsRecord;
 import org.apache.poi.hssf.record.NoteRecord;
+import org.apache.poi.hssf.record.OpaqueRecord;
 import org.apache.poi.hssf.record.PaneRecord;
 import org.apache.poi.hssf.record.PrintGridlinesRecord;
 import org.apache.poi.hssf.record.PrintHeadersRecord;
@@ -69,6 +70,7 @@ import org.apache.poi.hssf.record.aggregates.RecordAggregate;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.PositionTrackingVisitor;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.hssf.record.aggregates.RowRecordsAggregate;
+import org.apache.poi.hssf.record.aggregates.ValueRecordsAggregate;
 import org.apache.poi.hssf.record.aggregates.WorksheetProtectionBlock;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.util.CellRangeAddress;
@@ -792,6 +794,32 @@ public final class InternalSheet {
     	return _rowsAggregate.getCellValueIterator();
     }
 
+    /**
+     * @param includePackedCells <code>true</code> to unpack and return the packed cells,
+     *  <code>false</code> to skip them
+     * @return Iterator of CellValueRecordInterface representing the value records
+     * @see ValueRecordsAggregate
+     */
+    public Iterator<CellValueRecordInterface> getCellValueIterator(boolean includePackedCells){
+        return _rowsAggregate.getCellValueIterator(includePackedCells);
+    }
+
+    /**
+     * Visits each row with cells which haven't been unpacked yet
+     */
+    public void visitPackedCells(ValueRecordsAggregate.PackedCellsVisitor pcv) {
+        _rowsAggregate.visitPackedCells(pcv);
+    }
+
+    /**
+     * Replaces a packed cell by a record of its own
+     *
+     * @return the record of the cell, <code>null</code> if there's no packed cell at the position
+     */
+    public CellValueRecordInterface unpackCell(int rowIndex, int columnIndex) {
+        return _rowsAggregate.unpackCell(rowIndex, columnIndex);
+    }
+
     /**
      * get the NEXT RowRecord (from LOC).  The first record that is a Row record
      * (starting at LOC) will be returned.
@@ -1344,6 +1372,20 @@ public final class InternalSheet {
         return -1;
     }
 
+    /**
+     * @param sid the sid of the original record
+     * @return <code>true</code> if the sheet holds an unparsed record with the specified sid
+     * @see OpaqueRecord
+     */
+    public boolean hasOpaqueRecord(short sid) {
+        for (RecordBase rb : _records) {
+            if (rb instanceof OpaqueRecord && ((OpaqueRecord) rb).getRecordSid() == sid) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public WindowTwoRecord getWindowTwo() {
         return windowTwo;
     }
@@ -44,8 +44,11 @@ import org.apache.poi.hssf.record.IndexRecord;
 import org.apache.poi.hssf.record.IterationRecord;
 import org.apache.poi.hssf.record.LabelRecord;
 import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
 import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.ObjRecord;
+import org.apache.poi.hssf.record.OpaqueRecord;
 import org.apache.poi.hssf.record.PaneRecord;
 import org.apache.poi.hssf.record.PrecisionRecord;
 import org.apache.poi.hssf.record.PrintGridlinesRecord;
@@ -319,6 +322,10 @@ final class RecordOrderer {
 		if (rb instanceof MergedCellsTable || rb instanceof ConditionalFormattingTable) {
 			return true;
 		}
+		if (rb instanceof OpaqueRecord) {
+			// unparsed drawings or conditional formats
+			return true;
+		}
 		short sid = ((Record)rb).getSid();
 		switch(sid) {
 			case WindowTwoRecord.sid:
@@ -425,6 +432,9 @@ final class RecordOrderer {
 
 			case DVALRecord.sid:
 				return true;
+			case OpaqueRecord.sid:
+				// unparsed drawings, charts, conditional formats and data validations
+				return true;
 			case EOFRecord.sid:
 				// WINDOW2 should always be present, so shouldn't have got this far
 				throw new RuntimeException("Found EOFRecord before WindowTwoRecord was encountered");
@@ -445,6 +455,8 @@ final class RecordOrderer {
 			case FormulaRecord.sid:
 			case LabelRecord.sid:
 			case LabelSSTRecord.sid:
+			case MulBlankRecord.sid:
+			case MulRKRecord.sid:
 			case NumberRecord.sid:
 			case RKRecord.sid:
 
@@ -34,6 +34,13 @@ public abstract class CellRecord extends StandardRecord implements CellValueReco
     }
 
     protected CellRecord(RecordInputStream in) {
+        readCellHeader(in);
+    }
+
+    /**
+     * Reads the row, column and XF index, for records which are read again in place
+     */
+    /* package */ final void readCellHeader(RecordInputStream in) {
         _rowIndex = in.readUShort();
         _columnIndex = in.readUShort();
         _formatIndex = in.readUShort();
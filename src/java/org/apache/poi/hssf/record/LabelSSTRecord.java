@@ -38,6 +38,14 @@ public final class LabelSSTRecord extends CellRecord implements Cloneable {
         field_4_sst_index = in.readInt();
     }
 
+    /**
+     * Reads a LABELSST record into this instance
+     */
+    /* package */ void readFrom(RecordInputStream in) {
+        readCellHeader(in);
+        field_4_sst_index = in.readInt();
+    }
+
     /**
      * set the index to the string in the SSTRecord
      *
@@ -32,11 +32,15 @@ import org.apache.poi.util.LittleEndianOutput;
  */
 public final class MulRKRecord extends StandardRecord {
 	public final static short sid = 0x00BD;
+	/** size of an XF index and RK number pair */
+	private static final int ENCODED_RK_SIZE = 6;
 
-	private final int	 field_1_row;
-	private final short   field_2_first_col;
-	private final RkRec[] field_3_rks;
-	private final short   field_4_last_col;
+	private int	 field_1_row;
+	private short   field_2_first_col;
+	/** the XF indexes and RK numbers, packed into arrays which are reused when reading in place */
+	private short[] field_3_xfs;
+	private int[]   field_3_rks;
+	private short   field_4_last_col;
 
 	public int getRow() {
 		return field_1_row;
@@ -74,7 +78,7 @@ public final class MulRKRecord extends StandardRecord {
 	 * @return the XF index for the column
 	 */
 	public short getXFAt(int coffset) {
-		return field_3_rks[coffset].xf;
+		return field_3_xfs[coffset];
 	}
 
 	/**
@@ -85,16 +89,61 @@ public final class MulRKRecord extends StandardRecord {
 	 * @return the value (decoded into a double)
 	 */
 	public double getRKNumberAt(int coffset) {
-		return RKUtil.decodeNumber(field_3_rks[coffset].rk);
+		return RKUtil.decodeNumber(field_3_rks[coffset]);
+	}
+
+	/**
+	 * @param coffset the coffset = column - field_2_first_col
+	 *
+	 * @return the encoded RK number for the column
+	 */
+	public int getRKAt(int coffset) {
+		return field_3_rks[coffset];
+	}
+
+	/**
+	 * @param row the row of the cells
+	 * @param firstCol the column of the first cell
+	 * @param xfs the XF indexes of the cells
+	 * @param rks the encoded RK numbers of the cells, see {@link #getRKAt(int)}
+	 */
+	public MulRKRecord(int row, int firstCol, short[] xfs, int[] rks) {
+		field_1_row = row;
+		field_2_first_col = (short) firstCol;
+		field_3_xfs = xfs;
+		field_3_rks = rks;
+		field_4_last_col = (short) (firstCol + xfs.length - 1);
 	}
 
 	/**
 	 * @param in the RecordInputstream to read the record from
 	 */
 	public MulRKRecord(RecordInputStream in) {
+		readFrom(in);
+	}
+
+	/**
+	 * Creates an empty record, to be filled by {@link #readFrom(RecordInputStream)}
+	 */
+	/* package */ MulRKRecord() {
+		// fields uninitialised
+	}
+
+	/**
+	 * Reads a MULRK record into this instance, reusing the arrays if they are large enough
+	 */
+	/* package */ void readFrom(RecordInputStream in) {
 		field_1_row = in.readUShort();
 		field_2_first_col = in.readShort();
-		field_3_rks = RkRec.parseRKs(in);
+		int nItems = (in.remaining()-2) / ENCODED_RK_SIZE;
+		if (field_3_rks == null || field_3_rks.length < nItems) {
+			field_3_xfs = new short[nItems];
+			field_3_rks = new int[nItems];
+		}
+		for (int i=0; i<nItems; i++) {
+			field_3_xfs[i] = in.readShort();
+			field_3_rks[i] = in.readInt();
+		}
 		field_4_last_col = in.readShort();
 	}
 
@@ -124,30 +173,25 @@ public final class MulRKRecord extends StandardRecord {
 
 	@Override
     public void serialize(LittleEndianOutput out) {
-		throw new RecordFormatException( "Sorry, you can't serialize MulRK in this release");
+		out.writeShort(field_1_row);
+		out.writeShort(field_2_first_col);
+		int nItems = getNumColumns();
+		for (int i = 0; i < nItems; i++) {
+			out.writeShort(field_3_xfs[i]);
+			out.writeInt(field_3_rks[i]);
+		}
+		out.writeShort(field_4_last_col);
 	}
 	@Override
     protected int getDataSize() {
-		throw new RecordFormatException( "Sorry, you can't serialize MulRK in this release");
+		// 3 short fields + array of xf and rk pairs
+		return 6 + getNumColumns() * ENCODED_RK_SIZE;
 	}
 
-	private static final class RkRec {
-		public static final int ENCODED_SIZE = 6;
-		public final short xf;
-		public final int   rk;
-
-		private RkRec(RecordInputStream in) {
-			xf = in.readShort();
-			rk = in.readInt();
-		}
-
-		public static RkRec[] parseRKs(RecordInputStream in) {
-			int nItems = (in.remaining()-2) / ENCODED_SIZE;
-			RkRec[] retval = new RkRec[nItems];
-			for (int i=0; i<nItems; i++) {
-				retval[i] = new RkRec(in);
-			}
-			return retval;
-		}
+	@Override
+	public MulRKRecord clone() {
+		// only the instances reused by RecordFactoryInputStream are ever changed,
+		// and these never become part of a sheet - so OK to return this
+		return this;
 	}
 }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.record;
 
+import org.apache.poi.hssf.util.RKUtil;
 import org.apache.poi.ss.util.NumberToTextConverter;
 import org.apache.poi.util.LittleEndianOutput;
 
@@ -43,6 +44,22 @@ public final class NumberRecord extends CellRecord implements Cloneable {
         field_4_value = in.readDouble();
     }
 
+    /**
+     * Reads a NUMBER record into this instance
+     */
+    /* package */ void readFrom(RecordInputStream in) {
+        readCellHeader(in);
+        field_4_value = in.readDouble();
+    }
+
+    /**
+     * Reads an RK record into this instance, decoding the RK number
+     */
+    /* package */ void readFromRK(RecordInputStream in) {
+        readCellHeader(in);
+        field_4_value = RKUtil.decodeNumber(in.readInt());
+    }
+
     /**
      * set the value for the cell
      *
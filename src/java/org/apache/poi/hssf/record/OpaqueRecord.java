@@ -0,0 +1,79 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record;
+
+import org.apache.poi.util.HexDump;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * A record which has been read without being parsed, see
+ * {@link RecordFactoryInputStream#setOpaqueRecords(java.util.Set, boolean)}.<p/>
+ *
+ * This pseudo record has its own sid, so it is never taken for the record it holds by code
+ * looking for records of a certain type. It is written back unchanged, with the sid and the
+ * data of the original record.
+ */
+@Internal
+public final class OpaqueRecord extends Record {
+
+    /** not a BIFF record identifier, the original sid is {@link #getRecordSid()} */
+    public static final short sid = -2;
+
+    private final short _recordSid;
+    private final byte[] _data;
+
+    public OpaqueRecord(RecordInputStream in) {
+        _recordSid = in.getSid();
+        _data = in.readRemainder();
+    }
+
+    /**
+     * @return the sid of the record held
+     */
+    public short getRecordSid() {
+        return _recordSid;
+    }
+
+    public short getSid() {
+        return sid;
+    }
+
+    public int getRecordSize() {
+        return 4 + _data.length;
+    }
+
+    public int serialize(int offset, byte[] data) {
+        LittleEndian.putShort(data, offset, _recordSid);
+        LittleEndian.putShort(data, offset + 2, (short) _data.length);
+        System.arraycopy(_data, 0, data, offset + 4, _data.length);
+        return getRecordSize();
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[OPAQUE sid=").append(HexDump.shortToHex(_recordSid)).append(" size=").append(_data.length).append("]\n");
+        return sb.toString();
+    }
+
+    @Override
+    public OpaqueRecord clone() {
+        // immutable - OK to return this
+        return this;
+    }
+}
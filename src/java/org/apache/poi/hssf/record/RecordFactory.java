@@ -24,6 +24,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -485,10 +486,52 @@ public final class RecordFactory {
      * @exception org.apache.poi.util.RecordFormatException on error processing the InputStream
      */
     public static List<Record> createRecords(InputStream in) throws org.apache.poi.util.RecordFormatException {
+        return createRecords(in, null, false);
+    }
+
+    /**
+     * Create an array of records from an input stream, keeping some of the records as
+     * {@link OpaqueRecord}s holding the raw record data
+     *
+     * @param in the InputStream from which the records will be obtained
+     * @param opaqueSids the sids of the records which are not parsed, <code>null</code> to parse all records
+     * @param opaqueChartSubstreams whether the chart substreams embedded in sheets are not parsed
+     *
+     * @return an array of Records created from the InputStream
+     *
+     * @exception org.apache.poi.util.RecordFormatException on error processing the InputStream
+     * @see RecordFactoryInputStream#setOpaqueRecords(Set, boolean)
+     */
+    public static List<Record> createRecords(InputStream in, Set<Short> opaqueSids, boolean opaqueChartSubstreams)
+            throws org.apache.poi.util.RecordFormatException {
+        return createRecords(in, opaqueSids, opaqueChartSubstreams, true);
+    }
+
+    /**
+     * Create an array of records from an input stream, keeping some of the records as
+     * {@link OpaqueRecord}s holding the raw record data
+     *
+     * @param in the InputStream from which the records will be obtained
+     * @param opaqueSids the sids of the records which are not parsed, <code>null</code> to parse all records
+     * @param opaqueChartSubstreams whether the chart substreams embedded in sheets are not parsed
+     * @param expandMulRKRecords whether {@link MulRKRecord}s are converted to a {@link NumberRecord}
+     *  for each of their cells
+     *
+     * @return an array of Records created from the InputStream
+     *
+     * @exception org.apache.poi.util.RecordFormatException on error processing the InputStream
+     * @see RecordFactoryInputStream#setExpandMulRKRecords(boolean)
+     */
+    public static List<Record> createRecords(InputStream in, Set<Short> opaqueSids, boolean opaqueChartSubstreams,
+            boolean expandMulRKRecords) throws org.apache.poi.util.RecordFormatException {
 
         List<Record> records = new ArrayList<Record>(NUM_RECORDS);
 
         RecordFactoryInputStream recStream = new RecordFactoryInputStream(in, true);
+        recStream.setExpandMulRKRecords(expandMulRKRecords);
+        if (opaqueSids != null || opaqueChartSubstreams) {
+            recStream.setOpaqueRecords(opaqueSids == null ? Collections.<Short>emptySet() : opaqueSids, opaqueChartSubstreams);
+        }
 
         Record record;
         while ((record = recStream.nextRecord())!=null) {
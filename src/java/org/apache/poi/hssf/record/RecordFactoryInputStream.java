@@ -19,8 +19,10 @@ package org.apache.poi.hssf.record;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.eventusermodel.HSSFCellListener;
 import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
 import org.apache.poi.hssf.eventusermodel.HSSFListener;
 import org.apache.poi.hssf.record.FilePassRecord.Rc4KeyData;
@@ -28,7 +30,9 @@ import org.apache.poi.hssf.record.FilePassRecord.XorKeyData;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
 import org.apache.poi.hssf.record.crypto.Biff8RC4Key;
 import org.apache.poi.hssf.record.crypto.Biff8XORKey;
+import org.apache.poi.hssf.util.RKUtil;
 import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.ss.usermodel.CellType;
 
 /**
  * A stream based way to get at complete records, with
@@ -191,6 +195,50 @@ public final class RecordFactoryInputStream {
 
 	private boolean _lastRecordWasEOFLevelZero;
 
+	/**
+	 * The instances returned for all number and LABELSST cells, <code>null</code> unless cell
+	 * records are reused
+	 */
+	private NumberRecord _reusedNumberRecord;
+	private LabelSSTRecord _reusedLabelSSTRecord;
+	/**
+	 * The most recently read MULRK record, when cell records are reused
+	 */
+	private MulRKRecord _reusedMulRKRecord;
+	/**
+	 * index of the next cell of {@link #_reusedMulRKRecord} to return, <code>-1</code> if none
+	 */
+	private int _mulRKIndex = -1;
+
+	/**
+	 * sids of the records returned as {@link OpaqueRecord}s, <code>null</code> if all records are parsed
+	 */
+	private Set<Short> _opaqueSids;
+	private boolean _opaqueChartSubstreams;
+	/**
+	 * BOF nesting level within the current opaque chart substream, <code>0</code> if outside
+	 */
+	private int _opaqueChartDepth;
+
+	/**
+	 * receives the cell values decoded from the record data, <code>null</code> if cell records are created
+	 */
+	private HSSFCellListener _cellListener;
+	/**
+	 * the row of the most recent cell passed to {@link #_cellListener}, <code>-1</code> if that row has ended
+	 */
+	private int _cellRow = -1;
+	/**
+	 * the cell of the most recent formula with a string result, <code>-1</code> if no STRING record is expected
+	 */
+	private int _formulaStringRow = -1;
+	private int _formulaStringColumn;
+
+	/**
+	 * whether MULRK records are returned as {@link NumberRecord}s, one for each cell
+	 */
+	private boolean _expandMulRKRecords = true;
+
 
 	/**
 	 * @param in the InputStream to read from
@@ -239,6 +287,65 @@ public final class RecordFactoryInputStream {
 		_lastRecordWasEOFLevelZero = false;
 	}
 
+	/**
+	 * Controls whether the cell records are reused. If enabled, the same {@link NumberRecord}
+	 * instance is returned for all NUMBER, RK and MULRK cells and the same {@link LabelSSTRecord}
+	 * for all LABELSST cells, with the fields read from the current record. Callers must copy any
+	 * values they need before asking for the next record. Reusing the records saves allocating
+	 * an object for every cell of the workbook.
+	 *
+	 * @param reuseCellRecords <code>true</code> to reuse the cell records, the default is
+	 *  <code>false</code>
+	 */
+	public void setReuseCellRecords(boolean reuseCellRecords) {
+		if (reuseCellRecords) {
+			_reusedNumberRecord = new NumberRecord();
+			_reusedLabelSSTRecord = new LabelSSTRecord();
+			_reusedMulRKRecord = new MulRKRecord();
+		} else {
+			_reusedNumberRecord = null;
+			_reusedLabelSSTRecord = null;
+			_reusedMulRKRecord = null;
+			_mulRKIndex = -1;
+		}
+	}
+
+	/**
+	 * Controls which records are returned as {@link OpaqueRecord}s holding the raw record data,
+	 * instead of being parsed. CONTINUE records following an opaque record are opaque as well.
+	 *
+	 * @param sids the sids of the records to keep opaque
+	 * @param chartSubstreams whether all records of the chart substreams embedded in sheets,
+	 *  including their BOF and EOF records, are opaque
+	 */
+	public void setOpaqueRecords(Set<Short> sids, boolean chartSubstreams) {
+		_opaqueSids = sids;
+		_opaqueChartSubstreams = chartSubstreams;
+	}
+
+	/**
+	 * Lets the specified listener receive the values of the cells, decoded straight from the
+	 * record data. The records of these cells are not returned by {@link #nextRecord()}.
+	 *
+	 * @param listener the listener, <code>null</code> (the default) to return all cell records
+	 * @see HSSFCellListener
+	 */
+	public void setCellListener(HSSFCellListener listener) {
+		_cellListener = listener;
+	}
+
+	/**
+	 * Controls whether MULRK records are converted to a {@link NumberRecord} for each of their
+	 * cells. When disabled, the {@link MulRKRecord}s are returned as they are, which lets
+	 * callers keep the cells packed.
+	 *
+	 * @param expandMulRKRecords <code>false</code> to return {@link MulRKRecord}s, the default
+	 *  is <code>true</code>
+	 */
+	public void setExpandMulRKRecords(boolean expandMulRKRecords) {
+		_expandMulRKRecords = expandMulRKRecords;
+	}
+
 	/**
 	 * @return the next (complete) record from the stream, or null if there are no more.
 	 */
@@ -249,6 +356,12 @@ public final class RecordFactoryInputStream {
 			// found an unread record
 			return r;
 		}
+		if (_mulRKIndex >= 0) {
+			r = getNextMulRKCell();
+			if (r != null) {
+				return r;
+			}
+		}
 		while (true) {
 			if (!_recStream.hasNextRecord()) {
 				// recStream is exhausted;
@@ -297,6 +410,265 @@ public final class RecordFactoryInputStream {
 		return null;
 	}
 
+	/**
+	 * @return the next cell of the most recently read MULRK record, filled into the reused
+	 * {@link NumberRecord}. <code>null</code> if all cells have been returned.
+	 */
+	private NumberRecord getNextMulRKCell() {
+		MulRKRecord mrk = _reusedMulRKRecord;
+		int k = _mulRKIndex;
+		if (k >= mrk.getNumColumns()) {
+			_mulRKIndex = -1;
+			return null;
+		}
+		_mulRKIndex = k + 1;
+		NumberRecord nr = _reusedNumberRecord;
+		nr.setColumn((short) (k + mrk.getFirstColumn()));
+		nr.setRow(mrk.getRow());
+		nr.setXFIndex(mrk.getXFAt(k));
+		nr.setValue(mrk.getRKNumberAt(k));
+		return nr;
+	}
+
+	private boolean isOpaqueRecord(short sid) {
+		if (_opaqueChartDepth > 0) {
+			return true;
+		}
+		if (sid == BOFRecord.sid) {
+			// sheet substreams start at level zero, the BOF of embedded charts follows at level one
+			return _opaqueChartSubstreams && _bofDepth > 0;
+		}
+		if (sid == ContinueRecord.sid) {
+			return _lastRecord instanceof OpaqueRecord;
+		}
+		return _opaqueSids.contains(Short.valueOf(sid));
+	}
+
+	private Record readOpaqueRecord() {
+		short sid = _recStream.getSid();
+		if (sid == BOFRecord.sid) {
+			_bofDepth++;
+			_opaqueChartDepth++;
+		} else if (sid == EOFRecord.sid && _opaqueChartDepth > 0) {
+			_bofDepth--;
+			_opaqueChartDepth--;
+		}
+		_lastRecordWasEOFLevelZero = false;
+		OpaqueRecord record = new OpaqueRecord(_recStream);
+		_lastRecord = record;
+		return record;
+	}
+
+	/**
+	 * @return <code>true</code> if the specified record may occur between the cells of a row
+	 */
+	private static boolean isCellContentRecord(short sid) {
+		switch (sid) {
+			case NumberRecord.sid:
+			case RKRecord.sid:
+			case MulRKRecord.sid:
+			case LabelSSTRecord.sid:
+			case LabelRecord.sid:
+			case BoolErrRecord.sid:
+			case FormulaRecord.sid:
+			case StringRecord.sid:
+			case BlankRecord.sid:
+			case MulBlankRecord.sid:
+			case SharedFormulaRecord.sid:
+			case ArrayRecord.sid:
+			case TableRecord.sid:
+			case ContinueRecord.sid:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void startCell(int row) {
+		_formulaStringRow = -1;
+		if (row != _cellRow) {
+			endRow();
+			_cellRow = row;
+			_cellListener.onRowStart(row);
+		}
+	}
+
+	private void endRow() {
+		if (_cellRow >= 0) {
+			int row = _cellRow;
+			_cellRow = -1;
+			_cellListener.onRowEnd(row);
+		}
+	}
+
+	/**
+	 * Passes the values of the current record to the cell listener, if it is a cell record
+	 *
+	 * @return <code>true</code> if the record has been read
+	 */
+	private boolean readCellValues() {
+		RecordInputStream in = _recStream;
+		short sid = in.getSid();
+		if (!isCellContentRecord(sid)) {
+			endRow();
+			_formulaStringRow = -1;
+			return false;
+		}
+		HSSFCellListener listener = _cellListener;
+		int row, column, xfIndex;
+		switch (sid) {
+			case NumberRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				xfIndex = in.readUShort();
+				startCell(row);
+				listener.onNumber(row, column, xfIndex, in.readDouble());
+				break;
+			case RKRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				xfIndex = in.readUShort();
+				startCell(row);
+				listener.onNumber(row, column, xfIndex, RKUtil.decodeNumber(in.readInt()));
+				break;
+			case MulRKRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				int nItems = (in.remaining() - 2) / 6;
+				if (nItems > 0) {
+					startCell(row);
+				}
+				for (int i = 0; i < nItems; i++) {
+					xfIndex = in.readUShort();
+					listener.onNumber(row, column + i, xfIndex, RKUtil.decodeNumber(in.readInt()));
+				}
+				in.readShort(); // last column
+				break;
+			case LabelSSTRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				xfIndex = in.readUShort();
+				startCell(row);
+				listener.onSSTString(row, column, xfIndex, in.readInt());
+				break;
+			case LabelRecord.sid:
+				LabelRecord label = new LabelRecord(in);
+				startCell(label.getRow());
+				listener.onString(label.getRow(), label.getColumn(), label.getXFIndex(), label.getValue());
+				break;
+			case BoolErrRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				xfIndex = in.readUShort();
+				int value = in.remaining() == 3 ? in.readUShort() : in.readUByte();
+				boolean isError = in.readUByte() != 0;
+				startCell(row);
+				if (isError) {
+					listener.onError(row, column, xfIndex, value);
+				} else {
+					listener.onBoolean(row, column, xfIndex, value != 0);
+				}
+				break;
+			case FormulaRecord.sid:
+				row = in.readUShort();
+				column = in.readUShort();
+				xfIndex = in.readUShort();
+				long valueLongBits = in.readLong();
+				// the options, the reserved field and the parsed expression are not needed
+				in.skipRemainder();
+				startCell(row);
+				readFormulaResult(row, column, xfIndex, valueLongBits);
+				break;
+			case StringRecord.sid:
+				if (_formulaStringRow < 0) {
+					return false;
+				}
+				StringRecord string = new StringRecord(in);
+				row = _formulaStringRow;
+				_formulaStringRow = -1;
+				listener.onFormulaString(row, _formulaStringColumn, string.getString());
+				break;
+			default:
+				// blank cells and formula related records are returned as records
+				return false;
+		}
+		_lastRecordWasEOFLevelZero = false;
+		return true;
+	}
+
+	/**
+	 * Passes the cached result of a formula, which is a double unless the top two bytes
+	 * are <tt>0xFFFF</tt>, see {@link FormulaRecord}
+	 */
+	private void readFormulaResult(int row, int column, int xfIndex, long valueLongBits) {
+		HSSFCellListener listener = _cellListener;
+		if ((valueLongBits & 0xFFFF000000000000L) != 0xFFFF000000000000L) {
+			listener.onFormula(row, column, xfIndex, CellType.NUMERIC, Double.longBitsToDouble(valueLongBits));
+			return;
+		}
+		int typeCode = (int) (valueLongBits & 0xFF);
+		int data = (int) ((valueLongBits >> 16) & 0xFF);
+		switch (typeCode) {
+			case 0: // string, the text follows in a STRING record
+				_formulaStringRow = row;
+				_formulaStringColumn = column;
+				listener.onFormula(row, column, xfIndex, CellType.STRING, 0);
+				break;
+			case 1:
+				listener.onFormula(row, column, xfIndex, CellType.BOOLEAN, data == 0 ? 0 : 1);
+				break;
+			case 2:
+				listener.onFormula(row, column, xfIndex, CellType.ERROR, data);
+				break;
+			case 3: // empty string
+				listener.onFormula(row, column, xfIndex, CellType.STRING, 0);
+				listener.onFormulaString(row, column, "");
+				break;
+			default:
+				throw new org.apache.poi.util.RecordFormatException("Bad special value code (" + typeCode + ")");
+		}
+	}
+
+	private static boolean isReusedCellRecord(short sid) {
+		switch (sid) {
+			case NumberRecord.sid:
+			case RKRecord.sid:
+			case LabelSSTRecord.sid:
+			case MulRKRecord.sid:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Reads the current cell record into the reused instance
+	 *
+	 * @return the reused record, or <code>null</code> for a MULRK record without cells
+	 */
+	private Record readReusedCellRecord() {
+		switch (_recStream.getSid()) {
+			case NumberRecord.sid:
+				_reusedNumberRecord.readFrom(_recStream);
+				_lastRecord = _reusedNumberRecord;
+				return _reusedNumberRecord;
+			case RKRecord.sid:
+				// like the converted RK and MULRK records, these don't become the last record
+				_reusedNumberRecord.readFromRK(_recStream);
+				return _reusedNumberRecord;
+			case LabelSSTRecord.sid:
+				_reusedLabelSSTRecord.readFrom(_recStream);
+				_lastRecord = _reusedLabelSSTRecord;
+				return _reusedLabelSSTRecord;
+			case MulRKRecord.sid:
+				_reusedMulRKRecord.readFrom(_recStream);
+				_mulRKIndex = 0;
+				return getNextMulRKCell();
+			default:
+				throw new IllegalStateException("Unexpected sid " + _recStream.getSid());
+		}
+	}
+
 	/**
 	 * @return the next available record, or <code>null</code> if
 	 * this pass didn't return a record that's
@@ -304,6 +676,19 @@ public final class RecordFactoryInputStream {
 	 */
 	private Record readNextRecord() {
 
+		if (_cellListener != null && readCellValues()) {
+			return null;
+		}
+
+		if (_opaqueSids != null && isOpaqueRecord(_recStream.getSid())) {
+			return readOpaqueRecord();
+		}
+
+		if (_reusedNumberRecord != null && isReusedCellRecord(_recStream.getSid())) {
+			_lastRecordWasEOFLevelZero = false;
+			return readReusedCellRecord();
+		}
+
 		Record record = RecordFactory.createSingleRecord(_recStream);
 		_lastRecordWasEOFLevelZero = false;
 
@@ -331,6 +716,10 @@ public final class RecordFactoryInputStream {
 		}
 
 		if (record instanceof MulRKRecord) {
+			if (!_expandMulRKRecords) {
+				// like the converted cells, the record doesn't become the last record
+				return record;
+			}
 			Record[] records = RecordFactory.convertRKRecords((MulRKRecord) record);
 
 			_unreadRecordBuffer = records;
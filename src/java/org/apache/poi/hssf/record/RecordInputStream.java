@@ -19,6 +19,9 @@ package org.apache.poi.hssf.record;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Locale;
 
 import org.apache.poi.hssf.dev.BiffViewer;
@@ -71,6 +74,11 @@ public final class RecordInputStream implements LittleEndianInput {
 	private final BiffHeaderInput _bhi;
 	/** Data {@link LittleEndianInput} facet of the wrapped {@link InputStream} */
 	private final LittleEndianInput _dataInput;
+	/**
+	 * Holds the data of the current BIFF record, <code>null</code> for encrypted streams, which
+	 * are read straight from the decrypting stream
+	 */
+	private final RecordDataBuffer _dataBuffer;
 	/** the record identifier of the BIFF record currently being read */
 	private int _currentSid;
 	/**
@@ -113,18 +121,116 @@ public final class RecordInputStream implements LittleEndianInput {
 		}
 	}
 
+	/**
+	 * Data {@link LittleEndianInput} over the data of the current BIFF record, which is read
+	 * with a single bulk read when the record is started. The buffer is reused for all records
+	 * of the stream, including {@link ContinueRecord}s, so reading a record doesn't allocate.
+	 */
+	private static final class RecordDataBuffer implements LittleEndianInput {
+
+		private final LittleEndianInput _in;
+		private final byte[] _data = new byte[MAX_RECORD_DATA_SIZE];
+		private final ByteBuffer _bb = ByteBuffer.wrap(_data).order(ByteOrder.LITTLE_ENDIAN);
+
+		public RecordDataBuffer(LittleEndianInput in) {
+			_in = in;
+		}
+
+		/**
+		 * Reads the data of the next record into the buffer. Truncated streams only fail when
+		 * the missing data is actually read.
+		 */
+		public void fill(int dataSize) {
+			int len = Math.min(dataSize, _in.available());
+			if (len > 0) {
+				_in.readFully(_data, 0, len);
+			}
+			_bb.clear();
+			_bb.limit(len);
+		}
+		@Override
+		public int available() {
+			return _bb.remaining();
+		}
+		@Override
+		public byte readByte() {
+			return _bb.get();
+		}
+		@Override
+		public int readUByte() {
+			return _bb.get() & 0xFF;
+		}
+		@Override
+		public short readShort() {
+			return _bb.getShort();
+		}
+		@Override
+		public int readUShort() {
+			return _bb.getShort() & 0xFFFF;
+		}
+		@Override
+		public int readInt() {
+			return _bb.getInt();
+		}
+		@Override
+		public long readLong() {
+			return _bb.getLong();
+		}
+		@Override
+		public double readDouble() {
+			return _bb.getDouble();
+		}
+		@Override
+		public void readFully(byte[] buf) {
+			_bb.get(buf);
+		}
+		@Override
+		public void readFully(byte[] buf, int off, int len) {
+			_bb.get(buf, off, len);
+		}
+
+		public void skip(int len) {
+			_bb.position(_bb.position() + Math.min(len, _bb.remaining()));
+		}
+
+		/**
+		 * Decodes <tt>len</tt> characters straight from the buffer
+		 */
+		public void readChars(char[] buf, int off, int len, boolean isCompressedEncoding) {
+			int pos = _bb.position();
+			int byteCount = isCompressedEncoding ? len : len * LittleEndianConsts.SHORT_SIZE;
+			if (byteCount > _bb.remaining()) {
+				throw new BufferUnderflowException();
+			}
+			byte[] data = _data;
+			if (isCompressedEncoding) {
+				for (int i = 0; i < len; i++) {
+					buf[off + i] = (char) (data[pos + i] & 0xFF);
+				}
+			} else {
+				for (int i = 0; i < len; i++) {
+					int p = pos + 2 * i;
+					buf[off + i] = (char) ((data[p] & 0xFF) | (data[p + 1] & 0xFF) << 8);
+				}
+			}
+			_bb.position(pos + byteCount);
+		}
+	}
+
 	public RecordInputStream(InputStream in) throws RecordFormatException {
 		this (in, null, 0);
 	}
 
 	public RecordInputStream(InputStream in, Biff8EncryptionKey key, int initialOffset) throws RecordFormatException {
 		if (key == null) {
-			_dataInput = getLEI(in);
+			_dataBuffer = new RecordDataBuffer(getLEI(in));
+			_dataInput = _dataBuffer;
 			_bhi = new SimpleHeaderInput(in);
 		} else {
 			Biff8DecryptingStream bds = new Biff8DecryptingStream(in, initialOffset, key);
 			_bhi = bds;
 			_dataInput = bds;
+			_dataBuffer = null;
 		}
 		_nextSid = readNextSid();
 	}
@@ -218,6 +324,9 @@ public final class RecordInputStream implements LittleEndianInput {
 			throw new RecordFormatException("The content of an excel record cannot exceed "
 					+ MAX_RECORD_DATA_SIZE + " bytes");
 		}
+		if (_dataBuffer != null) {
+			_dataBuffer.fill(_currentDataLength);
+		}
 	}
 
 	private void checkRecordPosition(int requiredByteCount) {
@@ -375,31 +484,13 @@ public final class RecordInputStream implements LittleEndianInput {
 			int availableChars =isCompressedEncoding ?  remaining() : remaining() / LittleEndianConsts.SHORT_SIZE;
 			if (requestedLength - curLen <= availableChars) {
 				// enough space in current record, so just read it out
-				while(curLen < requestedLength) {
-					char ch;
-					if (isCompressedEncoding) {
-						ch = (char)readUByte();
-					} else {
-						ch = (char)readShort();
-					}
-					buf[curLen] = ch;
-					curLen++;
-				}
+				readChars(buf, curLen, requestedLength - curLen, isCompressedEncoding);
 				return new String(buf);
 			}
 			// else string has been spilled into next continue record
 			// so read what's left of the current record
-			while(availableChars > 0) {
-				char ch;
-				if (isCompressedEncoding) {
-					ch = (char)readUByte();
-				} else {
-					ch = (char)readShort();
-				}
-				buf[curLen] = ch;
-				curLen++;
-				availableChars--;
-			}
+			readChars(buf, curLen, availableChars, isCompressedEncoding);
+			curLen += availableChars;
 			if (!isContinueNext()) {
 				throw new RecordFormatException("Expected to find a ContinueRecord in order to read remaining "
 						+ (requestedLength-curLen) + " of " + requestedLength + " chars");
@@ -415,6 +506,24 @@ public final class RecordInputStream implements LittleEndianInput {
 		}
 	}
 
+	/**
+	 * Reads characters which are known to be within the current record
+	 */
+	private void readChars(char[] buf, int off, int len, boolean isCompressedEncoding) {
+		if (_dataBuffer != null) {
+			_dataBuffer.readChars(buf, off, len, isCompressedEncoding);
+			_currentDataOffset += isCompressedEncoding ? len : len * LittleEndianConsts.SHORT_SIZE;
+			return;
+		}
+		for (int i = off; i < off + len; i++) {
+			if (isCompressedEncoding) {
+				buf[i] = (char)readUByte();
+			} else {
+				buf[i] = (char)readShort();
+			}
+		}
+	}
+
 	/** Returns the remaining bytes for the current record.
 	 *
 	  * @return The remaining bytes of the current record.
@@ -429,6 +538,22 @@ public final class RecordInputStream implements LittleEndianInput {
 		return result;
 	}
 
+	/**
+	 * Skips the remaining bytes of the current record, without copying them when the record
+	 * data is buffered
+	 */
+	public void skipRemainder() {
+		int size = remaining();
+		if (_dataBuffer != null) {
+			_dataBuffer.skip(size);
+		} else {
+			for (int i = 0; i < size; i++) {
+				_dataInput.readByte();
+			}
+		}
+		_currentDataOffset += size;
+	}
+
     /**
      * Reads all byte data for the current record, including any that overlaps
      * into any following continue records.
@@ -20,6 +20,7 @@ package org.apache.poi.hssf.record;
 import java.util.Iterator;
 
 import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.hssf.record.common.UnicodeStringTable;
 import org.apache.poi.hssf.record.cont.ContinuableRecord;
 import org.apache.poi.hssf.record.cont.ContinuableRecordOutput;
 import org.apache.poi.util.IntMapper;
@@ -56,6 +57,8 @@ public final class SSTRecord extends ContinuableRecord {
     /** according to docs ONLY SST */
     private int field_2_num_unique_strings;
     private IntMapper<UnicodeString> field_3_strings;
+    /** the strings read from a file, until the table is modified or written */
+    private UnicodeStringTable field_3_lazy_strings;
 
     private SSTDeserializer deserializer;
 
@@ -82,19 +85,20 @@ public final class SSTRecord extends ContinuableRecord {
     public int addString(UnicodeString string)
     {
         field_1_num_strings++;
+        IntMapper<UnicodeString> strings = getStringMapper();
         UnicodeString ucs = ( string == null ) ? EMPTY_STRING
                 : string;
         int rval;
-        int index = field_3_strings.getIndex(ucs);
+        int index = strings.getIndex(ucs);
 
         if ( index != -1 ) {
             rval = index;
         } else {
             // This is a new string -- we didn't see it among the
             // strings we've already collected
-            rval = field_3_strings.size();
+            rval = strings.size();
             field_2_num_unique_strings++;
-            SSTDeserializer.addToStringTable( field_3_strings, ucs );
+            SSTDeserializer.addToStringTable( strings, ucs );
         }
         return rval;
     }
@@ -125,9 +129,25 @@ public final class SSTRecord extends ContinuableRecord {
      */
     public UnicodeString getString(int id )
     {
+        if (field_3_lazy_strings != null) {
+            return field_3_lazy_strings.get( id );
+        }
         return field_3_strings.get( id );
     }
 
+    /**
+     * Decodes all strings read from a file, as the table is about to be modified or written
+     */
+    private IntMapper<UnicodeString> getStringMapper() {
+        if (field_3_lazy_strings != null) {
+            for ( int k = 0; k < field_3_lazy_strings.size(); k++ ) {
+                SSTDeserializer.addToStringTable( field_3_strings, field_3_lazy_strings.get( k ) );
+            }
+            field_3_lazy_strings = null;
+        }
+        return field_3_strings;
+    }
+
 
     /**
      * Return a debugging string representation
@@ -142,9 +162,9 @@ public final class SSTRecord extends ContinuableRecord {
                 .append( Integer.toHexString( getNumStrings() ) ).append( "\n" );
         buffer.append( "    .uniquestrings  = " )
                 .append( Integer.toHexString( getNumUniqueStrings() ) ).append( "\n" );
-        for ( int k = 0; k < field_3_strings.size(); k++ )
+        for ( int k = 0; k < countStrings(); k++ )
         {
-          UnicodeString s = field_3_strings.get( k );
+          UnicodeString s = getString( k );
             buffer.append( "    .string_" + k + "      = " )
                     .append( s.getDebugInfo() ).append( "\n" );
         }
@@ -249,7 +269,8 @@ public final class SSTRecord extends ContinuableRecord {
             field_2_num_unique_strings = 0;
             return;
         }
-        deserializer.manufactureStrings( field_2_num_unique_strings, in );
+        // the strings are only decoded when they are looked up
+        field_3_lazy_strings = new UnicodeStringTable(in, field_2_num_unique_strings);
     }
 
 
@@ -259,18 +280,21 @@ public final class SSTRecord extends ContinuableRecord {
      */
     Iterator<UnicodeString> getStrings()
     {
-        return field_3_strings.iterator();
+        return getStringMapper().iterator();
     }
 
     /**
      * @return count of the strings we hold.
      */
     int countStrings() {
+        if (field_3_lazy_strings != null) {
+            return field_3_lazy_strings.size();
+        }
         return field_3_strings.size();
     }
 
     protected void serialize(ContinuableRecordOutput out) {
-        SSTSerializer serializer = new SSTSerializer(field_3_strings, getNumStrings(), getNumUniqueStrings() );
+        SSTSerializer serializer = new SSTSerializer(getStringMapper(), getNumStrings(), getNumUniqueStrings() );
         serializer.serialize(out);
         bucketAbsoluteOffsets = serializer.getBucketAbsoluteOffsets();
         bucketRelativeOffsets = serializer.getBucketRelativeOffsets();
@@ -316,6 +340,6 @@ public final class SSTRecord extends ContinuableRecord {
      * @return  The size of the ExtSST record in bytes.
      */
     public int calcExtSSTRecordSize() {
-      return ExtSSTRecord.getRecordSizeForStrings(field_3_strings.size());
+      return ExtSSTRecord.getRecordSizeForStrings(countStrings());
     }
 }
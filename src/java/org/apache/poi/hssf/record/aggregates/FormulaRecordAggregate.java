@@ -201,6 +201,22 @@ public final class FormulaRecordAggregate extends RecordAggregate implements Cel
 		return _formulaRecord.getParsedExpression();
 	}
 
+	/**
+	 * @return <code>false</code> if the formula of this cell certainly contains no 3D references
+	 * @see Formula#mayContain3DReferences()
+	 */
+	public boolean mayContain3DReferences() {
+		if (_sharedFormulaRecord != null) {
+			return true;
+		}
+		Formula formula = _formulaRecord.getFormula();
+		if (formula.getExpReference() != null) {
+			// part of an array formula
+			return true;
+		}
+		return formula.mayContain3DReferences();
+	}
+
 	/**
 	 * Also checks for a related shared formula and unlinks it if found
 	 */
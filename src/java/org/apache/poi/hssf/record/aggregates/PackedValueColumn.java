@@ -0,0 +1,286 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record.aggregates;
+
+import java.util.Arrays;
+
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.util.RKUtil;
+
+/**
+ * The packed cells of one column of a {@link ValueRecordsAggregate}. The type, XF index and
+ * value of each cell are held in primitive arrays, so no objects are needed for the cells until
+ * their records are created. The arrays cover blocks of {@link #BLOCK_SIZE} rows, and only the
+ * blocks which have had a cell are allocated.<p/>
+ *
+ * The cells of a MULRK or MULBLANK record have types of their own, and the first and last cell
+ * of the record are flagged, so that the record can be written again as it was read.
+ */
+final class PackedValueColumn {
+	public static final byte NONE = 0;
+	public static final byte NUMBER = 1;
+	public static final byte LABEL_SST = 2;
+	public static final byte BOOLEAN = 3;
+	public static final byte ERROR = 4;
+	public static final byte BLANK = 5;
+	/** a cell of a MULRK record, the RK number is kept as it was read */
+	public static final byte RK = 6;
+	/** a cell of a MULBLANK record */
+	public static final byte MUL_BLANK = 7;
+
+	private static final int TYPE_MASK = 0x0F;
+	private static final int FIRST_IN_RUN = 0x10;
+	private static final int LAST_IN_RUN = 0x20;
+
+	private static final int BLOCK_SHIFT = 6;
+	/** the number of rows covered by each block of cells */
+	static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+	private static final int[] NO_BLOCK_INDEXES = { };
+	private static final Block[] NO_BLOCKS = { };
+
+	/**
+	 * The cells of {@link #BLOCK_SIZE} consecutive rows
+	 */
+	private static final class Block {
+		final byte[] types = new byte[BLOCK_SIZE];
+		final short[] xfs = new short[BLOCK_SIZE];
+		/** the values of the number cells, <code>null</code> until the block has one */
+		double[] numbers;
+		/** the SST indexes, boolean and error values and RK numbers, <code>null</code> until the block has one */
+		int[] ints;
+	}
+
+	/** the index of each allocated block (its first row divided by {@link #BLOCK_SIZE}), ascending */
+	private int[] _blockIndexes = NO_BLOCK_INDEXES;
+	private Block[] _blocks = NO_BLOCKS;
+	private int _blockCount;
+	private int _count;
+
+	/**
+	 * @return the number of cells in this column
+	 */
+	public int getCount() {
+		return _count;
+	}
+
+	/**
+	 * @return the number of blocks of rows allocated for this column
+	 */
+	int getBlockCount() {
+		return _blockCount;
+	}
+
+	/**
+	 * @return the block of the specified row, <code>null</code> if it has not been allocated
+	 */
+	private Block getBlock(int row) {
+		int blockIndex = row >> BLOCK_SHIFT;
+		// cells are mostly read and accessed in row order
+		if (_blockCount > 0 && _blockIndexes[_blockCount - 1] == blockIndex) {
+			return _blocks[_blockCount - 1];
+		}
+		int i = Arrays.binarySearch(_blockIndexes, 0, _blockCount, blockIndex);
+		return i < 0 ? null : _blocks[i];
+	}
+
+	private Block getOrCreateBlock(int row) {
+		Block result = getBlock(row);
+		if (result != null) {
+			return result;
+		}
+		int blockIndex = row >> BLOCK_SHIFT;
+		int i = -Arrays.binarySearch(_blockIndexes, 0, _blockCount, blockIndex) - 1;
+		if (_blockCount == _blocks.length) {
+			int newSize = _blocks.length * 3 / 2 + 1;
+			int[] blockIndexes = new int[newSize];
+			System.arraycopy(_blockIndexes, 0, blockIndexes, 0, _blockCount);
+			_blockIndexes = blockIndexes;
+			Block[] blocks = new Block[newSize];
+			System.arraycopy(_blocks, 0, blocks, 0, _blockCount);
+			_blocks = blocks;
+		}
+		System.arraycopy(_blockIndexes, i, _blockIndexes, i + 1, _blockCount - i);
+		System.arraycopy(_blocks, i, _blocks, i + 1, _blockCount - i);
+		result = new Block();
+		_blockIndexes[i] = blockIndex;
+		_blocks[i] = result;
+		_blockCount++;
+		return result;
+	}
+
+	public byte getType(int row) {
+		Block block = getBlock(row);
+		return block == null ? NONE : (byte) (block.types[row & BLOCK_MASK] & TYPE_MASK);
+	}
+
+	/**
+	 * @return <code>true</code> if the cell is the first cell of a MULRK or MULBLANK record
+	 */
+	public boolean isFirstInRun(int row) {
+		return (getBlock(row).types[row & BLOCK_MASK] & FIRST_IN_RUN) != 0;
+	}
+
+	/**
+	 * @return <code>true</code> if the cell is the last cell of a MULRK or MULBLANK record
+	 */
+	public boolean isLastInRun(int row) {
+		return (getBlock(row).types[row & BLOCK_MASK] & LAST_IN_RUN) != 0;
+	}
+
+	public short getXF(int row) {
+		return getBlock(row).xfs[row & BLOCK_MASK];
+	}
+
+	public double getNumber(int row) {
+		Block block = getBlock(row);
+		int i = row & BLOCK_MASK;
+		if ((block.types[i] & TYPE_MASK) == RK) {
+			return RKUtil.decodeNumber(block.ints[i]);
+		}
+		return block.numbers[i];
+	}
+
+	/**
+	 * @return the encoded RK number of a cell of type {@link #RK}
+	 */
+	public int getRK(int row) {
+		return getBlock(row).ints[row & BLOCK_MASK];
+	}
+
+	private int getInt(int row) {
+		return getBlock(row).ints[row & BLOCK_MASK];
+	}
+
+	public void setNumber(int row, short xf, double value) {
+		Block block = set(row, NUMBER, xf);
+		if (block.numbers == null) {
+			block.numbers = new double[BLOCK_SIZE];
+		}
+		block.numbers[row & BLOCK_MASK] = value;
+	}
+
+	/**
+	 * @param type one of {@link #LABEL_SST}, {@link #BOOLEAN} and {@link #ERROR}
+	 */
+	public void setInt(int row, byte type, short xf, int value) {
+		setInt(set(row, type, xf), row, value);
+	}
+
+	/**
+	 * @param first <code>true</code> for the first cell of the MULRK record
+	 * @param last <code>true</code> for the last cell of the MULRK record
+	 */
+	public void setRK(int row, short xf, int rk, boolean first, boolean last) {
+		setInt(set(row, withRunFlags(RK, first, last), xf), row, rk);
+	}
+
+	private static void setInt(Block block, int row, int value) {
+		if (block.ints == null) {
+			block.ints = new int[BLOCK_SIZE];
+		}
+		block.ints[row & BLOCK_MASK] = value;
+	}
+
+	public void setBlank(int row, short xf) {
+		set(row, BLANK, xf);
+	}
+
+	/**
+	 * @param first <code>true</code> for the first cell of the MULBLANK record
+	 * @param last <code>true</code> for the last cell of the MULBLANK record
+	 */
+	public void setMulBlank(int row, short xf, boolean first, boolean last) {
+		set(row, withRunFlags(MUL_BLANK, first, last), xf);
+	}
+
+	private static byte withRunFlags(byte type, boolean first, boolean last) {
+		int result = type;
+		if (first) {
+			result |= FIRST_IN_RUN;
+		}
+		if (last) {
+			result |= LAST_IN_RUN;
+		}
+		return (byte) result;
+	}
+
+	private Block set(int row, byte type, short xf) {
+		Block block = getOrCreateBlock(row);
+		int i = row & BLOCK_MASK;
+		if (block.types[i] == NONE) {
+			_count++;
+		}
+		block.types[i] = type;
+		block.xfs[i] = xf;
+		return block;
+	}
+
+	public void remove(int row) {
+		Block block = getBlock(row);
+		if (block != null && block.types[row & BLOCK_MASK] != NONE) {
+			block.types[row & BLOCK_MASK] = NONE;
+			_count--;
+		}
+	}
+
+	/**
+	 * @return a new record for the specified cell, which must not be {@link #NONE}
+	 */
+	public CellValueRecordInterface createRecord(int row, int column) {
+		CellValueRecordInterface result;
+		switch (getType(row)) {
+			case NUMBER:
+			case RK:
+				NumberRecord nr = new NumberRecord();
+				nr.setValue(getNumber(row));
+				result = nr;
+				break;
+			case LABEL_SST:
+				LabelSSTRecord lsr = new LabelSSTRecord();
+				lsr.setSSTIndex(getInt(row));
+				result = lsr;
+				break;
+			case BOOLEAN:
+				BoolErrRecord ber = new BoolErrRecord();
+				ber.setValue(getInt(row) != 0);
+				result = ber;
+				break;
+			case ERROR:
+				BoolErrRecord err = new BoolErrRecord();
+				err.setValue((byte) getInt(row));
+				result = err;
+				break;
+			case BLANK:
+			case MUL_BLANK:
+				result = new BlankRecord();
+				break;
+			default:
+				throw new IllegalStateException("No cell in row " + row);
+		}
+		result.setRow(row);
+		result.setColumn((short) column);
+		result.setXFIndex(getXF(row));
+		return result;
+	}
+}
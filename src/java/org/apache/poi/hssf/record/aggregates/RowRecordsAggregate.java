@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.record.aggregates;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -45,6 +46,10 @@ public final class RowRecordsAggregate extends RecordAggregate {
     // getStartRowNumberForBlock / getEndRowNumberForBlock, see Bugzilla 47405
     private RowRecord[] _rowRecordValues = null;
 
+    /** the row blocks flushed to a temporary file, <code>null</code> if no rows have been flushed */
+    private SpilledRowBlocks _spilledBlocks;
+    private int _lastFlushedRow = -1;
+
     /** Creates a new instance of ValueRecordsAggregate */
     public RowRecordsAggregate() {
         this(SharedValueManager.createEmpty());
@@ -93,6 +98,10 @@ public final class RowRecordsAggregate extends RecordAggregate {
                 _valuesAgg.addMultipleBlanks((MulBlankRecord) rec);
                 continue;
             }
+            if (rec instanceof MulRKRecord) {
+                _valuesAgg.addMultipleRKs((MulRKRecord) rec);
+                continue;
+            }
             if (!(rec instanceof CellValueRecordInterface)) {
                 throw new RuntimeException("Unexpected record type (" + rec.getClass().getName() + ")");
             }
@@ -246,37 +255,13 @@ public final class RowRecordsAggregate extends RecordAggregate {
 
     @Override
     public void visitContainedRecords(RecordVisitor rv) {
-
-        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
-        //DBCells are serialized before row records.
+        if (_spilledBlocks != null) {
+            // the flushed blocks precede all rows still held in memory
+            rv.visitRecord(_spilledBlocks);
+        }
         final int blockCount = getRowBlockCount();
         for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
-            // Serialize a block of rows.
-            // Hold onto the position of the first row in the block
-            int pos=0;
-            // Hold onto the size of this block that was serialized
-            final int rowBlockSize = visitRowRecordsForBlock(blockIndex, rv);
-            pos += rowBlockSize;
-            // Serialize a block of cells for those rows
-            final int startRowNumber = getStartRowNumberForBlock(blockIndex);
-            final int endRowNumber = getEndRowNumberForBlock(blockIndex);
-            DBCellRecord.Builder dbcrBuilder = new DBCellRecord.Builder();
-            // Note: Cell references start from the second row...
-            int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
-            for (int row = startRowNumber; row <= endRowNumber; row++) {
-                if (_valuesAgg.rowHasCells(row)) {
-                    stv.setPosition(0);
-                    _valuesAgg.visitCellsForRow(row, stv);
-                    int rowCellSize = stv.getPosition();
-                    pos += rowCellSize;
-                    // Add the offset to the first cell for the row into the
-                    // DBCellRecord.
-                    dbcrBuilder.addCellOffset(cellRefOffset);
-                    cellRefOffset = rowCellSize;
-                }
-            }
-            // Calculate Offset from the start of a DBCellRecord to the first Row
-            rv.visitRecord(dbcrBuilder.build(pos));
+            visitRowBlock(blockIndex, rv);
         }
         for (Record _unknownRecord : _unknownRecords) {
             // Potentially breaking the file here since we don't know exactly where to write these records
@@ -284,6 +269,117 @@ public final class RowRecordsAggregate extends RecordAggregate {
         }
     }
 
+    private void visitRowBlock(int blockIndex, RecordVisitor rv) {
+        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
+        //DBCells are serialized before row records.
+        // Serialize a block of rows.
+        // Hold onto the position of the first row in the block
+        int pos=0;
+        // Hold onto the size of this block that was serialized
+        final int rowBlockSize = visitRowRecordsForBlock(blockIndex, rv);
+        pos += rowBlockSize;
+        // Serialize a block of cells for those rows
+        final int startRowNumber = getStartRowNumberForBlock(blockIndex);
+        final int endRowNumber = getEndRowNumberForBlock(blockIndex);
+        DBCellRecord.Builder dbcrBuilder = new DBCellRecord.Builder();
+        // Note: Cell references start from the second row...
+        int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
+        for (int row = startRowNumber; row <= endRowNumber; row++) {
+            if (_valuesAgg.rowHasCells(row)) {
+                stv.setPosition(0);
+                _valuesAgg.visitCellsForRow(row, stv);
+                int rowCellSize = stv.getPosition();
+                pos += rowCellSize;
+                // Add the offset to the first cell for the row into the
+                // DBCellRecord.
+                dbcrBuilder.addCellOffset(cellRefOffset);
+                cellRefOffset = rowCellSize;
+            }
+        }
+        // Calculate Offset from the start of a DBCellRecord to the first Row
+        rv.visitRecord(dbcrBuilder.build(pos));
+    }
+
+    /**
+     * Serializes the records of a row block into a reused buffer
+     */
+    private static final class RowBlockSerializer implements RecordVisitor {
+        private byte[] _data = new byte[8192];
+        private int _size;
+        private int _lastRecordOffset;
+
+        public void reset() {
+            _size = 0;
+            _lastRecordOffset = 0;
+        }
+        @Override
+        public void visitRecord(Record r) {
+            int recSize = r.getRecordSize();
+            if (_size + recSize > _data.length) {
+                byte[] data = new byte[Math.max(_data.length * 2, _size + recSize)];
+                System.arraycopy(_data, 0, data, 0, _size);
+                _data = data;
+            }
+            _lastRecordOffset = _size;
+            _size += r.serialize(_size, _data);
+        }
+    }
+
+    /**
+     * Writes the leading complete row blocks to a temporary file and removes their rows and
+     * cells from memory, so that the memory needed for writing a sheet doesn't grow with the
+     * number of rows. The flushed rows can't be accessed any more and no rows can be inserted
+     * before the last flushed row.
+     *
+     * @param keepRowCount the minimum number of (trailing) rows to keep in memory
+     * @return the index of the last flushed row, <code>-1</code> if no rows have been flushed
+     */
+    public int flushRowBlocks(int keepRowCount) throws IOException {
+        RowBlockSerializer serializer = null;
+        while (_rowRecords.size() - keepRowCount >= DBCellRecord.BLOCK_SIZE) {
+            if (_spilledBlocks == null) {
+                _spilledBlocks = new SpilledRowBlocks();
+            }
+            if (serializer == null) {
+                serializer = new RowBlockSerializer();
+            }
+            serializer.reset();
+            visitRowBlock(0, serializer);
+            // the DBCELL record is the last record of the block
+            _spilledBlocks.addBlock(serializer._data, serializer._size, serializer._lastRecordOffset);
+
+            Iterator<RowRecord> it = _rowRecords.values().iterator();
+            for (int i = 0; i < DBCellRecord.BLOCK_SIZE; i++) {
+                RowRecord rr = it.next();
+                it.remove();
+                _valuesAgg.removeAllCellsValuesForRow(rr.getRowNumber());
+                _lastFlushedRow = rr.getRowNumber();
+            }
+            _rowRecordValues = null;
+        }
+        return _lastFlushedRow;
+    }
+
+    /**
+     * @return the index of the last row flushed by {@link #flushRowBlocks(int)}, <code>-1</code>
+     * if no rows have been flushed
+     */
+    public int getLastFlushedRowNum() {
+        return _lastFlushedRow;
+    }
+
+    /**
+     * Deletes the temporary file of the flushed rows, after which the sheet can't be written any more
+     *
+     * @return <code>true</code> if no rows have been flushed or the file has been deleted
+     */
+    public boolean disposeFlushedRows() {
+        if (_spilledBlocks == null) {
+            return true;
+        }
+        return _spilledBlocks.dispose();
+    }
+
     public Iterator<RowRecord> getIterator() {
         return _rowRecords.values().iterator();
     }
@@ -442,6 +538,29 @@ public final class RowRecordsAggregate extends RecordAggregate {
         return _valuesAgg.iterator();
     }
 
+    /**
+     * @param includePackedCells <code>true</code> to unpack and return the packed cells,
+     *  <code>false</code> to skip them
+     * @see ValueRecordsAggregate#iterator(boolean)
+     */
+    public Iterator<CellValueRecordInterface> getCellValueIterator(boolean includePackedCells) {
+        return _valuesAgg.iterator(includePackedCells);
+    }
+
+    /**
+     * @see ValueRecordsAggregate#visitPackedCells(ValueRecordsAggregate.PackedCellsVisitor)
+     */
+    public void visitPackedCells(ValueRecordsAggregate.PackedCellsVisitor pcv) {
+        _valuesAgg.visitPackedCells(pcv);
+    }
+
+    /**
+     * @see ValueRecordsAggregate#unpackCell(int, int)
+     */
+    public CellValueRecordInterface unpackCell(int rowIndex, int columnIndex) {
+        return _valuesAgg.unpackCell(rowIndex, columnIndex);
+    }
+
     public IndexRecord createIndexRecord(int indexRecordOffset, int sizeOfInitialSheetRecords) {
         IndexRecord result = new IndexRecord();
         result.setFirstRow(_firstrow);
@@ -454,11 +573,20 @@ public final class RowRecordsAggregate extends RecordAggregate {
         // 0 for now.....
 
         int blockCount = getRowBlockCount();
+        int spilledBlockCount = _spilledBlocks == null ? 0 : _spilledBlocks.getBlockCount();
         // Calculate the size of this IndexRecord
-        int indexRecSize = IndexRecord.getRecordSizeForBlockCount(blockCount);
+        int indexRecSize = IndexRecord.getRecordSizeForBlockCount(spilledBlockCount + blockCount);
 
         int currentOffset = indexRecordOffset + indexRecSize + sizeOfInitialSheetRecords;
 
+        // the flushed blocks come first, with their DBCELL positions known exactly
+        for (int block = 0; block < spilledBlockCount; block++) {
+            result.addDbcell(currentOffset + _spilledBlocks.getDBCellOffset(block));
+        }
+        if (_spilledBlocks != null) {
+            currentOffset += _spilledBlocks.getRecordSize();
+        }
+
         for (int block = 0; block < blockCount; block++) {
             // each row-block has a DBCELL record.
             // The offset of each DBCELL record needs to be updated in the INDEX record
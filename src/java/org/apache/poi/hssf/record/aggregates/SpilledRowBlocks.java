@@ -0,0 +1,161 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record.aggregates;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.RecordFormatException;
+import org.apache.poi.util.TempFile;
+
+/**
+ * The serialized row blocks (ROW records, cell records and DBCELL) which have been flushed from a
+ * {@link RowRecordsAggregate} to a temporary file, so they don't need to be held in memory.<p/>
+ *
+ * When the sheet is written, this pseudo record stands for all flushed row blocks, which are
+ * copied from the temporary file. Offsets in the DBCELL records are relative to the block, so
+ * the flushed data doesn't depend on the position of the sheet in the workbook stream.
+ */
+@Internal
+public final class SpilledRowBlocks extends Record {
+
+    /** not a BIFF record identifier, this record is never read from a file */
+    public static final short sid = -1;
+
+    private final File _file;
+    private OutputStream _out;
+    private int _size;
+    /** offsets of the DBCELL records of the blocks, relative to the start of the flushed data */
+    private int[] _dbCellOffsets = new int[16];
+    private int _blockCount;
+
+    public SpilledRowBlocks() throws IOException {
+        _file = TempFile.createTempFile("poi-hssf-rows", ".tmp");
+        _out = new BufferedOutputStream(new FileOutputStream(_file));
+    }
+
+    /**
+     * Appends a serialized row block
+     *
+     * @param data the records of the block
+     * @param len the size of the block
+     * @param dbCellOffset the offset of the DBCELL record, relative to the start of the block
+     */
+    public void addBlock(byte[] data, int len, int dbCellOffset) throws IOException {
+        if (_out == null) {
+            throw new IllegalStateException("The flushed rows have been disposed");
+        }
+        _out.write(data, 0, len);
+        if (_blockCount == _dbCellOffsets.length) {
+            int[] offsets = new int[_blockCount * 2];
+            System.arraycopy(_dbCellOffsets, 0, offsets, 0, _blockCount);
+            _dbCellOffsets = offsets;
+        }
+        _dbCellOffsets[_blockCount++] = _size + dbCellOffset;
+        _size += len;
+    }
+
+    public int getBlockCount() {
+        return _blockCount;
+    }
+
+    /**
+     * @return the offset of the DBCELL record of the specified block, relative to the start
+     * of the flushed data
+     */
+    public int getDBCellOffset(int block) {
+        return _dbCellOffsets[block];
+    }
+
+    @Override
+    public short getSid() {
+        return sid;
+    }
+
+    @Override
+    public int getRecordSize() {
+        return _size;
+    }
+
+    /**
+     * Copies the flushed row blocks to the specified stream
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream in = openData();
+        try {
+            IOUtils.copy(in, out);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public int serialize(int offset, byte[] data) {
+        try {
+            InputStream in = openData();
+            try {
+                if (IOUtils.readFully(in, data, offset, _size) != _size) {
+                    throw new RecordFormatException("The flushed rows have been truncated");
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new RecordFormatException("Unable to read the flushed rows", e);
+        }
+        return _size;
+    }
+
+    private InputStream openData() throws IOException {
+        if (_out == null) {
+            throw new IllegalStateException("The flushed rows have been disposed");
+        }
+        _out.flush();
+        return new FileInputStream(_file);
+    }
+
+    /**
+     * Deletes the temporary file, after which the flushed rows can't be written any more
+     *
+     * @return <code>true</code> if the file has been deleted
+     */
+    public boolean dispose() {
+        if (_out != null) {
+            try {
+                _out.close();
+            } catch (IOException e) {
+                // the file is deleted anyway
+            }
+            _out = null;
+        }
+        return _file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return "[SPILLED ROW BLOCKS " + _blockCount + " blocks, " + _size + " bytes]";
+    }
+}
@@ -21,19 +21,30 @@ import java.util.Iterator;
 
 import org.apache.poi.hssf.model.RecordStream;
 import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
-import org.apache.poi.hssf.record.RecordBase;
 import org.apache.poi.hssf.record.StringRecord;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.FormulaError;
 
 /**
  *
- * Aggregate value records together.  Things are easier to handle that way.
+ * Aggregate value records together.  Things are easier to handle that way.<p/>
+ *
+ * The number, LABELSST, boolean, error and blank cells read from a file, including the cells of
+ * {@link MulRKRecord}s and {@link MulBlankRecord}s, are kept packed in a {@link PackedValueColumn}
+ * for each column. The record of a packed cell is only created when the cell is
+ * {@link #unpackCell(int, int) unpacked}, and from then on the record is stored instead.
+ * The cells of a {@link MulRKRecord} or {@link MulBlankRecord} are written as that record again,
+ * unless one of them has been replaced or removed.
  *
  * @author  andy
  * @author  Glen Stampoultzis (glens at apache.org)
@@ -42,9 +53,32 @@ import org.apache.poi.ss.formula.ptg.Ptg;
 public final class ValueRecordsAggregate implements Iterable<CellValueRecordInterface> {
 	private static final int MAX_ROW_INDEX = 0XFFFF;
 	private static final int INDEX_NOT_SET = -1;
+	private static final PackedValueColumn[] NO_PACKED_COLUMNS = { };
+	private static final int[][] NO_PACKED_ROW_BOUNDS = { };
 	private int firstcell = INDEX_NOT_SET;
 	private int lastcell  = INDEX_NOT_SET;
 	private CellValueRecordInterface[][] records;
+	/** the packed cells by column, <code>null</code> for the columns without packed cells */
+	private PackedValueColumn[] packedColumns = NO_PACKED_COLUMNS;
+	/** one more than the highest row which ever had a packed cell */
+	private int packedRowCount;
+	/**
+	 * the columns of the packed cells of each row in blocks of {@link PackedValueColumn#BLOCK_SIZE}
+	 * rows, <code>null</code> for the blocks without packed cells, see {@link #getPackedRowBounds(int)}
+	 */
+	private int[][] packedRowBounds = NO_PACKED_ROW_BOUNDS;
+
+	/**
+	 * Receives the rows with packed cells, see {@link ValueRecordsAggregate#visitPackedCells(PackedCellsVisitor)}
+	 */
+	public interface PackedCellsVisitor {
+		/**
+		 * @param rowIndex the row of the packed cells
+		 * @param firstColumn the column of the first packed cell of the row
+		 * @param lastColumn the column of the last packed cell of the row
+		 */
+		void visitPackedCells(int rowIndex, int firstColumn, int lastColumn);
+	}
 
 	/** Creates a new instance of ValueRecordsAggregate */
 
@@ -60,6 +94,12 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	public void insertCell(CellValueRecordInterface cell) {
 		short column = cell.getColumn();
 		int row = cell.getRow();
+		removePackedCell(row, column);
+		setRecord(row, column, cell);
+		updateCellRange(column);
+	}
+
+	private void setRecord(int row, int column, CellValueRecordInterface cell) {
 		if (row >= records.length) {
 			CellValueRecordInterface[][] oldRecords = records;
 			int newSize = oldRecords.length * 2;
@@ -87,7 +127,9 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 			records[row] = rowCells;
 		}
 		rowCells[column] = cell;
+	}
 
+	private void updateCellRange(int column) {
 		if (column < firstcell || firstcell == INDEX_NOT_SET) {
 			firstcell = column;
 		}
@@ -120,6 +162,10 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 			throw new IllegalArgumentException("Specified rowIndex " + rowIndex
 					+ " is outside the allowable range (0.." +MAX_ROW_INDEX + ")");
 		}
+		int bounds = getPackedRowBounds(rowIndex);
+		for (int c = getFirstColumn(bounds); c < getEndColumn(bounds); c++) {
+			removePackedCell(rowIndex, c);
+		}
 		if (rowIndex >= records.length) {
 			// this can happen when the client code has created a row,
 			// and then removes/replaces it before adding any cells. (see bug 46312)
@@ -141,6 +187,24 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 				}
 			}
 		}
+		for (int c = 0; c < packedColumns.length; c++) {
+			if (packedColumns[c] != null) {
+				count += packedColumns[c].getCount();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of blocks of rows allocated for the packed cells of all columns
+	 */
+	int getPackedBlockCount() {
+		int count = 0;
+		for (int c = 0; c < packedColumns.length; c++) {
+			if (packedColumns[c] != null) {
+				count += packedColumns[c].getBlockCount();
+			}
+		}
 		return count;
 	}
 
@@ -152,14 +216,27 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		return lastcell;
 	}
 
+	/**
+	 * Adds the cells of the specified record, which are kept packed
+	 */
 	public void addMultipleBlanks(MulBlankRecord mbr) {
-		for (int j = 0; j < mbr.getNumColumns(); j++) {
-			BlankRecord br = new BlankRecord();
+		int nColumns = mbr.getNumColumns();
+		for (int j = 0; j < nColumns; j++) {
+			int column = j + mbr.getFirstColumn();
+			getPackedColumn(mbr.getRow(), column).setMulBlank(mbr.getRow(), mbr.getXFAt(j),
+					j == 0, j == nColumns - 1);
+		}
+	}
 
-			br.setColumn(( short ) (j + mbr.getFirstColumn()));
-			br.setRow(mbr.getRow());
-			br.setXFIndex(mbr.getXFAt(j));
-			insertCell(br);
+	/**
+	 * Adds the cells of the specified record, which are kept packed
+	 */
+	public void addMultipleRKs(MulRKRecord mrk) {
+		int nColumns = mrk.getNumColumns();
+		for (int j = 0; j < nColumns; j++) {
+			int column = j + mrk.getFirstColumn();
+			getPackedColumn(mrk.getRow(), column).setRK(mrk.getRow(), mrk.getXFAt(j), mrk.getRKAt(j),
+					j == 0, j == nColumns - 1);
 		}
 	}
 
@@ -179,24 +256,221 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 				cachedText = null;
 			}
 			insertCell(new FormulaRecordAggregate(formulaRec, cachedText, sfh));
-		} else {
+		} else if (!packCell(rec)) {
 			insertCell(rec);
 		}
 	}
 
+	/**
+	 * Stores the value of the specified record in the packed column of the cell
+	 *
+	 * @return <code>false</code> if the type of the record can't be packed
+	 */
+	private boolean packCell(CellValueRecordInterface rec) {
+		int row = rec.getRow();
+		int column = rec.getColumn();
+		if (rec instanceof NumberRecord) {
+			getPackedColumn(row, column).setNumber(row, rec.getXFIndex(), ((NumberRecord) rec).getValue());
+		} else if (rec instanceof LabelSSTRecord) {
+			getPackedColumn(row, column).setInt(row, PackedValueColumn.LABEL_SST, rec.getXFIndex(),
+					((LabelSSTRecord) rec).getSSTIndex());
+		} else if (rec instanceof BlankRecord) {
+			getPackedColumn(row, column).setBlank(row, rec.getXFIndex());
+		} else if (rec instanceof BoolErrRecord) {
+			BoolErrRecord ber = (BoolErrRecord) rec;
+			if (ber.isBoolean()) {
+				getPackedColumn(row, column).setInt(row, PackedValueColumn.BOOLEAN, rec.getXFIndex(),
+						ber.getBooleanValue() ? 1 : 0);
+			} else {
+				int errorCode = ber.getErrorValue();
+				if (errorCode < 0 || !FormulaError.isValidCode(errorCode)) {
+					// unusual error codes are kept as they are
+					return false;
+				}
+				getPackedColumn(row, column).setInt(row, PackedValueColumn.ERROR, rec.getXFIndex(), errorCode);
+			}
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the packed column for a new packed cell at the specified position, replacing any
+	 * record already stored for that cell
+	 */
+	private PackedValueColumn getPackedColumn(int row, int column) {
+		if (row < records.length && records[row] != null && column < records[row].length) {
+			records[row][column] = null;
+		}
+		if (column >= packedColumns.length) {
+			PackedValueColumn[] oldColumns = packedColumns;
+			packedColumns = new PackedValueColumn[column + 1];
+			System.arraycopy(oldColumns, 0, packedColumns, 0, oldColumns.length);
+		}
+		PackedValueColumn result = packedColumns[column];
+		if (result == null) {
+			result = new PackedValueColumn();
+			packedColumns[column] = result;
+		}
+		if (row >= packedRowCount) {
+			packedRowCount = row + 1;
+		}
+		int bounds = getPackedRowBounds(row);
+		if (bounds == 0) {
+			setPackedRowBounds(row, column, column + 1);
+		} else {
+			setPackedRowBounds(row, Math.min(getFirstColumn(bounds), column),
+					Math.max(getEndColumn(bounds), column + 1));
+		}
+		updateCellRange(column);
+		return result;
+	}
+
+	/**
+	 * @return the first column of the packed cells of the specified row in the low 16 bits, and
+	 * one more than their last column in the high 16 bits, or <code>0</code> if the row has no
+	 * packed cells
+	 */
+	private int getPackedRowBounds(int row) {
+		int[] block = getPackedRowBoundsBlock(row, false);
+		return block == null ? 0 : block[row % PackedValueColumn.BLOCK_SIZE];
+	}
+
+	private static int getFirstColumn(int packedRowBounds) {
+		return packedRowBounds & 0xFFFF;
+	}
+
+	private static int getEndColumn(int packedRowBounds) {
+		return packedRowBounds >>> 16;
+	}
+
+	private void setPackedRowBounds(int row, int firstColumn, int endColumn) {
+		int bounds = firstColumn < endColumn ? endColumn << 16 | firstColumn : 0;
+		getPackedRowBoundsBlock(row, true)[row % PackedValueColumn.BLOCK_SIZE] = bounds;
+	}
+
+	private int[] getPackedRowBoundsBlock(int row, boolean create) {
+		int blockIndex = row / PackedValueColumn.BLOCK_SIZE;
+		if (blockIndex >= packedRowBounds.length) {
+			if (!create) {
+				return null;
+			}
+			int[][] oldBounds = packedRowBounds;
+			packedRowBounds = new int[blockIndex + 1][];
+			System.arraycopy(oldBounds, 0, packedRowBounds, 0, oldBounds.length);
+		}
+		int[] result = packedRowBounds[blockIndex];
+		if (result == null && create) {
+			result = new int[PackedValueColumn.BLOCK_SIZE];
+			packedRowBounds[blockIndex] = result;
+		}
+		return result;
+	}
+
+	private byte getPackedType(int row, int column) {
+		if (column >= packedColumns.length || packedColumns[column] == null) {
+			return PackedValueColumn.NONE;
+		}
+		return packedColumns[column].getType(row);
+	}
+
+	private void removePackedCell(int row, int column) {
+		if (column >= packedColumns.length || packedColumns[column] == null) {
+			return;
+		}
+		packedColumns[column].remove(row);
+		int bounds = getPackedRowBounds(row);
+		int first = getFirstColumn(bounds);
+		int end = getEndColumn(bounds);
+		if (column == first) {
+			while (first < end && getPackedType(row, first) == PackedValueColumn.NONE) {
+				first++;
+			}
+			setPackedRowBounds(row, first, end);
+		} else if (column == end - 1) {
+			while (end > first && getPackedType(row, end - 1) == PackedValueColumn.NONE) {
+				end--;
+			}
+			setPackedRowBounds(row, first, end);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the specified cell has no record of its own yet
+	 */
+	public boolean isPackedCell(int rowIndex, int columnIndex) {
+		if (rowIndex < 0 || columnIndex < 0) {
+			return false;
+		}
+		return getPackedType(rowIndex, columnIndex) != PackedValueColumn.NONE;
+	}
+
+	/**
+	 * Replaces the specified packed cell by a record of its own, which is from then on
+	 * stored instead.
+	 *
+	 * @return the record of the cell, or <code>null</code> if there is no packed cell at the
+	 * specified position
+	 */
+	public CellValueRecordInterface unpackCell(int rowIndex, int columnIndex) {
+		if (!isPackedCell(rowIndex, columnIndex)) {
+			return null;
+		}
+		CellValueRecordInterface cell = packedColumns[columnIndex].createRecord(rowIndex, columnIndex);
+		removePackedCell(rowIndex, columnIndex);
+		setRecord(rowIndex, columnIndex, cell);
+		return cell;
+	}
+
+	/**
+	 * Visits each row with cells which are still packed, in row order.
+	 */
+	public void visitPackedCells(PackedCellsVisitor pcv) {
+		for (int b = 0; b < packedRowBounds.length; b++) {
+			int[] block = packedRowBounds[b];
+			if (block == null) {
+				continue;
+			}
+			for (int i = 0; i < block.length; i++) {
+				if (block[i] != 0) {
+					int rowIndex = b * PackedValueColumn.BLOCK_SIZE + i;
+					pcv.visitPackedCells(rowIndex, getFirstColumn(block[i]), getEndColumn(block[i]) - 1);
+				}
+			}
+		}
+	}
+
 	/** Tallies a count of the size of the cell records
 	 *  that are attached to the rows in the range specified.
 	 */
 	public int getRowCellBlockSize(int startRow, int endRow) {
-		int result = 0;
-		for(int rowIx=startRow; rowIx<=endRow && rowIx<records.length; rowIx++) {
-			result += getRowSerializedSize(records[rowIx]);
+		RecordSizeCounter counter = new RecordSizeCounter();
+		for(int rowIx=startRow; rowIx<=endRow; rowIx++) {
+			if (rowHasCells(rowIx)) {
+				visitCellsForRow(rowIx, counter);
+			}
+		}
+		return counter.getSize();
+	}
+
+	private static final class RecordSizeCounter implements RecordVisitor {
+		private int _size;
+
+		public void visitRecord(Record r) {
+			_size += r.getRecordSize();
+		}
+
+		public int getSize() {
+			return _size;
 		}
-		return result;
 	}
 
 	/** Returns true if the row has cells attached to it */
 	public boolean rowHasCells(int row) {
+		if (getPackedRowBounds(row) != 0) {
+			return true;
+		}
 		if (row >= records.length) {
 			return false;
 		}
@@ -208,44 +482,57 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		return false;
 	}
 
-	private static int getRowSerializedSize(CellValueRecordInterface[] rowCells) {
-		if(rowCells == null) {
-			return 0;
-		}
-		int result = 0;
-		for (int i = 0; i < rowCells.length; i++) {
-			RecordBase cvr = (RecordBase) rowCells[i];
-			if(cvr == null) {
-				continue;
-			}
-			int nBlank = countBlanks(rowCells, i);
-			if (nBlank > 1) {
-				result += (10 + 2*nBlank);
-				i+=nBlank-1;
-			} else {
-				result += cvr.getRecordSize();
-			}
+	/**
+	 * @return the number of columns of the specified row which may contain cells
+	 */
+	private int getRowWidth(int rowIndex) {
+		int result = getEndColumn(getPackedRowBounds(rowIndex));
+		if (rowIndex < records.length && records[rowIndex] != null && records[rowIndex].length > result) {
+			result = records[rowIndex].length;
 		}
 		return result;
 	}
 
+	/**
+	 * @return the record stored for the specified cell, <code>null</code> if none
+	 */
+	private static CellValueRecordInterface getRecord(CellValueRecordInterface[] rowCells, int column) {
+		if (rowCells == null || column >= rowCells.length) {
+			return null;
+		}
+		return rowCells[column];
+	}
+
 	public void visitCellsForRow(int rowIndex, RecordVisitor rv) {
 
-		CellValueRecordInterface[] rowCells = records[rowIndex];
-		if(rowCells == null) {
+		CellValueRecordInterface[] rowCells = rowIndex < records.length ? records[rowIndex] : null;
+		if(rowCells == null && !rowHasCells(rowIndex)) {
 			throw new IllegalArgumentException("Row [" + rowIndex + "] is empty");
 		}
 
-
-		for (int i = 0; i < rowCells.length; i++) {
-			RecordBase cvr = (RecordBase) rowCells[i];
-			if(cvr == null) {
+		int width = getRowWidth(rowIndex);
+		for (int i = 0; i < width; i++) {
+			CellValueRecordInterface cvr = getRecord(rowCells, i);
+			byte packedType = cvr == null ? getPackedType(rowIndex, i) : PackedValueColumn.NONE;
+			if(cvr == null && packedType == PackedValueColumn.NONE) {
 				continue;
 			}
-			int nBlank = countBlanks(rowCells, i);
+			int nRun = countWholeRun(rowIndex, i, width);
+			if (nRun > 0) {
+				if (packedType == PackedValueColumn.RK) {
+					rv.visitRecord(createMulRK(rowIndex, i, nRun));
+				} else {
+					rv.visitRecord(createMBR(rowIndex, rowCells, i, nRun));
+				}
+				i+=nRun-1;
+				continue;
+			}
+			int nBlank = countBlanks(rowIndex, rowCells, i, width);
 			if (nBlank > 1) {
-				rv.visitRecord(createMBR(rowCells, i, nBlank));
+				rv.visitRecord(createMBR(rowIndex, rowCells, i, nBlank));
 				i+=nBlank-1;
+			} else if (cvr == null) {
+				rv.visitRecord((Record) packedColumns[i].createRecord(rowIndex, i));
 			} else if (cvr instanceof RecordAggregate) {
 				RecordAggregate agg = (RecordAggregate) cvr;
 				agg.visitContainedRecords(rv);
@@ -256,14 +543,21 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	}
 
 	/**
-	 * @return the number of <em>consecutive</em> {@link BlankRecord}s in the specified row
-	 * starting from startIx.
+	 * @return the number of <em>consecutive</em> {@link BlankRecord}s and remaining cells of split
+	 * {@link MulBlankRecord}s in the specified row starting from startIx.
 	 */
-	private static int countBlanks(CellValueRecordInterface[] rowCellValues, int startIx) {
+	private int countBlanks(int rowIndex, CellValueRecordInterface[] rowCellValues, int startIx, int width) {
 		int i = startIx;
-		while(i < rowCellValues.length) {
-			CellValueRecordInterface cvr = rowCellValues[i];
-			if (!(cvr instanceof BlankRecord)) {
+		while(i < width) {
+			CellValueRecordInterface cvr = getRecord(rowCellValues, i);
+			if (cvr == null) {
+				byte packedType = getPackedType(rowIndex, i);
+				// packed BLANK records are written as they were read
+				if (packedType != PackedValueColumn.MUL_BLANK
+						|| i > startIx && countWholeRun(rowIndex, i, width) > 0) {
+					break;
+				}
+			} else if (!(cvr instanceof BlankRecord)) {
 				break;
 			}
 			i++;
@@ -271,17 +565,54 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		return i - startIx;
 	}
 
-	private MulBlankRecord createMBR(CellValueRecordInterface[] cellValues, int startIx, int nBlank) {
+	/**
+	 * @return the number of cells of the MULRK or MULBLANK record starting at startIx, or
+	 * <code>0</code> if no such record starts there or one of its cells has been replaced or removed
+	 */
+	private int countWholeRun(int rowIndex, int startIx, int width) {
+		byte packedType = getPackedType(rowIndex, startIx);
+		if (packedType != PackedValueColumn.RK && packedType != PackedValueColumn.MUL_BLANK
+				|| !packedColumns[startIx].isFirstInRun(rowIndex)) {
+			return 0;
+		}
+		for (int i = startIx + 1; i < width; i++) {
+			if (getPackedType(rowIndex, i) != packedType || packedColumns[i].isFirstInRun(rowIndex)) {
+				return 0;
+			}
+			if (packedColumns[i].isLastInRun(rowIndex)) {
+				return i - startIx + 1;
+			}
+		}
+		return 0;
+	}
+
+	private MulBlankRecord createMBR(int rowIx, CellValueRecordInterface[] cellValues, int startIx, int nBlank) {
 
 		short[] xfs = new short[nBlank];
 		for (int i = 0; i < xfs.length; i++) {
-			xfs[i] = ((BlankRecord)cellValues[startIx + i]).getXFIndex();
+			CellValueRecordInterface cvr = getRecord(cellValues, startIx + i);
+			if (cvr == null) {
+				xfs[i] = packedColumns[startIx + i].getXF(rowIx);
+			} else {
+				xfs[i] = cvr.getXFIndex();
+			}
 		}
-		int rowIx = cellValues[startIx].getRow();
 		return new MulBlankRecord(rowIx, startIx, xfs);
 	}
 
+	private MulRKRecord createMulRK(int rowIx, int startIx, int nRK) {
+		short[] xfs = new short[nRK];
+		int[] rks = new int[nRK];
+		for (int i = 0; i < nRK; i++) {
+			PackedValueColumn pvc = packedColumns[startIx + i];
+			xfs[i] = pvc.getXF(rowIx);
+			rks[i] = pvc.getRK(rowIx);
+		}
+		return new MulRKRecord(rowIx, startIx, xfs, rks);
+	}
+
 	public void updateFormulasAfterRowShift(FormulaShifter shifter, int currentExternSheetIndex) {
+		boolean only3DRefs = shifter.adjustsOnly3DReferences(currentExternSheetIndex);
 		for (int i = 0; i < records.length; i++) {
 			CellValueRecordInterface[] rowCells = records[i];
 			if (rowCells == null) {
@@ -291,8 +622,11 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 				CellValueRecordInterface cell = rowCells[j];
 				if (cell instanceof FormulaRecordAggregate) {
                     FormulaRecordAggregate fra = (FormulaRecordAggregate)cell;
+                    if (only3DRefs && !fra.mayContain3DReferences()) {
+                        // cannot reference the shifted cells, no need to decode the tokens
+                        continue;
+                    }
                     Ptg[] ptgs = fra.getFormulaTokens(); // needs clone() inside this getter?
-                    Ptg[] ptgs2 = ((FormulaRecordAggregate)cell).getFormulaRecord().getParsedExpression(); // needs clone() inside this getter?
 
                     if (shifter.adjustFormula(ptgs, currentExternSheetIndex)) {
                         fra.setParsedExpression(ptgs);
@@ -307,33 +641,38 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 	 */
 	class ValueIterator implements Iterator<CellValueRecordInterface> {
 
+		private final boolean includePackedCells;
 		int curRowIndex = 0, curColIndex = -1;
 		int nextRowIndex = 0, nextColIndex = -1;
+		private boolean hasNext;
 
-		public ValueIterator() {
+		public ValueIterator(boolean includePackedCells) {
+			this.includePackedCells = includePackedCells;
 			getNextPos();
 		}
 
 		void getNextPos() {
-			if (nextRowIndex >= records.length)
-				return; // no next already
-
-			while (nextRowIndex < records.length) {
+			hasNext = false;
+			int rowCount = Math.max(records.length, packedRowCount);
+			while (nextRowIndex < rowCount) {
 				++nextColIndex;
-				if (records[nextRowIndex] == null || nextColIndex >= records[nextRowIndex].length) {
+				if (nextColIndex >= getRowWidth(nextRowIndex)) {
 					++nextRowIndex;
 					nextColIndex = -1;
 					continue;
 				}
 
-				if (records[nextRowIndex][nextColIndex] != null)
+				if (getRecord(nextRowIndex < records.length ? records[nextRowIndex] : null, nextColIndex) != null
+						|| includePackedCells && isPackedCell(nextRowIndex, nextColIndex)) {
+					hasNext = true;
 					return; // next cell found
+				}
 			}
 			// no next found
 		}
 
 		public boolean hasNext() {
-			return nextRowIndex < records.length;
+			return hasNext;
 		}
 
 		public CellValueRecordInterface next() {
@@ -342,7 +681,10 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
 			curRowIndex = nextRowIndex;
 			curColIndex = nextColIndex;
-			final CellValueRecordInterface ret = records[curRowIndex][curColIndex];
+			CellValueRecordInterface ret = unpackCell(curRowIndex, curColIndex);
+			if (ret == null) {
+				ret = records[curRowIndex][curColIndex];
+			}
 			getNextPos();
 			return ret;
 		}
@@ -352,9 +694,17 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 		}
 	}
 
-	/** value iterator */
+	/** value iterator, which unpacks the packed cells it returns */
 	public Iterator<CellValueRecordInterface> iterator() {
-		return new ValueIterator();
+		return new ValueIterator(true);
+	}
+
+	/**
+	 * @param includePackedCells <code>true</code> to unpack and return the packed cells,
+	 *  <code>false</code> to skip them
+	 */
+	public Iterator<CellValueRecordInterface> iterator(boolean includePackedCells) {
+		return new ValueIterator(includePackedCells);
 	}
 
 	public Object clone() {
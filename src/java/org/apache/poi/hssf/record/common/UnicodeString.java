@@ -374,6 +374,17 @@ public class UnicodeString implements Comparable<UnicodeString> {
       setString(str);
     }
 
+    /**
+     * Creates a string decoded by an {@link UnicodeStringTable}
+     */
+    UnicodeString(short charCount, byte optionFlags, String string, List<FormatRun> formatRuns, ExtRst extRst) {
+        field_1_charCount = charCount;
+        field_2_optionflags = optionFlags;
+        field_3_string = string;
+        field_4_format_runs = formatRuns;
+        field_5_ext_rst = extRst;
+    }
+
 
 
     public int hashCode()
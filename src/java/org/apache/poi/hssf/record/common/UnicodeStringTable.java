@@ -0,0 +1,330 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.record.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.common.UnicodeString.ExtRst;
+import org.apache.poi.hssf.record.common.UnicodeString.FormatRun;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianInput;
+import org.apache.poi.util.POILogFactory;
+import org.apache.poi.util.POILogger;
+import org.apache.poi.util.RecordFormatException;
+
+/**
+ * The strings of an SST record, held as the raw data of the SST record and its CONTINUE
+ * records. A string is only decoded into a {@link UnicodeString} when it is first requested,
+ * so opening a workbook with many strings, most of which are never looked at, takes much less
+ * time and memory.<p/>
+ *
+ * The data is scanned once when the table is created, which checks that all strings can be
+ * read and remembers the position of every {@value #BUCKET_SIZE}th string. A string is found
+ * by skipping the strings before it in its bucket. Decoded strings are kept, so every lookup
+ * of a string returns the same instance, just like a fully decoded table. Strings may be looked
+ * up by several threads at once, as reading a workbook never changed it before.
+ */
+@Internal
+public final class UnicodeStringTable {
+    private static final POILogger _logger = POILogFactory.getLogger(UnicodeStringTable.class);
+
+    /** the number of strings per indexed position, as in the EXTSST record */
+    private static final int BUCKET_SIZE = 8;
+
+    /** the data of the SST record (without the string counts) and of all its CONTINUE records */
+    private final byte[] _data;
+    /** the end offsets of the SST record and each CONTINUE record within {@link #_data} */
+    private final int[] _recordEnds;
+    private final int _stringCount;
+    /** the number of strings found in the data, the remaining ones are empty */
+    private final int _availableCount;
+    /** the data offset of the first string of each bucket */
+    private final int[] _bucketOffsets;
+    /** the index of the record holding the first string of each bucket */
+    private final int[] _bucketRecords;
+    /** the decoded strings, <code>null</code> until first looked up */
+    private final AtomicReferenceArray<UnicodeString> _strings;
+
+    /**
+     * Reads the remaining data of the current SST record and of all following CONTINUE records
+     *
+     * @param stringCount the number of unique strings in the SST record
+     */
+    public UnicodeStringTable(RecordInputStream in, int stringCount) {
+        byte[] data = new byte[in.remaining()];
+        int[] recordEnds = new int[4];
+        int nRecords = 0;
+        int size = 0;
+        while (true) {
+            int len = in.remaining();
+            if (size + len > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + len, data.length * 2));
+            }
+            in.readFully(data, size, len);
+            size += len;
+            if (nRecords == recordEnds.length) {
+                recordEnds = Arrays.copyOf(recordEnds, nRecords * 2);
+            }
+            recordEnds[nRecords++] = size;
+            if (!in.hasNextRecord() || in.getNextSid() != ContinueRecord.sid) {
+                break;
+            }
+            in.nextRecord();
+        }
+        _data = size == data.length ? data : Arrays.copyOf(data, size);
+        _recordEnds = Arrays.copyOf(recordEnds, nRecords);
+        _stringCount = Math.max(stringCount, 0);
+
+        _bucketOffsets = new int[(_stringCount + BUCKET_SIZE - 1) / BUCKET_SIZE];
+        _bucketRecords = new int[_bucketOffsets.length];
+        StringDataInput sdi = new StringDataInput(0, 0);
+        int i = 0;
+        for (; i < _stringCount; i++) {
+            if (sdi.available() == 0) {
+                _logger.log(POILogger.ERROR, "Ran out of data before creating all the strings! String at index " + i + "");
+                break;
+            }
+            if (i % BUCKET_SIZE == 0) {
+                _bucketOffsets[i / BUCKET_SIZE] = sdi._pos;
+                _bucketRecords[i / BUCKET_SIZE] = sdi._recordIndex;
+            }
+            sdi.readString(false);
+        }
+        _availableCount = i;
+        _strings = new AtomicReferenceArray<UnicodeString>(_stringCount);
+    }
+
+    /**
+     * @return the number of strings
+     */
+    public int size() {
+        return _stringCount;
+    }
+
+    /**
+     * @return the string at the specified index, which is decoded on first access
+     */
+    public UnicodeString get(int index) {
+        if (index < 0 || index >= _stringCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _stringCount);
+        }
+        UnicodeString result = _strings.get(index);
+        if (result == null) {
+            // if another thread decodes the string at the same time, both return the first one stored
+            _strings.compareAndSet(index, null, decode(index));
+            result = _strings.get(index);
+        }
+        return result;
+    }
+
+    private UnicodeString decode(int index) {
+        if (index >= _availableCount) {
+            return new UnicodeString("");
+        }
+        int bucket = index / BUCKET_SIZE;
+        StringDataInput sdi = new StringDataInput(_bucketOffsets[bucket], _bucketRecords[bucket]);
+        for (int i = bucket * BUCKET_SIZE; i < index; i++) {
+            sdi.readString(false);
+        }
+        return sdi.readString(true);
+    }
+
+    /**
+     * Reads the string data, moving on to the next CONTINUE record like a {@link RecordInputStream}.
+     * Other values may be split anywhere between two records.
+     */
+    private final class StringDataInput implements LittleEndianInput {
+        private int _pos;
+        private int _recordIndex;
+        private int _end;
+
+        StringDataInput(int pos, int recordIndex) {
+            _pos = pos;
+            _recordIndex = recordIndex;
+            _end = _recordEnds[recordIndex];
+        }
+
+        /**
+         * Reads (or skips) a string as written by {@link UnicodeString#serialize}
+         *
+         * @return the string, <code>null</code> if it is only skipped
+         */
+        UnicodeString readString(boolean decode) {
+            short charCount = readShort();
+            byte optionFlags = readByte();
+            boolean isRichText = (optionFlags & 0x08) != 0;
+            boolean isExtendedText = (optionFlags & 0x04) != 0;
+
+            int runCount = 0;
+            int extensionLength = 0;
+            if (isRichText) {
+                runCount = readShort();
+            }
+            if (isExtendedText) {
+                extensionLength = readInt();
+            }
+
+            String string = readChars(charCount & 0xFFFF, (optionFlags & 0x01) == 0, decode);
+
+            List<FormatRun> formatRuns = null;
+            if (isRichText && runCount > 0) {
+                if (decode) {
+                    formatRuns = new ArrayList<FormatRun>(runCount);
+                    for (int i = 0; i < runCount; i++) {
+                        formatRuns.add(new FormatRun(this));
+                    }
+                } else {
+                    skip(runCount * 4);
+                }
+            }
+
+            ExtRst extRst = null;
+            if (isExtendedText && extensionLength > 0) {
+                // the extension is parsed even when skipped, as its size need not match the stored length
+                extRst = new ExtRst(this, extensionLength);
+                if (decode && extRst.getDataSize() + 4 != extensionLength) {
+                    _logger.log(POILogger.WARN, "ExtRst was supposed to be " + extensionLength + " bytes long, but seems to actually be " + (extRst.getDataSize() + 4));
+                }
+            }
+
+            if (!decode) {
+                return null;
+            }
+            return new UnicodeString(charCount, optionFlags, string, formatRuns, extRst);
+        }
+
+        /**
+         * Characters continued in the next record are preceded by a new compression flag
+         */
+        private String readChars(int charCount, boolean isCompressed, boolean decode) {
+            char[] chars = decode ? new char[charCount] : null;
+            int nRead = 0;
+            while (true) {
+                int nAvailable = isCompressed ? _end - _pos : (_end - _pos) / 2;
+                int len = Math.min(charCount - nRead, nAvailable);
+                if (isCompressed) {
+                    if (decode) {
+                        for (int i = 0; i < len; i++) {
+                            chars[nRead + i] = (char) (_data[_pos + i] & 0xFF);
+                        }
+                    }
+                    _pos += len;
+                } else {
+                    if (decode) {
+                        for (int i = 0; i < len; i++) {
+                            int p = _pos + 2 * i;
+                            chars[nRead + i] = (char) ((_data[p] & 0xFF) | ((_data[p + 1] & 0xFF) << 8));
+                        }
+                    }
+                    _pos += 2 * len;
+                }
+                nRead += len;
+                if (nRead == charCount) {
+                    break;
+                }
+                if (_pos != _end) {
+                    throw new RecordFormatException("Odd number of bytes(" + (_end - _pos) + ") left behind");
+                }
+                nextRecord();
+                isCompressed = readByte() == 0;
+            }
+            return decode ? new String(chars) : null;
+        }
+
+        private void nextRecord() {
+            if (_recordIndex + 1 >= _recordEnds.length) {
+                throw new RecordFormatException("Not enough data (" + available() + ") to read SST string");
+            }
+            _recordIndex++;
+            _end = _recordEnds[_recordIndex];
+        }
+
+        private void skip(int len) {
+            for (int i = 0; i < len; i++) {
+                readUByte();
+            }
+        }
+
+        public int available() {
+            return _data.length - _pos;
+        }
+
+        public int readUByte() {
+            while (_pos == _end) {
+                nextRecord();
+            }
+            return _data[_pos++] & 0xFF;
+        }
+
+        public byte readByte() {
+            return (byte) readUByte();
+        }
+
+        public int readUShort() {
+            if (_end - _pos >= 2) {
+                int result = LittleEndian.getUShort(_data, _pos);
+                _pos += 2;
+                return result;
+            }
+            int ch1 = readUByte();
+            int ch2 = readUByte();
+            return (ch2 << 8) + ch1;
+        }
+
+        public short readShort() {
+            return (short) readUShort();
+        }
+
+        public int readInt() {
+            if (_end - _pos >= 4) {
+                int result = LittleEndian.getInt(_data, _pos);
+                _pos += 4;
+                return result;
+            }
+            int lo = readUShort();
+            int hi = readUShort();
+            return (hi << 16) + lo;
+        }
+
+        public long readLong() {
+            long lo = readInt() & 0xFFFFFFFFL;
+            long hi = readInt() & 0xFFFFFFFFL;
+            return (hi << 32) + lo;
+        }
+
+        public double readDouble() {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        public void readFully(byte[] buf) {
+            readFully(buf, 0, buf.length);
+        }
+
+        public void readFully(byte[] buf, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                buf[off + i] = (byte) readUByte();
+            }
+        }
+    }
+}
@@ -960,9 +960,7 @@ public class HSSFCell implements Cell {
      */
     public HSSFCellStyle getCellStyle()
     {
-      short styleIndex=_record.getXFIndex();
-      ExtendedFormatRecord xf = _book.getWorkbook().getExFormatAt(styleIndex);
-      return new HSSFCellStyle(styleIndex, xf, _book);
+      return _book.getCellStyleAt(_record.getXFIndex());
     }
 
     /**
@@ -70,6 +70,13 @@ public final class HSSFCellStyle implements CellStyle {
         return _index;
     }
 
+    /**
+     * @return the low level record of this style
+     */
+    ExtendedFormatRecord getFormat() {
+        return _format;
+    }
+
     /**
      * Return the parent style for this cell style.
      * In most cases this will be null, but in a few
@@ -17,14 +17,15 @@
 
 package org.apache.poi.hssf.usermodel;
 
-import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.ArrayFormulaEvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.Internal;
 /**
  * HSSF wrapper for a cell under evaluation
  */
-final class HSSFEvaluationCell implements EvaluationCell {
+final class HSSFEvaluationCell implements ArrayFormulaEvaluationCell {
 
 	private final EvaluationSheet _evalSheet;
 	private final HSSFCell _cell;
@@ -114,4 +115,12 @@ final class HSSFEvaluationCell implements EvaluationCell {
 	public CellType getCachedFormulaResultTypeEnum() {
 		return _cell.getCachedFormulaResultTypeEnum();
 	}
+	@Override
+	public boolean isPartOfArrayFormulaGroup() {
+		return _cell.isPartOfArrayFormulaGroup();
+	}
+	@Override
+	public CellRangeAddress getArrayFormulaRange() {
+		return _cell.getArrayFormulaRange();
+	}
 }
@@ -0,0 +1,163 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.poi.hssf.record.CFHeader12Record;
+import org.apache.poi.hssf.record.CFHeaderRecord;
+import org.apache.poi.hssf.record.CFRule12Record;
+import org.apache.poi.hssf.record.CFRuleRecord;
+import org.apache.poi.hssf.record.DVALRecord;
+import org.apache.poi.hssf.record.DVRecord;
+import org.apache.poi.hssf.record.DrawingRecord;
+import org.apache.poi.hssf.record.DrawingSelectionRecord;
+import org.apache.poi.hssf.record.NoteRecord;
+import org.apache.poi.hssf.record.ObjRecord;
+import org.apache.poi.hssf.record.TextObjectRecord;
+
+/**
+ * Options for reading an {@link HSSFWorkbook} from a file.
+ *
+ * @see HSSFWorkbook#HSSFWorkbook(org.apache.poi.poifs.filesystem.DirectoryNode, boolean, HSSFLoadOptions)
+ */
+public class HSSFLoadOptions {
+
+    /**
+     * Sheet content which can be kept as raw record data instead of being parsed
+     *
+     * @see HSSFLoadOptions#setOpaqueContent(SheetContent...)
+     */
+    public enum SheetContent {
+        /** shapes, pictures, text boxes and cell comments, i.e. the drawing and object records */
+        DRAWINGS(DrawingRecord.sid, DrawingSelectionRecord.sid, ObjRecord.sid, TextObjectRecord.sid, NoteRecord.sid),
+        /** the chart substreams embedded in worksheets */
+        CHARTS,
+        /** the conditional formats */
+        CONDITIONAL_FORMATTING(CFHeaderRecord.sid, CFHeader12Record.sid, CFRuleRecord.sid, CFRule12Record.sid),
+        /** the data validations */
+        DATA_VALIDATION(DVALRecord.sid, DVRecord.sid);
+
+        private final short[] _sids;
+
+        SheetContent(short... sids) {
+            _sids = sids;
+        }
+    }
+
+    private ExecutorService _sheetExecutor;
+    private String[] _sheetsToLoad;
+    private EnumSet<SheetContent> _opaqueContent = EnumSet.noneOf(SheetContent.class);
+
+    /**
+     * Sets the executor used to build the sheets of the workbook concurrently. The records
+     * of the workbook stream are still read in one go, but once the workbook globals (strings,
+     * formats, styles, names) have been set up, the rows, cells and other aggregates of each
+     * sheet are built by a separate task. The workbook constructor waits for all tasks, the
+     * executor is not shut down.
+     *
+     * @param executor the executor for the sheet tasks, <code>null</code> (the default) to
+     *  build all sheets on the calling thread
+     */
+    public void setSheetExecutor(ExecutorService executor) {
+        _sheetExecutor = executor;
+    }
+
+    /**
+     * @return the executor used to build the sheets concurrently, <code>null</code> if the
+     *  sheets are built on the calling thread
+     */
+    public ExecutorService getSheetExecutor() {
+        return _sheetExecutor;
+    }
+
+    /**
+     * Selects the sheets which are loaded by the workbook constructor. The other sheets are
+     * loaded when they are first accessed, e.g. by {@link HSSFWorkbook#getSheetAt(int)}, or
+     * when the workbook is written. Until then, they are only held as the list of their records.
+     *
+     * @param sheetNames the names of the sheets to load (case insensitive), <code>null</code>
+     *  (the default) to load all sheets
+     */
+    public void setSheetsToLoad(String... sheetNames) {
+        _sheetsToLoad = sheetNames == null ? null : sheetNames.clone();
+    }
+
+    /**
+     * @return the names of the sheets loaded by the workbook constructor, <code>null</code>
+     *  if all sheets are loaded
+     */
+    public String[] getSheetsToLoad() {
+        return _sheetsToLoad == null ? null : _sheetsToLoad.clone();
+    }
+
+    /* package */ boolean isSheetToLoad(String sheetName) {
+        if (_sheetsToLoad == null) {
+            return true;
+        }
+        for (String name : _sheetsToLoad) {
+            if (name.equalsIgnoreCase(sheetName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Selects sheet content which is not parsed. The records of that content are kept as raw
+     * data and written back unchanged, but are not available through the usermodel: the
+     * sheets appear to have no such content. Adding drawings, comments, conditional formats or
+     * data validations to a sheet holding unparsed ones, removing conditional formats from such
+     * a sheet, or shifting rows with the comments of a sheet holding unparsed drawings, fails
+     * with an <tt>IllegalStateException</tt>.
+     *
+     * @param content the content to keep unparsed, none (the default) to parse everything
+     */
+    public void setOpaqueContent(SheetContent... content) {
+        _opaqueContent = EnumSet.noneOf(SheetContent.class);
+        for (SheetContent c : content) {
+            _opaqueContent.add(c);
+        }
+    }
+
+    /**
+     * @return the sheet content which is not parsed
+     */
+    public Set<SheetContent> getOpaqueContent() {
+        return EnumSet.copyOf(_opaqueContent);
+    }
+
+    /**
+     * @return the sids of the records which are not parsed, <code>null</code> if there are none
+     */
+    /* package */ Set<Short> getOpaqueSids() {
+        Set<Short> result = null;
+        for (SheetContent c : _opaqueContent) {
+            for (short sid : c._sids) {
+                if (result == null) {
+                    result = new HashSet<Short>();
+                }
+                result.add(Short.valueOf(sid));
+            }
+        }
+        return result;
+    }
+}
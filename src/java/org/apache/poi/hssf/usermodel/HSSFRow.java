@@ -21,7 +21,6 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import org.apache.poi.hssf.record.CellValueRecordInterface;
-import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.RowRecord;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.Cell;
@@ -42,6 +41,11 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
 
     private int rowNum;
     private HSSFCell[] cells;
+    /**
+     * whether some cells of the row are still packed in the value records of the sheet, which
+     * are created when they are accessed
+     */
+    private boolean hasPackedCells;
 
     /**
      * reference to low level representation
@@ -205,6 +209,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      *  records too.
      */
     protected void removeAllCells() {
+        unpackCells();
         for(int i=0; i<cells.length; i++) {
             if(cells[i] != null) {
                 removeCell(cells[i], true);
@@ -240,6 +245,51 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
         return hcell;
     }
 
+    /**
+     * Registers the packed cells of the row, whose high level representations are only
+     * created when they are accessed. Should only be called from HSSFSheet.
+     * @param firstCol the column of the first packed cell
+     * @param lastCol the column of the last packed cell
+     */
+    void addPackedCells(int firstCol, int lastCol) {
+        hasPackedCells = true;
+        boolean isEmpty = row.isEmpty();
+        if (isEmpty || firstCol < row.getFirstCol()) {
+            row.setFirstCol(firstCol);
+        }
+        if (isEmpty || lastCol >= row.getLastCol()) {
+            row.setLastCol(lastCol + 1);
+        }
+    }
+
+    /**
+     * @return the cell created for the specified packed cell, <code>null</code> if the column
+     * has no packed cell
+     */
+    private HSSFCell unpackCell(int cellIndex) {
+        CellValueRecordInterface cval = sheet.getSheet().unpackCell(getRowNum(), cellIndex);
+        if (cval == null) {
+            return null;
+        }
+        return createCellFromRecord(cval);
+    }
+
+    /**
+     * creates the cells of the row which are still packed
+     */
+    private void unpackCells() {
+        if (!hasPackedCells) {
+            return;
+        }
+        int lastCol = row.getLastCol();
+        for (int i = row.getFirstCol(); i < lastCol; i++) {
+            if (i >= cells.length || cells[i] == null) {
+                unpackCell(i);
+            }
+        }
+        hasPackedCells = false;
+    }
+
     /**
      * set the row number of this row.
      * @param rowIndex  the row number (0-based)
@@ -297,7 +347,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      */
     public void moveCell(HSSFCell cell, short newColumn) {
         // Ensure the destination is free
-        if(cells.length > newColumn && cells[newColumn] != null) {
+        if(retrieveCell(newColumn) != null) {
             throw new IllegalArgumentException("Asked to move cell to column " + newColumn + " but there's already a cell there");
         }
 
@@ -352,10 +402,14 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @return HSSFCell representing that column or null if undefined.
      */
     private HSSFCell retrieveCell(int cellIndex) {
-        if(cellIndex<0||cellIndex>=cells.length) {
+        if(cellIndex<0) {
             return null;
         }
-        return cells[cellIndex];
+        HSSFCell cell = cellIndex<cells.length ? cells[cellIndex] : null;
+        if(cell == null && hasPackedCells) {
+            cell = unpackCell(cellIndex);
+        }
+        return cell;
     }
 
     /**
@@ -446,6 +500,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public int getPhysicalNumberOfCells()
     {
+      unpackCells();
       int count=0;
       for(int i=0;i<cells.length;i++)
       {
@@ -598,9 +653,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public HSSFCellStyle getRowStyle() {
         if(!isFormatted()) { return null; }
-        short styleIndex = row.getXFIndex();
-        ExtendedFormatRecord xf = book.getWorkbook().getExFormatAt(styleIndex);
-        return new HSSFCellStyle(styleIndex, xf, book);
+        return book.getCellStyleAt(row.getXFIndex());
     }
     /**
      * Applies a whole-row cell styling to the row.
@@ -648,6 +701,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
 
       public CellIterator()
       {
+        unpackCells();
         findNext();
       }
 
@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.usermodel;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -33,11 +34,12 @@ import org.apache.poi.hssf.model.InternalSheet;
 import org.apache.poi.hssf.model.InternalWorkbook;
 import org.apache.poi.hssf.record.AutoFilterInfoRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.DVALRecord;
 import org.apache.poi.hssf.record.DVRecord;
 import org.apache.poi.hssf.record.DimensionsRecord;
 import org.apache.poi.hssf.record.DrawingRecord;
 import org.apache.poi.hssf.record.EscherAggregate;
-import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.HyperlinkRecord;
 import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.Record;
@@ -49,6 +51,7 @@ import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.aggregates.DataValidityTable;
 import org.apache.poi.hssf.record.aggregates.FormulaRecordAggregate;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
+import org.apache.poi.hssf.record.aggregates.ValueRecordsAggregate.PackedCellsVisitor;
 import org.apache.poi.hssf.record.aggregates.WorksheetProtectionBlock;
 import org.apache.poi.hssf.usermodel.helpers.HSSFRowShifter;
 import org.apache.poi.ss.SpreadsheetVersion;
@@ -192,7 +195,8 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
             row = sheet.getNextRow();
         }
 
-        Iterator<CellValueRecordInterface> iter = sheet.getCellValueIterator();
+        // the packed cells are created when they are accessed
+        Iterator<CellValueRecordInterface> iter = sheet.getCellValueIterator(false);
         long timestart = System.currentTimeMillis();
 
         if (log.check( POILogger.DEBUG )) {
@@ -220,10 +224,7 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
                         throw new RuntimeException("Unexpected missing row when some rows already present");
                     }*/
 
-                    // create the row record on the fly now.
-                    RowRecord rowRec = new RowRecord(cval.getRow());
-                    sheet.addRow(rowRec);
-                    hrow = createRowFromRecord(rowRec);
+                    hrow = createMissingRow(cval.getRow());
                 }
             }
             if (log.check( POILogger.DEBUG )) {
@@ -240,12 +241,30 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
             }
 
         }
+        sheet.visitPackedCells(new PackedCellsVisitor() {
+            public void visitPackedCells(int rowIndex, int firstColumn, int lastColumn) {
+                HSSFRow hrow = getRow(rowIndex);
+                if (hrow == null) {
+                    hrow = createMissingRow(rowIndex);
+                }
+                hrow.addPackedCells(firstColumn, lastColumn);
+            }
+        });
         if (log.check( POILogger.DEBUG )) {
             log.log(DEBUG, "total sheet cell creation took ",
                 Long.valueOf(System.currentTimeMillis() - timestart));
     }
     }
 
+    /**
+     * Creates the row record of cells without one on the fly, see bug 47245
+     */
+    private HSSFRow createMissingRow(int rowIx) {
+        RowRecord rowRec = new RowRecord(rowIx);
+        _sheet.addRow(rowRec);
+        return createRowFromRecord(rowRec);
+    }
+
     /**
      * Create a new row within the sheet and return the high level representation
      *
@@ -256,15 +275,72 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
      */
     @Override
     public HSSFRow createRow(int rownum) {
+        int lastFlushedRow = getLastFlushedRowNum();
+        if (rownum <= lastFlushedRow) {
+            throw new IllegalArgumentException("Attempting to write a row[" + rownum + "] "
+                    + "in the range [0," + lastFlushedRow + "] that is already written to disk.");
+        }
         HSSFRow row = new HSSFRow(_workbook, this, rownum);
         // new rows inherit default height from the sheet
         row.setHeight(getDefaultRowHeight());
         row.getRowRecord().setBadFontHeight(false);
 
         addRow(row, true);
+
+        int windowSize = _workbook.getRowAccessWindowSize();
+        if (windowSize >= 0 && _rows.size() >= windowSize + DBCellRecord.BLOCK_SIZE) {
+            try {
+                flushRows(windowSize);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
         return row;
     }
 
+    /**
+     * Writes all rows of this sheet except the last <code>remaining</code> ones to a temporary
+     * file, so they don't need to be held in memory until the workbook is written. Rows are
+     * flushed in the blocks of 32 rows they are stored in, so up to 31 more rows may be kept.<p/>
+     *
+     * The flushed rows can't be accessed any more: {@link #getRow(int)} returns <code>null</code>
+     * for them and rows can only be created after the last flushed row. Formulas, merged regions
+     * and other sheet level records referring to the flushed rows are not affected. The temporary
+     * file is deleted by {@link HSSFWorkbook#dispose()}.
+     *
+     * @param remaining the number of most recent rows to keep in memory
+     * @throws IOException if the temporary file can't be written
+     * @see HSSFWorkbook#setRowAccessWindowSize(int)
+     */
+    public void flushRows(int remaining) throws IOException {
+        if (remaining < 0) {
+            throw new IllegalArgumentException("The number of remaining rows must not be negative");
+        }
+        int lastFlushedRow = _sheet.getRowsAggregate().flushRowBlocks(remaining);
+        // the flushed rows are the first ones
+        Iterator<HSSFRow> it = _rows.values().iterator();
+        while (it.hasNext() && it.next().getRowNum() <= lastFlushedRow) {
+            it.remove();
+        }
+    }
+
+    /**
+     * Writes all complete blocks of 32 rows to a temporary file
+     *
+     * @see #flushRows(int)
+     */
+    public void flushRows() throws IOException {
+        flushRows(0);
+    }
+
+    /**
+     * @return the index of the last row written to disk by {@link #flushRows(int)},
+     * <code>-1</code> if no rows have been flushed
+     */
+    public int getLastFlushedRowNum() {
+        return _sheet.getRowsAggregate().getLastFlushedRowNum();
+    }
+
     /**
      * Used internally to create a high level Row object from a low level row object.
      * USed when reading an existing file
@@ -364,7 +440,7 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
         if (addLow) {
             _sheet.addRow(row.getRowRecord());
         }
-        boolean firstRow = _rows.size() == 1;
+        boolean firstRow = _rows.size() == 1 && getLastFlushedRowNum() < 0;
         if (row.getRowNum() > getLastRowNum() || firstRow) {
             _lastrow = row.getRowNum();
         }
@@ -423,8 +499,12 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
 
     @Override
     public List<HSSFDataValidation> getDataValidations() {
-        DataValidityTable dvt = _sheet.getOrCreateDataValidityTable();
         final List<HSSFDataValidation> hssfValidations = new ArrayList<HSSFDataValidation>();
+        if (_sheet.hasOpaqueRecord(DVALRecord.sid)) {
+            // the data validations were not loaded
+            return hssfValidations;
+        }
+        DataValidityTable dvt = _sheet.getOrCreateDataValidityTable();
         RecordVisitor visitor = new RecordVisitor() {
             private HSSFEvaluationWorkbook book = HSSFEvaluationWorkbook.create(getWorkbook());
 
@@ -461,6 +541,9 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
         if (dataValidation == null) {
             throw new IllegalArgumentException("objValidation must not be null");
         }
+        if (_sheet.hasOpaqueRecord(DVALRecord.sid)) {
+            throw new IllegalStateException("The data validations of this sheet were not loaded");
+        }
         HSSFDataValidation hssfDataValidation = (HSSFDataValidation) dataValidation;
         DataValidityTable dvt = _sheet.getOrCreateDataValidityTable();
 
@@ -634,8 +717,7 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
             return null;
         }
 
-        ExtendedFormatRecord xf = _book.getExFormatAt(styleIndex);
-        return new HSSFCellStyle(styleIndex, xf, _book);
+        return _workbook.getCellStyleAt(styleIndex);
     }
 
     /**
@@ -2055,6 +2137,9 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
             int pos = _sheet.aggregateDrawingRecords(dm, false);
             if (-1 == pos) {
                 if (createIfMissing) {
+                    if (_sheet.hasOpaqueRecord(DrawingRecord.sid)) {
+                        throw new IllegalStateException("The drawings of this sheet were not loaded");
+                    }
                     pos = _sheet.aggregateDrawingRecords(dm, true);
                     agg = (EscherAggregate) _sheet.getRecords().get(pos);
                     HSSFPatriarch patriarch = new HSSFPatriarch(this, agg);
@@ -2406,6 +2491,10 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
     protected HSSFComment findCellComment(int row, int column) {
         HSSFPatriarch patriarch = getDrawingPatriarch();
         if (null == patriarch) {
+            if (_sheet.hasOpaqueRecord(DrawingRecord.sid)) {
+                // the comments were not loaded
+                return null;
+            }
             patriarch = createDrawingPatriarch();
         }
         return lookForComment(patriarch, row, column);
@@ -2439,11 +2528,15 @@ public final class HSSFSheet implements org.apache.poi.ss.usermodel.Sheet {
     @Override
     public Map<CellAddress, HSSFComment> getCellComments() {
         HSSFPatriarch patriarch = getDrawingPatriarch();
+        Map<CellAddress, HSSFComment> locations = new TreeMap<CellAddress, HSSFComment>();
         if (null == patriarch) {
+            if (_sheet.hasOpaqueRecord(DrawingRecord.sid)) {
+                // the comments were not loaded
+                return locations;
+            }
             patriarch = createDrawingPatriarch();
         }
         
-        Map<CellAddress, HSSFComment> locations = new TreeMap<CellAddress, HSSFComment>();
         findCellCommentLocations(patriarch, locations);
         return locations;
     }
@@ -17,6 +17,9 @@
 
 package org.apache.poi.hssf.usermodel;
 
+import org.apache.poi.hssf.model.InternalSheet;
+import org.apache.poi.hssf.record.CFHeader12Record;
+import org.apache.poi.hssf.record.CFHeaderRecord;
 import org.apache.poi.hssf.record.CFRule12Record;
 import org.apache.poi.hssf.record.CFRuleBase;
 import org.apache.poi.hssf.record.CFRuleRecord;
@@ -153,6 +156,7 @@ public final class HSSFSheetConditionalFormatting implements SheetConditionalFor
      * @return index of the new Conditional Formatting object
      */
     public int addConditionalFormatting( HSSFConditionalFormatting cf ) {
+        checkLoaded();
         CFRecordsAggregate cfraClone = cf.getCFRecordsAggregate().cloneCFAggregate();
 
         return _conditionalFormattingTable.add(cfraClone);
@@ -171,6 +175,7 @@ public final class HSSFSheetConditionalFormatting implements SheetConditionalFor
      * @return index of the newly created Conditional Formatting object
      */
     public int addConditionalFormatting(CellRangeAddress[] regions, HSSFConditionalFormattingRule[] cfRules) {
+        checkLoaded();
         if (regions == null) {
             throw new IllegalArgumentException("regions must not be null");
         }
@@ -259,6 +264,18 @@ public final class HSSFSheetConditionalFormatting implements SheetConditionalFor
      * @param index of a Conditional Formatting object to remove
      */
     public void removeConditionalFormatting(int index) {
+        checkLoaded();
         _conditionalFormattingTable.remove(index);
     }
+
+    /**
+     * @throws IllegalStateException if the sheet holds unparsed conditional formats,
+     *  see {@link HSSFLoadOptions#setOpaqueContent(HSSFLoadOptions.SheetContent...)}
+     */
+    private void checkLoaded() {
+        InternalSheet sheet = _sheet.getSheet();
+        if (sheet.hasOpaqueRecord(CFHeaderRecord.sid) || sheet.hasOpaqueRecord(CFHeader12Record.sid)) {
+            throw new IllegalStateException("The conditional formats of this sheet were not loaded");
+        }
+    }
 }
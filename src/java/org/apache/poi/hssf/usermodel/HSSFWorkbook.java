@@ -23,9 +23,11 @@ import static org.apache.poi.hssf.model.InternalWorkbook.WORKBOOK_DIR_ENTRY_NAME
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -41,6 +43,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -60,8 +67,10 @@ import org.apache.poi.hssf.model.InternalSheet.UnsupportedBOFType;
 import org.apache.poi.hssf.model.InternalWorkbook;
 import org.apache.poi.hssf.model.RecordStream;
 import org.apache.poi.hssf.record.AbstractEscherHolderRecord;
+import org.apache.poi.hssf.record.BOFRecord;
 import org.apache.poi.hssf.record.BackupRecord;
 import org.apache.poi.hssf.record.DrawingGroupRecord;
+import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.ExtendedFormatRecord;
 import org.apache.poi.hssf.record.FontRecord;
 import org.apache.poi.hssf.record.LabelRecord;
@@ -70,21 +79,25 @@ import org.apache.poi.hssf.record.NameRecord;
 import org.apache.poi.hssf.record.RecalcIdRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
 import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.UnknownRecord;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
+import org.apache.poi.hssf.record.aggregates.SpilledRowBlocks;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.util.CellReference;
 import org.apache.poi.poifs.crypt.Decryptor;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
-import org.apache.poi.poifs.filesystem.DocumentNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.poifs.filesystem.DocumentOutputStream;
 import org.apache.poi.poifs.filesystem.EntryUtils;
 import org.apache.poi.poifs.filesystem.FilteringDirectoryNode;
-import org.apache.poi.poifs.filesystem.NPOIFSDocument;
 import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
 import org.apache.poi.poifs.filesystem.Ole10Native;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.poifs.filesystem.POIFSWriterEvent;
+import org.apache.poi.poifs.filesystem.POIFSWriterListener;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.formula.FormulaType;
@@ -96,13 +109,16 @@ import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row.MissingCellPolicy;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.FontIndex;
 import org.apache.poi.ss.util.WorkbookUtil;
 import org.apache.poi.util.Configurator;
 import org.apache.poi.util.HexDump;
 import org.apache.poi.util.Internal;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.POILogFactory;
 import org.apache.poi.util.POILogger;
+import org.apache.poi.util.TempFile;
 
 /**
  * High level representation of a workbook.  This is the first object most users
@@ -127,6 +143,11 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
 
     private static final int DEBUG = POILogger.DEBUG;
 
+    /**
+     * The entry the Workbook stream is written to by {@link #write()}, before it replaces the old one
+     */
+    private static final String NEW_WORKBOOK_ENTRY_NAME = "Workbook.new";
+
     /**
      * used for compile-time performance/memory optimization.  This determines the
      * initial capacity for the sheet collection.  Its currently set to 3.
@@ -148,6 +169,14 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
 
     protected List<HSSFSheet> _sheets;
 
+    /**
+     * the records of the sheets which have not been loaded yet, at the index of the sheet;
+     * <code>null</code> if all sheets have been loaded
+     *
+     * @see HSSFLoadOptions#setSheetsToLoad(String...)
+     */
+    private List<List<Record>> _unloadedSheets;
+
     /**
      * this holds the HSSFName objects attached to this workbook
      */
@@ -160,6 +189,17 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     private Map<Short,HSSFFont> fonts;
 
+    /**
+     * finds the fonts by their attributes, created on the first call of findFont
+     */
+    private FontIndex<HSSFFont> fontIndex;
+
+    /**
+     * this holds the HSSFCellStyle objects of this workbook by XF index, created as required.
+     * Concurrent readers may create a style more than once, which is harmless.
+     */
+    private HSSFCellStyle[] cellStyles;
+
     /**
      * holds whether or not to preserve other nodes in the POIFS.  Used
      * for macros and embedded objects.
@@ -189,6 +229,12 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     private UDFFinder _udfFinder = new IndexedUDFFinder(AggregatingUDFFinder.DEFAULT);
 
+    /**
+     * The number of rows of each sheet kept in memory by {@link HSSFSheet#createRow(int)},
+     * <code>-1</code> to keep all rows
+     */
+    private int _rowAccessWindowSize = -1;
+
     public static HSSFWorkbook create(InternalWorkbook book) {
     	return new HSSFWorkbook(book);
     }
@@ -319,6 +365,26 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes)
             throws IOException
+    {
+        this(directory, preserveNodes, new HSSFLoadOptions());
+    }
+
+    /**
+     * given a POI POIFSFileSystem object, and a specific directory
+     *  within it, read in its Workbook and populate the high and
+     *  low level models, as specified by the load options.
+     *
+     * @param directory the POI filesystem directory to process from
+     * @param preserveNodes whether to preserve other nodes, such as
+     *        macros.  This takes more memory, so only say yes if you
+     *        need to. If set, will store all of the POIFSFileSystem
+     *        in memory
+     * @param options how to read the workbook
+     * @see org.apache.poi.poifs.filesystem.POIFSFileSystem
+     * @exception IOException if the stream cannot be read
+     */
+    public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes, HSSFLoadOptions options)
+            throws IOException
     {
         super(directory);
         String workbookName = getWorkbookDirEntryName(directory);
@@ -338,7 +404,9 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         //  it happens to be spelled.
         InputStream stream = directory.createDocumentInputStream(workbookName);
 
-        List<Record> records = RecordFactory.createRecords(stream);
+        // the cells of MULRK records are packed by the sheets
+        List<Record> records = RecordFactory.createRecords(stream, options.getOpaqueSids(),
+                options.getOpaqueContent().contains(HSSFLoadOptions.SheetContent.CHARTS), false);
 
         workbook = InternalWorkbook.createWorkbook(records);
         setPropertiesFromWorkbook(workbook);
@@ -346,14 +414,20 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
 
         // convert all LabelRecord records to LabelSSTRecord
         convertLabelRecords(records, recOffset);
-        RecordStream rs = new RecordStream(records, recOffset);
-        while (rs.hasNext()) {
-            try {
-                InternalSheet sheet = InternalSheet.createSheet(rs);
-                _sheets.add(new HSSFSheet(this, sheet));
-            } catch (UnsupportedBOFType eb) {
-                // Hopefully there's a supported one after this!
-                log.log(POILogger.WARN, "Unsupported BOF found of type " + eb.getType());
+        boolean isSelective = options.getSheetExecutor() != null || options.getSheetsToLoad() != null;
+        List<List<Record>> substreams = isSelective ? splitSheetSubstreams(records, recOffset) : null;
+        if (substreams != null) {
+            createSheets(substreams, options);
+        } else {
+            RecordStream rs = new RecordStream(records, recOffset);
+            while (rs.hasNext()) {
+                try {
+                    InternalSheet sheet = InternalSheet.createSheet(rs);
+                    _sheets.add(new HSSFSheet(this, sheet));
+                } catch (UnsupportedBOFType eb) {
+                    // Hopefully there's a supported one after this!
+                    log.log(POILogger.WARN, "Unsupported BOF found of type " + eb.getType());
+                }
             }
         }
 
@@ -364,6 +438,167 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         }
     }
 
+    /**
+     * Splits the records following the workbook globals into the substreams of the sheets,
+     *  the same way as {@link InternalSheet#createSheet(RecordStream)} reads them: a sheet
+     *  ends with the first EOF record which doesn't end one of its charts.
+     *
+     * @return the substreams, or <code>null</code> if the records don't consist of
+     *  sheet substreams only, in which case the sheets are read one after the other
+     */
+    private static List<List<Record>> splitSheetSubstreams(List<Record> records, int offset) {
+        List<List<Record>> result = new ArrayList<List<Record>>();
+        int start = -1;
+        boolean isSupported = false;
+        boolean inChart = false;
+        for (int i = offset; i < records.size(); i++) {
+            Record rec = records.get(i);
+            if (start < 0) {
+                if (!(rec instanceof BOFRecord)) {
+                    return null;
+                }
+                isSupported = isSupportedSheetType(((BOFRecord) rec).getType());
+                start = i;
+            } else if (rec instanceof BOFRecord) {
+                inChart |= isSupported;
+            } else if (rec instanceof EOFRecord) {
+                if (inChart) {
+                    inChart = false;
+                } else {
+                    result.add(records.subList(start, i + 1));
+                    start = -1;
+                }
+            }
+        }
+        return start < 0 ? result : null;
+    }
+
+    /**
+     * @return <code>true</code> if {@link InternalSheet#createSheet(RecordStream)} reads
+     *  substreams of the specified BOF type
+     */
+    private static boolean isSupportedSheetType(int type) {
+        return type == BOFRecord.TYPE_WORKSHEET || type == BOFRecord.TYPE_CHART
+                || type == BOFRecord.TYPE_EXCEL_4_MACRO;
+    }
+
+    /**
+     * Builds the sheets of the specified substreams, concurrently if the options specify an
+     *  executor. The substreams of the sheets which are not selected are kept for later.
+     *
+     * @see HSSFLoadOptions#setSheetExecutor(ExecutorService)
+     * @see HSSFLoadOptions#setSheetsToLoad(String...)
+     */
+    private void createSheets(List<List<Record>> substreams, HSSFLoadOptions options) throws IOException {
+        ExecutorService executor = options.getSheetExecutor();
+        List<Future<HSSFSheet>> tasks = new ArrayList<Future<HSSFSheet>>(substreams.size());
+        boolean success = false;
+        try {
+            for (final List<Record> substream : substreams) {
+                int type = ((BOFRecord) substream.get(0)).getType();
+                if (!isSupportedSheetType(type)) {
+                    // Hopefully there's a supported one after this!
+                    log.log(POILogger.WARN, "Unsupported BOF found of type " + type);
+                    continue;
+                }
+                int index = tasks.size();
+                String sheetName = index < workbook.getNumSheets() ? workbook.getSheetName(index) : null;
+                if (!options.isSheetToLoad(sheetName)) {
+                    if (_unloadedSheets == null) {
+                        _unloadedSheets = new ArrayList<List<Record>>();
+                    }
+                    while (_unloadedSheets.size() < index) {
+                        _unloadedSheets.add(null);
+                    }
+                    _unloadedSheets.add(substream);
+                    tasks.add(null);
+                    continue;
+                }
+                Callable<HSSFSheet> callable = new Callable<HSSFSheet>() {
+                    public HSSFSheet call() {
+                        return buildSheet(substream);
+                    }
+                };
+                if (executor == null) {
+                    FutureTask<HSSFSheet> task = new FutureTask<HSSFSheet>(callable);
+                    task.run();
+                    tasks.add(task);
+                } else {
+                    tasks.add(executor.submit(callable));
+                }
+            }
+            for (Future<HSSFSheet> task : tasks) {
+                _sheets.add(task == null ? null : task.get());
+            }
+            if (_unloadedSheets != null) {
+                while (_unloadedSheets.size() < _sheets.size()) {
+                    _unloadedSheets.add(null);
+                }
+            }
+            success = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the sheets");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (!success) {
+                for (Future<HSSFSheet> task : tasks) {
+                    if (task != null) {
+                        task.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    private HSSFSheet buildSheet(List<Record> substream) {
+        InternalSheet sheet = InternalSheet.createSheet(new RecordStream(substream, 0));
+        return new HSSFSheet(this, sheet);
+    }
+
+    /**
+     * @return the sheet at the specified index, which is loaded if it hasn't been yet
+     */
+    private HSSFSheet getLoadedSheet(int index) {
+        HSSFSheet sheet = _sheets.get(index);
+        if (sheet == null) {
+            sheet = buildSheet(_unloadedSheets.get(index));
+            _sheets.set(index, sheet);
+            _unloadedSheets.set(index, null);
+        }
+        return sheet;
+    }
+
+    /**
+     * Keeps the unloaded sheets in step with a sheet added to the end of {@link #_sheets}
+     */
+    private void addLoadedSheet() {
+        if (_unloadedSheets != null) {
+            _unloadedSheets.add(null);
+        }
+    }
+
+    /**
+     * Loads all sheets which haven't been loaded yet
+     */
+    private void loadAllSheets() {
+        if (_unloadedSheets == null) {
+            return;
+        }
+        for (int i = 0; i < _sheets.size(); i++) {
+            getLoadedSheet(i);
+        }
+        _unloadedSheets = null;
+    }
+
     /**
      * Companion to HSSFWorkbook(POIFSFileSystem), this constructs the
      *  POI filesystem around your {@link InputStream}, including all nodes.
@@ -398,6 +633,19 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         this(new NPOIFSFileSystem(s).getRoot(), preserveNodes);
     }
 
+    /**
+     * Companion to HSSFWorkbook(DirectoryNode, boolean, HSSFLoadOptions), this constructs the
+     *  POI filesystem around your {@link InputStream}, including all nodes.
+     *
+     * @param s  the POI filesystem that contains the Workbook stream.
+     * @param options how to read the workbook
+     * @exception IOException if the stream cannot be read
+     */
+    @SuppressWarnings("resource")   // NPOIFSFileSystem always closes the stream
+    public HSSFWorkbook(InputStream s, HSSFLoadOptions options) throws IOException {
+        this(new NPOIFSFileSystem(s).getRoot(), true, options);
+    }
+
     /**
      * used internally to set the workbook properties.
      */
@@ -490,6 +738,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     @Override
     public void setSheetOrder(String sheetname, int pos ) {
         int oldSheetIndex = getSheetIndex(sheetname);
+        loadAllSheets();
         _sheets.add(pos,_sheets.remove(oldSheetIndex));
         workbook.setSheetOrder(sheetname, pos);
 
@@ -752,6 +1001,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         HSSFSheet sheet = new HSSFSheet(this);
 
         _sheets.add(sheet);
+        addLoadedSheet();
         workbook.setSheetName(_sheets.size() - 1, "Sheet" + (_sheets.size() - 1));
         boolean isOnlySheet = _sheets.size() == 1;
         sheet.setSelected(isOnlySheet);
@@ -768,7 +1018,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     @Override
     public HSSFSheet cloneSheet(int sheetIndex) {
         validateSheetIndex(sheetIndex);
-        HSSFSheet srcSheet = _sheets.get(sheetIndex);
+        HSSFSheet srcSheet = getLoadedSheet(sheetIndex);
         String srcName = workbook.getSheetName(sheetIndex);
         HSSFSheet clonedSheet = srcSheet.cloneSheet(this);
         clonedSheet.setSelected(false);
@@ -777,6 +1027,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         String name = getUniqueSheetName(srcName);
         int newSheetIndex = _sheets.size();
         _sheets.add(clonedSheet);
+        addLoadedSheet();
         workbook.setSheetName(newSheetIndex, name);
 
         // Check this sheet has an autofilter, (which has a built-in NameRecord at workbook level)
@@ -880,6 +1131,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
 
         workbook.setSheetName(_sheets.size(), sheetname);
         _sheets.add(sheet);
+        addLoadedSheet();
         boolean isOnlySheet = _sheets.size() == 1;
         sheet.setSelected(isOnlySheet);
         sheet.setActive(isOnlySheet);
@@ -907,20 +1159,25 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     }
     
     private final class SheetIterator<T extends Sheet> implements Iterator<T> {
-        final private Iterator<T> it;
-        private T cursor = null;
-        @SuppressWarnings("unchecked")
+        final private Iterator<HSSFSheet> it;
+        private int index = 0;
         public SheetIterator() {
-            it = (Iterator<T>) _sheets.iterator();
+            it = _sheets.iterator();
         }
         @Override
         public boolean hasNext() {
             return it.hasNext();
         }
         @Override
+        @SuppressWarnings("unchecked")
         public T next() throws NoSuchElementException {
-            cursor = it.next();
-            return cursor;
+            HSSFSheet sheet = it.next();
+            if (sheet == null) {
+                // setting the loaded sheet doesn't invalidate the iterator
+                sheet = getLoadedSheet(index);
+            }
+            index++;
+            return (T) sheet;
         }
         /**
          * Unexpected behavior may occur if sheets are reordered after iterator
@@ -945,6 +1202,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     }
 
     private HSSFSheet[] getSheets() {
+        loadAllSheets();
         HSSFSheet[] result = new HSSFSheet[_sheets.size()];
         _sheets.toArray(result);
         return result;
@@ -960,7 +1218,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     public HSSFSheet getSheetAt(int index)
     {
         validateSheetIndex(index);
-        return _sheets.get(index);
+        return getLoadedSheet(index);
     }
 
     /**
@@ -980,7 +1238,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
 
             if (sheetname.equalsIgnoreCase(name))
             {
-                retval = _sheets.get(k);
+                retval = getLoadedSheet(k);
             }
         }
         return retval;
@@ -1006,6 +1264,9 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         boolean wasSelected = getSheetAt(index).isSelected();
 
         _sheets.remove(index);
+        if (_unloadedSheets != null) {
+            _unloadedSheets.remove(index);
+        }
         workbook.removeSheet(index);
 
         // set the remaining active/selected sheet
@@ -1170,26 +1431,21 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
                              String name, boolean italic, boolean strikeout,
                              short typeOffset, byte underline)
     {
-        short numberOfFonts = getNumberOfFonts();
-        for (short i=0; i<=numberOfFonts; i++) {
-            // Remember - there is no 4!
-            if(i == 4) continue;
+        if (fontIndex == null) {
+            fontIndex = new FontIndex<HSSFFont>() {
+                @Override
+                protected int getFontIndexCount() {
+                    return getNumberOfFonts() + 1;
+                }
 
-            HSSFFont hssfFont = getFontAt(i);
-            if (hssfFont.getBold() == bold
-                    && hssfFont.getColor() == color
-                    && hssfFont.getFontHeight() == fontHeight
-                    && hssfFont.getFontName().equals(name)
-                    && hssfFont.getItalic() == italic
-                    && hssfFont.getStrikeout() == strikeout
-                    && hssfFont.getTypeOffset() == typeOffset
-                    && hssfFont.getUnderline() == underline)
-            {
-                return hssfFont;
-            }
+                @Override
+                protected HSSFFont getFontAt(int index) {
+                    // Remember - there is no 4!
+                    return index == 4 ? null : HSSFWorkbook.this.getFontAt((short) index);
+                }
+            };
         }
-
-        return null;
+        return fontIndex.findFont(bold, color, fontHeight, name, italic, strikeout, typeOffset, underline);
     }
 
     /**
@@ -1235,6 +1491,9 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     protected void resetFontCache() {
         fonts = new HashMap<Short, HSSFFont>();
+        if (fontIndex != null) {
+            fontIndex.clear();
+        }
     }
 
     /**
@@ -1253,7 +1512,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         }
         ExtendedFormatRecord xfr = workbook.createCellXF();
         short index = (short) (getNumCellStyles() - 1);
-        return new HSSFCellStyle(index, xfr, this);
+        return putCellStyle(new HSSFCellStyle(index, xfr, this));
     }
 
     /**
@@ -1275,12 +1534,38 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     public HSSFCellStyle getCellStyleAt(int idx)
     {
         ExtendedFormatRecord xfr = workbook.getExFormatAt(idx);
-        return new HSSFCellStyle((short)idx, xfr, this);
+        // So we don't allocate a style for every cell, give back
+        //  the same object every time, unless the XF records
+        //  were changed, e.g. by HSSFOptimiser
+        HSSFCellStyle[] styles = cellStyles;
+        if (styles != null && idx < styles.length) {
+            HSSFCellStyle style = styles[idx];
+            if (style != null && style.getFormat() == xfr) {
+                return style;
+            }
+        }
+        return putCellStyle(new HSSFCellStyle((short)idx, xfr, this));
+    }
+
+    private HSSFCellStyle putCellStyle(HSSFCellStyle style) {
+        int idx = style.getIndex();
+        HSSFCellStyle[] styles = cellStyles;
+        if (styles == null || idx >= styles.length) {
+            HSSFCellStyle[] newStyles = new HSSFCellStyle[Math.max(idx + 1, getNumCellStyles())];
+            if (styles != null) {
+                System.arraycopy(styles, 0, newStyles, 0, styles.length);
+            }
+            styles = newStyles;
+            cellStyles = styles;
+        }
+        styles[idx] = style;
+        return style;
     }
 
     /**
      * Closes the underlying {@link NPOIFSFileSystem} from which
-     *  the Workbook was read, if any.
+     *  the Workbook was read, if any, and deletes the temporary
+     *  files of flushed rows (see {@link #dispose()}).
      *
      * <p>Once this has been called, no further
      *  operations, updates or reads should be performed on the 
@@ -1288,7 +1573,67 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     @Override
     public void close() throws IOException {
-        super.close();
+        try {
+            dispose();
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * Lets {@link HSSFSheet#createRow(int)} write the older rows of a sheet to a temporary file
+     * once more than <code>rowAccessWindowSize</code> rows are held in memory, so large sheets
+     * can be written with a constant amount of memory. Rows must then be created in ascending
+     * order, and only the most recent rows can be accessed, see {@link HSSFSheet#flushRows(int)}.
+     * Call {@link #dispose()} or {@link #close()} after writing the workbook to delete the
+     * temporary files.
+     *
+     * @param rowAccessWindowSize the number of rows to keep in memory, <code>-1</code> (the
+     *  default) to keep all rows
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        if (rowAccessWindowSize == 0 || rowAccessWindowSize < -1) {
+            throw new IllegalArgumentException("rowAccessWindowSize must be greater than 0 or -1");
+        }
+        _rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @return the number of rows of each sheet kept in memory, <code>-1</code> if all rows are kept
+     * @see #setRowAccessWindowSize(int)
+     */
+    public int getRowAccessWindowSize() {
+        return _rowAccessWindowSize;
+    }
+
+    /**
+     * Deletes the temporary files holding the flushed rows of the sheets. The workbook can't be
+     * written afterwards if rows have been flushed.
+     *
+     * @return <code>true</code> if all temporary files have been deleted
+     */
+    public boolean dispose() {
+        boolean success = true;
+        for (HSSFSheet sheet : _sheets) {
+            if (sheet == null) {
+                // not loaded, so nothing was flushed
+                continue;
+            }
+            success = sheet.getSheet().getRowsAggregate().disposeFlushedRows() && success;
+        }
+        return success;
+    }
+
+    /**
+     * @return <code>true</code> if rows of any sheet have been written to temporary files
+     */
+    private boolean hasFlushedRows() {
+        for (HSSFSheet sheet : _sheets) {
+            if (sheet != null && sheet.getLastFlushedRowNum() >= 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -1305,11 +1650,26 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     public void write() throws IOException {
         validateInPlaceWritePossible();
         
-        // Update the Workbook stream in the file
-        DocumentNode workbookNode = (DocumentNode)directory.getEntry(
-                getWorkbookDirEntryName(directory));
-        NPOIFSDocument workbookDoc = new NPOIFSDocument(workbookNode);
-        workbookDoc.replaceContents(new ByteArrayInputStream(getBytes()));
+        // Write the records straight into a new Workbook stream. The old stream is only
+        //  replaced once the new one is complete, so it's kept if serialization fails
+        String workbookName = getWorkbookDirEntryName(directory);
+        if (directory.hasEntry(NEW_WORKBOOK_ENTRY_NAME)) {
+            // left over from an earlier write which failed
+            directory.getEntry(NEW_WORKBOOK_ENTRY_NAME).delete();
+        }
+        WorkbookStreamWriter writer = new WorkbookStreamWriter();
+        DocumentEntry newWorkbook = directory.createDocument(NEW_WORKBOOK_ENTRY_NAME, writer.getSize(), writer);
+        boolean written = false;
+        try {
+            writer.checkWritten();
+            written = true;
+        } finally {
+            if (!written) {
+                newWorkbook.delete();
+            }
+        }
+        directory.getEntry(workbookName).delete();
+        newWorkbook.renameTo(workbookName);
         
         // Update the properties streams in the file
         writeProperties();
@@ -1354,6 +1714,10 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      * consider wrapping the OutputStream in a {@link java.io.BufferedOutputStream}
      * to improve write performance.
      *
+     * The file system is assembled in memory before it's written to the stream, unless rows
+     * have been flushed (see {@link #setRowAccessWindowSize(int)}). Use {@link #write(File)}
+     * to write large workbooks without holding a copy of the file in memory.
+     *
      * @param stream - the java OutputStream you wish to write the XLS to
      *
      * @exception IOException if anything can't be written.
@@ -1361,6 +1725,24 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
      */
     @Override
 	public void write(OutputStream stream) throws IOException {
+        if (hasFlushedRows()) {
+            // build the file system in a file, not in memory
+            File tmp = TempFile.createTempFile("poi-hssf-workbook", ".xls");
+            try {
+                write(tmp);
+                InputStream is = new FileInputStream(tmp);
+                try {
+                    IOUtils.copy(is, stream);
+                } finally {
+                    is.close();
+                }
+            } finally {
+                if (!tmp.delete()) {
+                    log.log(POILogger.WARN, "Can't delete temporary workbook file: " + tmp);
+                }
+            }
+            return;
+        }
         NPOIFSFileSystem fs = new NPOIFSFileSystem();
         try {
             write(fs);
@@ -1376,8 +1758,10 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
         //  going to be preserving nodes
         List<String> excepts = new ArrayList<String>(1);
 
-        // Write out the Workbook stream
-        fs.createDocument(new ByteArrayInputStream(getBytes()), "Workbook");
+        // Write out the Workbook stream, record by record
+        WorkbookStreamWriter writer = new WorkbookStreamWriter();
+        fs.createDocument("Workbook", writer.getSize(), writer);
+        writer.checkWritten();
 
         // Write out our HPFS properties, if we have them
         writeProperties(fs, excepts);
@@ -1428,26 +1812,98 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             }
             return result;
         }
+        /**
+         * Serializes the records one by one into the specified stream
+         *
+         * @return the number of bytes written
+         */
+        public int writeTo(OutputStream out) throws IOException {
+            byte[] buf = new byte[RecordInputStream.MAX_RECORD_DATA_SIZE + 4];
+            int result = 0;
+            for (Record rec : _list) {
+                if (rec instanceof SpilledRowBlocks) {
+                    SpilledRowBlocks spilled = (SpilledRowBlocks) rec;
+                    spilled.writeTo(out);
+                    result += spilled.getRecordSize();
+                    continue;
+                }
+                int recSize = rec.getRecordSize();
+                if (recSize > buf.length) {
+                    buf = new byte[recSize];
+                }
+                int serializedSize = rec.serialize(0, buf);
+                out.write(buf, 0, serializedSize);
+                result += serializedSize;
+            }
+            return result;
+        }
     }
 
-
     /**
-     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
-     * Use this to construct a POI POIFSFileSystem yourself.
-     *
-     *
-     * @return byte[] array containing the binary representation of this workbook and all contained
-     *         sheets, rows, cells, etc.
+     * Writes the Workbook stream record by record into the {@link DocumentOutputStream} of the
+     * new document, so the stream is never built in memory. Flushed rows are copied straight
+     * from their temporary files.
      */
-    public byte[] getBytes() {
-        if (log.check( POILogger.DEBUG )) {
-            log.log(DEBUG, "HSSFWorkbook.getBytes()");
+    private final class WorkbookStreamWriter implements POIFSWriterListener {
+        private final SheetRecordCollector[] _srCollectors;
+        private final int _size;
+        /** the error while writing, an <tt>IOException</tt> or a <tt>RuntimeException</tt> */
+        private Exception _exception;
+
+        public WorkbookStreamWriter() {
+            _srCollectors = collectSheetRecords();
+            int size = workbook.getSize();
+            for (SheetRecordCollector src : _srCollectors) {
+                size += src.getTotalSize();
+            }
+            _size = size;
+        }
+        public int getSize() {
+            return _size;
         }
+        @Override
+        public void processPOIFSWriterEvent(POIFSWriterEvent event) {
+            DocumentOutputStream os = event.getStream();
+            try {
+                byte[] buf = new byte[workbook.getSize()];
+                os.write(buf, 0, workbook.serialize(0, buf));
+                for (int k = 0; k < _srCollectors.length; k++) {
+                    SheetRecordCollector src = _srCollectors[k];
+                    int serializedSize = src.writeTo(os);
+                    if (serializedSize != src.getTotalSize()) {
+                        throw new IllegalStateException("Actual serialized sheet size (" + serializedSize
+                                + ") differs from pre-calculated size (" + src.getTotalSize()
+                                + ") for sheet (" + k + ")");
+                    }
+                }
+            } catch (IOException e) {
+                _exception = e;
+            } catch (RuntimeException e) {
+                // rethrown by checkWritten, so the caller can discard the incomplete document
+                _exception = e;
+            }
+        }
+        /**
+         * Rethrows any error which occurred while writing
+         */
+        public void checkWritten() throws IOException {
+            if (_exception instanceof IOException) {
+                throw (IOException) _exception;
+            }
+            if (_exception != null) {
+                throw (RuntimeException) _exception;
+            }
+        }
+    }
 
+    /**
+     * Tells the workbook and the sheets that serialization is about to occur, sets the BOF
+     * offsets of the sheets and collects their records
+     */
+    private SheetRecordCollector[] collectSheetRecords() {
         HSSFSheet[] sheets = getSheets();
         int nSheets = sheets.length;
 
-
         // before getting the workbook size we must tell the sheets that
         // serialization is about to occur.
         workbook.preSerialize();
@@ -1467,6 +1923,30 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
             totalsize += src.getTotalSize();
             srCollectors[k] = src;
         }
+        return srCollectors;
+    }
+
+
+    /**
+     * Method getBytes - get the bytes of just the HSSF portions of the XLS file.
+     * Use this to construct a POI POIFSFileSystem yourself.
+     *
+     *
+     * @return byte[] array containing the binary representation of this workbook and all contained
+     *         sheets, rows, cells, etc.
+     */
+    public byte[] getBytes() {
+        if (log.check( POILogger.DEBUG )) {
+            log.log(DEBUG, "HSSFWorkbook.getBytes()");
+        }
+
+        SheetRecordCollector[] srCollectors = collectSheetRecords();
+        int nSheets = srCollectors.length;
+
+        int totalsize = workbook.getSize();
+        for (SheetRecordCollector src : srCollectors) {
+            totalsize += src.getTotalSize();
+        }
 
         byte[] retval = new byte[totalsize];
         int pos = workbook.serialize(0, retval);
@@ -1767,7 +2247,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     void initDrawings(){
         DrawingManager2 mgr = workbook.findDrawingGroup();
         if(mgr != null) {
-            for(HSSFSheet sh : _sheets)  {
+            for(HSSFSheet sh : getSheets())  {
                 sh.getDrawingPatriarch();
             }
         } else {
@@ -2023,7 +2503,7 @@ public final class HSSFWorkbook extends POIDocument implements org.apache.poi.ss
     public List<HSSFObjectData> getAllEmbeddedObjects()
     {
         List<HSSFObjectData> objects = new ArrayList<HSSFObjectData>();
-        for (HSSFSheet sheet : _sheets)
+        for (HSSFSheet sheet : getSheets())
         {
             getAllEmbeddedObjects(sheet, objects);
         }
@@ -148,6 +148,8 @@ public class CellDateFormatter extends CellFormatter {
         String ptrn = descBuf.toString().replaceAll("((y)(?!y))(?<!yy)", "yy");
         dateFmt = new SimpleDateFormat(ptrn, LocaleUtil.getUserLocale());
         dateFmt.setTimeZone(LocaleUtil.getUserTimeZone());
+        // compute the time now, so that the calendar is only read by formatting threads
+        EXCEL_EPOCH_CAL.getTimeInMillis();
     }
 
     /** {@inheritDoc} */
@@ -167,7 +169,9 @@ public class CellDateFormatter extends CellFormatter {
             }
         }
 
-        AttributedCharacterIterator it = dateFmt.formatToCharacterIterator(value);
+        // the formatters of a cached CellFormat are shared by all threads
+        DateFormat fmt = (DateFormat) dateFmt.clone();
+        AttributedCharacterIterator it = fmt.formatToCharacterIterator(value);
         boolean doneAm = false;
         boolean doneMillis = false;
 
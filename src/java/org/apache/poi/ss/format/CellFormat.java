@@ -19,7 +19,9 @@ package org.apache.poi.ss.format;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.logging.Level;
@@ -35,6 +37,7 @@ import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.util.DateFormatConverter;
+import org.apache.poi.util.LocaleUtil;
 
 /**
  * Format a value according to the standard Excel behavior.  This "standard" is
@@ -130,9 +133,13 @@ public class CellFormat {
         }
     };
 
-    /** Maps a format string to its parsed version for efficiencies sake. */
-    private static final Map<String, CellFormat> formatCache =
-            new WeakHashMap<String, CellFormat>();
+    /**
+     * Maps a format string to its parsed version for efficiencies sake, per locale, as the
+     * formatters use the {@link LocaleUtil#getUserLocale() user locale} of the creating thread.
+     * Access is synchronized on the map.
+     */
+    private static final Map<Locale, Map<String, CellFormat>> formatCache =
+            new HashMap<Locale, Map<String, CellFormat>>();
 
     /**
      * Returns a {@link CellFormat} that applies the given format.  Two calls
@@ -143,13 +150,26 @@ public class CellFormat {
      * @return A {@link CellFormat} that applies the given format.
      */
     public static CellFormat getInstance(String format) {
-        CellFormat fmt = formatCache.get(format);
-        if (fmt == null) {
-            if (format.equals("General") || format.equals("@"))
-                fmt = GENERAL_FORMAT;
-            else
-                fmt = new CellFormat(format);
-            formatCache.put(format, fmt);
+        Locale locale = LocaleUtil.getUserLocale();
+        synchronized (formatCache) {
+            Map<String, CellFormat> formats = formatCache.get(locale);
+            if (formats == null) {
+                formats = new WeakHashMap<String, CellFormat>();
+                formatCache.put(locale, formats);
+            }
+            CellFormat fmt = formats.get(format);
+            if (fmt != null) {
+                return fmt;
+            }
+        }
+        // parse outside of the lock, at worst a format is parsed twice
+        CellFormat fmt;
+        if (format.equals("General") || format.equals("@"))
+            fmt = GENERAL_FORMAT;
+        else
+            fmt = new CellFormat(format);
+        synchronized (formatCache) {
+            formatCache.get(locale).put(format, fmt);
         }
         return fmt;
     }
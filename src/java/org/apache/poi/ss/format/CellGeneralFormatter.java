@@ -16,8 +16,11 @@
 ==================================================================== */
 package org.apache.poi.ss.format;
 
+import java.text.DecimalFormatSymbols;
 import java.util.Formatter;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.poi.util.LocaleUtil;
 
@@ -27,6 +30,9 @@ import org.apache.poi.util.LocaleUtil;
  * @author Ken Arnold, Industrious Media LLC
  */
 public class CellGeneralFormatter extends CellFormatter {
+    /** Whether the digits of a locale are '0' to '9', by locale */
+    private static final ConcurrentMap<Locale, Boolean> asciiDigits = new ConcurrentHashMap<Locale, Boolean>();
+
     /** Creates a new general formatter. */
     public CellGeneralFormatter() {
         super("General");
@@ -54,7 +60,11 @@ public class CellGeneralFormatter extends CellFormatter {
                 fmt = "%1.5E";
             else if ((long) val != val)
                 fmt = "%1.9f";
-            else {
+            else if (hasAsciiDigits(LocaleUtil.getUserLocale())) {
+                // same as "%1.0f", without parsing the format
+                toAppendTo.append((long) val);
+                return;
+            } else {
                 fmt = "%1.0f";
                 stripZeros = false;
             }
@@ -86,6 +96,15 @@ public class CellGeneralFormatter extends CellFormatter {
         }
     }
 
+    private static boolean hasAsciiDigits(Locale locale) {
+        Boolean result = asciiDigits.get(locale);
+        if (result == null) {
+            result = DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+            asciiDigits.put(locale, result);
+        }
+        return result;
+    }
+
     /** Equivalent to {@link #formatValue(StringBuffer,Object)}. {@inheritDoc}. */
     public void simpleValue(StringBuffer toAppendTo, Object value) {
         formatValue(toAppendTo, value);
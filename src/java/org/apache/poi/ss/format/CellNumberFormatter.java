@@ -544,7 +544,9 @@ public class CellNumberFormatter extends CellFormatter {
 
         StringBuffer result = new StringBuffer();
         FieldPosition fractionPos = new FieldPosition(DecimalFormat.FRACTION_FIELD);
-        decimalFmt.format(value, result, fractionPos);
+        // the formatters of a cached CellFormat are shared by all threads
+        DecimalFormat fmt = (DecimalFormat) decimalFmt.clone();
+        fmt.format(value, result, fractionPos);
         writeInteger(result, output, integerSpecials, mods, integerCommas);
         writeFractional(result, output);
 
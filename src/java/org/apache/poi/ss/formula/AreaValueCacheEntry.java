@@ -0,0 +1,127 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
+import org.apache.poi.ss.formula.eval.BlankEval;
+
+/**
+ * Caches the {@link AreaValueBlock} read for one area, so that formulas referencing the
+ * same area share a single pass over its cells.<p/>
+ *
+ * The cells of the area are tracked as the sensitive inputs of a {@link FormulaCellCacheEntry}
+ * which stands in for the whole area. Formulas using the block depend on that entry only,
+ * and changes to any cell of the area clear it just like a formula cell result.
+ */
+final class AreaValueCacheEntry {
+
+	/**
+	 * Key for the area values cache
+	 */
+	public static final class Loc {
+		private final long _bookSheet;
+		private final int _firstRow;
+		private final int _firstColumn;
+		private final int _lastRow;
+		private final int _lastColumn;
+
+		public Loc(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+			_bookSheet = ((bookIndex & 0xFFFFL) << 16) + (sheetIndex & 0xFFFFL);
+			_firstRow = firstRow;
+			_firstColumn = firstColumn;
+			_lastRow = lastRow;
+			_lastColumn = lastColumn;
+		}
+
+		public int hashCode() {
+			int result = (int) _bookSheet;
+			result = result * 31 + _firstRow;
+			result = result * 31 + _firstColumn;
+			result = result * 31 + _lastRow;
+			result = result * 31 + _lastColumn;
+			return result;
+		}
+
+		public boolean equals(Object obj) {
+			assert obj instanceof Loc : "these package-private cache key instances are only compared to themselves";
+			Loc other = (Loc) obj;
+			return _bookSheet == other._bookSheet
+					&& _firstRow == other._firstRow && _firstColumn == other._firstColumn
+					&& _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+		}
+	}
+
+	private final Loc _loc;
+	private final FormulaCellCacheEntry _dependencyEntry;
+	private AreaValueBlock _block;
+	/** the number of cells of the last stored block */
+	private int _blockSize;
+
+	public AreaValueCacheEntry(Loc loc) {
+		_loc = loc;
+		_dependencyEntry = new FormulaCellCacheEntry();
+	}
+
+	public Loc getLoc() {
+		return _loc;
+	}
+
+	/**
+	 * @return the cache entry which records the cells of the area as its inputs
+	 */
+	public FormulaCellCacheEntry getDependencyEntry() {
+		return _dependencyEntry;
+	}
+
+	/**
+	 * @return the cached values, or <code>null</code> if the area needs to be read (again)
+	 */
+	public AreaValueBlock getBlock() {
+		if (_dependencyEntry.getValue() == null) {
+			// cleared because one of the area cells has changed
+			_block = null;
+		}
+		return _block;
+	}
+
+	/**
+	 * Stores the block just read. Must be called while the dependency entry
+	 * is the currently evaluating frame of the specified tracker.
+	 */
+	public void setBlock(AreaValueBlock block, EvaluationTracker tracker) {
+		_block = block;
+		_blockSize = block.getSize();
+		// the dependency entry has no value of its own, anything non-null marks it as valid
+		tracker.updateCacheResult(BlankEval.instance);
+	}
+
+	/**
+	 * @return the number of cells of the last stored block
+	 */
+	public int getBlockSize() {
+		return _blockSize;
+	}
+
+	/**
+	 * Drops the cached values to free memory. The entry stays valid for the formulas which
+	 * depend on it, the values are read again when they are needed next.
+	 */
+	public void releaseBlock() {
+		_block = null;
+	}
+}
@@ -0,0 +1,38 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Optionally implemented by {@link EvaluationCell}s which can tell whether they belong to an
+ * array formula. Each cell of an array formula takes the element at its position in the result,
+ * cells of other implementations are evaluated like normal formula cells.
+ */
+public interface ArrayFormulaEvaluationCell extends EvaluationCell {
+
+	/**
+	 * @return <code>true</code> if this cell is part of a group of cells having a common array formula
+	 */
+	boolean isPartOfArrayFormulaGroup();
+	/**
+	 * @return the range of the array formula group this cell belongs to, only called if
+	 * {@link #isPartOfArrayFormulaGroup()} returns <code>true</code>
+	 */
+	CellRangeAddress getArrayFormulaRange();
+}
@@ -278,6 +278,17 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
     }
 
+    /**
+     * Attaches a profiler which records evaluation times and cache statistics of all following
+     * evaluations, or detaches the current profiler.
+     *
+     * @param profiler pass <code>null</code> to disable profiling
+     * @see EvaluationProfiler#createReport(int)
+     */
+    public void setProfiler(EvaluationProfiler profiler) {
+        _bookEvaluator.setProfiler(profiler);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setDebugEvaluationOutputForNextEval(boolean value){
@@ -0,0 +1,616 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Table;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.CellReference.NameType;
+import org.apache.poi.util.Internal;
+
+/**
+ * The parsed form of reference text, as passed to the INDIRECT() function, e.g.
+ * <tt>Sheet1!A1:B2</tt>, <tt>'[Book1.xls]My Sheet'!C3</tt> or <tt>R[-1]C2</tt>.<p/>
+ *
+ * Parsing does not depend on the workbook the reference is evaluated in, so parsed references
+ * are kept in a bounded cache shared by all workbooks (see {@link #valueOf(String, boolean, SpreadsheetVersion)}).
+ * Workbook and sheet names are only resolved when the reference gets evaluated, and relative
+ * R1C1 style coordinates are resolved against the evaluated cell.<p/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class DynamicReference {
+
+    public enum Kind {
+        /** a single cell */
+        CELL,
+        /** a cell, row or column range */
+        AREA,
+        /** a defined name */
+        NAME,
+        /** a table (structured) reference */
+        STRUCTURED,
+        /** text which does not denote a reference */
+        INVALID
+    }
+
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    private static final int FIRST_ROW_RELATIVE = 0x01;
+    private static final int FIRST_COLUMN_RELATIVE = 0x02;
+    private static final int LAST_ROW_RELATIVE = 0x04;
+    private static final int LAST_COLUMN_RELATIVE = 0x08;
+
+    private static final DynamicReference INVALID = new DynamicReference(Kind.INVALID, null, null, null, null);
+
+    private static final class Key {
+        private final String _text;
+        private final boolean _isA1Style;
+        private final SpreadsheetVersion _ssVersion;
+
+        public Key(String text, boolean isA1Style, SpreadsheetVersion ssVersion) {
+            _text = text;
+            _isA1Style = isA1Style;
+            _ssVersion = ssVersion;
+        }
+
+        public int hashCode() {
+            return (_text.hashCode() * 31 + (_isA1Style ? 1 : 0)) * 31 + _ssVersion.hashCode();
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _isA1Style == other._isA1Style && _ssVersion == other._ssVersion
+                    && _text.equals(other._text);
+        }
+    }
+
+    private static final Map<Key, DynamicReference> _cache = new LinkedHashMap<Key, DynamicReference>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Key, DynamicReference> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private final Kind _kind;
+    private final String _workbookName;
+    private final String _sheetName;
+    private final String _refText;
+    private final SpreadsheetVersion _ssVersion;
+    private int _firstRow;
+    private int _firstColumn;
+    private int _lastRow;
+    private int _lastColumn;
+    private int _relativeFlags;
+
+    private DynamicReference(Kind kind, String workbookName, String sheetName, String refText,
+            SpreadsheetVersion ssVersion) {
+        _kind = kind;
+        _workbookName = workbookName;
+        _sheetName = sheetName;
+        _refText = refText;
+        _ssVersion = ssVersion;
+    }
+
+    /**
+     * Parses the reference text, or returns the result of a previous parse of the same text.
+     *
+     * @param text the reference text, optionally qualified with a sheet and workbook name
+     * @param isA1Style <code>true</code> for 'A1' style and <code>false</code> for 'R1C1' style
+     * @return never <code>null</code>
+     */
+    public static DynamicReference valueOf(String text, boolean isA1Style, SpreadsheetVersion ssVersion) {
+        Key key = new Key(text, isA1Style, ssVersion);
+        DynamicReference result;
+        synchronized (_cache) {
+            result = _cache.get(key);
+        }
+        if (result == null) {
+            result = parse(text, isA1Style, ssVersion);
+            synchronized (_cache) {
+                _cache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the reference text without looking at, or adding to, the cache.
+     *
+     * @see #valueOf(String, boolean, SpreadsheetVersion)
+     */
+    public static DynamicReference parse(String text, boolean isA1Style, SpreadsheetVersion ssVersion) {
+        // Search backwards for '!' because sheet names can contain '!'
+        int plingPos = text.lastIndexOf('!');
+
+        String workbookName;
+        String sheetName;
+        String refText; // whitespace around this gets trimmed OK
+        if (plingPos < 0) {
+            workbookName = null;
+            sheetName = null;
+            refText = text;
+        } else {
+            String[] parts = parseWorkbookAndSheetName(text.subSequence(0, plingPos));
+            if (parts == null) {
+                return INVALID;
+            }
+            workbookName = parts[0];
+            sheetName = parts[1];
+            refText = text.substring(plingPos + 1);
+        }
+
+        String[] refStrParts = splitAreaReference(refText);
+        if (!isA1Style) {
+            // R1C1 style relative references look like structured references
+            DynamicReference result = createR1C1(workbookName, sheetName, refStrParts[0], refStrParts[1], ssVersion);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (Table.isStructuredReference.matcher(refText).matches()) {
+            return new DynamicReference(Kind.STRUCTURED, workbookName, sheetName, refText, ssVersion);
+        }
+        return create(workbookName, sheetName, refStrParts[0], refStrParts[1], isA1Style, ssVersion);
+    }
+
+    /**
+     * @return array of length 2: the trimmed parts before and after the ':', the second
+     * element is <code>null</code> if there is no ':'
+     */
+    private static String[] splitAreaReference(String refText) {
+        int colonPos = refText.indexOf(':');
+        if (colonPos < 0) {
+            return new String[] { refText.trim(), null, };
+        }
+        return new String[] { refText.substring(0, colonPos).trim(), refText.substring(colonPos + 1).trim(), };
+    }
+
+    /**
+     * Creates a cell, area or name reference from its already separated parts.
+     *
+     * @param workbookName the name of the workbook containing the reference, may be <code>null</code>
+     * @param sheetName the name of the sheet containing the reference, may be <code>null</code>
+     * @param refStrPart1 the single cell reference or first part of the area reference.  Must not
+     * be <code>null</code>.
+     * @param refStrPart2 the second part of the area reference. For single cell references this
+     * parameter must be <code>null</code>
+     * @param isA1Style <code>true</code> for 'A1' style and <code>false</code> for 'R1C1' style
+     * @return never <code>null</code>
+     */
+    public static DynamicReference create(String workbookName, String sheetName, String refStrPart1,
+            String refStrPart2, boolean isA1Style, SpreadsheetVersion ssVersion) {
+        if (!isA1Style) {
+            DynamicReference result = createR1C1(workbookName, sheetName, refStrPart1, refStrPart2, ssVersion);
+            if (result != null) {
+                return result;
+            }
+            // names are the same in both styles
+            if (refStrPart2 != null || classifyCellReference(refStrPart1, ssVersion) != NameType.NAMED_RANGE) {
+                return INVALID;
+            }
+        }
+
+        NameType part1refType = classifyCellReference(refStrPart1, ssVersion);
+        switch (part1refType) {
+            case BAD_CELL_OR_NAMED_RANGE:
+                return INVALID;
+            case NAMED_RANGE:
+                return new DynamicReference(Kind.NAME, workbookName, sheetName, refStrPart1, ssVersion);
+            default:
+                break;
+        }
+        DynamicReference result = new DynamicReference(refStrPart2 == null ? Kind.CELL : Kind.AREA,
+                workbookName, sheetName, null, ssVersion);
+        if (refStrPart2 == null) {
+            // no ':'
+            if (part1refType != NameType.CELL) {
+                return INVALID;
+            }
+            CellReference cr = new CellReference(refStrPart1);
+            result.setArea(cr.getRow(), cr.getCol(), cr.getRow(), cr.getCol());
+            return result;
+        }
+        NameType part2refType = classifyCellReference(refStrPart2, ssVersion);
+        switch (part2refType) {
+            case BAD_CELL_OR_NAMED_RANGE:
+                return INVALID;
+            case NAMED_RANGE:
+                throw new RuntimeException("Cannot evaluate '" + refStrPart2
+                        + "'. Indirect evaluation of defined names not supported yet");
+            default:
+                break;
+        }
+        if (part2refType != part1refType) {
+            // LHS and RHS of ':' must be compatible
+            return INVALID;
+        }
+        switch (part1refType) {
+            case COLUMN:
+                result.setArea(0, CellReference.convertColStringToIndex(refStrPart1),
+                        ssVersion.getLastRowIndex(), CellReference.convertColStringToIndex(refStrPart2));
+                break;
+            case ROW:
+                // support of cell range in the form of integer:integer
+                result.setArea(Integer.parseInt(refStrPart1) - 1, 0,
+                        Integer.parseInt(refStrPart2) - 1, ssVersion.getLastColumnIndex());
+                break;
+            case CELL:
+                CellReference cr1 = new CellReference(refStrPart1);
+                CellReference cr2 = new CellReference(refStrPart2);
+                result.setArea(cr1.getRow(), cr1.getCol(), cr2.getRow(), cr2.getCol());
+                break;
+            default:
+                throw new IllegalStateException("Unexpected reference classification of '" + refStrPart1 + "'.");
+        }
+        return result;
+    }
+
+    private void setArea(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        _firstRow = firstRow;
+        _firstColumn = firstColumn;
+        _lastRow = lastRow;
+        _lastColumn = lastColumn;
+    }
+
+    private static NameType classifyCellReference(String str, SpreadsheetVersion ssVersion) {
+        int len = str.length();
+        if (len < 1) {
+            return CellReference.NameType.BAD_CELL_OR_NAMED_RANGE;
+        }
+        return CellReference.classifyCellReference(str, ssVersion);
+    }
+
+    /**
+     * Coordinates of one R1C1 style cell, row or column reference
+     */
+    private static final class R1C1Part {
+        boolean hasRow;
+        boolean isRowRelative;
+        int row;
+        boolean hasColumn;
+        boolean isColumnRelative;
+        int column;
+    }
+
+    /**
+     * @return <code>null</code> if the parts are not valid R1C1 style references
+     */
+    private static DynamicReference createR1C1(String workbookName, String sheetName, String refStrPart1,
+            String refStrPart2, SpreadsheetVersion ssVersion) {
+        R1C1Part first = parseR1C1Part(refStrPart1, ssVersion);
+        if (first == null) {
+            return null;
+        }
+        R1C1Part last;
+        if (refStrPart2 == null) {
+            if (!first.hasRow || !first.hasColumn) {
+                return null;
+            }
+            last = first;
+        } else {
+            last = parseR1C1Part(refStrPart2, ssVersion);
+            if (last == null || first.hasRow != last.hasRow || first.hasColumn != last.hasColumn) {
+                return null;
+            }
+        }
+
+        DynamicReference result = new DynamicReference(refStrPart2 == null ? Kind.CELL : Kind.AREA,
+                workbookName, sheetName, null, ssVersion);
+        int flags = 0;
+        if (first.hasRow) {
+            result._firstRow = first.row;
+            result._lastRow = last.row;
+            flags |= first.isRowRelative ? FIRST_ROW_RELATIVE : 0;
+            flags |= last.isRowRelative ? LAST_ROW_RELATIVE : 0;
+        } else {
+            // whole columns
+            result._firstRow = 0;
+            result._lastRow = ssVersion.getLastRowIndex();
+        }
+        if (first.hasColumn) {
+            result._firstColumn = first.column;
+            result._lastColumn = last.column;
+            flags |= first.isColumnRelative ? FIRST_COLUMN_RELATIVE : 0;
+            flags |= last.isColumnRelative ? LAST_COLUMN_RELATIVE : 0;
+        } else {
+            // whole rows
+            result._firstColumn = 0;
+            result._lastColumn = ssVersion.getLastColumnIndex();
+        }
+        result._relativeFlags = flags;
+        return result;
+    }
+
+    /**
+     * Parses one of <tt>R<i>n</i>C<i>m</i></tt>, <tt>R[<i>n</i>]C[<i>m</i>]</tt>, <tt>RC</tt> and
+     * the row only (<tt>R<i>n</i></tt>) or column only (<tt>C<i>m</i></tt>) forms.
+     *
+     * @return <code>null</code> if the text is not in R1C1 style
+     */
+    private static R1C1Part parseR1C1Part(String text, SpreadsheetVersion ssVersion) {
+        R1C1Part result = new R1C1Part();
+        int len = text.length();
+        int i = 0;
+        if (i < len && Character.toUpperCase(text.charAt(i)) == 'R') {
+            i = parseR1C1Index(text, i + 1, result, true, ssVersion.getMaxRows());
+            if (i < 0) {
+                return null;
+            }
+        }
+        if (i < len && Character.toUpperCase(text.charAt(i)) == 'C') {
+            i = parseR1C1Index(text, i + 1, result, false, ssVersion.getMaxColumns());
+            if (i < 0) {
+                return null;
+            }
+        }
+        if (i != len || !(result.hasRow || result.hasColumn)) {
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Parses the absolute (<tt><i>n</i></tt>) or relative (<tt>[<i>n</i>]</tt> or empty) index
+     * following an 'R' or 'C' at the specified position.
+     *
+     * @return the position after the index, or <code>-1</code> if the index is invalid
+     */
+    private static int parseR1C1Index(String text, int pos, R1C1Part result, boolean isRow, int maxCount) {
+        int len = text.length();
+        boolean isRelative;
+        int value;
+        int i = pos;
+        if (i < len && text.charAt(i) == '[') {
+            isRelative = true;
+            i++;
+            boolean isNegative = false;
+            if (i < len && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                isNegative = text.charAt(i) == '-';
+                i++;
+            }
+            int digitsStart = i;
+            value = 0;
+            while (i < len && Character.isDigit(text.charAt(i))) {
+                value = value * 10 + (text.charAt(i) - '0');
+                if (value >= maxCount) {
+                    return -1;
+                }
+                i++;
+            }
+            if (i == digitsStart || i >= len || text.charAt(i) != ']') {
+                return -1;
+            }
+            i++;
+            if (isNegative) {
+                value = -value;
+            }
+        } else if (i < len && Character.isDigit(text.charAt(i))) {
+            isRelative = false;
+            value = 0;
+            while (i < len && Character.isDigit(text.charAt(i))) {
+                value = value * 10 + (text.charAt(i) - '0');
+                if (value > maxCount) {
+                    return -1;
+                }
+                i++;
+            }
+            if (value == 0) {
+                return -1;
+            }
+            // 1-based to zero-based
+            value--;
+        } else {
+            // plain 'R' or 'C' denotes the row or column of the evaluated cell
+            isRelative = true;
+            value = 0;
+        }
+        if (isRow) {
+            result.hasRow = true;
+            result.isRowRelative = isRelative;
+            result.row = value;
+        } else {
+            result.hasColumn = true;
+            result.isColumnRelative = isRelative;
+            result.column = value;
+        }
+        return i;
+    }
+
+    /**
+     * @return array of length 2: {workbookName, sheetName,}.  Second element will always be
+     * present.  First element may be null if sheetName is unqualified.
+     * Returns <code>null</code> if text cannot be parsed.
+     */
+    private static String[] parseWorkbookAndSheetName(CharSequence text) {
+        int lastIx = text.length() - 1;
+        if (lastIx < 0) {
+            return null;
+        }
+        if (canTrim(text)) {
+            return null;
+        }
+        char firstChar = text.charAt(0);
+        if (Character.isWhitespace(firstChar)) {
+            return null;
+        }
+        if (firstChar == '\'') {
+            // workbookName or sheetName needs quoting
+            // quotes go around both
+            if (text.charAt(lastIx) != '\'') {
+                return null;
+            }
+            firstChar = text.charAt(1);
+            if (Character.isWhitespace(firstChar)) {
+                return null;
+            }
+            String wbName;
+            int sheetStartPos;
+            if (firstChar == '[') {
+                int rbPos = text.toString().lastIndexOf(']');
+                if (rbPos < 0) {
+                    return null;
+                }
+                wbName = unescapeString(text.subSequence(2, rbPos));
+                if (wbName == null || canTrim(wbName)) {
+                    return null;
+                }
+                sheetStartPos = rbPos + 1;
+            } else {
+                wbName = null;
+                sheetStartPos = 1;
+            }
+
+            // else - just sheet name
+            String sheetName = unescapeString(text.subSequence(sheetStartPos, lastIx));
+            if (sheetName == null) { // note - when quoted, sheetName can
+                                     // start/end with whitespace
+                return null;
+            }
+            return new String[] { wbName, sheetName, };
+        }
+
+        if (firstChar == '[') {
+            int rbPos = text.toString().lastIndexOf(']');
+            if (rbPos < 0) {
+                return null;
+            }
+            CharSequence wbName = text.subSequence(1, rbPos);
+            if (canTrim(wbName)) {
+                return null;
+            }
+            CharSequence sheetName = text.subSequence(rbPos + 1, text.length());
+            if (canTrim(sheetName)) {
+                return null;
+            }
+            return new String[] { wbName.toString(), sheetName.toString(), };
+        }
+        // else - just sheet name
+        return new String[] { null, text.toString(), };
+    }
+
+    /**
+     * @return <code>null</code> if there is a syntax error in any escape sequence
+     * (the typical syntax error is a single quote character not followed by another).
+     */
+    private static String unescapeString(CharSequence text) {
+        int len = text.length();
+        StringBuilder sb = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            char ch = text.charAt(i);
+            if (ch == '\'') {
+                // every quote must be followed by another
+                i++;
+                if (i >= len) {
+                    return null;
+                }
+                ch = text.charAt(i);
+                if (ch != '\'') {
+                    return null;
+                }
+            }
+            sb.append(ch);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    private static boolean canTrim(CharSequence text) {
+        int lastIx = text.length() - 1;
+        if (lastIx < 0) {
+            return false;
+        }
+        if (Character.isWhitespace(text.charAt(0))) {
+            return true;
+        }
+        if (Character.isWhitespace(text.charAt(lastIx))) {
+            return true;
+        }
+        return false;
+    }
+
+    public Kind getKind() {
+        return _kind;
+    }
+
+    /**
+     * @return the workbook name, or <code>null</code> for the current workbook
+     */
+    public String getWorkbookName() {
+        return _workbookName;
+    }
+
+    /**
+     * @return the sheet name, or <code>null</code> for the current sheet
+     */
+    public String getSheetName() {
+        return _sheetName;
+    }
+
+    /**
+     * @return the defined name or structured reference text, for {@link Kind#NAME} and
+     * {@link Kind#STRUCTURED} references only
+     */
+    public String getRefText() {
+        return _refText;
+    }
+
+    /**
+     * @return <code>false</code> if relative coordinates point outside the sheet when
+     * resolved against the specified cell
+     */
+    public boolean isValidAt(int srcRowIndex, int srcColumnIndex) {
+        return isValidRow(getFirstRow(srcRowIndex)) && isValidRow(getLastRow(srcRowIndex))
+                && isValidColumn(getFirstColumn(srcColumnIndex)) && isValidColumn(getLastColumn(srcColumnIndex));
+    }
+
+    private boolean isValidRow(int rowIndex) {
+        return rowIndex >= 0 && rowIndex <= _ssVersion.getLastRowIndex();
+    }
+
+    private boolean isValidColumn(int columnIndex) {
+        return columnIndex >= 0 && columnIndex <= _ssVersion.getLastColumnIndex();
+    }
+
+    public int getFirstRow(int srcRowIndex) {
+        return resolve(_firstRow, FIRST_ROW_RELATIVE, srcRowIndex);
+    }
+
+    public int getFirstColumn(int srcColumnIndex) {
+        return resolve(_firstColumn, FIRST_COLUMN_RELATIVE, srcColumnIndex);
+    }
+
+    public int getLastRow(int srcRowIndex) {
+        return resolve(_lastRow, LAST_ROW_RELATIVE, srcRowIndex);
+    }
+
+    public int getLastColumn(int srcColumnIndex) {
+        return resolve(_lastColumn, LAST_COLUMN_RELATIVE, srcColumnIndex);
+    }
+
+    private int resolve(int value, int relativeFlag, int srcIndex) {
+        return (_relativeFlags & relativeFlag) == 0 ? value : srcIndex + value;
+    }
+}
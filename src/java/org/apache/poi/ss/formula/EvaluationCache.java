@@ -17,9 +17,16 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.poi.ss.formula.FormulaCellCache.IEntryOperation;
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
-import org.apache.poi.ss.formula.PlainCellCache.Loc;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -39,13 +46,51 @@ final class EvaluationCache {
 
 	private final PlainCellCache _plainCellCache;
 	private final FormulaCellCache _formulaCellCache;
+	private final Map<AreaValueCacheEntry.Loc, AreaValueCacheEntry> _areaValueCache;
+	/**
+	 * the area value entries which are no longer shared, but still used by formulas,
+	 * see {@link #removeAreaValueEntry(AreaValueCacheEntry)}
+	 */
+	private final Set<AreaValueCacheEntry> _unsharedAreaValueEntries;
+	/** the area value entries holding a block, least recently used first */
+	private final Map<AreaValueCacheEntry.Loc, AreaValueCacheEntry> _areaBlocks;
+	/** the number of cells held by the blocks of {@link #_areaBlocks} */
+	private long _areaBlockCellCount;
+	private int _maxAreaBlockCells;
 	/** only used for testing. <code>null</code> otherwise */
 	final IEvaluationListener _evaluationListener;
+	/** <code>null</code> unless profiling is enabled */
+	private EvaluationProfiler _profiler;
 
 	/* package */EvaluationCache(IEvaluationListener evaluationListener) {
 		_evaluationListener = evaluationListener;
 		_plainCellCache = new PlainCellCache();
 		_formulaCellCache = new FormulaCellCache();
+		_areaValueCache = new HashMap<AreaValueCacheEntry.Loc, AreaValueCacheEntry>();
+		_unsharedAreaValueEntries = new HashSet<AreaValueCacheEntry>();
+		_areaBlocks = new LinkedHashMap<AreaValueCacheEntry.Loc, AreaValueCacheEntry>(16, 0.75f, true);
+		_maxAreaBlockCells = DEFAULT_MAX_AREA_BLOCK_CELLS;
+	}
+
+	/**
+	 * The default maximum number of cells held by the cached area values. Formulas like
+	 * <tt>SUM($A$1:A1)</tt> ... <tt>SUM($A$1:A10000)</tt> reference many overlapping areas,
+	 * which would otherwise keep a quadratic number of values.
+	 */
+	/* package */ static final int DEFAULT_MAX_AREA_BLOCK_CELLS = 1 << 20;
+
+	/**
+	 * @param maxAreaBlockCells the maximum number of cells held by the cached area values
+	 */
+	/* package */ void setMaxAreaBlockCells(int maxAreaBlockCells) {
+		_maxAreaBlockCells = maxAreaBlockCells;
+	}
+
+	/**
+	 * @param profiler counts the plain value cache lookups, <code>null</code> to disable profiling
+	 */
+	/* package */ void setProfiler(EvaluationProfiler profiler) {
+		_profiler = profiler;
 	}
 
 	public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
@@ -53,7 +98,7 @@ final class EvaluationCache {
 
 		int rowIndex = cell.getRowIndex();
 		int columnIndex = cell.getColumnIndex();
-		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
+		long loc = PlainCellCache.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
 
 		if (cell.getCellTypeEnum() == CellType.FORMULA) {
@@ -124,16 +169,25 @@ final class EvaluationCache {
 				entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
 			}
 		});
+		for (AreaValueCacheEntry ace : _areaValueCache.values()) {
+			ace.getDependencyEntry().notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
+		}
+		for (AreaValueCacheEntry ace : _unsharedAreaValueEntries) {
+			ace.getDependencyEntry().notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
+		}
 	}
 
 	public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
 			int rowIndex, int columnIndex, ValueEval value) {
 
-		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
+		long loc = PlainCellCache.toKey(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry result = _plainCellCache.get(loc);
 		if (result == null) {
 			result = new PlainValueCellCacheEntry(value);
 			_plainCellCache.put(loc, result);
+			if (_profiler != null) {
+				_profiler.onPlainValueCacheMiss();
+			}
 			if (_evaluationListener != null) {
 				_evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, result);
 			}
@@ -142,6 +196,9 @@ final class EvaluationCache {
 			if (!areValuesEqual(result.getValue(), value)) {
 				throw new IllegalStateException("value changed");
 			}
+			if (_profiler != null) {
+				_profiler.onPlainValueCacheHit();
+			}
 			if (_evaluationListener != null) {
 				_evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, value);
 			}
@@ -185,6 +242,70 @@ final class EvaluationCache {
 		return result;
 	}
 
+	public AreaValueCacheEntry getOrCreateAreaValueEntry(int bookIndex, int sheetIndex,
+			int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		AreaValueCacheEntry.Loc loc = new AreaValueCacheEntry.Loc(bookIndex, sheetIndex,
+				firstRow, firstColumn, lastRow, lastColumn);
+		AreaValueCacheEntry result = _areaValueCache.get(loc);
+		if (result == null) {
+			result = new AreaValueCacheEntry(loc);
+			_areaValueCache.put(loc, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Stops sharing the specified area values with other formulas.  The entry stays valid
+	 * for formulas which already depend on it, and is still notified of changes to its
+	 * blank cells.
+	 */
+	public void removeAreaValueEntry(AreaValueCacheEntry ace) {
+		if (_areaValueCache.get(ace.getLoc()) == ace) {
+			_areaValueCache.remove(ace.getLoc());
+			_unsharedAreaValueEntries.add(ace);
+			removeAreaBlock(ace);
+		}
+	}
+
+	/**
+	 * Marks the block of the specified entry as the most recently used one
+	 */
+	public void notifyAreaBlockUsed(AreaValueCacheEntry ace) {
+		_areaBlocks.get(ace.getLoc());
+	}
+
+	/**
+	 * Stores the block just read in the specified entry, see
+	 * {@link AreaValueCacheEntry#setBlock(AreaValueBlock, EvaluationTracker)}. The blocks of
+	 * the least recently used areas are released while the blocks hold more than the maximum
+	 * number of cells.
+	 */
+	public void storeAreaBlock(AreaValueCacheEntry ace, AreaValueBlock block, EvaluationTracker tracker) {
+		removeAreaBlock(ace);
+		ace.setBlock(block, tracker);
+		_areaBlocks.put(ace.getLoc(), ace);
+		_areaBlockCellCount += ace.getBlockSize();
+		Iterator<AreaValueCacheEntry> it = _areaBlocks.values().iterator();
+		while (_areaBlockCellCount > _maxAreaBlockCells) {
+			AreaValueCacheEntry eldest = it.next();
+			if (eldest == ace) {
+				// a single block larger than the maximum is kept until the next one is stored
+				break;
+			}
+			it.remove();
+			_areaBlockCellCount -= eldest.getBlockSize();
+			eldest.releaseBlock();
+		}
+	}
+
+	private void removeAreaBlock(AreaValueCacheEntry ace) {
+		AreaValueCacheEntry old = _areaBlocks.remove(ace.getLoc());
+		if (old != null) {
+			_areaBlockCellCount -= old.getBlockSize();
+			old.releaseBlock();
+		}
+	}
+
 	/**
 	 * Should be called whenever there are changes to input cells in the evaluated workbook.
 	 */
@@ -194,6 +315,10 @@ final class EvaluationCache {
 		}
 		_plainCellCache.clear();
 		_formulaCellCache.clear();
+		_areaValueCache.clear();
+		_unsharedAreaValueEntries.clear();
+		_areaBlocks.clear();
+		_areaBlockCellCount = 0;
 	}
 	public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 
@@ -206,7 +331,7 @@ final class EvaluationCache {
 				fcce.recurseClearCachedFormulaResults(_evaluationListener);
 			}
 		} else {
-			Loc loc = new Loc(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+			long loc = PlainCellCache.toKey(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
 			PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
 
 			if (pcce == null) {
@@ -0,0 +1,357 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.FunctionNameEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Collects timings and counts while formulas are evaluated, to find the formulas and functions
+ * which take most of the evaluation time.<p/>
+ *
+ * Profiling is off by default. Attach a profiler with
+ * {@link BaseFormulaEvaluator#setProfiler(EvaluationProfiler)}, evaluate, then look at
+ * {@link #getCellStats()}, {@link #getFunctionStats()} or the text of {@link #createReport(int)}.
+ * The profiler records:
+ * <ul>
+ * <li>per formula cell: the number of evaluations, the total time (including the evaluation of
+ *  referenced formula cells) and the self time (excluding it)</li>
+ * <li>per function and operator: the number of calls and the total time, which includes
+ *  the evaluation of formula cells referenced by the arguments</li>
+ * <li>hits and misses of the formula result, plain value and area value caches</li>
+ * <li>the maximum depth of nested formula cell evaluations</li>
+ * </ul>
+ *
+ * A profiler is not thread-safe and should only be attached to one evaluator at a time, or to
+ * the evaluators of one {@link CollaboratingWorkbooksEnvironment}.
+ */
+public final class EvaluationProfiler {
+
+    /**
+     * Evaluation statistics of one formula cell
+     */
+    public static final class CellStats {
+        private final String _sheetName;
+        private final int _rowIndex;
+        private final int _columnIndex;
+        private int _evaluationCount;
+        private long _totalNanos;
+        private long _selfNanos;
+
+        CellStats(String sheetName, int rowIndex, int columnIndex) {
+            _sheetName = sheetName;
+            _rowIndex = rowIndex;
+            _columnIndex = columnIndex;
+        }
+
+        public String getSheetName() {
+            return _sheetName;
+        }
+        public int getRowIndex() {
+            return _rowIndex;
+        }
+        public int getColumnIndex() {
+            return _columnIndex;
+        }
+        /**
+         * @return the cell reference, e.g. <tt>Sheet1!A1</tt>
+         */
+        public String getCellReference() {
+            return new CellReference(_sheetName, _rowIndex, _columnIndex, false, false).formatAsString();
+        }
+        public int getEvaluationCount() {
+            return _evaluationCount;
+        }
+        /**
+         * @return the time spent evaluating this cell, including referenced formula cells
+         */
+        public long getTotalNanos() {
+            return _totalNanos;
+        }
+        /**
+         * @return the time spent evaluating this cell, excluding referenced formula cells
+         */
+        public long getSelfNanos() {
+            return _selfNanos;
+        }
+    }
+
+    /**
+     * Call statistics of one function or operator
+     */
+    public static final class FunctionStats {
+        private final String _name;
+        private int _callCount;
+        private long _totalNanos;
+
+        FunctionStats(String name) {
+            _name = name;
+        }
+
+        /**
+         * @return the function name (e.g. <tt>SUM</tt>), or the operator name (e.g. <tt>Add</tt>)
+         */
+        public String getName() {
+            return _name;
+        }
+        public int getCallCount() {
+            return _callCount;
+        }
+        public long getTotalNanos() {
+            return _totalNanos;
+        }
+    }
+
+    private final Map<Object, CellStats> _cellStats = new HashMap<Object, CellStats>();
+    private final Map<String, FunctionStats> _functionStats = new HashMap<String, FunctionStats>();
+
+    // the formula cells currently being evaluated, innermost last
+    private CellStats[] _frameCells = new CellStats[16];
+    private long[] _frameStartNanos = new long[16];
+    private long[] _frameChildNanos = new long[16];
+    private int _depth;
+    private int _maxDepth;
+
+    private long _formulaCacheHits;
+    private long _formulaCacheMisses;
+    private long _plainValueCacheHits;
+    private long _plainValueCacheMisses;
+    private long _areaValueCacheHits;
+    private long _areaValueCacheMisses;
+
+    /* package */ void startEvaluate(WorkbookEvaluator evaluator, EvaluationCell cell, int sheetIndex) {
+        _formulaCacheMisses++;
+        Object key = cell.getIdentityKey();
+        CellStats stats = _cellStats.get(key);
+        if (stats == null) {
+            stats = new CellStats(evaluator.getSheetName(sheetIndex), cell.getRowIndex(), cell.getColumnIndex());
+            _cellStats.put(key, stats);
+        }
+        if (_depth == _frameCells.length) {
+            int newLength = _depth * 2;
+            CellStats[] frameCells = new CellStats[newLength];
+            System.arraycopy(_frameCells, 0, frameCells, 0, _depth);
+            _frameCells = frameCells;
+            long[] frameStartNanos = new long[newLength];
+            System.arraycopy(_frameStartNanos, 0, frameStartNanos, 0, _depth);
+            _frameStartNanos = frameStartNanos;
+            long[] frameChildNanos = new long[newLength];
+            System.arraycopy(_frameChildNanos, 0, frameChildNanos, 0, _depth);
+            _frameChildNanos = frameChildNanos;
+        }
+        _frameCells[_depth] = stats;
+        _frameChildNanos[_depth] = 0;
+        _frameStartNanos[_depth] = System.nanoTime();
+        _depth++;
+        if (_depth > _maxDepth) {
+            _maxDepth = _depth;
+        }
+    }
+
+    /* package */ void endEvaluate() {
+        long endNanos = System.nanoTime();
+        _depth--;
+        long elapsed = endNanos - _frameStartNanos[_depth];
+        CellStats stats = _frameCells[_depth];
+        _frameCells[_depth] = null;
+        stats._evaluationCount++;
+        stats._totalNanos += elapsed;
+        stats._selfNanos += elapsed - _frameChildNanos[_depth];
+        if (_depth > 0) {
+            _frameChildNanos[_depth - 1] += elapsed;
+        }
+    }
+
+    /* package */ void onFunction(OperationPtg ptg, ValueEval[] args, long elapsedNanos) {
+        String name = getOperationName(ptg, args);
+        FunctionStats stats = _functionStats.get(name);
+        if (stats == null) {
+            stats = new FunctionStats(name);
+            _functionStats.put(name, stats);
+        }
+        stats._callCount++;
+        stats._totalNanos += elapsedNanos;
+    }
+
+    private static String getOperationName(OperationPtg ptg, ValueEval[] args) {
+        if (ptg instanceof AbstractFunctionPtg) {
+            AbstractFunctionPtg fptg = (AbstractFunctionPtg) ptg;
+            if (fptg.isExternalFunction() && args.length > 0 && args[0] instanceof FunctionNameEval) {
+                return ((FunctionNameEval) args[0]).getFunctionName();
+            }
+            return fptg.getName();
+        }
+        String name = ptg.getClass().getSimpleName();
+        return name.endsWith("Ptg") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    /* package */ void onFormulaCacheHit() {
+        _formulaCacheHits++;
+    }
+
+    /* package */ void onPlainValueCacheHit() {
+        _plainValueCacheHits++;
+    }
+
+    /* package */ void onPlainValueCacheMiss() {
+        _plainValueCacheMisses++;
+    }
+
+    /* package */ void onAreaValueCacheHit() {
+        _areaValueCacheHits++;
+    }
+
+    /* package */ void onAreaValueCacheMiss() {
+        _areaValueCacheMisses++;
+    }
+
+    /**
+     * @return statistics of all evaluated formula cells, the cells with the highest self time first
+     */
+    public List<CellStats> getCellStats() {
+        List<CellStats> result = new ArrayList<CellStats>(_cellStats.values());
+        Collections.sort(result, new Comparator<CellStats>() {
+            public int compare(CellStats a, CellStats b) {
+                return compareDescending(a._selfNanos, b._selfNanos);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return statistics of all called functions and operators, the highest total time first
+     */
+    public List<FunctionStats> getFunctionStats() {
+        List<FunctionStats> result = new ArrayList<FunctionStats>(_functionStats.values());
+        Collections.sort(result, new Comparator<FunctionStats>() {
+            public int compare(FunctionStats a, FunctionStats b) {
+                return compareDescending(a._totalNanos, b._totalNanos);
+            }
+        });
+        return result;
+    }
+
+    private static int compareDescending(long a, long b) {
+        return a > b ? -1 : a == b ? 0 : 1;
+    }
+
+    /**
+     * @return the number of formula cell results taken from the cache
+     */
+    public long getFormulaCacheHits() {
+        return _formulaCacheHits;
+    }
+    /**
+     * @return the number of formula cells which had to be evaluated
+     */
+    public long getFormulaCacheMisses() {
+        return _formulaCacheMisses;
+    }
+    public long getPlainValueCacheHits() {
+        return _plainValueCacheHits;
+    }
+    public long getPlainValueCacheMisses() {
+        return _plainValueCacheMisses;
+    }
+    public long getAreaValueCacheHits() {
+        return _areaValueCacheHits;
+    }
+    public long getAreaValueCacheMisses() {
+        return _areaValueCacheMisses;
+    }
+
+    /**
+     * @return the maximum number of formula cells which were being evaluated at the same time,
+     * i.e. the length of the longest chain of formulas depending on each other
+     */
+    public int getMaxDepth() {
+        return _maxDepth;
+    }
+
+    /**
+     * Discards all collected statistics
+     */
+    public void reset() {
+        if (_depth != 0) {
+            throw new IllegalStateException("Cannot reset the profiler during an evaluation");
+        }
+        _cellStats.clear();
+        _functionStats.clear();
+        _maxDepth = 0;
+        _formulaCacheHits = 0;
+        _formulaCacheMisses = 0;
+        _plainValueCacheHits = 0;
+        _plainValueCacheMisses = 0;
+        _areaValueCacheHits = 0;
+        _areaValueCacheMisses = 0;
+    }
+
+    /**
+     * @param maxEntries the maximum number of cells and functions to list
+     * @return a plain text summary of the collected statistics
+     */
+    public String createReport(int maxEntries) {
+        StringBuilder sb = new StringBuilder();
+        appendCacheLine(sb, "Formula cache", _formulaCacheHits, _formulaCacheMisses);
+        appendCacheLine(sb, "Plain value cache", _plainValueCacheHits, _plainValueCacheMisses);
+        appendCacheLine(sb, "Area value cache", _areaValueCacheHits, _areaValueCacheMisses);
+        sb.append("Max evaluation depth: ").append(_maxDepth).append('\n');
+
+        List<CellStats> cells = getCellStats();
+        sb.append("\nCells by self time (").append(cells.size()).append(" evaluated):\n");
+        for (int i = 0; i < Math.min(maxEntries, cells.size()); i++) {
+            CellStats cs = cells.get(i);
+            sb.append(String.format(Locale.ROOT, "  %-24s evaluations=%-8d self=%.3fms total=%.3fms%n",
+                    cs.getCellReference(), cs._evaluationCount, toMillis(cs._selfNanos), toMillis(cs._totalNanos)));
+        }
+
+        List<FunctionStats> functions = getFunctionStats();
+        sb.append("\nFunctions by total time (").append(functions.size()).append(" called):\n");
+        for (int i = 0; i < Math.min(maxEntries, functions.size()); i++) {
+            FunctionStats fs = functions.get(i);
+            sb.append(String.format(Locale.ROOT, "  %-24s calls=%-8d total=%.3fms%n",
+                    fs._name, fs._callCount, toMillis(fs._totalNanos)));
+        }
+        return sb.toString();
+    }
+
+    private static void appendCacheLine(StringBuilder sb, String name, long hits, long misses) {
+        long lookups = hits + misses;
+        double ratio = lookups == 0 ? 0 : hits * 100.0 / lookups;
+        sb.append(String.format(Locale.ROOT, "%s: %d hits, %d misses (%.1f%% hits)%n", name, hits, misses, ratio));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    public String toString() {
+        return createReport(20);
+    }
+}
@@ -19,8 +19,10 @@ package org.apache.poi.ss.formula;
 
 import java.util.Arrays;
 
+import org.apache.poi.ss.formula.ptg.Area3DPtg;
 import org.apache.poi.ss.formula.ptg.ExpPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPtg;
 import org.apache.poi.ss.formula.ptg.TblPtg;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.LittleEndian;
@@ -189,6 +191,24 @@ public class Formula {
 		int firstColumn = LittleEndian.getUShort(data, 3);
 		return new CellReference(firstRow, firstColumn);
 	}
+	/**
+	 * Quick check for 3D references, without decoding the tokens. Every token starts with its
+	 * (class adjusted) sid, so a formula without any byte matching a 3D reference sid cannot
+	 * contain 3D references. Data bytes of other tokens may give false positives.
+	 *
+	 * @return <code>false</code> if this formula certainly contains no {@link Ref3DPtg} or
+	 * {@link Area3DPtg}
+	 */
+	public boolean mayContain3DReferences() {
+		byte[] data = _byteEncoding;
+		for (int i = 0; i < _encodedTokenLen; i++) {
+			int baseSid = (data[i] & 0x1F) | 0x20;
+			if (data[i] >= 0x20 && (baseSid == Ref3DPtg.sid || baseSid == Area3DPtg.sid)) {
+				return true;
+			}
+		}
+		return false;
+	}
 	public boolean isSame(Formula other) {
 		return Arrays.equals(_byteEncoding, other._byteEncoding);
 	}
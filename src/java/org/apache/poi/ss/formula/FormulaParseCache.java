@@ -0,0 +1,207 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.ptg.OperandPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.util.Internal;
+
+/**
+ * A bounded, thread-safe cache of parsed formulas which is shared by all workbooks.<p/>
+ *
+ * Only formulas which parse to workbook independent tokens are cached, that is formulas
+ * without defined names, external functions, 3D references or structured references. The
+ * tokens of such formulas depend only on the formula text, the {@link FormulaType} and the
+ * {@link SpreadsheetVersion}, which make up the cache key.  Formulas containing any other
+ * tokens are parsed every time, as the parser may need to add names or extern sheet entries
+ * to the workbook they belong to.  Structured references are resolved to plain area
+ * references using the tables of the workbook and the row index, so the parser reports
+ * them separately and they are never cached either.<p/>
+ *
+ * Cached token arrays are never handed out. Each lookup returns a fresh array, with copies
+ * of all operand tokens (which callers like the {@link FormulaShifter} modify in place).<p/>
+ *
+ * For POI internal use only
+ */
+@Internal
+public final class FormulaParseCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final FormulaParseCache _instance = new FormulaParseCache(DEFAULT_MAX_SIZE);
+
+    private static final class Key {
+        private final String _formula;
+        private final FormulaType _formulaType;
+        private final SpreadsheetVersion _ssVersion;
+        private final int _hashCode;
+
+        public Key(String formula, FormulaType formulaType, SpreadsheetVersion ssVersion) {
+            _formula = formula;
+            _formulaType = formulaType;
+            _ssVersion = ssVersion;
+            _hashCode = (formula.hashCode() * 31 + formulaType.hashCode()) * 31 + ssVersion.hashCode();
+        }
+
+        public int hashCode() {
+            return _hashCode;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _formulaType == other._formulaType && _ssVersion == other._ssVersion
+                    && _formula.equals(other._formula);
+        }
+    }
+
+    private final LinkedHashMap<Key, Ptg[]> _entries;
+    private int _maxSize;
+    private long _hitCount;
+    private long _missCount;
+
+    /**
+     * @param maxSize the maximum number of cached formulas, <code>0</code> disables caching
+     */
+    public FormulaParseCache(int maxSize) {
+        setMaxSize(maxSize);
+        _entries = new LinkedHashMap<Key, Ptg[]>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, Ptg[]> eldest) {
+                return size() > _maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cache used by {@link FormulaParser}
+     */
+    public static FormulaParseCache getInstance() {
+        return _instance;
+    }
+
+    /**
+     * Parses the formula, or returns a copy of the tokens of a previous parse.
+     *
+     * @see FormulaParser#parse(String, FormulaParsingWorkbook, FormulaType, int, int)
+     */
+    public Ptg[] parse(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        SpreadsheetVersion ssVersion = workbook == null ? SpreadsheetVersion.EXCEL97 : workbook.getSpreadsheetVersion();
+        Key key = new Key(formula, formulaType, ssVersion);
+        Ptg[] cached;
+        synchronized (this) {
+            cached = _entries.get(key);
+            if (cached == null) {
+                _missCount++;
+            } else {
+                _hitCount++;
+            }
+        }
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        FormulaParser parser = FormulaParser.createParser(formula, workbook, sheetIndex, rowIndex);
+        Ptg[] result = parser.getRPNPtg(formulaType);
+        if (!parser.hasStructuredReference() && isWorkbookIndependent(result)) {
+            Ptg[] entry = copyOf(result);
+            synchronized (this) {
+                if (_maxSize > 0) {
+                    _entries.put(key, entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isWorkbookIndependent(Ptg[] ptgs) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof WorkbookDependentFormula || ptg instanceof Pxg) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Operand tokens are mutable, all other tokens are left unchanged after parsing
+     */
+    private static Ptg[] copyOf(Ptg[] ptgs) {
+        Ptg[] result = new Ptg[ptgs.length];
+        for (int i = 0; i < ptgs.length; i++) {
+            Ptg ptg = ptgs[i];
+            result[i] = ptg instanceof OperandPtg ? ((OperandPtg) ptg).copy() : ptg;
+        }
+        return result;
+    }
+
+    /**
+     * @param maxSize the maximum number of cached formulas, <code>0</code> disables caching
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        }
+        _maxSize = maxSize;
+        if (_entries != null) {
+            while (_entries.size() > maxSize) {
+                Key eldest = _entries.keySet().iterator().next();
+                _entries.remove(eldest);
+            }
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return _maxSize;
+    }
+
+    /**
+     * @return the number of currently cached formulas
+     */
+    public synchronized int size() {
+        return _entries.size();
+    }
+
+    /**
+     * @return the number of lookups which could use a previously parsed formula
+     */
+    public synchronized long getHitCount() {
+        return _hitCount;
+    }
+
+    /**
+     * @return the number of lookups which had to parse the formula
+     */
+    public synchronized long getMissCount() {
+        return _missCount;
+    }
+
+    /**
+     * Removes all cached formulas and resets the hit and miss counts
+     */
+    public synchronized void clear() {
+        _entries.clear();
+        _hitCount = 0;
+        _missCount = 0;
+    }
+}
@@ -122,6 +122,7 @@ public final class FormulaParser {
 
     private final int _sheetIndex;
     private final int _rowIndex; // 0-based
+    private boolean _hasStructuredReference;
 
 
     /**
@@ -164,11 +165,34 @@ public final class FormulaParser {
      *
      * @return array of parsed tokens
      * @throws FormulaParseException if the formula has incorrect syntax or is otherwise invalid
+     * @see FormulaParseCache
      */
     public static Ptg[] parse(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        return FormulaParseCache.getInstance().parse(formula, workbook, formulaType, sheetIndex, rowIndex);
+    }
+
+    /**
+     * Parses the formula without consulting the {@link FormulaParseCache}
+     */
+    /* package */ static Ptg[] parseUncached(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        return createParser(formula, workbook, sheetIndex, rowIndex).getRPNPtg(formulaType);
+    }
+
+    /**
+     * Parses the formula, the tokens can then be retrieved with {@link #getRPNPtg(FormulaType)}
+     */
+    /* package */ static FormulaParser createParser(String formula, FormulaParsingWorkbook workbook, int sheetIndex, int rowIndex) {
         FormulaParser fp = new FormulaParser(formula, workbook, sheetIndex, rowIndex);
         fp.parse();
-        return fp.getRPNPtg(formulaType);
+        return fp;
+    }
+
+    /**
+     * @return <code>true</code> if the formula contains a structured reference. Its tokens
+     *  then depend on the tables of the workbook and on the row index.
+     */
+    /* package */ boolean hasStructuredReference() {
+        return _hasStructuredReference;
     }
 
     /**
@@ -618,6 +642,7 @@ public final class FormulaParser {
         if (tbl == null) {
            throw new FormulaParseException("Illegal table name: '" + tableName + "'");
         }
+        _hasStructuredReference = true;
         String sheetName = tbl.getSheetName();
         
         int startCol = tbl.getStartColIndex();
@@ -2003,7 +2028,7 @@ end;
         }
     }
 
-    private Ptg[] getRPNPtg(FormulaType formulaType) {
+    /* package */ Ptg[] getRPNPtg(FormulaType formulaType) {
         OperandClassTransformer oct = new OperandClassTransformer(formulaType);
         // RVA is for 'operand class': 'reference', 'value', 'array'
         oct.transformFormula(_rootNode);
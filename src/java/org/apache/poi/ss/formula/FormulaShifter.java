@@ -164,6 +164,54 @@ public final class FormulaShifter {
         return refsWereChanged;
     }
 
+    /**
+     * Formulas for which this method returns <code>true</code> can only be changed through
+     * 3D references. Callers may skip formulas which don't contain any, without decoding or
+     * parsing them.
+     *
+     * @param currentExternSheetIx - the extern sheet index of the sheet that contains the formulas
+     * @return <code>true</code> if local references of that sheet are never adjusted
+     */
+    public boolean adjustsOnly3DReferences(int currentExternSheetIx) {
+        switch(_mode){
+            case RowMove:
+                return currentExternSheetIx != _externSheetIndex;
+            case SheetMove:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Quick check on the text of a formula, without parsing it.
+     *
+     * @param formula - the formula text, in A1 style
+     * @param currentExternSheetIx - the extern sheet index of the sheet that contains the formula
+     * @return <code>false</code> if {@link #adjustFormula(Ptg[], int)} certainly won't change
+     * the parsed formula
+     */
+    public boolean mayAdjustFormula(String formula, int currentExternSheetIx) {
+        if (_mode != ShiftMode.RowMove || !adjustsOnly3DReferences(currentExternSheetIx) || _sheetName == null) {
+            return true;
+        }
+        if (formula.indexOf('!') < 0) {
+            // structured references are parsed to 3D references too
+            return formula.indexOf('[') >= 0;
+        }
+        if (_sheetName.indexOf('\'') >= 0) {
+            // escaped in quoted sheet names
+            return true;
+        }
+        int len = _sheetName.length();
+        for (int i = 0; i + len <= formula.length(); i++) {
+            if (formula.regionMatches(true, i, _sheetName, 0, len)) {
+                return true;
+            }
+        }
+        return formula.indexOf('[') >= 0;
+    }
+
     private Ptg adjustPtg(Ptg ptg, int currentExternSheetIx) {
         switch(_mode){
             case RowMove:
@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula;
 
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.AreaEvalBase;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.AreaI;
 import org.apache.poi.ss.formula.ptg.AreaI.OffsetArea;
@@ -51,6 +52,14 @@ final class LazyAreaEval extends AreaEvalBase {
 		return _evaluator.getEvalForCell(sheetIndex, rowIx, colIx);
 	}
 
+	public AreaValueBlock getValueBlock() {
+		return getValueBlock(getFirstSheetIndex());
+	}
+	public AreaValueBlock getValueBlock(int sheetIndex) {
+		SheetRefEvaluator sre = _evaluator.getSheetEvaluator(sheetIndex);
+		return sre.getAreaValues(getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn());
+	}
+
 	public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
 		AreaI area = new OffsetArea(getFirstRow(), getFirstColumn(),
 				relFirstRowIx, relLastRowIx, relFirstColIx, relLastColIx);
@@ -36,8 +36,7 @@ import org.apache.poi.ss.formula.ptg.NameXPxg;
 import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.formula.ptg.Ref3DPtg;
 import org.apache.poi.ss.formula.ptg.Ref3DPxg;
-import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.ss.util.CellReference.NameType;
+import org.apache.poi.ss.util.CellRangeAddress;
 
 /**
  * Contains all the contextual information required to evaluate an operation
@@ -53,6 +52,7 @@ public final class OperationEvaluationContext {
     private final int _columnIndex;
     private final EvaluationTracker _tracker;
     private final WorkbookEvaluator _bookEvaluator;
+    private CellRangeAddress _arrayFormulaRange;
 
     public OperationEvaluationContext(WorkbookEvaluator bookEvaluator, EvaluationWorkbook workbook, int sheetIndex, int srcRowNum,
             int srcColNum, EvaluationTracker tracker) {
@@ -76,6 +76,18 @@ public final class OperationEvaluationContext {
         return _columnIndex;
     }
 
+    /* package */ void setArrayFormulaRange(CellRangeAddress arrayFormulaRange) {
+        _arrayFormulaRange = arrayFormulaRange;
+    }
+
+    /**
+     * @return the range of the array formula being evaluated, <code>null</code> if the current
+     * cell is not part of an array formula
+     */
+    public CellRangeAddress getArrayFormulaRange() {
+        return _arrayFormulaRange;
+    }
+
     SheetRangeEvaluator createExternSheetRefEvaluator(ExternSheetReferenceToken ptg) {
         return createExternSheetRefEvaluator(ptg.getExternSheetIndex());
     }
@@ -183,118 +195,67 @@ public final class OperationEvaluationContext {
      * parameter must be <code>null</code>
      * @param isA1Style specifies the format for <tt>refStrPart1</tt> and <tt>refStrPart2</tt>.
      * Pass <code>true</code> for 'A1' style and <code>false</code> for 'R1C1' style.
-     * TODO - currently POI only supports 'A1' reference style
      * @return a {@link RefEval} or {@link AreaEval}
      */
     public ValueEval getDynamicReference(String workbookName, String sheetName, String refStrPart1,
             String refStrPart2, boolean isA1Style) {
-        if (!isA1Style) {
-            throw new RuntimeException("R1C1 style not supported yet");
-        }
-        SheetRefEvaluator se = createExternSheetRefEvaluator(workbookName, sheetName);
-        if (se == null) {
-            return ErrorEval.REF_INVALID;
-        }
-        SheetRangeEvaluator sre = new SheetRangeEvaluator(_sheetIndex, se);
-        
-        // ugly typecast - TODO - make spreadsheet version more easily accessible
-        SpreadsheetVersion ssVersion = ((FormulaParsingWorkbook)_workbook).getSpreadsheetVersion();
+        return getDynamicReference(DynamicReference.create(workbookName, sheetName,
+                refStrPart1, refStrPart2, isA1Style, getSpreadsheetVersion()));
+    }
 
-        NameType part1refType = classifyCellReference(refStrPart1, ssVersion);
-        switch (part1refType) {
-            case BAD_CELL_OR_NAMED_RANGE:
+    /**
+     * Resolves a parsed cell, area, name or structured reference against this context.
+     * Relative R1C1 style coordinates are relative to the evaluated cell.
+     *
+     * @return a {@link RefEval} or {@link AreaEval}, or {@link ErrorEval#REF_INVALID} if the
+     * reference cannot be resolved
+     * @see DynamicReference#valueOf(String, boolean, SpreadsheetVersion)
+     */
+    public ValueEval getDynamicReference(DynamicReference ref) {
+        switch (ref.getKind()) {
+            case INVALID:
                 return ErrorEval.REF_INVALID;
-            case NAMED_RANGE:
-                EvaluationName nm = ((FormulaParsingWorkbook)_workbook).getName(refStrPart1, _sheetIndex);
+            case STRUCTURED:
+                Area3DPxg areaPtg;
+                try {
+                    areaPtg = FormulaParser.parseStructuredReference(ref.getRefText(), (FormulaParsingWorkbook) _workbook, _rowIndex);
+                } catch (FormulaParseException e) {
+                    return ErrorEval.REF_INVALID;
+                }
+                return getArea3DEval(areaPtg);
+            case NAME:
+                EvaluationName nm = ((FormulaParsingWorkbook)_workbook).getName(ref.getRefText(), _sheetIndex);
+                if (nm == null) {
+                    return ErrorEval.REF_INVALID;
+                }
                 if(!nm.isRange()){
-                    throw new RuntimeException("Specified name '" + refStrPart1 + "' is not a range as expected.");
+                    throw new RuntimeException("Specified name '" + ref.getRefText() + "' is not a range as expected.");
                 }
                 return _bookEvaluator.evaluateNameFormula(nm.getNameDefinition(), this);
+            default:
+                break;
         }
-        if (refStrPart2 == null) {
-            // no ':'
-            switch (part1refType) {
-                case COLUMN:
-                case ROW:
-                    return ErrorEval.REF_INVALID;
-                case CELL:
-                    CellReference cr = new CellReference(refStrPart1);
-                    return new LazyRefEval(cr.getRow(), cr.getCol(), sre);
-            }
-            throw new IllegalStateException("Unexpected reference classification of '" + refStrPart1 + "'.");
-        }
-        NameType part2refType = classifyCellReference(refStrPart1, ssVersion);
-        switch (part2refType) {
-            case BAD_CELL_OR_NAMED_RANGE:
-                return ErrorEval.REF_INVALID;
-            case NAMED_RANGE:
-                throw new RuntimeException("Cannot evaluate '" + refStrPart1
-                        + "'. Indirect evaluation of defined names not supported yet");
+        if (!ref.isValidAt(_rowIndex, _columnIndex)) {
+            return ErrorEval.REF_INVALID;
         }
-
-        if (part2refType != part1refType) {
-            // LHS and RHS of ':' must be compatible
+        SheetRefEvaluator se = createExternSheetRefEvaluator(ref.getWorkbookName(), ref.getSheetName());
+        if (se == null) {
             return ErrorEval.REF_INVALID;
         }
-        int firstRow, firstCol, lastRow, lastCol;
-        switch (part1refType) {
-            case COLUMN:
-                firstRow =0;
-                if (part2refType.equals(NameType.COLUMN))
-                {
-                    lastRow = ssVersion.getLastRowIndex();
-                    firstCol = parseRowRef(refStrPart1);
-                    lastCol = parseRowRef(refStrPart2);
-                }
-                else {
-                    lastRow = ssVersion.getLastRowIndex();
-                    firstCol = parseColRef(refStrPart1);
-                    lastCol = parseColRef(refStrPart2);
-                }
-                break;
-            case ROW:
-                // support of cell range in the form of integer:integer
-                firstCol = 0;
-                if (part2refType.equals(NameType.ROW))
-                {
-                    firstRow = parseColRef(refStrPart1);
-                    lastRow = parseColRef(refStrPart2);
-                    lastCol = ssVersion.getLastColumnIndex();
-                } else {
-                    lastCol = ssVersion.getLastColumnIndex();
-                    firstRow = parseRowRef(refStrPart1);
-                    lastRow = parseRowRef(refStrPart2);
-                }
-                break;
-            case CELL:
-                CellReference cr;
-                cr = new CellReference(refStrPart1);
-                firstRow = cr.getRow();
-                firstCol = cr.getCol();
-                cr = new CellReference(refStrPart2);
-                lastRow = cr.getRow();
-                lastCol = cr.getCol();
-                break;
-            default:
-                throw new IllegalStateException("Unexpected reference classification of '" + refStrPart1 + "'.");
+        SheetRangeEvaluator sre = new SheetRangeEvaluator(_sheetIndex, se);
+        if (ref.getKind() == DynamicReference.Kind.CELL) {
+            return new LazyRefEval(ref.getFirstRow(_rowIndex), ref.getFirstColumn(_columnIndex), sre);
         }
-        return new LazyAreaEval(firstRow, firstCol, lastRow, lastCol, sre);
+        return new LazyAreaEval(ref.getFirstRow(_rowIndex), ref.getFirstColumn(_columnIndex),
+                ref.getLastRow(_rowIndex), ref.getLastColumn(_columnIndex), sre);
     }
 
-    private static int parseRowRef(String refStrPart) {
-        return CellReference.convertColStringToIndex(refStrPart);
-    }
-
-    private static int parseColRef(String refStrPart) {
-        return Integer.parseInt(refStrPart) - 1;
-    }
-
-    private static NameType classifyCellReference(String str, SpreadsheetVersion ssVersion) {
-        int len = str.length();
-        if (len < 1) {
-            return CellReference.NameType.BAD_CELL_OR_NAMED_RANGE;
-        }
-        return CellReference.classifyCellReference(str, ssVersion);
+    /**
+     * @return the spreadsheet version of the workbook being evaluated
+     */
+    public SpreadsheetVersion getSpreadsheetVersion() {
+        // ugly typecast - TODO - make spreadsheet version more easily accessible
+        return ((FormulaParsingWorkbook)_workbook).getSpreadsheetVersion();
     }
 
     public FreeRefFunction findUserDefinedFunction(String functionName) {
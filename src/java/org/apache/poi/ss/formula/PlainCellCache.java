@@ -17,15 +17,27 @@
 
 package org.apache.poi.ss.formula;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
+ * Cache of the plain value entries of all cells read during evaluation, keyed by cell
+ * location.<p/>
+ *
+ * The location is packed into a single <tt>long</tt> (see {@link #toKey(int, int, int, int)})
+ * and the entries are kept in an open addressing hash table, so that lookups neither allocate
+ * key objects nor box the key.
  *
  * @author Josh Micich
  */
 final class PlainCellCache {
 
+	private static final int BOOK_BITS = 14;
+	private static final int SHEET_BITS = 16;
+	private static final int ROW_BITS = 20;
+	private static final int COLUMN_BITS = 14;
+
+	private static final int INITIAL_CAPACITY = 64;
+
 	public static final class Loc {
 
 		private final long _bookSheetColumn;
@@ -73,23 +85,155 @@ final class PlainCellCache {
         public int getBookIndex() {
             return (int)((_bookSheetColumn >> 48) & 0xFFFF);
         }
+
+		/**
+		 * @return the packed location used by the cache
+		 */
+		public long toKey() {
+			return PlainCellCache.toKey(getBookIndex(), getSheetIndex(), _rowIndex, getColumnIndex());
+		}
 	}
 
-	private Map<Loc, PlainValueCellCacheEntry> _plainValueEntriesByLoc;
+	/** slots are empty where the value is <code>null</code> */
+	private long[] _keys;
+	private PlainValueCellCacheEntry[] _values;
+	private int _size;
+	private int _threshold;
 
 	public PlainCellCache() {
-		_plainValueEntriesByLoc = new HashMap<Loc, PlainValueCellCacheEntry>();
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Packs a cell location into the key of this cache. Locations beyond the limits of the
+	 * Excel 2007 file format (and beyond 16384 workbooks or 65536 sheets) are not supported.
+	 */
+	public static long toKey(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+		assert bookIndex >>> BOOK_BITS == 0 && sheetIndex >>> SHEET_BITS == 0
+			&& rowIndex >>> ROW_BITS == 0 && columnIndex >>> COLUMN_BITS == 0 : "location out of range";
+		return ((long) bookIndex << (SHEET_BITS + ROW_BITS + COLUMN_BITS))
+			| ((long) sheetIndex << (ROW_BITS + COLUMN_BITS))
+			| ((long) rowIndex << COLUMN_BITS)
+			| columnIndex;
+	}
+
+	private void allocate(int capacity) {
+		_keys = new long[capacity];
+		_values = new PlainValueCellCacheEntry[capacity];
+		_threshold = capacity / 2;
+	}
+
+	private int indexOf(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (_keys.length - 1);
 	}
+
 	public void put(Loc key, PlainValueCellCacheEntry cce) {
-		_plainValueEntriesByLoc.put(key, cce);
+		put(key.toKey(), cce);
 	}
+	public void put(long key, PlainValueCellCacheEntry cce) {
+		int mask = _keys.length - 1;
+		int i = indexOf(key);
+		while (_values[i] != null) {
+			if (_keys[i] == key) {
+				_values[i] = cce;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		_keys[i] = key;
+		_values[i] = cce;
+		if (++_size > _threshold) {
+			rehash();
+		}
+	}
+
+	private void rehash() {
+		long[] oldKeys = _keys;
+		PlainValueCellCacheEntry[] oldValues = _values;
+		allocate(oldKeys.length * 2);
+		int mask = _keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldValues[j] != null) {
+				int i = indexOf(oldKeys[j]);
+				while (_values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				_keys[i] = oldKeys[j];
+				_values[i] = oldValues[j];
+			}
+		}
+	}
+
 	public void clear() {
-		_plainValueEntriesByLoc.clear();
+		if (_keys.length > INITIAL_CAPACITY) {
+			allocate(INITIAL_CAPACITY);
+		} else {
+			Arrays.fill(_values, null);
+		}
+		_size = 0;
 	}
+
 	public PlainValueCellCacheEntry get(Loc key) {
-		return _plainValueEntriesByLoc.get(key);
+		return get(key.toKey());
+	}
+	public PlainValueCellCacheEntry get(long key) {
+		int mask = _keys.length - 1;
+		int i = indexOf(key);
+		PlainValueCellCacheEntry value;
+		while ((value = _values[i]) != null) {
+			if (_keys[i] == key) {
+				return value;
+			}
+			i = (i + 1) & mask;
+		}
+		return null;
 	}
+
 	public void remove(Loc key) {
-		_plainValueEntriesByLoc.remove(key);
+		remove(key.toKey());
+	}
+	public void remove(long key) {
+		int mask = _keys.length - 1;
+		int i = indexOf(key);
+		while (_values[i] != null) {
+			if (_keys[i] == key) {
+				deleteSlot(i);
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+	}
+
+	/**
+	 * Empties the slot, then moves later entries of the same probe sequence back so that
+	 * lookups never stop at the gap
+	 */
+	private void deleteSlot(int slot) {
+		int mask = _keys.length - 1;
+		int gap = slot;
+		int i = slot;
+		while (true) {
+			i = (i + 1) & mask;
+			if (_values[i] == null) {
+				break;
+			}
+			int home = indexOf(_keys[i]);
+			// move the entry unless its home slot lies cyclically within (gap, i]
+			if (gap <= i ? (home <= gap || home > i) : (home <= gap && home > i)) {
+				_keys[gap] = _keys[i];
+				_values[gap] = _values[i];
+				gap = i;
+			}
+		}
+		_values[gap] = null;
+		_size--;
+	}
+
+	/**
+	 * @return the number of cached entries
+	 */
+	public int size() {
+		return _size;
 	}
 }
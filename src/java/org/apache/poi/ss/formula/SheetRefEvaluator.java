@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula;
 
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.FuncVarPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
@@ -48,6 +49,11 @@ final class SheetRefEvaluator {
 		return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
 	}
 
+	public AreaValueBlock getAreaValues(int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex) {
+		return _bookEvaluator.evaluateAreaValues(getSheet(), _sheetIndex,
+				firstRowIndex, firstColumnIndex, lastRowIndex, lastColumnIndex, _tracker);
+	}
+
 	private EvaluationSheet getSheet() {
 		if (_sheet == null) {
 			_sheet = _bookEvaluator.getSheet(_sheetIndex);
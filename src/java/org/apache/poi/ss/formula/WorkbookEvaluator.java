@@ -27,6 +27,9 @@ import java.util.TreeSet;
 
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment.WorkbookNotFoundException;
 import org.apache.poi.ss.formula.atp.AnalysisToolPak;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
+import org.apache.poi.ss.formula.eval.ArrayEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -49,6 +52,7 @@ import org.apache.poi.ss.formula.ptg.Area3DPtg;
 import org.apache.poi.ss.formula.ptg.Area3DPxg;
 import org.apache.poi.ss.formula.ptg.AreaErrPtg;
 import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.ArrayPtg;
 import org.apache.poi.ss.formula.ptg.AttrPtg;
 import org.apache.poi.ss.formula.ptg.BoolPtg;
 import org.apache.poi.ss.formula.ptg.ControlPtg;
@@ -78,6 +82,7 @@ import org.apache.poi.ss.formula.ptg.UnknownPtg;
 import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.POILogFactory;
@@ -113,6 +118,9 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks = false;
 
+    /** <code>null</code> unless profiling is enabled */
+    private EvaluationProfiler _profiler;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -188,6 +196,9 @@ public final class WorkbookEvaluator {
         _collaboratingWorkbookEnvironment = collaboratingWorkbooksEnvironment;
         _cache = cache;
         _workbookIx = workbookIx;
+        if (_profiler != null) {
+            _cache.setProfiler(_profiler);
+        }
     }
     /* package */ CollaboratingWorkbooksEnvironment getEnvironment() {
         return _collaboratingWorkbookEnvironment;
@@ -200,6 +211,7 @@ public final class WorkbookEvaluator {
     /* package */ void detachFromEnvironment() {
         _collaboratingWorkbookEnvironment = CollaboratingWorkbooksEnvironment.EMPTY;
         _cache = new EvaluationCache(_evaluationListener);
+        _cache.setProfiler(_profiler);
         _workbookIx = 0;
     }
     /**
@@ -309,16 +321,30 @@ public final class WorkbookEvaluator {
                 return ErrorEval.CIRCULAR_REF_ERROR;
             }
             OperationEvaluationContext ec = new OperationEvaluationContext(this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
+            if (srcCell instanceof ArrayFormulaEvaluationCell
+                    && ((ArrayFormulaEvaluationCell) srcCell).isPartOfArrayFormulaGroup()) {
+                ec.setArrayFormulaRange(((ArrayFormulaEvaluationCell) srcCell).getArrayFormulaRange());
+            }
 
             try {
 
                 Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
-                if (evalListener == null) {
-                    result = evaluateFormula(ec, ptgs);
-                } else {
-                    evalListener.onStartEvaluate(srcCell, cce);
-                    result = evaluateFormula(ec, ptgs);
-                    evalListener.onEndEvaluate(cce, result);
+                EvaluationProfiler profiler = _profiler;
+                if (profiler != null) {
+                    profiler.startEvaluate(this, srcCell, sheetIndex);
+                }
+                try {
+                    if (evalListener == null) {
+                        result = evaluateFormula(ec, ptgs);
+                    } else {
+                        evalListener.onStartEvaluate(srcCell, cce);
+                        result = evaluateFormula(ec, ptgs);
+                        evalListener.onEndEvaluate(cce, result);
+                    }
+                } finally {
+                    if (profiler != null) {
+                        profiler.endEvaluate();
+                    }
                 }
 
                 tracker.updateCacheResult(result);
@@ -358,6 +384,9 @@ public final class WorkbookEvaluator {
             if(evalListener != null) {
                 evalListener.onCacheHit(sheetIndex, rowIndex, columnIndex, cce.getValue());
             }
+            if (_profiler != null) {
+                _profiler.onFormulaCacheHit();
+            }
             return cce.getValue();
         }
         if (isDebugLogEnabled()) {
@@ -547,9 +576,18 @@ public final class WorkbookEvaluator {
                     ops[j] = p;
                 }
 //                logDebug("invoke " + operation + " (nAgs=" + numops + ")");
-                opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                if (_profiler == null) {
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                } else {
+                    long startNanos = System.nanoTime();
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                    _profiler.onFunction(optg, ops, System.nanoTime() - startNanos);
+                }
             } else {
                 opResult = getEvalForPtg(ptg, ec);
+                if (ptg.getPtgClass() == Ptg.CLASS_ARRAY && opResult instanceof AreaEval) {
+                    opResult = toArrayOperand((AreaEval) opResult);
+                }
             }
             if (opResult == null) {
                 throw new RuntimeException("Evaluation result must not be null");
@@ -565,6 +603,9 @@ public final class WorkbookEvaluator {
         if (!stack.isEmpty()) {
             throw new IllegalStateException("evaluation stack not empty");
         }
+        if (value instanceof ArrayEval) {
+            value = getArrayFormulaElement((ArrayEval) value, ec);
+        }
         ValueEval result = dereferenceResult(value, ec.getRowIndex(), ec.getColumnIndex());
         if (dbgEvaluationOutputIndent > 0) {
             EVAL_LOG.log(POILogger.INFO, dbgIndentStr + "finshed eval of "
@@ -580,6 +621,30 @@ public final class WorkbookEvaluator {
 
     }
 
+    /**
+     * References in array context (e.g. the arguments of SUMPRODUCT, or any reference in an array
+     * formula) are evaluated as arrays, so that operators apply to all of their cells at once.
+     * Areas spanning several sheets are left alone.
+     */
+    private static ValueEval toArrayOperand(AreaEval area) {
+        if (area.getFirstSheetIndex() != area.getLastSheetIndex()) {
+            return area;
+        }
+        return ArrayEval.valueOf(area);
+    }
+
+    /**
+     * Each cell of an array formula takes the element of the result at its position within
+     * the array formula range. Other formulas take the top left element.
+     */
+    private static ValueEval getArrayFormulaElement(ArrayEval result, OperationEvaluationContext ec) {
+        CellRangeAddress range = ec.getArrayFormulaRange();
+        if (range == null) {
+            return result.getElement(0, 0);
+        }
+        return result.getElement(ec.getRowIndex() - range.getFirstRow(), ec.getColumnIndex() - range.getFirstColumn());
+    }
+
     /**
      * Calculates the number of tokens that the evaluator should skip upon reaching a tAttrSkip.
      *
@@ -695,6 +760,10 @@ public final class WorkbookEvaluator {
            return ec.getAreaEval(aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
         }
 
+        if (ptg instanceof ArrayPtg) {
+            return ArrayEval.valueOf((ArrayPtg) ptg);
+        }
+
         if (ptg instanceof UnknownPtg) {
             // POI uses UnknownPtg when the encoded Ptg array seems to be corrupted.
             // This seems to occur in very rare cases (e.g. unused name formulas in bug 44774, attachment 21790)
@@ -749,6 +818,84 @@ public final class WorkbookEvaluator {
         EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
+
+    /**
+     * Used by the lazy area evals to read all cells of an area in one pass.<p/>
+     *
+     * The values are shared through the {@link EvaluationCache} with any other formula that
+     * references the same area.  When an {@link IEvaluationListener} is attached, every cell
+     * is read individually (and without sharing) so that the listener sees all cell reads.
+     */
+    /* package */ AreaValueBlock evaluateAreaValues(EvaluationSheet sheet, int sheetIndex,
+            int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex,
+            EvaluationTracker tracker) {
+
+        if (_evaluationListener != null) {
+            return readAreaValues(sheet, sheetIndex, firstRowIndex, firstColumnIndex,
+                    lastRowIndex, lastColumnIndex, tracker);
+        }
+        AreaValueCacheEntry ace = _cache.getOrCreateAreaValueEntry(_workbookIx, sheetIndex,
+                firstRowIndex, firstColumnIndex, lastRowIndex, lastColumnIndex);
+        FormulaCellCacheEntry dependencyEntry = ace.getDependencyEntry();
+        AreaValueBlock result = ace.getBlock();
+        if (result != null) {
+            if (_profiler != null) {
+                _profiler.onAreaValueCacheHit();
+            }
+            _cache.notifyAreaBlockUsed(ace);
+            tracker.acceptFormulaDependency(dependencyEntry);
+            return result;
+        }
+        if (_profiler != null) {
+            _profiler.onAreaValueCacheMiss();
+        }
+        if (!tracker.startEvaluate(dependencyEntry)) {
+            // The area is being read further up the stack, so one of its cells refers back
+            // to the area. Read the cells directly to get the usual circular reference errors.
+            return readAreaValues(sheet, sheetIndex, firstRowIndex, firstColumnIndex,
+                    lastRowIndex, lastColumnIndex, tracker);
+        }
+        try {
+            result = readAreaValues(sheet, sheetIndex, firstRowIndex, firstColumnIndex,
+                    lastRowIndex, lastColumnIndex, tracker);
+            _cache.storeAreaBlock(ace, result, tracker);
+        } finally {
+            tracker.endEvaluate(dependencyEntry);
+        }
+        tracker.acceptFormulaDependency(dependencyEntry);
+        if (containsCircularRefError(result)) {
+            // this result is only valid within the current evaluation stack
+            _cache.removeAreaValueEntry(ace);
+        }
+        return result;
+    }
+
+    private AreaValueBlock readAreaValues(EvaluationSheet sheet, int sheetIndex,
+            int firstRowIndex, int firstColumnIndex, int lastRowIndex, int lastColumnIndex,
+            EvaluationTracker tracker) {
+        AreaValueBlock result = new AreaValueBlock(lastRowIndex - firstRowIndex + 1,
+                lastColumnIndex - firstColumnIndex + 1);
+        int i = 0;
+        for (int rowIndex = firstRowIndex; rowIndex <= lastRowIndex; rowIndex++) {
+            for (int columnIndex = firstColumnIndex; columnIndex <= lastColumnIndex; columnIndex++) {
+                EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
+                result.setValue(i++, evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker));
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsCircularRefError(AreaValueBlock block) {
+        if (!block.containsErrors()) {
+            return false;
+        }
+        for (int i = 0; i < block.getSize(); i++) {
+            if (block.getError(i) == ErrorEval.CIRCULAR_REF_ERROR) {
+                return true;
+            }
+        }
+        return false;
+    }
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -824,6 +971,20 @@ public final class WorkbookEvaluator {
         FunctionEval.registerFunction(name, func);
     }
 
+    /**
+     * Attaches a profiler which records evaluation times and cache statistics, or detaches
+     * the current profiler.
+     *
+     * @param profiler pass <code>null</code> to disable profiling
+     */
+    public void setProfiler(EvaluationProfiler profiler) {
+        _profiler = profiler;
+        _cache.setProfiler(profiler);
+    }
+    public EvaluationProfiler getProfiler() {
+        return _profiler;
+    }
+
     public void setDebugEvaluationOutputForNextEval(boolean value){
         dbgEvaluationOutputForNextEval = value;
     }
@@ -23,7 +23,7 @@ import org.apache.poi.ss.formula.ptg.AreaI;
 /**
  * @author Josh Micich
  */
-public abstract class AreaEvalBase implements AreaEval {
+public abstract class AreaEvalBase implements AreaEval, AreaValueBlockProvider {
 
     private final int _firstSheet;
 	private final int _firstColumn;
@@ -131,6 +131,13 @@ public abstract class AreaEvalBase implements AreaEval {
         return getRelativeValue(sheetIndex, row, col);
     }
 
+	public AreaValueBlock getValueBlock() {
+		return AreaValueBlock.create(this);
+	}
+	public AreaValueBlock getValueBlock(int sheetIndex) {
+		return AreaValueBlock.create(this, sheetIndex);
+	}
+
 	public abstract ValueEval getRelativeValue(int relativeRowIndex, int relativeColumnIndex);
     public abstract ValueEval getRelativeValue(int sheetIndex, int relativeRowIndex, int relativeColumnIndex);
 
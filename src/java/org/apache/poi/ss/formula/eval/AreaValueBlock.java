@@ -0,0 +1,269 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import org.apache.poi.ss.formula.ThreeDEval;
+import org.apache.poi.ss.formula.TwoDEval;
+
+/**
+ * The values of a rectangular area, read in a single pass.<p/>
+ *
+ * Numeric and boolean values are held in a primitive <tt>double</tt> array. A parallel array
+ * of type codes tells blank, error and string cells apart, so that aggregate functions can
+ * iterate large ranges without dealing with one {@link ValueEval} per cell.<p/>
+ *
+ * Cells are stored row by row, the cell at (<tt>rowIndex</tt>, <tt>columnIndex</tt>) is
+ * found at index <tt>rowIndex * getWidth() + columnIndex</tt>.<p/>
+ *
+ * Blocks hold at most {@link #MAX_CELLS} cells. Larger areas have to be read cell by cell.
+ */
+public final class AreaValueBlock {
+
+	public static final byte NUMBER = 0;
+	public static final byte BLANK = 1;
+	public static final byte BOOLEAN = 2;
+	public static final byte STRING = 3;
+	public static final byte ERROR = 4;
+
+	/**
+	 * The maximum number of cells of a block. A block of this size takes about 9 MB.
+	 */
+	public static final int MAX_CELLS = 1 << 20;
+
+	private final int _width;
+	private final int _height;
+	/** number value, 1.0/0.0 for booleans, error code for errors */
+	private final double[] _values;
+	private final byte[] _types;
+	/** only allocated when the area contains string cells */
+	private String[] _strings;
+	private int _firstErrorIndex;
+
+	public AreaValueBlock(int height, int width) {
+		if (!isValidSize(height, width)) {
+			throw new IllegalArgumentException("Invalid block size (" + height + "x" + width + ")");
+		}
+		_height = height;
+		_width = width;
+		_values = new double[height * width];
+		_types = new byte[height * width];
+		_firstErrorIndex = -1;
+	}
+
+	/**
+	 * @return <code>true</code> if a block of the specified size can be created, i.e. it is not
+	 *  empty and has at most {@link #MAX_CELLS} cells
+	 */
+	public static boolean isValidSize(int height, int width) {
+		return height > 0 && width > 0 && (long) height * width <= MAX_CELLS;
+	}
+
+	/**
+	 * @return the values of the specified area, read in one pass if the area is an
+	 *  {@link AreaValueBlockProvider}, or <code>null</code> if the area has more than
+	 *  {@link #MAX_CELLS} cells
+	 */
+	public static AreaValueBlock valueOf(TwoDEval area) {
+		if (!isValidSize(area.getHeight(), area.getWidth())) {
+			return null;
+		}
+		if (area instanceof AreaValueBlockProvider) {
+			return ((AreaValueBlockProvider) area).getValueBlock();
+		}
+		return create(area);
+	}
+
+	/**
+	 * Same as {@link #valueOf(TwoDEval)} for a single sheet of a 3D area
+	 */
+	public static AreaValueBlock valueOf(ThreeDEval area, int sheetIndex) {
+		if (!isValidSize(area.getHeight(), area.getWidth())) {
+			return null;
+		}
+		if (area instanceof AreaValueBlockProvider) {
+			return ((AreaValueBlockProvider) area).getValueBlock(sheetIndex);
+		}
+		return create(area, sheetIndex);
+	}
+
+	/**
+	 * Reads all values of the specified area with {@link TwoDEval#getValue(int, int)}.
+	 * Implementations of {@link AreaValueBlockProvider} which have no faster way
+	 * to reach their cells can delegate to this method.
+	 */
+	public static AreaValueBlock create(TwoDEval area) {
+		int height = area.getHeight();
+		int width = area.getWidth();
+		AreaValueBlock result = new AreaValueBlock(height, width);
+		int i = 0;
+		for (int rrIx = 0; rrIx < height; rrIx++) {
+			for (int rcIx = 0; rcIx < width; rcIx++) {
+				result.setValue(i++, area.getValue(rrIx, rcIx));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Same as {@link #create(TwoDEval)} for a single sheet of a 3D area
+	 */
+	public static AreaValueBlock create(ThreeDEval area, int sheetIndex) {
+		int height = area.getHeight();
+		int width = area.getWidth();
+		AreaValueBlock result = new AreaValueBlock(height, width);
+		int i = 0;
+		for (int rrIx = 0; rrIx < height; rrIx++) {
+			for (int rcIx = 0; rcIx < width; rcIx++) {
+				result.setValue(i++, area.getValue(sheetIndex, rrIx, rcIx));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the specified value at the specified (row major) index
+	 */
+	public void setValue(int index, ValueEval ve) {
+		if (ve == null || ve == BlankEval.instance) {
+			_types[index] = BLANK;
+			_values[index] = 0.0;
+			return;
+		}
+		if (ve instanceof BoolEval) {
+			_types[index] = BOOLEAN;
+			_values[index] = ((BoolEval) ve).getNumberValue();
+			return;
+		}
+		if (ve instanceof NumericValueEval) {
+			_types[index] = NUMBER;
+			_values[index] = ((NumericValueEval) ve).getNumberValue();
+			return;
+		}
+		if (ve instanceof StringValueEval) {
+			if (_strings == null) {
+				_strings = new String[_values.length];
+			}
+			_types[index] = STRING;
+			_strings[index] = ((StringValueEval) ve).getStringValue();
+			return;
+		}
+		if (ve instanceof ErrorEval) {
+			_types[index] = ERROR;
+			_values[index] = ((ErrorEval) ve).getErrorCode();
+			if (_firstErrorIndex < 0 || index < _firstErrorIndex) {
+				_firstErrorIndex = index;
+			}
+			return;
+		}
+		throw new IllegalArgumentException("Unexpected value class (" + ve.getClass().getName() + ")");
+	}
+
+	/**
+	 * Stores a number at the specified (row major) index, without creating a {@link NumberEval}
+	 */
+	public void setNumber(int index, double value) {
+		_types[index] = NUMBER;
+		_values[index] = value;
+	}
+
+	public int getWidth() {
+		return _width;
+	}
+
+	public int getHeight() {
+		return _height;
+	}
+
+	/**
+	 * @return the number of cells in this block
+	 */
+	public int getSize() {
+		return _values.length;
+	}
+
+	/**
+	 * @return one of {@link #NUMBER}, {@link #BLANK}, {@link #BOOLEAN}, {@link #STRING} or {@link #ERROR}
+	 */
+	public byte getType(int index) {
+		return _types[index];
+	}
+
+	/**
+	 * @return the numeric value of a {@link #NUMBER} or {@link #BOOLEAN} cell, zero for blank cells
+	 */
+	public double getNumber(int index) {
+		return _values[index];
+	}
+
+	/**
+	 * @return the text of a {@link #STRING} cell, <code>null</code> for all other cell types
+	 */
+	public String getString(int index) {
+		return _strings == null ? null : _strings[index];
+	}
+
+	/**
+	 * @return the error of an {@link #ERROR} cell, <code>null</code> for all other cell types
+	 */
+	public ErrorEval getError(int index) {
+		if (_types[index] != ERROR) {
+			return null;
+		}
+		return ErrorEval.valueOf((int) _values[index]);
+	}
+
+	/**
+	 * @return <code>true</code> if any of the cells holds an error value
+	 */
+	public boolean containsErrors() {
+		return _firstErrorIndex >= 0;
+	}
+
+	/**
+	 * @return the first error (in row major order), or <code>null</code> if there is none
+	 */
+	public ErrorEval getFirstError() {
+		if (_firstErrorIndex < 0) {
+			return null;
+		}
+		return getError(_firstErrorIndex);
+	}
+
+	/**
+	 * Re-creates the {@link ValueEval} for the cell at the specified index
+	 */
+	public ValueEval getValue(int index) {
+		switch (_types[index]) {
+			case NUMBER:
+				return new NumberEval(_values[index]);
+			case BLANK:
+				return BlankEval.instance;
+			case BOOLEAN:
+				return BoolEval.valueOf(_values[index] != 0.0);
+			case STRING:
+				return new StringEval(_strings[index]);
+			case ERROR:
+				return getError(index);
+		}
+		throw new IllegalStateException("Unexpected type code (" + _types[index] + ")");
+	}
+
+	public ValueEval getValue(int rowIndex, int columnIndex) {
+		return getValue(rowIndex * _width + columnIndex);
+	}
+}
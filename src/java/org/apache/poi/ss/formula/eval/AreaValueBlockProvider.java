@@ -0,0 +1,44 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import org.apache.poi.ss.formula.ThreeDEval;
+import org.apache.poi.ss.formula.TwoDEval;
+
+/**
+ * Optionally implemented by {@link TwoDEval}s which can read all their values faster than
+ * through repeated calls to {@link TwoDEval#getValue(int, int)}.<p/>
+ *
+ * Callers should use {@link AreaValueBlock#valueOf(TwoDEval)} and
+ * {@link AreaValueBlock#valueOf(ThreeDEval, int)}, which fall back to reading the values
+ * one by one for other implementations, and which only call these methods for areas with at
+ * most {@link AreaValueBlock#MAX_CELLS} cells.
+ */
+public interface AreaValueBlockProvider {
+
+	/**
+	 * @return the values of this area, never <code>null</code>
+	 */
+	AreaValueBlock getValueBlock();
+
+	/**
+	 * @param sheetIndex sheet index (zero based)
+	 * @return the values of this area on the specified sheet, never <code>null</code>
+	 */
+	AreaValueBlock getValueBlock(int sheetIndex);
+}
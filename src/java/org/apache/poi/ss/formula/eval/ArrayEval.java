@@ -0,0 +1,252 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import org.apache.poi.ss.formula.constant.ErrorConstant;
+import org.apache.poi.ss.formula.ptg.ArrayPtg;
+
+/**
+ * An array value, as produced by array constants (e.g. <tt>{1,2;3,4}</tt>), by references in
+ * array context (e.g. the arguments of <tt>SUMPRODUCT</tt> or array formulas) and by operators
+ * applied element-wise to arrays.<p/>
+ *
+ * The values are held in an {@link AreaValueBlock}, so operators and aggregate functions
+ * process them as primitive <tt>double</tt>s. Arrays read from a reference keep the
+ * coordinates of that reference and only wrap it. Single elements are read from the
+ * reference, all its values are only read when the block is needed.<p/>
+ *
+ * When two arrays of different size are combined, an array with a single row (or column)
+ * is repeated for all rows (or columns) of the other one. Elements outside the smaller
+ * array evaluate to <tt>#N/A</tt>.
+ */
+public final class ArrayEval extends AreaEvalBase {
+
+	/** the referenced area, <code>null</code> for computed arrays */
+	private final AreaEval _source;
+	private AreaValueBlock _block;
+
+	private ArrayEval(AreaEval source) {
+		super(source.getFirstRow(), source.getFirstColumn(), source.getLastRow(), source.getLastColumn());
+		_source = source;
+	}
+
+	/**
+	 * Creates an array holding the specified values
+	 *
+	 * @param firstRow the row index of the top left element, used for implicit intersection
+	 * @param firstColumn the column index of the top left element
+	 */
+	public ArrayEval(int firstRow, int firstColumn, AreaValueBlock block) {
+		super(firstRow, firstColumn, firstRow + block.getHeight() - 1, firstColumn + block.getWidth() - 1);
+		_source = null;
+		_block = block;
+	}
+
+	/**
+	 * @return an array wrapping the specified area, its values are read when they are accessed
+	 */
+	public static ArrayEval valueOf(AreaEval area) {
+		if (area instanceof ArrayEval) {
+			return (ArrayEval) area;
+		}
+		return new ArrayEval(area);
+	}
+
+	/**
+	 * @return an array of the values of an array constant
+	 */
+	public static ArrayEval valueOf(ArrayPtg ptg) {
+		Object[][] values = ptg.getTokenArrayValues();
+		AreaValueBlock block = new AreaValueBlock(ptg.getRowCount(), ptg.getColumnCount());
+		int i = 0;
+		for (Object[] row : values) {
+			for (Object value : row) {
+				block.setValue(i++, toValueEval(value));
+			}
+		}
+		return new ArrayEval(0, 0, block);
+	}
+
+	private static ValueEval toValueEval(Object value) {
+		if (value == null) {
+			return BlankEval.instance;
+		}
+		if (value instanceof Double) {
+			return new NumberEval(((Double) value).doubleValue());
+		}
+		if (value instanceof String) {
+			return new StringEval((String) value);
+		}
+		if (value instanceof Boolean) {
+			return BoolEval.valueOf(((Boolean) value).booleanValue());
+		}
+		if (value instanceof ErrorConstant) {
+			return ErrorEval.valueOf(((ErrorConstant) value).getErrorCode());
+		}
+		throw new IllegalArgumentException("Unexpected array constant class (" + value.getClass().getName() + ")");
+	}
+
+	/**
+	 * Converts an operand of an element-wise operation to a block of values. Areas and arrays
+	 * keep their size, all other values are resolved to a single value.
+	 *
+	 * @return <code>null</code> for areas with more than {@link AreaValueBlock#MAX_CELLS} cells
+	 */
+	/* package */ static AreaValueBlock toOperandBlock(ValueEval arg, int srcRowIndex, int srcColumnIndex) {
+		if (arg instanceof AreaEval) {
+			return AreaValueBlock.valueOf((AreaEval) arg);
+		}
+		AreaValueBlock result = new AreaValueBlock(1, 1);
+		try {
+			result.setValue(0, OperandResolver.getSingleValue(arg, srcRowIndex, srcColumnIndex));
+		} catch (EvaluationException e) {
+			result.setValue(0, e.getErrorEval());
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of rows of the result of combining blocks of the specified heights
+	 */
+	/* package */ static int getResultSize(int sizeA, int sizeB) {
+		if (sizeA == 1) {
+			return sizeB;
+		}
+		if (sizeB == 1) {
+			return sizeA;
+		}
+		return Math.max(sizeA, sizeB);
+	}
+
+	/**
+	 * @return the (row major) index of the element of the operand block used for the result
+	 * element at the specified position, <code>-1</code> if the block has no such element
+	 */
+	/* package */ static int getOperandIndex(AreaValueBlock block, int rowIndex, int columnIndex) {
+		int height = block.getHeight();
+		int width = block.getWidth();
+		int r = height == 1 ? 0 : rowIndex;
+		int c = width == 1 ? 0 : columnIndex;
+		if (r >= height || c >= width) {
+			return -1;
+		}
+		return r * width + c;
+	}
+
+	/**
+	 * @return the coordinates (row, column) used for the result of an operation on the specified
+	 * operands, those of the first area or array operand
+	 */
+	/* package */ static int[] getResultOrigin(ValueEval arg0, ValueEval arg1) {
+		if (arg0 instanceof AreaEval) {
+			AreaEval ae = (AreaEval) arg0;
+			return new int[] { ae.getFirstRow(), ae.getFirstColumn(), };
+		}
+		if (arg1 instanceof AreaEval) {
+			AreaEval ae = (AreaEval) arg1;
+			return new int[] { ae.getFirstRow(), ae.getFirstColumn(), };
+		}
+		return new int[] { 0, 0, };
+	}
+
+	/**
+	 * @return the element of this array at the specified position, with single row
+	 * (or column) arrays repeated, or <tt>#N/A</tt> if the position is out of range
+	 */
+	public ValueEval getElement(int rowIndex, int columnIndex) {
+		int height = getHeight();
+		int width = getWidth();
+		int r = height == 1 ? 0 : rowIndex;
+		int c = width == 1 ? 0 : columnIndex;
+		if (r >= height || c >= width) {
+			return ErrorEval.NA;
+		}
+		return getRelativeValue(r, c);
+	}
+
+	public AreaValueBlock getValueBlock() {
+		if (_block == null) {
+			_block = AreaValueBlock.valueOf(_source);
+		}
+		return _block;
+	}
+
+	public AreaValueBlock getValueBlock(int sheetIndex) {
+		return getValueBlock();
+	}
+
+	public ValueEval getRelativeValue(int relativeRowIndex, int relativeColumnIndex) {
+		if (_block == null) {
+			return _source.getRelativeValue(relativeRowIndex, relativeColumnIndex);
+		}
+		return _block.getValue(relativeRowIndex, relativeColumnIndex);
+	}
+
+	public ValueEval getRelativeValue(int sheetIndex, int relativeRowIndex, int relativeColumnIndex) {
+		return getRelativeValue(relativeRowIndex, relativeColumnIndex);
+	}
+
+	public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
+		if (_source != null) {
+			return _source.offset(relFirstRowIx, relLastRowIx, relFirstColIx, relLastColIx);
+		}
+		int height = relLastRowIx - relFirstRowIx + 1;
+		int width = relLastColIx - relFirstColIx + 1;
+		AreaValueBlock block = new AreaValueBlock(height, width);
+		int i = 0;
+		for (int r = relFirstRowIx; r <= relLastRowIx; r++) {
+			for (int c = relFirstColIx; c <= relLastColIx; c++) {
+				boolean inRange = r >= 0 && r < getHeight() && c >= 0 && c < getWidth();
+				block.setValue(i++, inRange ? getRelativeValue(r, c) : ErrorEval.NA);
+			}
+		}
+		return new ArrayEval(getFirstRow() + relFirstRowIx, getFirstColumn() + relFirstColIx, block);
+	}
+
+	public AreaEval getRow(int rowIndex) {
+		if (rowIndex >= getHeight()) {
+			throw new IllegalArgumentException("Invalid rowIndex " + rowIndex
+					+ ".  Allowable range is (0.." + getHeight() + ").");
+		}
+		return offset(rowIndex, rowIndex, 0, getWidth() - 1);
+	}
+
+	public AreaEval getColumn(int columnIndex) {
+		if (columnIndex >= getWidth()) {
+			throw new IllegalArgumentException("Invalid columnIndex " + columnIndex
+					+ ".  Allowable range is (0.." + getWidth() + ").");
+		}
+		return offset(0, getHeight() - 1, columnIndex, columnIndex);
+	}
+
+	public boolean isSubTotal(int rowIndex, int columnIndex) {
+		return _source != null && _source.isSubTotal(rowIndex, columnIndex);
+	}
+
+	public String toString() {
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(getClass().getName()).append(" [");
+		if (_source != null) {
+			sb.append(_source);
+		} else {
+			sb.append(getHeight()).append('x').append(getWidth());
+		}
+		sb.append("]");
+		return sb.toString();
+	}
+}
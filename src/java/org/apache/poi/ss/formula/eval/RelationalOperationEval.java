@@ -58,6 +58,9 @@ public abstract class RelationalOperationEval extends Fixed2ArgFunction {
 	 */
 	public ValueEval evaluate(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
 
+		if (arg0 instanceof ArrayEval || arg1 instanceof ArrayEval) {
+			return evaluateArray(srcRowIndex, srcColumnIndex, arg0, arg1);
+		}
 		ValueEval vA;
 		ValueEval vB;
 		try {
@@ -71,6 +74,44 @@ public abstract class RelationalOperationEval extends Fixed2ArgFunction {
 		return BoolEval.valueOf(result);
 	}
 
+	/**
+	 * Compares each pair of elements of two arrays (or an array and a single value)
+	 */
+	private ValueEval evaluateArray(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
+		AreaValueBlock block0 = ArrayEval.toOperandBlock(arg0, srcRowIndex, srcColumnIndex);
+		AreaValueBlock block1 = ArrayEval.toOperandBlock(arg1, srcRowIndex, srcColumnIndex);
+		if (block0 == null || block1 == null) {
+			// arrays of more than AreaValueBlock.MAX_CELLS elements are not supported
+			return ErrorEval.VALUE_INVALID;
+		}
+		int height = ArrayEval.getResultSize(block0.getHeight(), block1.getHeight());
+		int width = ArrayEval.getResultSize(block0.getWidth(), block1.getWidth());
+		if (!AreaValueBlock.isValidSize(height, width)) {
+			return ErrorEval.VALUE_INVALID;
+		}
+		AreaValueBlock result = new AreaValueBlock(height, width);
+
+		int i = 0;
+		for (int r = 0; r < height; r++) {
+			for (int c = 0; c < width; c++) {
+				int i0 = ArrayEval.getOperandIndex(block0, r, c);
+				int i1 = ArrayEval.getOperandIndex(block1, r, c);
+				if (i0 < 0 || i1 < 0) {
+					result.setValue(i++, ErrorEval.NA);
+				} else if (block0.getType(i0) == AreaValueBlock.ERROR) {
+					result.setValue(i++, block0.getError(i0));
+				} else if (block1.getType(i1) == AreaValueBlock.ERROR) {
+					result.setValue(i++, block1.getError(i1));
+				} else {
+					int cmpResult = doCompare(block0.getValue(i0), block1.getValue(i1));
+					result.setValue(i++, BoolEval.valueOf(convertComparisonResult(cmpResult)));
+				}
+			}
+		}
+		int[] origin = ArrayEval.getResultOrigin(arg0, arg1);
+		return new ArrayEval(origin[0], origin[1], result);
+	}
+
 	private static int doCompare(ValueEval va, ValueEval vb) {
 		// special cases when one operand is blank
 		if (va == BlankEval.instance) {
@@ -30,6 +30,9 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction {
 		return OperandResolver.coerceValueToDouble(ve);
 	}
 	public ValueEval evaluate(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
+		if (arg0 instanceof ArrayEval || arg1 instanceof ArrayEval) {
+			return evaluateArray(srcRowIndex, srcColumnIndex, arg0, arg1);
+		}
 		double result;
 		try {
 			double d0 = singleOperandEvaluate(arg0, srcRowIndex, srcColumnIndex);
@@ -50,6 +53,69 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction {
 		return new NumberEval(result);
 	}
 
+	/**
+	 * Applies this operation to each pair of elements of two arrays (or an array and a single value)
+	 */
+	private ValueEval evaluateArray(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
+		AreaValueBlock block0 = ArrayEval.toOperandBlock(arg0, srcRowIndex, srcColumnIndex);
+		AreaValueBlock block1 = ArrayEval.toOperandBlock(arg1, srcRowIndex, srcColumnIndex);
+		if (block0 == null || block1 == null) {
+			// arrays of more than AreaValueBlock.MAX_CELLS elements are not supported
+			return ErrorEval.VALUE_INVALID;
+		}
+		int height = ArrayEval.getResultSize(block0.getHeight(), block1.getHeight());
+		int width = ArrayEval.getResultSize(block0.getWidth(), block1.getWidth());
+		if (!AreaValueBlock.isValidSize(height, width)) {
+			return ErrorEval.VALUE_INVALID;
+		}
+		AreaValueBlock result = new AreaValueBlock(height, width);
+		boolean isSubtract = this instanceof SubtractEvalClass;
+
+		int i = 0;
+		for (int r = 0; r < height; r++) {
+			for (int c = 0; c < width; c++) {
+				int i0 = ArrayEval.getOperandIndex(block0, r, c);
+				int i1 = ArrayEval.getOperandIndex(block1, r, c);
+				if (i0 < 0 || i1 < 0) {
+					result.setValue(i++, ErrorEval.NA);
+					continue;
+				}
+				try {
+					double d = evaluate(getNumber(block0, i0), getNumber(block1, i1));
+					if (Double.isNaN(d) || Double.isInfinite(d)) {
+						result.setValue(i++, ErrorEval.NUM_ERROR);
+						continue;
+					}
+					if (d == 0.0 && !isSubtract) {
+						// Excel converts -0.0 to +0.0, as for single values
+						d = 0.0;
+					}
+					result.setNumber(i++, d);
+				} catch (EvaluationException e) {
+					result.setValue(i++, e.getErrorEval());
+				}
+			}
+		}
+		int[] origin = ArrayEval.getResultOrigin(arg0, arg1);
+		return new ArrayEval(origin[0], origin[1], result);
+	}
+
+	private static double getNumber(AreaValueBlock block, int index) throws EvaluationException {
+		switch (block.getType(index)) {
+			case AreaValueBlock.STRING:
+				Double d = OperandResolver.parseDouble(block.getString(index));
+				if (d == null) {
+					throw new EvaluationException(ErrorEval.VALUE_INVALID);
+				}
+				return d.doubleValue();
+			case AreaValueBlock.ERROR:
+				throw new EvaluationException(block.getError(index));
+			default:
+				// numbers, booleans and blanks
+				return block.getNumber(index);
+		}
+	}
+
 	protected abstract double evaluate(double d0, double d1) throws EvaluationException;
 
 	public static final Function AddEval = new TwoOperandNumericOperation() {
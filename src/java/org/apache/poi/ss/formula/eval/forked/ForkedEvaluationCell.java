@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula.eval.forked;
 
+import org.apache.poi.ss.formula.ArrayFormulaEvaluationCell;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.formula.eval.BlankEval;
@@ -27,6 +28,7 @@ import org.apache.poi.ss.formula.eval.StringEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.Internal;
 
 /**
@@ -35,7 +37,7 @@ import org.apache.poi.util.Internal;
  *
  * @author Josh Micich
  */
-final class ForkedEvaluationCell implements EvaluationCell {
+final class ForkedEvaluationCell implements ArrayFormulaEvaluationCell {
 
 	private final EvaluationSheet _sheet;
 	/** corresponding cell from master workbook */
@@ -175,5 +177,13 @@ final class ForkedEvaluationCell implements EvaluationCell {
 	public CellType getCachedFormulaResultTypeEnum() {
 		return _masterCell.getCachedFormulaResultTypeEnum();
 	}
-
+	@Override
+	public boolean isPartOfArrayFormulaGroup() {
+		return _cellType == CellType.FORMULA && _masterCell instanceof ArrayFormulaEvaluationCell
+				&& ((ArrayFormulaEvaluationCell) _masterCell).isPartOfArrayFormulaGroup();
+	}
+	@Override
+	public CellRangeAddress getArrayFormulaRange() {
+		return ((ArrayFormulaEvaluationCell) _masterCell).getArrayFormulaRange();
+	}
 }
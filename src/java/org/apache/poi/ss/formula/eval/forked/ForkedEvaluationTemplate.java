@@ -0,0 +1,68 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * A snapshot of a 'master workbook' from which any number of {@link ForkedEvaluator}s can be
+ * created, concurrently from different threads.<p/>
+ *
+ * Unlike {@link ForkedEvaluator#create(Workbook, IStabilityClassifier, UDFFinder)}, which reads the
+ * master workbook on every evaluation, the template copies all cell values and formula tokens once.
+ * The copy is immutable and shared by all evaluators created from the template, so many evaluations
+ * (e.g. 'what-if' queries with different input values) can run in parallel on one workbook.
+ * Each evaluator keeps its own updated cells and its own cache of evaluation results, and must
+ * only be used by one thread at a time.<p/>
+ *
+ * The master workbook must not be modified while evaluators created from the template are in use.
+ * Changes made after the template was created are not picked up, except for changes to defined names.
+ */
+public final class ForkedEvaluationTemplate {
+
+    private final SnapshotEvaluationWorkbook _snapshot;
+    private final IStabilityClassifier _stabilityClassifier;
+
+    private ForkedEvaluationTemplate(SnapshotEvaluationWorkbook snapshot, IStabilityClassifier stabilityClassifier) {
+        _snapshot = snapshot;
+        _stabilityClassifier = stabilityClassifier;
+    }
+
+    /**
+     * Takes a snapshot of the cells of the specified workbook.
+     *
+     * @param stabilityClassifier used by all created evaluators, pass <code>null</code> if unknown
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     */
+    public static ForkedEvaluationTemplate create(Workbook wb, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+        SnapshotEvaluationWorkbook snapshot = new SnapshotEvaluationWorkbook(wb,
+                ForkedEvaluator.createEvaluationWorkbook(wb), udfFinder);
+        return new ForkedEvaluationTemplate(snapshot, stabilityClassifier);
+    }
+
+    /**
+     * Creates a new evaluator for one evaluation session. This method may be called concurrently,
+     * the returned evaluator must only be used by one thread at a time.
+     */
+    public ForkedEvaluator createEvaluator() {
+        // user defined functions are already provided by the snapshot
+        return new ForkedEvaluator(_snapshot, _stabilityClassifier, null);
+    }
+}
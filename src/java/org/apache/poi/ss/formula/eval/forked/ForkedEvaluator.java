@@ -42,17 +42,18 @@ import org.apache.poi.ss.usermodel.Workbook;
  * This class enables a 'master workbook' to be loaded just once and shared between many evaluation
  * clients.  Each evaluation client creates its own {@link ForkedEvaluator} and can set cell values
  * that will be used for local evaluations (and don't disturb evaluations on other evaluators).
+ * To create many evaluators for concurrent use on different threads, see {@link ForkedEvaluationTemplate}.
  */
 public final class ForkedEvaluator {
 
 	private WorkbookEvaluator _evaluator;
 	private ForkedEvaluationWorkbook _sewb;
 
-	private ForkedEvaluator(EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+	/* package */ ForkedEvaluator(EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
 		_sewb = new ForkedEvaluationWorkbook(masterWorkbook);
 		_evaluator = new WorkbookEvaluator(_sewb, stabilityClassifier, udfFinder);
 	}
-	private static EvaluationWorkbook createEvaluationWorkbook(Workbook wb) {
+	/* package */ static EvaluationWorkbook createEvaluationWorkbook(Workbook wb) {
 		if (wb instanceof HSSFWorkbook) {
 			return HSSFEvaluationWorkbook.create((HSSFWorkbook) wb);
 		} else {
@@ -0,0 +1,87 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.BaseFormulaEvaluator;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Internal;
+
+/**
+ * An evaluator of a {@link FrozenWorkbook}. Formula results are taken from the snapshot,
+ * nothing is evaluated again. Methods which store results in formula cells store the frozen
+ * results, changes of the workbook are not seen by the snapshot.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+final class FrozenFormulaEvaluator extends BaseFormulaEvaluator {
+
+    private final FrozenWorkbook _frozenBook;
+    private final Workbook _book;
+
+    public FrozenFormulaEvaluator(FrozenWorkbook frozenBook, Workbook book, WorkbookEvaluator bookEvaluator) {
+        super(bookEvaluator);
+        _frozenBook = frozenBook;
+        _book = book;
+    }
+
+    @Override
+    protected CellValue evaluateFormulaCellValue(Cell cell) {
+        CellValue result = _frozenBook.getCellValue(cell.getSheet().getSheetName(), cell.getRowIndex(), cell.getColumnIndex());
+        // formulas never evaluate to blank
+        return result == null ? new CellValue(0.0) : result;
+    }
+
+    @Override
+    public void evaluateAll() {
+        evaluateAllFormulaCells(_book, this);
+    }
+
+    /**
+     * Does nothing, the frozen values never change
+     */
+    @Override
+    public void notifySetFormula(Cell cell) {
+        // nothing to do
+    }
+
+    /**
+     * Does nothing, the frozen values never change
+     */
+    @Override
+    public void notifyDeleteCell(Cell cell) {
+        // nothing to do
+    }
+
+    /**
+     * Does nothing, the frozen values never change
+     */
+    @Override
+    public void notifyUpdateCell(Cell cell) {
+        // nothing to do
+    }
+
+    @Override
+    protected RichTextString createRichTextString(String str) {
+        return _book.getCreationHelper().createRichTextString(str);
+    }
+}
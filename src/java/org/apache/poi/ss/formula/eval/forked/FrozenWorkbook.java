@@ -0,0 +1,190 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * An immutable snapshot of the values of a workbook, with all formulas evaluated once when the
+ * snapshot is taken.<p/>
+ *
+ * Frozen workbooks are meant for external workbooks which are referenced by the formulas of
+ * other workbooks, but do not change while those are evaluated (e.g. rate tables or reference
+ * data). Register the evaluator returned by {@link #createFormulaEvaluator()} like any other
+ * evaluator:
+ * <pre>
+ * Map&lt;String, FrozenWorkbook&gt; frozen = FrozenWorkbook.createAll(referencedWorkbooks, null, 4);
+ * Map&lt;String, FormulaEvaluator&gt; evaluators = new HashMap&lt;String, FormulaEvaluator&gt;();
+ * evaluators.put("Main.xls", mainEvaluator);
+ * for (Map.Entry&lt;String, FrozenWorkbook&gt; e : frozen.entrySet()) {
+ *     evaluators.put(e.getKey(), e.getValue().createFormulaEvaluator());
+ * }
+ * mainEvaluator.setupReferencedWorkbooks(evaluators);
+ * </pre>
+ * References into a frozen workbook only read plain values, so they are never recorded as
+ * dependencies and never evaluate a formula of the frozen workbook again. A frozen workbook may
+ * be shared between threads, each evaluation environment needs its own evaluator though.<p/>
+ *
+ * While freezing, formulas referring to other workbooks use the cached results stored in the
+ * workbook. The workbook must not be modified while it is being frozen, defined names are still
+ * read from it afterwards.
+ */
+public final class FrozenWorkbook {
+
+    private final Workbook _workbook;
+    private final SnapshotEvaluationWorkbook _snapshot;
+
+    private FrozenWorkbook(Workbook workbook, SnapshotEvaluationWorkbook snapshot) {
+        _workbook = workbook;
+        _snapshot = snapshot;
+    }
+
+    /**
+     * Evaluates all formulas of the specified workbook and takes a snapshot of the results.
+     *
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     */
+    public static FrozenWorkbook create(Workbook wb, UDFFinder udfFinder) {
+        SnapshotEvaluationWorkbook snapshot = new SnapshotEvaluationWorkbook(wb,
+                ForkedEvaluator.createEvaluationWorkbook(wb), udfFinder);
+        // the user defined functions are already provided by the snapshot
+        WorkbookEvaluator evaluator = new WorkbookEvaluator(snapshot, null, null);
+        evaluator.setIgnoreMissingWorkbooks(true);
+        return new FrozenWorkbook(wb, new SnapshotEvaluationWorkbook(snapshot, evaluator));
+    }
+
+    /**
+     * Freezes several workbooks in parallel, see {@link #create(Workbook, UDFFinder)}.
+     *
+     * @param workbooks the workbooks by name
+     * @param udfFinder pass <code>null</code> for default (AnalysisToolPak only)
+     * @param nThreads the maximum number of workbooks to freeze at the same time
+     * @return the frozen workbooks by name, in the iteration order of <tt>workbooks</tt>
+     */
+    public static Map<String, FrozenWorkbook> createAll(Map<String, ? extends Workbook> workbooks,
+            final UDFFinder udfFinder, int nThreads) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive but was " + nThreads);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(nThreads, Math.max(1, workbooks.size())));
+        try {
+            List<Future<FrozenWorkbook>> futures = new ArrayList<Future<FrozenWorkbook>>(workbooks.size());
+            for (final Workbook wb : workbooks.values()) {
+                futures.add(executor.submit(new Callable<FrozenWorkbook>() {
+                    public FrozenWorkbook call() {
+                        return create(wb, udfFinder);
+                    }
+                }));
+            }
+            Map<String, FrozenWorkbook> result = new LinkedHashMap<String, FrozenWorkbook>(workbooks.size() * 3 / 2);
+            int i = 0;
+            for (String name : workbooks.keySet()) {
+                result.put(name, getResult(futures.get(i++)));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FrozenWorkbook getResult(Future<FrozenWorkbook> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while freezing workbooks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * Creates a new evaluator reading the frozen values, for use with
+     * {@link FormulaEvaluator#setupReferencedWorkbooks(Map)}. The evaluator never evaluates a
+     * formula again, all its methods use the frozen results. Methods like
+     * {@link FormulaEvaluator#evaluateInCell(org.apache.poi.ss.usermodel.Cell)} store these
+     * results in the cells of the workbook, notifications of cell changes are ignored.
+     */
+    public FormulaEvaluator createFormulaEvaluator() {
+        return new FrozenFormulaEvaluator(this, _workbook, new WorkbookEvaluator(_snapshot, IStabilityClassifier.TOTALLY_IMMUTABLE, null));
+    }
+
+    public int getNumberOfSheets() {
+        return _snapshot.getNumberOfSheets();
+    }
+
+    public String getSheetName(int sheetIndex) {
+        return _snapshot.getSheetName(sheetIndex);
+    }
+
+    /**
+     * @return the value of the specified cell, the result for formula cells,
+     * or <code>null</code> if the cell is blank or does not exist
+     */
+    public CellValue getCellValue(String sheetName, int rowIndex, int columnIndex) {
+        int sheetIndex = _snapshot.getSheetIndex(sheetName);
+        if (sheetIndex < 0) {
+            throw new IllegalArgumentException("Sheet '" + sheetName + "' does not exist");
+        }
+        return toCellValue(_snapshot.getSheet(sheetIndex).getCell(rowIndex, columnIndex));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static CellValue toCellValue(EvaluationCell cell) {
+        if (cell == null) {
+            return null;
+        }
+        switch (cell.getCellTypeEnum()) {
+            case NUMERIC:
+                return new CellValue(cell.getNumericCellValue());
+            case STRING:
+                return new CellValue(cell.getStringCellValue());
+            case BOOLEAN:
+                return CellValue.valueOf(cell.getBooleanCellValue());
+            case ERROR:
+                return CellValue.getError(cell.getErrorCellValue());
+            case BLANK:
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected cell type (" + cell.getCellTypeEnum() + ")");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.ArrayFormulaEvaluationCell;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.Internal;
+
+/**
+ * An immutable copy of a cell of the master workbook, including the formula tokens of formula
+ * cells. Instances are created once per {@link ForkedEvaluationTemplate} and then only read, so
+ * they can be shared between threads.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+final class SnapshotEvaluationCell implements ArrayFormulaEvaluationCell {
+
+    private final SnapshotEvaluationSheet _sheet;
+    private final int _rowIndex;
+    private final int _columnIndex;
+    private final CellType _cellType;
+    private final CellType _cachedResultType;
+    private final double _numberValue;
+    private final String _stringValue;
+    private final boolean _booleanValue;
+    private final int _errorValue;
+    private final Ptg[] _formulaTokens;
+    /** <code>null</code> unless part of an array formula */
+    private final CellRangeAddress _arrayFormulaRange;
+
+    @SuppressWarnings("deprecation")
+    public SnapshotEvaluationCell(SnapshotEvaluationSheet sheet, EvaluationCell masterCell, Ptg[] formulaTokens) {
+        _sheet = sheet;
+        _rowIndex = masterCell.getRowIndex();
+        _columnIndex = masterCell.getColumnIndex();
+        _cellType = masterCell.getCellTypeEnum();
+        _cachedResultType = _cellType == CellType.FORMULA ? masterCell.getCachedFormulaResultTypeEnum() : null;
+        _formulaTokens = formulaTokens;
+        _arrayFormulaRange = _cellType == CellType.FORMULA && masterCell instanceof ArrayFormulaEvaluationCell
+                && ((ArrayFormulaEvaluationCell) masterCell).isPartOfArrayFormulaGroup()
+                ? ((ArrayFormulaEvaluationCell) masterCell).getArrayFormulaRange() : null;
+
+        CellType valueType = _cellType == CellType.FORMULA ? _cachedResultType : _cellType;
+        _numberValue = valueType == CellType.NUMERIC ? masterCell.getNumericCellValue() : 0;
+        _stringValue = valueType == CellType.STRING ? masterCell.getStringCellValue() : null;
+        _booleanValue = valueType == CellType.BOOLEAN && masterCell.getBooleanCellValue();
+        _errorValue = valueType == CellType.ERROR ? masterCell.getErrorCellValue() : 0;
+    }
+
+    /**
+     * Creates a plain value cell holding the evaluated result of a formula cell,
+     * as used by {@link FrozenWorkbook}
+     */
+    public SnapshotEvaluationCell(SnapshotEvaluationSheet sheet, EvaluationCell formulaCell, ValueEval result) {
+        _sheet = sheet;
+        _rowIndex = formulaCell.getRowIndex();
+        _columnIndex = formulaCell.getColumnIndex();
+        _cachedResultType = null;
+        _formulaTokens = null;
+        _arrayFormulaRange = null;
+
+        double numberValue = 0;
+        String stringValue = null;
+        boolean booleanValue = false;
+        int errorValue = 0;
+        if (result instanceof NumberEval) {
+            _cellType = CellType.NUMERIC;
+            numberValue = ((NumberEval) result).getNumberValue();
+        } else if (result instanceof StringEval) {
+            _cellType = CellType.STRING;
+            stringValue = ((StringEval) result).getStringValue();
+        } else if (result instanceof BoolEval) {
+            _cellType = CellType.BOOLEAN;
+            booleanValue = ((BoolEval) result).getBooleanValue();
+        } else if (result instanceof ErrorEval) {
+            _cellType = CellType.ERROR;
+            errorValue = ((ErrorEval) result).getErrorCode();
+        } else if (result == BlankEval.instance) {
+            _cellType = CellType.BLANK;
+        } else {
+            throw new IllegalArgumentException("Unexpected eval class (" + result.getClass().getName() + ")");
+        }
+        _numberValue = numberValue;
+        _stringValue = stringValue;
+        _booleanValue = booleanValue;
+        _errorValue = errorValue;
+    }
+
+    /**
+     * @return the formula tokens, or <code>null</code> if this is not a formula cell
+     */
+    public Ptg[] getFormulaTokens() {
+        return _formulaTokens;
+    }
+
+    @Override
+    public Object getIdentityKey() {
+        return this;
+    }
+
+    @Override
+    public EvaluationSheet getSheet() {
+        return _sheet;
+    }
+
+    @Override
+    public int getRowIndex() {
+        return _rowIndex;
+    }
+
+    @Override
+    public int getColumnIndex() {
+        return _columnIndex;
+    }
+
+    /**
+     * @deprecated 3.15. Will return a {@link CellType} enum in the future.
+     */
+    @Deprecated
+    @Override
+    public int getCellType() {
+        return _cellType.getCode();
+    }
+
+    /**
+     * @since POI 3.15 beta 3
+     * @deprecated POI 3.15 beta 3.
+     * Will be deleted when we make the CellType enum transition. See bug 59791.
+     */
+    @Deprecated
+    @Override
+    public CellType getCellTypeEnum() {
+        return _cellType;
+    }
+
+    @Override
+    public double getNumericCellValue() {
+        return _numberValue;
+    }
+
+    @Override
+    public String getStringCellValue() {
+        return _stringValue;
+    }
+
+    @Override
+    public boolean getBooleanCellValue() {
+        return _booleanValue;
+    }
+
+    @Override
+    public int getErrorCellValue() {
+        return _errorValue;
+    }
+
+    /**
+     * @deprecated 3.15. Will return a {@link CellType} enum in the future.
+     */
+    @Deprecated
+    @Override
+    public int getCachedFormulaResultType() {
+        return _cachedResultType.getCode();
+    }
+
+    /**
+     * @since POI 3.15 beta 3
+     * @deprecated POI 3.15 beta 3.
+     * Will be deleted when we make the CellType enum transition. See bug 59791.
+     */
+    @Deprecated
+    @Override
+    public CellType getCachedFormulaResultTypeEnum() {
+        return _cachedResultType;
+    }
+
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return _arrayFormulaRange != null;
+    }
+
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        return _arrayFormulaRange;
+    }
+}
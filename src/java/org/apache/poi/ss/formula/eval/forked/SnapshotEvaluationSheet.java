@@ -0,0 +1,127 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.Internal;
+
+/**
+ * An immutable copy of all cells of a sheet of the master workbook.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+final class SnapshotEvaluationSheet implements EvaluationSheet {
+
+    private static final SnapshotEvaluationCell[] EMPTY_ROW = { };
+
+    private final int _sheetIndex;
+    /**
+     * Cells indexed by row and column. Rows without cells share {@link #EMPTY_ROW}
+     */
+    private final SnapshotEvaluationCell[][] _cells;
+
+    @SuppressWarnings("deprecation")
+    public SnapshotEvaluationSheet(EvaluationWorkbook masterBook, int sheetIndex, Sheet sheet) {
+        _sheetIndex = sheetIndex;
+        EvaluationSheet masterSheet = masterBook.getSheet(sheetIndex);
+
+        _cells = new SnapshotEvaluationCell[sheet.getLastRowNum() + 1][];
+        for (int i = 0; i < _cells.length; i++) {
+            _cells[i] = EMPTY_ROW;
+        }
+        for (Row row : sheet) {
+            int rowIndex = row.getRowNum();
+            if (row.getLastCellNum() <= 0) {
+                continue;
+            }
+            SnapshotEvaluationCell[] cells = new SnapshotEvaluationCell[row.getLastCellNum()];
+            for (Cell cell : row) {
+                int columnIndex = cell.getColumnIndex();
+                EvaluationCell masterCell = masterSheet.getCell(rowIndex, columnIndex);
+                if (masterCell == null) {
+                    continue;
+                }
+                cells[columnIndex] = new SnapshotEvaluationCell(this, masterCell,
+                        masterCell.getCellTypeEnum() == CellType.FORMULA ? masterBook.getFormulaTokens(masterCell) : null);
+            }
+            _cells[rowIndex] = cells;
+        }
+    }
+
+    /**
+     * Copies the cells of another snapshot, replacing all formula cells by their results
+     */
+    @SuppressWarnings("deprecation")
+    public SnapshotEvaluationSheet(SnapshotEvaluationSheet source, WorkbookEvaluator evaluator) {
+        _sheetIndex = source._sheetIndex;
+        _cells = new SnapshotEvaluationCell[source._cells.length][];
+        for (int rowIndex = 0; rowIndex < _cells.length; rowIndex++) {
+            SnapshotEvaluationCell[] sourceCells = source._cells[rowIndex];
+            if (sourceCells.length == 0) {
+                _cells[rowIndex] = EMPTY_ROW;
+                continue;
+            }
+            SnapshotEvaluationCell[] cells = new SnapshotEvaluationCell[sourceCells.length];
+            for (int columnIndex = 0; columnIndex < cells.length; columnIndex++) {
+                SnapshotEvaluationCell cell = sourceCells[columnIndex];
+                if (cell == null) {
+                    continue;
+                }
+                if (cell.getCellTypeEnum() == CellType.FORMULA) {
+                    cells[columnIndex] = new SnapshotEvaluationCell(this, cell, evaluator.evaluate(cell));
+                } else {
+                    cells[columnIndex] = new SnapshotEvaluationCell(this, cell, (Ptg[]) null);
+                }
+            }
+            _cells[rowIndex] = cells;
+        }
+    }
+
+    public int getSheetIndex() {
+        return _sheetIndex;
+    }
+
+    @Override
+    public EvaluationCell getCell(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= _cells.length) {
+            return null;
+        }
+        SnapshotEvaluationCell[] cells = _cells[rowIndex];
+        if (columnIndex < 0 || columnIndex >= cells.length) {
+            return null;
+        }
+        return cells[columnIndex];
+    }
+
+    /**
+     * Does nothing, the snapshot holds no cached formula results.
+     */
+    @Override
+    public void clearAllCachedResultValues() {
+        // nothing to do
+    }
+}
@@ -0,0 +1,244 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationName;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
+import org.apache.poi.ss.formula.udf.UDFFinder;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Internal;
+
+/**
+ * A thread-safe, read-only view of the master workbook, used as the shared base of all
+ * evaluators created by a {@link ForkedEvaluationTemplate}.<br/>
+ *
+ * Sheets and cells are copied when the snapshot is taken, so cell access never touches the
+ * master workbook. The few remaining lookups (defined names, external sheets and names) are
+ * delegated to the master workbook while holding its lock.<br/>
+ *
+ * For POI internal use only
+ */
+@Internal
+final class SnapshotEvaluationWorkbook implements EvaluationWorkbook {
+
+    private final EvaluationWorkbook _masterBook;
+    private final SnapshotEvaluationSheet[] _sheets;
+    private final String[] _sheetNames;
+    private final UDFFinder _udfFinder;
+
+    public SnapshotEvaluationWorkbook(Workbook workbook, EvaluationWorkbook masterBook, UDFFinder udfFinder) {
+        _masterBook = masterBook;
+        int nSheets = workbook.getNumberOfSheets();
+        _sheets = new SnapshotEvaluationSheet[nSheets];
+        _sheetNames = new String[nSheets];
+        for (int i = 0; i < nSheets; i++) {
+            _sheets[i] = new SnapshotEvaluationSheet(masterBook, i, workbook.getSheetAt(i));
+            _sheetNames[i] = workbook.getSheetName(i);
+        }
+        _udfFinder = udfFinder;
+    }
+
+    /**
+     * Copies another snapshot, replacing all formula cells by their results
+     *
+     * @param evaluator evaluates the formulas of <tt>source</tt>
+     */
+    public SnapshotEvaluationWorkbook(SnapshotEvaluationWorkbook source, WorkbookEvaluator evaluator) {
+        _masterBook = source._masterBook;
+        _sheets = new SnapshotEvaluationSheet[source._sheets.length];
+        for (int i = 0; i < _sheets.length; i++) {
+            _sheets[i] = new SnapshotEvaluationSheet(source._sheets[i], evaluator);
+        }
+        _sheetNames = source._sheetNames;
+        _udfFinder = source._udfFinder;
+    }
+
+    public int getNumberOfSheets() {
+        return _sheets.length;
+    }
+
+    @Override
+    public String getSheetName(int sheetIndex) {
+        return _sheetNames[sheetIndex];
+    }
+
+    @Override
+    public int getSheetIndex(EvaluationSheet sheet) {
+        return ((SnapshotEvaluationSheet) sheet).getSheetIndex();
+    }
+
+    @Override
+    public int getSheetIndex(String sheetName) {
+        for (int i = 0; i < _sheetNames.length; i++) {
+            // sheet names are case insensitive
+            if (_sheetNames[i].equalsIgnoreCase(sheetName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public EvaluationSheet getSheet(int sheetIndex) {
+        return _sheets[sheetIndex];
+    }
+
+    @Override
+    public Ptg[] getFormulaTokens(EvaluationCell cell) {
+        return ((SnapshotEvaluationCell) cell).getFormulaTokens();
+    }
+
+    /**
+     * Each evaluator gets its own finder, as the {@link org.apache.poi.ss.formula.WorkbookEvaluator}
+     * adds its user defined functions to the finder of the workbook.
+     */
+    @Override
+    public UDFFinder getUDFFinder() {
+        synchronized (_masterBook) {
+            UDFFinder masterFinder = _masterBook.getUDFFinder();
+            if (_udfFinder == null) {
+                return new AggregatingUDFFinder(masterFinder);
+            }
+            return new AggregatingUDFFinder(masterFinder, _udfFinder);
+        }
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(int externSheetIndex) {
+        synchronized (_masterBook) {
+            return _masterBook.getExternalSheet(externSheetIndex);
+        }
+    }
+
+    @Override
+    public ExternalSheet getExternalSheet(String firstSheetName, String lastSheetName, int externalWorkbookNumber) {
+        synchronized (_masterBook) {
+            return _masterBook.getExternalSheet(firstSheetName, lastSheetName, externalWorkbookNumber);
+        }
+    }
+
+    @Override
+    public int convertFromExternSheetIndex(int externSheetIndex) {
+        synchronized (_masterBook) {
+            return _masterBook.convertFromExternSheetIndex(externSheetIndex);
+        }
+    }
+
+    @Override
+    public ExternalName getExternalName(int externSheetIndex, int externNameIndex) {
+        synchronized (_masterBook) {
+            return _masterBook.getExternalName(externSheetIndex, externNameIndex);
+        }
+    }
+
+    @Override
+    public ExternalName getExternalName(String nameName, String sheetName, int externalWorkbookNumber) {
+        synchronized (_masterBook) {
+            return _masterBook.getExternalName(nameName, sheetName, externalWorkbookNumber);
+        }
+    }
+
+    @Override
+    public EvaluationName getName(NamePtg namePtg) {
+        synchronized (_masterBook) {
+            return wrap(_masterBook.getName(namePtg));
+        }
+    }
+
+    @Override
+    public EvaluationName getName(String name, int sheetIndex) {
+        synchronized (_masterBook) {
+            return wrap(_masterBook.getName(name, sheetIndex));
+        }
+    }
+
+    @Override
+    public String resolveNameXText(NameXPtg ptg) {
+        synchronized (_masterBook) {
+            return _masterBook.resolveNameXText(ptg);
+        }
+    }
+
+    /**
+     * Does nothing, the snapshot holds no cached formula results.
+     */
+    @Override
+    public void clearAllCachedResultValues() {
+        // nothing to do
+    }
+
+    private EvaluationName wrap(EvaluationName name) {
+        return name == null ? null : new SynchronizedName(name, _masterBook);
+    }
+
+    /**
+     * Name definitions may be read (or even parsed) from the master workbook
+     */
+    private static final class SynchronizedName implements EvaluationName {
+        private final EvaluationName _name;
+        private final Object _lock;
+
+        public SynchronizedName(EvaluationName name, Object lock) {
+            _name = name;
+            _lock = lock;
+        }
+
+        public String getNameText() {
+            synchronized (_lock) {
+                return _name.getNameText();
+            }
+        }
+
+        public boolean isFunctionName() {
+            synchronized (_lock) {
+                return _name.isFunctionName();
+            }
+        }
+
+        public boolean hasFormula() {
+            synchronized (_lock) {
+                return _name.hasFormula();
+            }
+        }
+
+        public Ptg[] getNameDefinition() {
+            synchronized (_lock) {
+                return _name.getNameDefinition();
+            }
+        }
+
+        public boolean isRange() {
+            synchronized (_lock) {
+                return _name.isRange();
+            }
+        }
+
+        public NamePtg createPtg() {
+            synchronized (_lock) {
+                return _name.createPtg();
+            }
+        }
+    }
+}
@@ -17,9 +17,7 @@
 
 package org.apache.poi.ss.formula.functions;
 
-import org.apache.poi.ss.formula.FormulaParseException;
-import org.apache.poi.ss.formula.FormulaParser;
-import org.apache.poi.ss.formula.FormulaParsingWorkbook;
+import org.apache.poi.ss.formula.DynamicReference;
 import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -27,8 +25,6 @@ import org.apache.poi.ss.formula.eval.EvaluationException;
 import org.apache.poi.ss.formula.eval.MissingArgEval;
 import org.apache.poi.ss.formula.eval.OperandResolver;
 import org.apache.poi.ss.formula.eval.ValueEval;
-import org.apache.poi.ss.formula.ptg.Area3DPxg;
-import org.apache.poi.ss.usermodel.Table;
 
 /**
  * Implementation for Excel function INDIRECT<p/>
@@ -95,162 +91,8 @@ public final class Indirect implements FreeRefFunction {
 
     private static ValueEval evaluateIndirect(final OperationEvaluationContext ec, String text,
             boolean isA1style) {
-        
-        // Search backwards for '!' because sheet names can contain '!'
-        int plingPos = text.lastIndexOf('!');
-
-        String workbookName;
-        String sheetName;
-        String refText; // whitespace around this gets trimmed OK
-        if (plingPos < 0) {
-            workbookName = null;
-            sheetName = null;
-            refText = text;
-        } else {
-            String[] parts = parseWorkbookAndSheetName(text.subSequence(0, plingPos));
-            if (parts == null) {
-                return ErrorEval.REF_INVALID;
-            }
-            workbookName = parts[0];
-            sheetName = parts[1];
-            refText = text.substring(plingPos + 1);
-        }
-
-        if (Table.isStructuredReference.matcher(refText).matches()) {
-            // The argument is structured reference
-            Area3DPxg areaPtg = null;
-            try {
-                areaPtg = FormulaParser.parseStructuredReference(refText, (FormulaParsingWorkbook) ec.getWorkbook(), ec.getRowIndex());
-            } catch (FormulaParseException e) {
-                return ErrorEval.REF_INVALID;
-            }
-            return ec.getArea3DEval(areaPtg);
-        } else {
-            // The argument is regular reference
-            String refStrPart1;
-            String refStrPart2;
-            int colonPos = refText.indexOf(':');
-            if (colonPos < 0) {
-                 refStrPart1 = refText.trim();
-                 refStrPart2 = null;            
-            } else {
-                refStrPart1 = refText.substring(0, colonPos).trim();
-                refStrPart2 = refText.substring(colonPos + 1).trim();
-            }
-            return ec.getDynamicReference(workbookName, sheetName, refStrPart1, refStrPart2, isA1style);
-        }
-    }
-
-    /**
-     * @return array of length 2: {workbookName, sheetName,}.  Second element will always be
-     * present.  First element may be null if sheetName is unqualified.
-     * Returns <code>null</code> if text cannot be parsed.
-     */
-    private static String[] parseWorkbookAndSheetName(CharSequence text) {
-        int lastIx = text.length() - 1;
-        if (lastIx < 0) {
-            return null;
-        }
-        if (canTrim(text)) {
-            return null;
-        }
-        char firstChar = text.charAt(0);
-        if (Character.isWhitespace(firstChar)) {
-            return null;
-        }
-        if (firstChar == '\'') {
-            // workbookName or sheetName needs quoting
-            // quotes go around both
-            if (text.charAt(lastIx) != '\'') {
-                return null;
-            }
-            firstChar = text.charAt(1);
-            if (Character.isWhitespace(firstChar)) {
-                return null;
-            }
-            String wbName;
-            int sheetStartPos;
-            if (firstChar == '[') {
-                int rbPos = text.toString().lastIndexOf(']');
-                if (rbPos < 0) {
-                    return null;
-                }
-                wbName = unescapeString(text.subSequence(2, rbPos));
-                if (wbName == null || canTrim(wbName)) {
-                    return null;
-                }
-                sheetStartPos = rbPos + 1;
-            } else {
-                wbName = null;
-                sheetStartPos = 1;
-            }
-
-            // else - just sheet name
-            String sheetName = unescapeString(text.subSequence(sheetStartPos, lastIx));
-            if (sheetName == null) { // note - when quoted, sheetName can
-                                     // start/end with whitespace
-                return null;
-            }
-            return new String[] { wbName, sheetName, };
-        }
-
-        if (firstChar == '[') {
-            int rbPos = text.toString().lastIndexOf(']');
-            if (rbPos < 0) {
-                return null;
-            }
-            CharSequence wbName = text.subSequence(1, rbPos);
-            if (canTrim(wbName)) {
-                return null;
-            }
-            CharSequence sheetName = text.subSequence(rbPos + 1, text.length());
-            if (canTrim(sheetName)) {
-                return null;
-            }
-            return new String[] { wbName.toString(), sheetName.toString(), };
-        }
-        // else - just sheet name
-        return new String[] { null, text.toString(), };
-    }
-
-    /**
-     * @return <code>null</code> if there is a syntax error in any escape sequence
-     * (the typical syntax error is a single quote character not followed by another).
-     */
-    private static String unescapeString(CharSequence text) {
-        int len = text.length();
-        StringBuilder sb = new StringBuilder(len);
-        int i = 0;
-        while (i < len) {
-            char ch = text.charAt(i);
-            if (ch == '\'') {
-                // every quote must be followed by another
-                i++;
-                if (i >= len) {
-                    return null;
-                }
-                ch = text.charAt(i);
-                if (ch != '\'') {
-                    return null;
-                }
-            }
-            sb.append(ch);
-            i++;
-        }
-        return sb.toString();
-    }
-
-    private static boolean canTrim(CharSequence text) {
-        int lastIx = text.length() - 1;
-        if (lastIx < 0) {
-            return false;
-        }
-        if (Character.isWhitespace(text.charAt(0))) {
-            return true;
-        }
-        if (Character.isWhitespace(text.charAt(lastIx))) {
-            return true;
-        }
-        return false;
+        // the parsed form of the text is cached, as INDIRECT is typically called with the same text many times
+        DynamicReference ref = DynamicReference.valueOf(text, isA1style, ec.getSpreadsheetVersion());
+        return ec.getDynamicReference(ref);
     }
 }
@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula.functions;
 
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -144,6 +145,11 @@ public abstract class MultiOperandNumericFunction implements Function {
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx=ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
+                AreaValueBlock block = isSubtotalCounted() ? AreaValueBlock.valueOf(ae, sIx) : null;
+                if (block != null) {
+                    collectValues(block, temp);
+                    continue;
+                }
                 int width = ae.getWidth();
                 int height = ae.getHeight();
                 for (int rrIx=0; rrIx<height; rrIx++) {
@@ -158,6 +164,11 @@ public abstract class MultiOperandNumericFunction implements Function {
         }
 		if (operand instanceof TwoDEval) {
 			TwoDEval ae = (TwoDEval) operand;
+			AreaValueBlock block = isSubtotalCounted() ? AreaValueBlock.valueOf(ae) : null;
+			if (block != null) {
+				collectValues(block, temp);
+				return;
+			}
 			int width = ae.getWidth();
 			int height = ae.getHeight();
 			for (int rrIx=0; rrIx<height; rrIx++) {
@@ -178,6 +189,35 @@ public abstract class MultiOperandNumericFunction implements Function {
 		}
 		collectValue(operand, false, temp);
 	}
+	/**
+	 * Collects the values of an area, same rules as {@link #collectValue(ValueEval, boolean, DoubleList)}
+	 * for values obtained via reference
+	 */
+	private void collectValues(AreaValueBlock block, DoubleList temp) throws EvaluationException {
+		int size = block.getSize();
+		for (int i = 0; i < size; i++) {
+			switch (block.getType(i)) {
+				case AreaValueBlock.NUMBER:
+					temp.add(block.getNumber(i));
+					break;
+				case AreaValueBlock.BOOLEAN:
+					if (_isReferenceBoolCounted) {
+						temp.add(block.getNumber(i));
+					}
+					break;
+				case AreaValueBlock.STRING:
+					// ignore all ref strings
+					break;
+				case AreaValueBlock.ERROR:
+					throw new EvaluationException(block.getError(i));
+				case AreaValueBlock.BLANK:
+					if (_isBlankCounted) {
+						temp.add(0.0);
+					}
+					break;
+			}
+		}
+	}
 	private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp)  throws EvaluationException {
 		if (ve == null) {
 			throw new IllegalArgumentException("ve must not be null");
@@ -19,6 +19,7 @@ package org.apache.poi.ss.formula.functions;
 
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
@@ -148,12 +149,36 @@ public final class Sumproduct implements Function {
 			return ErrorEval.VALUE_INVALID;
 		}
 
+		if (!AreaValueBlock.isValidSize(height, width)) {
+			// too large to be read in one pass
+			return evaluateLargeAreaSumProduct(args, height, width);
+		}
+		AreaValueBlock[] blocks = new AreaValueBlock[maxN];
+		for(int n=0; n<maxN; n++) {
+			blocks[n] = AreaValueBlock.valueOf(args[n]);
+		}
+		double acc = 0;
+
+		int size = height * width;
+		for (int i=0; i<size; i++) {
+			double term = 1D;
+			for(int n=0; n<maxN; n++) {
+				double val = getProductTerm(blocks[n], i);
+				term *= val;
+			}
+			acc += term;
+		}
+
+		return new NumberEval(acc);
+	}
+
+	private static ValueEval evaluateLargeAreaSumProduct(TwoDEval[] args, int height, int width) throws EvaluationException {
 		double acc = 0;
 
 		for (int rrIx=0; rrIx<height; rrIx++) {
 			for (int rcIx=0; rcIx<width; rcIx++) {
 				double term = 1D;
-				for(int n=0; n<maxN; n++) {
+				for(int n=0; n<args.length; n++) {
 					double val = getProductTerm(args[n].getValue(rrIx, rcIx), false);
 					term *= val;
 				}
@@ -164,6 +189,21 @@ public final class Sumproduct implements Function {
 		return new NumberEval(acc);
 	}
 
+	/**
+	 * Same as {@link #getProductTerm(ValueEval, boolean)} for area (sum)products
+	 */
+	private static double getProductTerm(AreaValueBlock block, int index) throws EvaluationException {
+		switch (block.getType(index)) {
+			case AreaValueBlock.NUMBER:
+			case AreaValueBlock.BOOLEAN:
+				return block.getNumber(index);
+			case AreaValueBlock.ERROR:
+				throw new EvaluationException(block.getError(index));
+		}
+		// blanks and strings are interpreted as zero
+		return 0;
+	}
+
 	private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
 		int height = areaEval.getHeight();
 		int width = areaEval.getWidth();
@@ -18,6 +18,7 @@
 package org.apache.poi.ss.formula.functions;
 
 import org.apache.poi.ss.formula.eval.*;
+import org.apache.poi.ss.usermodel.ConcurrentDataFormatter;
 import org.apache.poi.ss.usermodel.DataFormatter;
 
 import java.util.Locale;
@@ -29,6 +30,8 @@ import java.util.Locale;
  */
 public abstract class TextFunction implements Function {
 	protected static final DataFormatter formatter = new DataFormatter();
+	/** used by TEXT, shared by all evaluators, which may run in different threads */
+	private static final ConcurrentDataFormatter concurrentFormatter = new ConcurrentDataFormatter();
 
 	protected static String evaluateStringArg(ValueEval eval, int srcRow, int srcCol) throws EvaluationException {
 		ValueEval ve = OperandResolver.getSingleValue(eval, srcRow, srcCol);
@@ -317,7 +320,7 @@ public abstract class TextFunction implements Function {
 			
 			try {
             // Ask DataFormatter to handle the String for us
-			   String formattedStr = formatter.formatRawCellContents(s0, -1, s1);
+			   String formattedStr = concurrentFormatter.formatRawCellContents(s0, -1, s1);
 				return new StringEval(formattedStr);
 			} catch (Exception e) {
 				return ErrorEval.VALUE_INVALID;
@@ -0,0 +1,189 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.usermodel;
+
+import java.text.Format;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.poi.util.LocaleUtil;
+
+/**
+ * An immutable variant of {@link DataFormatter} which can be shared by any number of threads,
+ * e.g. by the workers of a parallel text extraction.<p/>
+ *
+ * The locale, the CSV emulation and any custom formats are fixed when the formatter is created.
+ * Each thread formats with its own {@link DataFormatter}, created on first use, so formatting
+ * never waits for a lock. The parsed formats themselves are shared by all threads through the
+ * concurrent format cache of {@link DataFormatter}, so every format string is only parsed once
+ * for each locale.<p/>
+ *
+ * The cells passed to the formatter must not be modified by other threads while being formatted.
+ */
+public final class ConcurrentDataFormatter {
+
+    /** the locale used for formatting, <code>null</code> to follow {@link LocaleUtil#getUserLocale()} */
+    private final Locale locale;
+
+    private final boolean emulateCSV;
+
+    /** custom formats, keyed by format string, which are cloned for every thread */
+    private final Map<String,Format> customFormats;
+
+    private final ThreadLocal<DataFormatter> formatters = new ThreadLocal<DataFormatter>() {
+        @Override
+        protected DataFormatter initialValue() {
+            return createFormatter();
+        }
+    };
+
+    /**
+     * Creates a formatter using the {@link LocaleUtil#getUserLocale() user locale} of the
+     * formatting thread.
+     */
+    public ConcurrentDataFormatter() {
+        this(false);
+    }
+
+    /**
+     * Creates a formatter using the {@link LocaleUtil#getUserLocale() user locale} of the
+     * formatting thread.
+     *
+     * @param emulateCSV whether to emulate CSV output.
+     */
+    public ConcurrentDataFormatter(boolean emulateCSV) {
+        this(null, emulateCSV, null);
+    }
+
+    /**
+     * Creates a formatter using the given locale.
+     */
+    public ConcurrentDataFormatter(Locale locale) {
+        this(locale, false);
+    }
+
+    /**
+     * Creates a formatter using the given locale.
+     *
+     * @param emulateCSV whether to emulate CSV output.
+     */
+    public ConcurrentDataFormatter(Locale locale, boolean emulateCSV) {
+        this(locale, emulateCSV, null);
+    }
+
+    /**
+     * Creates a formatter using the given locale and custom formats.
+     *
+     * @param locale the locale, <code>null</code> for the user locale of the formatting thread
+     * @param emulateCSV whether to emulate CSV output.
+     * @param customFormats formats to use instead of the built-in ones, keyed by data format
+     *  string (see {@link DataFormatter#addFormat(String, Format)}). The formats are cloned for
+     *  every thread, later changes of the map or the formats are not picked up.
+     */
+    public ConcurrentDataFormatter(Locale locale, boolean emulateCSV, Map<String,? extends Format> customFormats) {
+        this.locale = locale;
+        this.emulateCSV = emulateCSV;
+        if (customFormats == null || customFormats.isEmpty()) {
+            this.customFormats = Collections.emptyMap();
+        } else {
+            Map<String,Format> formats = new LinkedHashMap<String,Format>();
+            for (Map.Entry<String,? extends Format> entry : customFormats.entrySet()) {
+                formats.put(entry.getKey(), (Format) entry.getValue().clone());
+            }
+            this.customFormats = formats;
+        }
+    }
+
+    private DataFormatter createFormatter() {
+        DataFormatter formatter;
+        if (locale == null) {
+            formatter = new DataFormatter(emulateCSV);
+        } else {
+            formatter = new DataFormatter(locale, emulateCSV);
+        }
+        for (Map.Entry<String,Format> entry : customFormats.entrySet()) {
+            // the prototypes are never used for formatting, so they are only read while cloning
+            formatter.addFormat(entry.getKey(), (Format) entry.getValue().clone());
+        }
+        return formatter;
+    }
+
+    /**
+     * @return the locale used for formatting, <code>null</code> if the formatter uses the user
+     *  locale of the formatting thread
+     */
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return whether CSV output is emulated
+     */
+    public boolean isEmulateCSV() {
+        return emulateCSV;
+    }
+
+    /**
+     * @return the formatter used by the calling thread, which must not be modified or passed
+     *  to other threads
+     */
+    private DataFormatter getFormatter() {
+        return formatters.get();
+    }
+
+    /**
+     * @see DataFormatter#formatRawCellContents(double, int, String)
+     */
+    public String formatRawCellContents(double value, int formatIndex, String formatString) {
+        return getFormatter().formatRawCellContents(value, formatIndex, formatString);
+    }
+
+    /**
+     * @see DataFormatter#formatRawCellContents(double, int, String, boolean)
+     */
+    public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+        return getFormatter().formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+    }
+
+    /**
+     * @see DataFormatter#formatCellValue(Cell)
+     */
+    public String formatCellValue(Cell cell) {
+        return getFormatter().formatCellValue(cell);
+    }
+
+    /**
+     * @param evaluator the evaluator of the formula cells, which must not be used by other
+     *  threads at the same time
+     * @see DataFormatter#formatCellValue(Cell, FormulaEvaluator)
+     */
+    public String formatCellValue(Cell cell, FormulaEvaluator evaluator) {
+        return getFormatter().formatCellValue(cell, evaluator);
+    }
+
+    /**
+     * @param evaluator the evaluator of the formula cells, which must not be used by other
+     *  threads at the same time
+     * @see DataFormatter#formatCellValue(Cell, FormulaEvaluator, StringBuilder)
+     */
+    public void formatCellValue(Cell cell, FormulaEvaluator evaluator, StringBuilder sb) {
+        getFormatter().formatCellValue(cell, evaluator, sb);
+    }
+}
@@ -31,8 +31,10 @@ import java.text.Format;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -200,6 +202,25 @@ public class DataFormatter implements Observer {
      */
     private final Map<String,Format> formats = new HashMap<String,Format>();
 
+    /**
+     * The maximum number of entries of {@link #sharedFormats}
+     */
+    private static final int MAX_SHARED_FORMATS = 1000;
+
+    /**
+     * Formats built from format strings, shared by all instances to skip the parsing of format
+     * strings already seen by another instance. The formats are never used themselves, as they
+     * are not thread-safe, each instance uses its own clone. Keyed by {@link #getSharedFormatKey},
+     * the least recently used format is dropped when the map is full.
+     */
+    @SuppressWarnings("serial")
+    private static final Map<String,Format> sharedFormats = Collections.synchronizedMap(
+            new LinkedHashMap<String,Format>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<String,Format> eldest) {
+                    return size() > MAX_SHARED_FORMATS;
+                }
+            });
+
     private final boolean emulateCSV;
 
     /** stores the locale valid it the last formatting call */
@@ -354,11 +375,43 @@ public class DataFormatter implements Observer {
         }
         
         // Build a formatter, and cache it
-        format = createFormat(cellValue, formatIndex, formatStr);
+        format = getSharedFormat(cellValue, formatIndex, formatStr);
         formats.put(formatStr, format);
         return format;
     }
 
+    /**
+     * Returns a copy of the format built for the same format string by any instance, or
+     * creates it and shares a copy when it does not depend on the settings of this instance.
+     */
+    private Format getSharedFormat(double cellValue, int formatIndex, String formatStr) {
+        String key = getSharedFormatKey(cellValue, formatIndex, formatStr);
+        Format prototype = sharedFormats.get(key);
+        if (prototype != null) {
+            return (Format) prototype.clone();
+        }
+        Format format = createFormat(cellValue, formatIndex, formatStr);
+        if (format != null && format != generalNumberFormat && format != defaultNumFormat) {
+            sharedFormats.put(key, (Format) format.clone());
+        }
+        return format;
+    }
+
+    /**
+     * The format created by {@link #createFormat(double, int, String)} depends on the value
+     * only by its validity as a date, and on the index only for built-in date formats.
+     */
+    private String getSharedFormatKey(double cellValue, int formatIndex, String formatStr) {
+        StringBuilder sb = new StringBuilder(formatStr.length() + 48);
+        sb.append(locale).append('|');
+        sb.append(LocaleUtil.getUserTimeZone().getID()).append('|');
+        sb.append(emulateCSV ? 'c' : '-');
+        sb.append(DateUtil.isInternalDateFormat(formatIndex) ? 'd' : '-');
+        sb.append(DateUtil.isValidExcelDate(cellValue) ? 'v' : '-');
+        sb.append('|').append(formatStr);
+        return sb.toString();
+    }
+
     /**
      * Create and return a Format based on the format string from a  cell's
      * style. If the pattern cannot be parsed, return a default pattern.
@@ -757,23 +810,45 @@ public class DataFormatter implements Observer {
     }
 
     /**
-     * Returns the formatted value of an Excel number as a <tt>String</tt>
+     * Appends the formatted value of an Excel number
      * based on the cell's <code>DataFormat</code>. Supported formats include
      * currency, percents, decimals, phone number, SSN, etc.:
      * "61.54%", "$100.00", "(800) 555-1234".
      *
      * @param cell The cell
-     * @return a formatted number string
+     * @param sb the builder to append the formatted number to
      */
-    private String getFormattedNumberString(Cell cell) {
-
+    private void appendFormattedNumber(Cell cell, StringBuilder sb) {
         Format numberFormat = getFormat(cell);
         double d = cell.getNumericCellValue();
         if (numberFormat == null) {
-            return String.valueOf(d);
+            sb.append(d);
+            return;
         }
         String formatted = numberFormat.format(new Double(d));
-        return formatted.replaceFirst("E(\\d)", "E+$1"); // to match Excel's E-notation
+        int exponentEnd = getExponentEnd(formatted);
+        if (exponentEnd < 0) {
+            sb.append(formatted);
+        } else {
+            sb.append(formatted, 0, exponentEnd).append('+').append(formatted, exponentEnd, formatted.length());
+        }
+    }
+
+    /**
+     * Java writes positive exponents without sign, unlike Excel (1.2E3 vs 1.2E+3)
+     *
+     * @return the index after the first <tt>E</tt> which is followed by a digit, -1 if there is none
+     */
+    private static int getExponentEnd(String formatted) {
+        int i = formatted.indexOf('E');
+        while (i >= 0 && i < formatted.length() - 1) {
+            char c = formatted.charAt(i + 1);
+            if (c >= '0' && c <= '9') {
+                return i + 1;
+            }
+            i = formatted.indexOf('E', i + 1);
+        }
+        return -1;
     }
 
     /**
@@ -870,36 +945,56 @@ public class DataFormatter implements Observer {
      * @return a string value of the cell
      */
     public String formatCellValue(Cell cell, FormulaEvaluator evaluator) {
+        StringBuilder sb = new StringBuilder();
+        formatCellValue(cell, evaluator, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the formatted value of a cell to the given <tt>StringBuilder</tt>, as returned by
+     * {@link #formatCellValue(Cell, FormulaEvaluator)}. Reusing one <tt>StringBuilder</tt>
+     * avoids creating a <tt>String</tt> for every cell when extracting many cells, e.g. as text
+     * or CSV.
+     *
+     * @param cell The cell (can be null)
+     * @param evaluator The FormulaEvaluator (can be null)
+     * @param sb the builder to append the value to
+     */
+    @SuppressWarnings("deprecation")
+    public void formatCellValue(Cell cell, FormulaEvaluator evaluator, StringBuilder sb) {
         localeChangedObservable.checkForLocaleChange();
-        
+
         if (cell == null) {
-            return "";
+            return;
         }
 
         CellType cellType = cell.getCellTypeEnum();
         if (cellType == CellType.FORMULA) {
             if (evaluator == null) {
-                return cell.getCellFormula();
+                sb.append(cell.getCellFormula());
+                return;
             }
             cellType = evaluator.evaluateFormulaCellEnum(cell);
         }
         switch (cellType) {
             case NUMERIC :
-
                 if (DateUtil.isCellDateFormatted(cell)) {
-                    return getFormattedDateString(cell);
+                    sb.append(getFormattedDateString(cell));
+                } else {
+                    appendFormattedNumber(cell, sb);
                 }
-                return getFormattedNumberString(cell);
-
+                break;
             case STRING :
-                return cell.getRichStringCellValue().getString();
-
+                sb.append(cell.getRichStringCellValue().getString());
+                break;
             case BOOLEAN :
-                return cell.getBooleanCellValue() ? "TRUE" : "FALSE";
+                sb.append(cell.getBooleanCellValue() ? "TRUE" : "FALSE");
+                break;
             case BLANK :
-                return "";
+                break;
             case ERROR:
-                return FormulaError.forInt(cell.getErrorCellValue()).getString();
+                sb.append(FormulaError.forInt(cell.getErrorCellValue()).getString());
+                break;
             default:
                 throw new RuntimeException("Unexpected celltype (" + cellType + ")");
         }
@@ -20,7 +20,11 @@ package org.apache.poi.ss.usermodel;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import org.apache.poi.util.LocaleUtil;
@@ -43,6 +47,13 @@ public class DateUtil {
 
     private static final Pattern TIME_SEPARATOR_PATTERN = Pattern.compile(":");
 
+    /** 1900-01-01 and 1904-01-01 in days since 1970-01-01 */
+    private static final int EPOCH_DAY_1900 = -25567;
+    private static final int EPOCH_DAY_1904 = -24107;
+
+    /** Whether the calendars of a locale are Gregorian, see {@link #isGregorian(Locale)} */
+    private static final ConcurrentMap<Locale, Boolean> gregorianLocales = new ConcurrentHashMap<Locale, Boolean>();
+
     /**
      * The following patterns are used in {@link #isADateFormat(int, String)}
      */
@@ -194,8 +205,61 @@ public class DateUtil {
      *  @return Java representation of the date, or null if date is not a valid Excel date
      */
     public static Date getJavaDate(double date, boolean use1904windowing, TimeZone tz, boolean roundSeconds) {
-        Calendar calendar = getJavaCalendar(date, use1904windowing, tz, roundSeconds);
-        return calendar == null ? null : calendar.getTime();
+        if (!isValidExcelDate(date)) {
+            return null;
+        }
+        TimeZone timeZone = tz != null ? tz : LocaleUtil.getUserTimeZone();
+        if (isGregorian(LocaleUtil.getUserLocale())) {
+            int wholeDays = (int)Math.floor(date);
+            int millisecondsInDay = (int)((date - wholeDays) * DAY_MILLISECONDS + 0.5);
+            long localMillis = getLocalMillis(wholeDays, millisecondsInDay, use1904windowing, roundSeconds);
+            // the time zone offset is only used directly if it doesn't change around the date,
+            // otherwise Calendar decides how to handle the local time
+            int offset = timeZone.getOffset(localMillis - DAY_MILLISECONDS);
+            if (offset == timeZone.getOffset(localMillis + DAY_MILLISECONDS)
+                    && offset == timeZone.getOffset(localMillis - offset)) {
+                return new Date(localMillis - offset);
+            }
+        }
+        Calendar calendar = getJavaCalendar(date, use1904windowing, timeZone, roundSeconds);
+        return calendar.getTime();
+    }
+
+    /**
+     * @return the local date and time of {@link #setCalendar(Calendar, int, int, boolean, boolean)}
+     *  in milliseconds since 1970-01-01 00:00, as if in UTC
+     */
+    private static long getLocalMillis(int wholeDays, int millisecondsInDay, boolean use1904windowing, boolean roundSeconds) {
+        int epochDay;
+        if (use1904windowing) {
+            // 1904 date windowing uses 1/2/1904 as the first day
+            epochDay = EPOCH_DAY_1904 + wholeDays;
+        } else if (wholeDays < 61) {
+            // Date is prior to 3/1/1900, so adjust because Excel thinks 2/29/1900 exists
+            epochDay = EPOCH_DAY_1900 + wholeDays - 1;
+        } else {
+            epochDay = EPOCH_DAY_1900 + wholeDays - 2;
+        }
+        long millis = epochDay * DAY_MILLISECONDS + millisecondsInDay;
+        if (roundSeconds) {
+            millis += 500;
+            millis -= ((millis % 1000) + 1000) % 1000;
+        }
+        return millis;
+    }
+
+    /**
+     * @return <code>true</code> if calendars of the locale are plain {@link GregorianCalendar}s,
+     *  and not e.g. Buddhist or Japanese imperial calendars with different years
+     */
+    private static boolean isGregorian(Locale locale) {
+        Boolean result = gregorianLocales.get(locale);
+        if (result == null) {
+            Calendar calendar = Calendar.getInstance(LocaleUtil.TIMEZONE_UTC, locale);
+            result = calendar.getClass() == GregorianCalendar.class;
+            gregorianLocales.put(locale, result);
+        }
+        return result;
     }
     
     /**
@@ -319,29 +383,17 @@ public class DateUtil {
         return calendar;
     }
 
-    // variables for performance optimization:
-    // avoid re-checking DataUtil.isADateFormat(int, String) if a given format
-    // string represents a date format if the same string is passed multiple times.
-    // see https://issues.apache.org/bugzilla/show_bug.cgi?id=55611
-    private static ThreadLocal<Integer> lastFormatIndex = new ThreadLocal<Integer>() {
-        protected Integer initialValue() {
-            return -1;
-        }
-    };
-    private static ThreadLocal<String> lastFormatString = new ThreadLocal<String>();
-    private static ThreadLocal<Boolean> lastCachedResult = new ThreadLocal<Boolean>();
-    
-    private static boolean isCached(String formatString, int formatIndex) {
-        String cachedFormatString = lastFormatString.get();
-        return cachedFormatString != null && formatIndex == lastFormatIndex.get()
-                && formatString.equals(cachedFormatString);
-    }
+    /**
+     * The maximum number of entries of {@link #dateFormats}
+     */
+    private static final int MAX_CACHED_DATE_FORMATS = 1000;
 
-    private static void cache(String formatString, int formatIndex, boolean cached) {
-        lastFormatIndex.set(formatIndex);
-        lastFormatString.set(formatString);
-        lastCachedResult.set(Boolean.valueOf(cached));
-    }
+    /**
+     * Whether a format string is a date format, shared by all threads to avoid re-checking
+     * format strings which have been classified before, see
+     * https://issues.apache.org/bugzilla/show_bug.cgi?id=55611
+     */
+    private static final ConcurrentMap<String, Boolean> dateFormats = new ConcurrentHashMap<String, Boolean>();
 
     /**
      * Given a format ID and its format String, will check to see if the
@@ -360,7 +412,6 @@ public class DateUtil {
     public static boolean isADateFormat(int formatIndex, String formatString) {
         // First up, is this an internal date format?
         if(isInternalDateFormat(formatIndex)) {
-            cache(formatString, formatIndex, true);
             return true;
         }
 
@@ -369,11 +420,20 @@ public class DateUtil {
             return false;
         }
 
-        // check the cache first
-        if (isCached(formatString, formatIndex)) {
-            return lastCachedResult.get();
+        // check the cache first, the result only depends on the format string
+        Boolean cached = dateFormats.get(formatString);
+        if (cached != null) {
+            return cached;
         }
+        boolean result = isADateFormatString(formatString);
+        if (dateFormats.size() >= MAX_CACHED_DATE_FORMATS) {
+            dateFormats.clear();
+        }
+        dateFormats.put(formatString, result);
+        return result;
+    }
 
+    private static boolean isADateFormatString(String formatString) {
         String fs = formatString;
         /*if (false) {
             // Normalize the format string. The code below is equivalent
@@ -423,7 +483,6 @@ public class DateUtil {
 
         // short-circuit if it indicates elapsed time: [h], [m] or [s]
         if(date_ptrn4.matcher(fs).matches()){
-            cache(formatString, formatIndex, true);
             return true;
         }
 
@@ -451,9 +510,7 @@ public class DateUtil {
         //  y m d h s - \ / , . : [ ] T
         // optionally followed by AM/PM
 
-        boolean result = date_ptrn3b.matcher(fs).matches();
-        cache(formatString, formatIndex, result);
-        return result;
+        return date_ptrn3b.matcher(fs).matches();
     }
 
     /**
@@ -43,26 +43,34 @@ public class ExcelStyleDateFormatter extends SimpleDateFormat {
     public static final char L_BRACKET_SYMBOL = '\ue016';
     public static final char LL_BRACKET_SYMBOL = '\ue017';
 
-    private static final DecimalFormat format1digit;
-    private static final DecimalFormat format2digits;
-
-    private static final DecimalFormat format3digit;
-    private static final DecimalFormat format4digits;
+    // the prototypes of the formats below, which are only cloned
+    private static final DecimalFormat FORMAT_1_DIGIT;
+    private static final DecimalFormat FORMAT_2_DIGITS;
+    private static final DecimalFormat FORMAT_3_DIGIT;
+    private static final DecimalFormat FORMAT_4_DIGITS;
 
     static {
         DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(Locale.ROOT);
-        format1digit = new DecimalFormat("0", dfs);
-        format2digits = new DecimalFormat("00", dfs);
-        format3digit = new DecimalFormat("0", dfs);
-        format4digits = new DecimalFormat("00", dfs);
-        DataFormatter.setExcelStyleRoundingMode(format1digit, RoundingMode.DOWN);
-        DataFormatter.setExcelStyleRoundingMode(format2digits, RoundingMode.DOWN);
-        DataFormatter.setExcelStyleRoundingMode(format3digit);
-        DataFormatter.setExcelStyleRoundingMode(format4digits);
+        FORMAT_1_DIGIT = new DecimalFormat("0", dfs);
+        FORMAT_2_DIGITS = new DecimalFormat("00", dfs);
+        FORMAT_3_DIGIT = new DecimalFormat("0", dfs);
+        FORMAT_4_DIGITS = new DecimalFormat("00", dfs);
+        DataFormatter.setExcelStyleRoundingMode(FORMAT_1_DIGIT, RoundingMode.DOWN);
+        DataFormatter.setExcelStyleRoundingMode(FORMAT_2_DIGITS, RoundingMode.DOWN);
+        DataFormatter.setExcelStyleRoundingMode(FORMAT_3_DIGIT);
+        DataFormatter.setExcelStyleRoundingMode(FORMAT_4_DIGITS);
     }
-    
+
+    // each instance has its own formats, as DecimalFormat isn't thread-safe
+    private DecimalFormat format1digit;
+    private DecimalFormat format2digits;
+
+    private DecimalFormat format3digit;
+    private DecimalFormat format4digits;
+
     {
         setTimeZone(LocaleUtil.getUserTimeZone());
+        initDigitFormats();
     }
 
     private double dateToBeFormatted = 0.0;
@@ -82,6 +90,13 @@ public class ExcelStyleDateFormatter extends SimpleDateFormat {
         super(processFormatPattern(pattern), locale);
     }
 
+    private void initDigitFormats() {
+        format1digit = (DecimalFormat) FORMAT_1_DIGIT.clone();
+        format2digits = (DecimalFormat) FORMAT_2_DIGITS.clone();
+        format3digit = (DecimalFormat) FORMAT_3_DIGIT.clone();
+        format4digits = (DecimalFormat) FORMAT_4_DIGITS.clone();
+    }
+
     /**
      * Takes a format String, and replaces Excel specific bits
      * with our detection sequences
@@ -180,6 +195,13 @@ public class ExcelStyleDateFormatter extends SimpleDateFormat {
         return new StringBuffer(s);
     }
 
+    @Override
+    public Object clone() {
+        ExcelStyleDateFormatter result = (ExcelStyleDateFormatter) super.clone();
+        result.initDigitFormats();
+        return result;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ExcelStyleDateFormatter)) {
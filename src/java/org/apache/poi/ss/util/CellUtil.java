@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
@@ -105,6 +106,13 @@ public final class CellUtil {
     
 
 
+    /**
+     * The style indexes of each workbook, keyed by the format properties of the style.
+     * Access is synchronized on the map.
+     */
+    private static final Map<Workbook, Map<Map<String, Object>, Integer>> styleIndexes =
+            new WeakHashMap<Workbook, Map<Map<String, Object>, Integer>>();
+
     private static UnicodeMapping unicodeMappings[];
 
     private static final class UnicodeMapping {
@@ -318,28 +326,59 @@ public final class CellUtil {
         Map<String, Object> values = getFormatProperties(originalStyle);
         putAll(properties, values);
 
-        // index seems like what index the cellstyle is in the list of styles for a workbook.
-        // not good to compare on!
+        synchronized (styleIndexes) {
+            Map<Map<String, Object>, Integer> styleIndex = styleIndexes.get(workbook);
+            if (styleIndex == null) {
+                styleIndex = new HashMap<Map<String, Object>, Integer>();
+                styleIndexes.put(workbook, styleIndex);
+            }
+            newStyle = findCellStyle(workbook, styleIndex, values);
+
+            // the desired style does not exist in the workbook. Create a new style with desired properties.
+            if (newStyle == null) {
+                newStyle = workbook.createCellStyle();
+                setFormatProperties(newStyle, workbook, values);
+                styleIndex.put(values, Integer.valueOf(newStyle.getIndex() & 0xFFFF));
+            }
+        }
+
+        cell.setCellStyle(newStyle);
+    }
+
+    /**
+     * Finds the first style of the workbook with the given format properties. Styles can be
+     * modified after they were indexed, so an indexed style is checked against the properties,
+     * and the index is rebuilt from all styles of the workbook if no matching style is found.
+     *
+     * @return the matching style, or <code>null</code> if the workbook does not contain one
+     */
+    private static CellStyle findCellStyle(Workbook workbook, Map<Map<String, Object>, Integer> styleIndex,
+            Map<String, Object> values) {
         int numberCellStyles = workbook.getNumCellStyles();
+        Integer indexed = styleIndex.get(values);
+        if (indexed != null && indexed.intValue() < numberCellStyles) {
+            CellStyle wbStyle = workbook.getCellStyleAt(indexed.intValue());
+            if (getFormatProperties(wbStyle).equals(values)) {
+                return wbStyle;
+            }
+        }
 
+        // index seems like what index the cellstyle is in the list of styles for a workbook.
+        // not good to compare on!
+        styleIndex.clear();
+        CellStyle result = null;
         for (int i = 0; i < numberCellStyles; i++) {
             CellStyle wbStyle = workbook.getCellStyleAt(i);
             Map<String, Object> wbStyleMap = getFormatProperties(wbStyle);
-
-            // the desired style already exists in the workbook. Use the existing style.
-            if (wbStyleMap.equals(values)) {
-                newStyle = wbStyle;
-                break;
+            if (!styleIndex.containsKey(wbStyleMap)) {
+                styleIndex.put(wbStyleMap, Integer.valueOf(i));
+                // the desired style already exists in the workbook. Use the existing style.
+                if (result == null && wbStyleMap.equals(values)) {
+                    result = wbStyle;
+                }
             }
         }
-
-        // the desired style does not exist in the workbook. Create a new style with desired properties.
-        if (newStyle == null) {
-            newStyle = workbook.createCellStyle();
-            setFormatProperties(newStyle, workbook, values);
-        }
-
-        cell.setCellStyle(newStyle);
+        return result;
     }
 
     /**
@@ -0,0 +1,154 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Font;
+
+/**
+ * Finds the fonts of a workbook by the attributes compared by
+ * {@link org.apache.poi.ss.usermodel.Workbook#findFont(boolean, short, short, String, boolean, boolean, short, byte)},
+ * without comparing every font of the workbook on each call.<p/>
+ *
+ * Fonts can still be modified after they were indexed, so a font found in the index is
+ * checked against the requested attributes, and the index is rebuilt from the fonts of
+ * the workbook when no matching font is found. Only the first lookup of new attributes
+ * scans the fonts of the workbook.
+ *
+ * @param <F> the font type of the workbook
+ */
+public abstract class FontIndex<F extends Font> {
+
+    private final Map<Key,F> fonts = new HashMap<Key,F>();
+
+    /**
+     * @return the number of font indexes to scan, including unused ones
+     */
+    protected abstract int getFontIndexCount();
+
+    /**
+     * @return the font at the given index, or <code>null</code> if the index is not used
+     */
+    protected abstract F getFontAt(int index);
+
+    /**
+     * @return the first font of the workbook with the given attributes, or <code>null</code>
+     *  if there is no such font
+     */
+    public F findFont(boolean bold, short color, short fontHeight, String name,
+            boolean italic, boolean strikeout, short typeOffset, byte underline) {
+        Key key = new Key(bold, color, fontHeight, name, italic, strikeout, typeOffset, underline);
+        F font = fonts.get(key);
+        if (font != null && key.matches(font) && getFontAt(font.getIndex()) == font) {
+            return font;
+        }
+        rebuild();
+        return fonts.get(key);
+    }
+
+    /**
+     * Discards the indexed fonts, e.g. after fonts were removed from the workbook
+     */
+    public void clear() {
+        fonts.clear();
+    }
+
+    private void rebuild() {
+        fonts.clear();
+        int count = getFontIndexCount();
+        for (int i = 0; i < count; i++) {
+            F font = getFontAt(i);
+            if (font == null) {
+                continue;
+            }
+            Key key = new Key(font.getBold(), font.getColor(), font.getFontHeight(), font.getFontName(),
+                    font.getItalic(), font.getStrikeout(), font.getTypeOffset(), font.getUnderline());
+            // like a linear search, find the first matching font
+            if (!fonts.containsKey(key)) {
+                fonts.put(key, font);
+            }
+        }
+    }
+
+    private static final class Key {
+        private final boolean bold;
+        private final short color;
+        private final short fontHeight;
+        private final String name;
+        private final boolean italic;
+        private final boolean strikeout;
+        private final short typeOffset;
+        private final byte underline;
+
+        Key(boolean bold, short color, short fontHeight, String name,
+                boolean italic, boolean strikeout, short typeOffset, byte underline) {
+            this.bold = bold;
+            this.color = color;
+            this.fontHeight = fontHeight;
+            this.name = name;
+            this.italic = italic;
+            this.strikeout = strikeout;
+            this.typeOffset = typeOffset;
+            this.underline = underline;
+        }
+
+        boolean matches(Font font) {
+            return font.getBold() == bold
+                    && font.getColor() == color
+                    && font.getFontHeight() == fontHeight
+                    && equals(name, font.getFontName())
+                    && font.getItalic() == italic
+                    && font.getStrikeout() == strikeout
+                    && font.getTypeOffset() == typeOffset
+                    && font.getUnderline() == underline;
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (name == null ? 0 : name.hashCode());
+            result = 31 * result + fontHeight;
+            result = 31 * result + color;
+            result = 31 * result + typeOffset;
+            result = 31 * result + underline;
+            result = 31 * result + (bold ? 1 : 0) + (italic ? 2 : 0) + (strikeout ? 4 : 0);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return bold == other.bold
+                    && color == other.color
+                    && fontHeight == other.fontHeight
+                    && equals(name, other.name)
+                    && italic == other.italic
+                    && strikeout == other.strikeout
+                    && typeOffset == other.typeOffset
+                    && underline == other.underline;
+        }
+    }
+}
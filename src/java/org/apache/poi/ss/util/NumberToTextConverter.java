@@ -17,6 +17,9 @@
 
 package org.apache.poi.ss.util;
 
+import static org.apache.poi.ss.util.IEEEDouble.*;
+
+import java.math.BigInteger;
 
 /**
  * Excel converts numbers to text with different rules to those of java, so
@@ -114,6 +117,67 @@ public final class NumberToTextConverter {
 	private static final long EXCEL_NAN_BITS = 0xFFFF0420003C0000L;
 	private static final int MAX_TEXT_LEN = 20;
 
+	private static final long TEN_POW_14 = 100000000000000L;
+	private static final long TEN_POW_15 = 1000000000000000L;
+	private static final long LOW_32_BITS = 0xFFFFFFFFL;
+	/**
+	 * log<sub>10</sub>(2)&times;2<sup>20</sup>
+	 */
+	private static final int LOG_BASE_10_OF_2_TIMES_2_POW_20 = 315653;
+
+	/** results of {@link #roundTo15Digits(long, int, int)} other than digits */
+	private static final long AMBIGUOUS = -1;
+	private static final long TOO_SMALL = -2;
+	private static final long TOO_LARGE = -3;
+
+	/** 0.5 as the top 32 bits of a fractional part */
+	private static final long FRAC_HALF = 1L << 31;
+	/**
+	 * Fractional parts closer than 2<sup>-9</sup> to 0.5 are left to {@link NormalisedDecimal}.
+	 * Both conversions are accurate to about 2<sup>-12</sup>, so they could round differently.
+	 */
+	private static final long FRAC_UNCERTAINTY = 1L << 23;
+
+	/** the range of powers of ten needed for all finite doubles, NaN and Infinity */
+	private static final int MIN_POW10 = -300;
+	private static final int MAX_POW10 = 330;
+	/**
+	 * 10<sup>n</sup> = significand &times; 2<sup>exponent</sup>, the significands are unsigned
+	 * 64 bit numbers with the top bit set, rounded to nearest
+	 */
+	private static final long[] POW10_SIGNIFICANDS = new long[MAX_POW10 - MIN_POW10 + 1];
+	private static final int[] POW10_EXPONENTS = new int[MAX_POW10 - MIN_POW10 + 1];
+	static {
+		for (int n = MIN_POW10; n <= MAX_POW10; n++) {
+			BigInteger pow = BigInteger.TEN.pow(Math.abs(n));
+			int exponent;
+			BigInteger significand;
+			if (n >= 0) {
+				exponent = pow.bitLength() - 64;
+				significand = shiftRounded(pow, exponent);
+			} else {
+				// 2^k / 10^-n with 64 bits
+				int k = 63 + pow.bitLength();
+				BigInteger q = BigInteger.ONE.shiftLeft(k + 1).divide(pow);
+				significand = q.add(BigInteger.ONE).shiftRight(1);
+				exponent = -k;
+			}
+			if (significand.bitLength() > 64) {
+				significand = significand.shiftRight(1);
+				exponent++;
+			}
+			POW10_SIGNIFICANDS[n - MIN_POW10] = significand.longValue();
+			POW10_EXPONENTS[n - MIN_POW10] = exponent;
+		}
+	}
+
+	private static BigInteger shiftRounded(BigInteger value, int shift) {
+		if (shift <= 0) {
+			return value.shiftLeft(-shift);
+		}
+		return value.shiftRight(shift - 1).add(BigInteger.ONE).shiftRight(1);
+	}
+
 	private NumberToTextConverter() {
 		// no instances of this class
 	}
@@ -129,6 +193,14 @@ public final class NumberToTextConverter {
 		return rawDoubleBitsToText(Double.doubleToLongBits(value));
 	}
 	/* package */ static String rawDoubleBitsToText(long pRawBits) {
+		return rawDoubleBitsToText(pRawBits, true);
+	}
+
+	/**
+	 * @param useFastPath <code>false</code> to always use the {@link NormalisedDecimal} based
+	 *  conversion, only for comparing both conversions in tests
+	 */
+	/* package */ static String rawDoubleBitsToText(long pRawBits, boolean useFastPath) {
 
 		long rawBits = pRawBits;
 		boolean isNegative = rawBits < 0; // sign bit is in the same place for long and double
@@ -138,13 +210,13 @@ public final class NumberToTextConverter {
 		if (rawBits == 0) {
 			return isNegative ? "-0" : "0";
 		}
-		ExpandedDouble ed = new ExpandedDouble(rawBits);
-		if (ed.getBinaryExponent() < -1022) {
+		int biasedExponent = getBiasedExponent(rawBits);
+		if (biasedExponent == 0) {
 			// value is 'denormalised' which means it is less than 2^-1022
 			// excel displays all these numbers as zero, even though calculations work OK
 			return isNegative ? "-0" : "0";
 		}
-		if (ed.getBinaryExponent() == 1024) {
+		if (biasedExponent == BIASED_EXPONENT_SPECIAL_VALUE) {
 			// Special number NaN /Infinity
 			// Normally one would not create HybridDecimal objects from these values
 			// except in these cases Excel really tries to render them as if they were normal numbers
@@ -156,14 +228,116 @@ public final class NumberToTextConverter {
 			// the standard rules below.
 			isNegative = false; // except that the sign bit is ignored
 		}
-		NormalisedDecimal nd = ed.normaliseBaseTen();
-		StringBuilder sb = new StringBuilder(MAX_TEXT_LEN+1);
+		StringBuilder sb = new StringBuilder(MAX_TEXT_LEN+2);
 		if (isNegative) {
 			sb.append('-');
 		}
-		convertToText(sb, nd);
+		if (!useFastPath || !convertToTextFast(sb, rawBits, biasedExponent)) {
+			NormalisedDecimal nd = new ExpandedDouble(rawBits).normaliseBaseTen();
+			convertToText(sb, nd);
+		}
 		return sb.toString();
 	}
+
+	/**
+	 * Converts the value with 64 bit fixed point arithmetic instead of {@link NormalisedDecimal}.
+	 * The result is the same, except for values which are too close to the middle between two
+	 * 15 digit numbers to tell the direction of rounding, those are left to {@link NormalisedDecimal}.
+	 *
+	 * @return <code>false</code> if the value could not be converted
+	 */
+	private static boolean convertToTextFast(StringBuilder sb, long rawBits, int biasedExponent) {
+		long significand = (rawBits & FRAC_MASK) | FRAC_ASSUMED_HIGH_BIT;
+		int binaryExponent = biasedExponent - EXPONENT_BIAS;
+		// the value is significand * 2^(binaryExponent - 52)
+		// estimate the decimal exponent as floor(binaryExponent * log10(2)), which is correct or one too small,
+		// or one off the other way when the value is within rounding error of a power of ten
+		int decExponent = (binaryExponent * LOG_BASE_10_OF_2_TIMES_2_POW_20) >> 20;
+		long digits = roundTo15Digits(significand, binaryExponent - 52, decExponent);
+		if (digits == TOO_LARGE) {
+			decExponent++;
+			digits = roundTo15Digits(significand, binaryExponent - 52, decExponent);
+		} else if (digits == TOO_SMALL) {
+			decExponent--;
+			digits = roundTo15Digits(significand, binaryExponent - 52, decExponent);
+		}
+		if (digits < 0) {
+			// ambiguous, or too close to a power of ten to choose the decimal exponent
+			return false;
+		}
+		if (digits == TEN_POW_15) {
+			// rounding caused carry
+			digits = TEN_POW_14;
+			decExponent++;
+		}
+		if (Math.abs(decExponent)>98) {
+			// Excel rounds the last digit of very large and very small numbers once more
+			digits = (digits + 5) / 10 * 10;
+			if (digits == TEN_POW_15) {
+				digits = TEN_POW_14;
+				decExponent++;
+			}
+		}
+		char[] decimalDigits = new char[15];
+		for (int i = decimalDigits.length - 1; i >= 0; i--) {
+			decimalDigits[i] = (char) ('0' + digits % 10);
+			digits /= 10;
+		}
+		appendText(sb, decimalDigits, decExponent);
+		return true;
+	}
+
+	/**
+	 * Computes <tt>significand &times; 2<sup>binaryExponent</sup> &times; 10<sup>14-decExponent</sup></tt>
+	 * rounded (half up) to a whole number.
+	 *
+	 * @return the rounded value, which is between 10<sup>14</sup> and 10<sup>15</sup> inclusive,
+	 * or {@link #TOO_SMALL}, {@link #TOO_LARGE} if the unrounded value is outside
+	 * [10<sup>14</sup>, 10<sup>15</sup>), or {@link #AMBIGUOUS} if it is too close to <tt>x.5</tt>
+	 */
+	private static long roundTo15Digits(long significand, int binaryExponent, int decExponent) {
+		int pow10 = 14 - decExponent;
+		if (pow10 < MIN_POW10 || pow10 > MAX_POW10) {
+			return AMBIGUOUS;
+		}
+		long multiplicand = POW10_SIGNIFICANDS[pow10 - MIN_POW10];
+		int shift = -(binaryExponent + POW10_EXPONENTS[pow10 - MIN_POW10]);
+
+		// 128 bit product of the 53 bit significand and the unsigned 64 bit multiplicand
+		long sLo = significand & LOW_32_BITS;
+		long sHi = significand >>> 32;
+		long mLo = multiplicand & LOW_32_BITS;
+		long mHi = multiplicand >>> 32;
+		long ll = sLo * mLo;
+		long lh = sLo * mHi;
+		long hl = sHi * mLo;
+		long mid = (ll >>> 32) + (lh & LOW_32_BITS) + (hl & LOW_32_BITS);
+		long productLo = (mid << 32) | (ll & LOW_32_BITS);
+		long productHi = sHi * mHi + (lh >>> 32) + (hl >>> 32) + (mid >>> 32);
+
+		// the product has 116 or 117 bits, a whole part of 47-50 bits is at least 64 bits shifted
+		if (shift < 64) {
+			return TOO_LARGE;
+		}
+		if (shift > 95) {
+			return TOO_SMALL;
+		}
+		int highShift = shift - 64;
+		long wholePart = productHi >>> highShift;
+		if (wholePart < TEN_POW_14) {
+			return TOO_SMALL;
+		}
+		if (wholePart >= TEN_POW_15) {
+			return TOO_LARGE;
+		}
+		// top 32 bits of the fractional part
+		long fractionalPart = ((productHi << (32 - highShift)) | (productLo >>> (32 + highShift))) & LOW_32_BITS;
+		if (Math.abs(fractionalPart - FRAC_HALF) <= FRAC_UNCERTAINTY) {
+			return AMBIGUOUS;
+		}
+		return fractionalPart > FRAC_HALF ? wholePart + 1 : wholePart;
+	}
+
 	private static void convertToText(StringBuilder sb, NormalisedDecimal pnd) {
 		NormalisedDecimal rnd = pnd.roundUnits();
 		int decExponent = rnd.getDecimalExponent();
@@ -177,6 +351,10 @@ public final class NumberToTextConverter {
 		} else {
 			decimalDigits = rnd.getSignificantDecimalDigits();
 		}
+		appendText(sb, decimalDigits.toCharArray(), decExponent);
+	}
+
+	private static void appendText(StringBuilder sb, char[] decimalDigits, int decExponent) {
 		int countSigDigits = countSignifantDigits(decimalDigits);
 		if (decExponent < 0) {
 			formatLessThanOne(sb, decimalDigits, decExponent, countSigDigits);
@@ -185,16 +363,16 @@ public final class NumberToTextConverter {
 		}
 	}
 
-	private static void formatLessThanOne(StringBuilder sb, String decimalDigits, int decExponent,
+	private static void formatLessThanOne(StringBuilder sb, char[] decimalDigits, int decExponent,
 			int countSigDigits) {
 		int nLeadingZeros = -decExponent - 1;
 		int normalLength = 2 + nLeadingZeros + countSigDigits; // 2 == "0.".length()
 
 		if (needsScientificNotation(normalLength)) {
-			sb.append(decimalDigits.charAt(0));
+			sb.append(decimalDigits[0]);
 			if (countSigDigits > 1) {
     			sb.append('.');
-    			sb.append(decimalDigits.subSequence(1, countSigDigits));
+    			sb.append(decimalDigits, 1, countSigDigits - 1);
 			}
 			sb.append("E-");
 			appendExp(sb, -decExponent);
@@ -204,17 +382,17 @@ public final class NumberToTextConverter {
 		for (int i=nLeadingZeros; i>0; i--) {
 			sb.append('0');
 		}
-		sb.append(decimalDigits.subSequence(0, countSigDigits));
+		sb.append(decimalDigits, 0, countSigDigits);
 	}
 
-	private static void formatGreaterThanOne(StringBuilder sb, String decimalDigits, int decExponent, int countSigDigits) {
+	private static void formatGreaterThanOne(StringBuilder sb, char[] decimalDigits, int decExponent, int countSigDigits) {
 
 		if (decExponent > 19) {
 			// scientific notation
-			sb.append(decimalDigits.charAt(0));
+			sb.append(decimalDigits[0]);
 			if (countSigDigits>1) {
 				sb.append('.');
-				sb.append(decimalDigits.subSequence(1, countSigDigits));
+				sb.append(decimalDigits, 1, countSigDigits - 1);
 			}
 			sb.append("E+");
 			appendExp(sb, decExponent);
@@ -222,12 +400,12 @@ public final class NumberToTextConverter {
 		}
 		int nFractionalDigits = countSigDigits - decExponent-1;
 		if (nFractionalDigits > 0) {
-			sb.append(decimalDigits.subSequence(0, decExponent+1));
+			sb.append(decimalDigits, 0, decExponent+1);
 			sb.append('.');
-			sb.append(decimalDigits.subSequence(decExponent+1, countSigDigits));
+			sb.append(decimalDigits, decExponent+1, nFractionalDigits);
 			return;
 		}
-		sb.append(decimalDigits.subSequence(0, countSigDigits));
+		sb.append(decimalDigits, 0, countSigDigits);
 		for (int i=-nFractionalDigits; i>0; i--) {
 			sb.append('0');
 		}
@@ -237,9 +415,9 @@ public final class NumberToTextConverter {
 		return nDigits > MAX_TEXT_LEN;
 	}
 
-	private static int countSignifantDigits(String sb) {
-		int result=sb.length()-1;
-		while(sb.charAt(result) == '0') {
+	private static int countSignifantDigits(char[] sb) {
+		int result=sb.length-1;
+		while(sb[result] == '0') {
 			result--;
 			if(result < 0) {
 				throw new RuntimeException("No non-zero digits found");
@@ -38,6 +38,7 @@ import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.FontFamily;
 import org.apache.poi.ss.usermodel.FontScheme;
+import org.apache.poi.ss.util.FontIndex;
 import org.apache.poi.util.Internal;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFFactory;
@@ -70,10 +71,23 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.StyleSheetDocument;
 public class StylesTable extends POIXMLDocumentPart {
     private final SortedMap<Short, String> numberFormats = new TreeMap<Short,String>();
     private final List<XSSFFont> fonts = new ArrayList<XSSFFont>();
+    private final FontIndex<XSSFFont> fontIndex = new FontIndex<XSSFFont>() {
+        @Override
+        protected int getFontIndexCount() {
+            return fonts.size();
+        }
+
+        @Override
+        protected XSSFFont getFontAt(int index) {
+            return index < fonts.size() ? fonts.get(index) : null;
+        }
+    };
     private final List<XSSFCellFill> fills = new ArrayList<XSSFCellFill>();
     private final List<XSSFCellBorder> borders = new ArrayList<XSSFCellBorder>();
     private final List<CTXf> styleXfs = new ArrayList<CTXf>();
     private final List<CTXf> xfs = new ArrayList<CTXf>();
+    /** the style objects returned by {@link #getStyleAt(int)}, by XF index */
+    private final List<XSSFCellStyle> cellStyles = new ArrayList<XSSFCellStyle>();
 
     private final List<CTDxf> dxfs = new ArrayList<CTDxf>();
 
@@ -179,6 +193,8 @@ public class StylesTable extends POIXMLDocumentPart {
         for(XSSFCellBorder border : borders) {
             border.setThemesTable(theme);
         }
+        // the style objects are created again with the new theme
+        cellStyles.clear();
     }
     
     /**
@@ -415,14 +431,29 @@ public class StylesTable extends POIXMLDocumentPart {
     }
 
     public XSSFCellStyle getStyleAt(int idx) {
+        CTXf xf = xfs.get(idx);
         int styleXfId = 0;
 
         // 0 is the empty default
-        if(xfs.get(idx).getXfId() > 0) {
-            styleXfId = (int) xfs.get(idx).getXfId();
+        if(xf.getXfId() > 0) {
+            styleXfId = (int) xf.getXfId();
+        }
+
+        // So we don't allocate a style for every cell, give back
+        //  the same object every time, unless the XFs were replaced
+        if (idx < cellStyles.size()) {
+            XSSFCellStyle style = cellStyles.get(idx);
+            if (style != null && style.getCoreXf() == xf && style.getStyleXf() == getCellStyleXfAt(styleXfId)) {
+                return style;
+            }
         }
 
-        return new XSSFCellStyle(idx, styleXfId, this, theme);
+        XSSFCellStyle style = new XSSFCellStyle(idx, styleXfId, this, theme);
+        while (cellStyles.size() <= idx) {
+            cellStyles.add(null);
+        }
+        cellStyles.set(idx, style);
+        return style;
     }
     public int putStyle(XSSFCellStyle style) {
         CTXf mainXF = style.getCoreXf();
@@ -826,19 +857,6 @@ public class StylesTable extends POIXMLDocumentPart {
      * Finds a font that matches the one with the supplied attributes
      */
     public XSSFFont findFont(boolean bold, short color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
-        for (XSSFFont font : fonts) {
-            if (    (font.getBold() == bold)
-                    && font.getColor() == color
-                    && font.getFontHeight() == fontHeight
-                    && font.getFontName().equals(name)
-                    && font.getItalic() == italic
-                    && font.getStrikeout() == strikeout
-                    && font.getTypeOffset() == typeOffset
-                    && font.getUnderline() == underline)
-            {
-                return font;
-            }
-        }
-        return null;
+        return fontIndex.findFont(bold, color, fontHeight, name, italic, strikeout, typeOffset, underline);
     }
 }
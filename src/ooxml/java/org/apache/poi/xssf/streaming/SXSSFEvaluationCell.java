@@ -17,15 +17,16 @@
 
 package org.apache.poi.xssf.streaming;
 
-import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.ArrayFormulaEvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.Internal;
 
 /**
  * SXSSF wrapper for a cell under evaluation
  */
-final class SXSSFEvaluationCell implements EvaluationCell {
+final class SXSSFEvaluationCell implements ArrayFormulaEvaluationCell {
     private final EvaluationSheet _evalSheet;
     private final SXSSFCell _cell;
 
@@ -116,4 +117,12 @@ final class SXSSFEvaluationCell implements EvaluationCell {
     public CellType getCachedFormulaResultTypeEnum() {
         return _cell.getCachedFormulaResultTypeEnum();
     }
+    @Override
+    public boolean isPartOfArrayFormulaGroup() {
+        return _cell.isPartOfArrayFormulaGroup();
+    }
+    @Override
+    public CellRangeAddress getArrayFormulaRange() {
+        return _cell.getArrayFormulaRange();
+    }
 }
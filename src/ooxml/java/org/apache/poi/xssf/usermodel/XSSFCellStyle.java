@@ -62,7 +62,6 @@ public class XSSFCellStyle implements CellStyle {
     private final StylesTable _stylesSource;
     private CTXf _cellXf;
     private final CTXf _cellStyleXf;
-    private XSSFFont _font;
     private XSSFCellAlignment _cellAlignment;
     private ThemesTable _theme;
 
@@ -197,7 +196,6 @@ public class XSSFCellStyle implements CellStyle {
             }
 
             // Clear out cached details
-            _font = null;
             _cellAlignment = null;
         } else {
             throw new IllegalArgumentException("Can only clone from one XSSFCellStyle to another, not between HSSFCellStyle and XSSFCellStyle");
@@ -553,10 +551,8 @@ public class XSSFCellStyle implements CellStyle {
     * @return Font - font
     */
     public XSSFFont getFont() {
-        if (_font == null) {
-            _font = _stylesSource.getFontAt(getFontId());
-        }
-        return _font;
+        // not cached, the XF is shared with the other style objects of the same index
+        return _stylesSource.getFontAt(getFontId());
     }
 
     /**
@@ -1446,8 +1442,10 @@ public class XSSFCellStyle implements CellStyle {
      * @return XSSFCellAlignment - cell alignment
      */
     protected XSSFCellAlignment getCellAlignment() {
-        if (this._cellAlignment == null) {
-            this._cellAlignment = new XSSFCellAlignment(getCTCellAlignment());
+        CTCellAlignment ctCellAlignment = getCTCellAlignment();
+        // the alignment may have been replaced through another style object of the same XF
+        if (this._cellAlignment == null || this._cellAlignment.getCTCellAlignment() != ctCellAlignment) {
+            this._cellAlignment = new XSSFCellAlignment(ctCellAlignment);
         }
         return this._cellAlignment;
     }
@@ -17,15 +17,16 @@
 
 package org.apache.poi.xssf.usermodel;
 
-import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.ArrayFormulaEvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.util.Internal;
 
 /**
  * XSSF wrapper for a cell under evaluation
  */
-final class XSSFEvaluationCell implements EvaluationCell {
+final class XSSFEvaluationCell implements ArrayFormulaEvaluationCell {
 
 	private final EvaluationSheet _evalSheet;
 	private final XSSFCell _cell;
@@ -117,4 +118,12 @@ final class XSSFEvaluationCell implements EvaluationCell {
 	public CellType getCachedFormulaResultTypeEnum() {
 		return _cell.getCachedFormulaResultTypeEnum();
 	}
+	@Override
+	public boolean isPartOfArrayFormulaGroup() {
+		return _cell.isPartOfArrayFormulaGroup();
+	}
+	@Override
+	public CellRangeAddress getArrayFormulaRange() {
+		return _cell.getArrayFormulaRange();
+	}
 }
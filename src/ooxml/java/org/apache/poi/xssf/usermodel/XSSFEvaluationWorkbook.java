@@ -82,6 +82,8 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
         final XSSFCell cell = ((XSSFEvaluationCell)evalCell).getXSSFCell();
         final int sheetIndex = _uBook.getSheetIndex(cell.getSheet());
         final int rowIndex = cell.getRowIndex();
-        return FormulaParser.parse(cell.getCellFormula(this), this, FormulaType.CELL, sheetIndex, rowIndex);
+        // array formulas are parsed with array operand classes, so that references evaluate as arrays
+        final FormulaType formulaType = cell.isPartOfArrayFormulaGroup() ? FormulaType.ARRAY : FormulaType.CELL;
+        return FormulaParser.parse(cell.getCellFormula(this), this, formulaType, sheetIndex, rowIndex);
     }
 }
@@ -87,6 +87,9 @@ public final class XSSFRowShifter extends RowShifter {
             String formula = name.getRefersToFormula();
             int sheetIndex = name.getSheetIndex();
             final int rowIndex = -1; //don't care, named ranges are not allowed to include structured references
+            if (!shifter.mayAdjustFormula(formula, sheetIndex)) {
+                continue;
+            }
 
             Ptg[] ptgs = FormulaParser.parse(formula, fpb, FormulaType.NAMEDRANGE, sheetIndex, rowIndex);
             if (shifter.adjustFormula(ptgs, sheetIndex)) {
@@ -127,6 +130,7 @@ public final class XSSFRowShifter extends RowShifter {
     @Internal
     public void updateRowFormulas(Row row, FormulaShifter shifter) {
         XSSFSheet sheet = (XSSFSheet) row.getSheet();
+        int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
         for (Cell c : row) {
             XSSFCell cell = (XSSFCell) c;
 
@@ -134,7 +138,8 @@ public final class XSSFRowShifter extends RowShifter {
             if (ctCell.isSetF()) {
                 CTCellFormula f = ctCell.getF();
                 String formula = f.getStringValue();
-                if (formula.length() > 0) {
+                // formulas of other sheets rarely refer to the shifted sheet, skip them without parsing
+                if (formula.length() > 0 && shifter.mayAdjustFormula(formula, sheetIndex)) {
                     String shiftedFormula = shiftFormula(row, formula, shifter);
                     if (shiftedFormula != null) {
                         f.setStringValue(shiftedFormula);
@@ -148,7 +153,7 @@ public final class XSSFRowShifter extends RowShifter {
                 }
 
                 //Range of cells which the formula applies to.
-                if (f.isSetRef()) {
+                if (f.isSetRef() && shifter.mayAdjustFormula(f.getRef(), sheetIndex)) {
                     String ref = f.getRef();
                     String shiftedRef = shiftFormula(row, ref, shifter);
                     if (shiftedRef != null) f.setRef(shiftedRef);
@@ -22,6 +22,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.ErrPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
@@ -31,6 +34,7 @@ import org.apache.poi.ss.usermodel.Table;
 import org.apache.poi.ss.util.AreaReference;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.poi.xssf.usermodel.XSSFEvaluationWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFTable;
@@ -107,6 +111,29 @@ public class TestStructuredReferences {
         }
     }
 
+    /**
+     * "#This Row" references resolve to a different row for each cell, and to #VALUE!
+     * outside of the table, so their parse must not be reused through the {@link FormulaParseCache}
+     */
+    @Test
+    public void testThisRowParsedPerRow() throws Exception {
+        XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("StructuredReferences.xlsx");
+        try {
+            FormulaParsingWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            int sheetIndex = wb.getSheetIndex("Table");
+            String formula = "\\_Prime.1[[#This Row],[@Number]]";
+
+            Ptg[] ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, 7);
+            assertEquals(ErrPtg.VALUE_INVALID, ptgs[0]);
+            ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, 3);
+            assertEquals(3, ((AreaPtgBase) ptgs[0]).getFirstRow());
+            ptgs = FormulaParser.parse(formula, fpb, FormulaType.CELL, sheetIndex, 4);
+            assertEquals(4, ((AreaPtgBase) ptgs[0]).getFirstRow());
+        } finally {
+            wb.close();
+        }
+    }
+
     private static void confirm(FormulaEvaluator fe, Cell cell, double expectedResult) {
         fe.clearAllCachedResultValues();
         CellValue cv = fe.evaluate(cell);
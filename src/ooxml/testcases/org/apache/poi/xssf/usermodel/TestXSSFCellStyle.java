@@ -1062,4 +1062,34 @@ public class TestXSSFCellStyle {
         
         workbook.close();
     }
+
+    /**
+     * Cells of the same style share the style object
+     */
+    @Test
+    public void testStyleObjectsReused() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        XSSFCellStyle style = workbook.createCellStyle();
+        XSSFRow row = workbook.createSheet().createRow(0);
+        XSSFCell c0 = row.createCell(0);
+        XSSFCell c1 = row.createCell(1);
+        c0.setCellStyle(style);
+        c1.setCellStyle(style);
+
+        XSSFCellStyle shared = c0.getCellStyle();
+        assertSame(shared, c1.getCellStyle());
+        assertSame(shared, workbook.getCellStyleAt(style.getIndex()));
+        assertEquals(style.getIndex(), shared.getIndex());
+
+        // changes through the created style object are visible through the shared one
+        XSSFFont font = workbook.createFont();
+        assertEquals(0, shared.getFontIndex());
+        assertEquals(0, shared.getFont().getIndex());
+        style.setFont(font);
+        assertEquals(font.getIndex(), shared.getFont().getIndex());
+        style.setAlignment(HorizontalAlignment.RIGHT);
+        assertEquals(HorizontalAlignment.RIGHT, shared.getAlignmentEnum());
+
+        workbook.close();
+    }
 }
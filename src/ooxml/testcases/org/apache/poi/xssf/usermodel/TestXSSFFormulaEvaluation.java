@@ -693,4 +693,20 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         assertSame(cell, same);
         wb.close();
     }
+
+    /**
+     * Areas too large to be read in one pass are summed cell by cell
+     */
+    @Test
+    public void sumFullColumns() throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet("Sheet1");
+        sheet.createRow(0).createCell(0).setCellValue(1);
+        sheet.createRow(1048575).createCell(25).setCellValue(2);
+        XSSFCell cell = wb.createSheet("Sheet2").createRow(0).createCell(0);
+        cell.setCellFormula("SUM(Sheet1!A:Z)");
+        XSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        assertEquals(3.0, evaluator.evaluate(cell).getNumberValue(), 0.0);
+        wb.close();
+    }
 }
@@ -16,26 +16,39 @@
 ==================================================================== */
 
 package org.apache.poi.hssf.eventusermodel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.ContinueRecord;
 import org.apache.poi.hssf.record.DVALRecord;
 import org.apache.poi.hssf.record.DVRecord;
 import org.apache.poi.hssf.record.EOFRecord;
 import org.apache.poi.hssf.record.FeatHdrRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
 import org.apache.poi.hssf.record.SelectionRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.crypto.Biff8EncryptionKey;
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
 import org.junit.After;
 
 /**
@@ -120,6 +133,139 @@ public final class TestHSSFEventFactory extends TestCase {
         factory.processWorkbookEvents(req, fs);
     }
 
+    public void testReuseCellRecords() throws Exception {
+        // the file has RK, MULRK and LABELSST records
+        List<String> expected = readCells("50756.xls", false);
+        List<String> actual = readCells("50756.xls", true);
+        assertTrue(expected.size() > 100);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * @return a description of all number and LABELSST cells, and the records passed for them
+     */
+    private static List<String> readCells(String sampleFileName, boolean reuseCellRecords) throws Exception {
+        final List<String> cells = new ArrayList<String>();
+        final List<Record> records = new ArrayList<Record>();
+        HSSFListener listener = new HSSFListener() {
+            public void processRecord(Record record) {
+                if (record instanceof NumberRecord) {
+                    NumberRecord nr = (NumberRecord) record;
+                    cells.add(nr.getRow() + "," + nr.getColumn() + "," + nr.getXFIndex() + ":" + nr.getValue());
+                } else {
+                    LabelSSTRecord lr = (LabelSSTRecord) record;
+                    cells.add(lr.getRow() + "," + lr.getColumn() + "," + lr.getXFIndex() + ":#" + lr.getSSTIndex());
+                }
+                if (!records.contains(record)) {
+                    records.add(record);
+                }
+            }
+        };
+        HSSFRequest req = new HSSFRequest();
+        req.addListener(listener, NumberRecord.sid);
+        req.addListener(listener, LabelSSTRecord.sid);
+        req.setReuseCellRecords(reuseCellRecords);
+        POIFSFileSystem fs = new POIFSFileSystem(openSample(sampleFileName));
+        new HSSFEventFactory().processWorkbookEvents(req, fs);
+        fs.close();
+
+        if (reuseCellRecords) {
+            assertEquals(2, records.size());
+        } else {
+            assertEquals(cells.size(), records.size());
+        }
+        return cells;
+    }
+
+    public void testCellListener() throws Exception {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet();
+        HSSFRow row = sheet.createRow(0);
+        row.createCell(0).setCellValue(1.5);
+        row.createCell(1).setCellValue("text");
+        row.createCell(2).setCellValue(true);
+        row.createCell(3).setCellErrorValue(FormulaError.DIV0.getCode());
+        row.createCell(4); // blank
+        row = sheet.createRow(2);
+        HSSFCell cell = row.createCell(0);
+        cell.setCellFormula("1+2");
+        cell.setCellValue(3);
+        cell = row.createCell(1);
+        cell.setCellFormula("\"a\"&\"b\"");
+        cell.setCellValue("ab");
+        cell = row.createCell(2);
+        cell.setCellFormula("1<2");
+        cell.setCellValue(true);
+        cell = row.createCell(3);
+        cell.setCellFormula("1/0");
+        cell.setCellErrorValue(FormulaError.DIV0.getCode());
+        int xf = cell.getCellStyle().getIndex();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+
+        final List<String> events = new ArrayList<String>();
+        HSSFRequest req = new HSSFRequest();
+        req.addListenerForAllRecords(new HSSFListener() {
+            public void processRecord(Record record) {
+                if (record instanceof EOFRecord || record instanceof BlankRecord || record instanceof SSTRecord) {
+                    events.add(record.getClass().getSimpleName());
+                }
+                assertFalse(record instanceof CellValueRecordInterface && !(record instanceof BlankRecord));
+            }
+        });
+        req.setCellListener(new HSSFCellListener() {
+            public void onRowStart(int row) {
+                events.add("start " + row);
+            }
+            public void onRowEnd(int row) {
+                events.add("end " + row);
+            }
+            public void onNumber(int row, int column, int xfIndex, double value) {
+                events.add(row + "," + column + "," + xfIndex + " number " + value);
+            }
+            public void onSSTString(int row, int column, int xfIndex, int sstIndex) {
+                events.add(row + "," + column + "," + xfIndex + " sst " + sstIndex);
+            }
+            public void onString(int row, int column, int xfIndex, String value) {
+                events.add(row + "," + column + "," + xfIndex + " string " + value);
+            }
+            public void onBoolean(int row, int column, int xfIndex, boolean value) {
+                events.add(row + "," + column + "," + xfIndex + " boolean " + value);
+            }
+            public void onError(int row, int column, int xfIndex, int errorCode) {
+                events.add(row + "," + column + "," + xfIndex + " error " + errorCode);
+            }
+            public void onFormula(int row, int column, int xfIndex, CellType cachedResultType, double cachedValue) {
+                events.add(row + "," + column + "," + xfIndex + " formula " + cachedResultType + " " + cachedValue);
+            }
+            public void onFormulaString(int row, int column, String cachedValue) {
+                events.add(row + "," + column + " formula string " + cachedValue);
+            }
+        });
+        new HSSFEventFactory().processEvents(req, new POIFSFileSystem(new ByteArrayInputStream(out.toByteArray()))
+                .createDocumentInputStream("Workbook"));
+
+        List<String> expected = Arrays.asList(
+                "SSTRecord", "EOFRecord",
+                "start 0",
+                "0,0," + xf + " number 1.5",
+                "0,1," + xf + " sst 0",
+                "0,2," + xf + " boolean true",
+                "0,3," + xf + " error " + FormulaError.DIV0.getCode(),
+                "BlankRecord",
+                "end 0",
+                "start 2",
+                "2,0," + xf + " formula NUMERIC 3.0",
+                "2,1," + xf + " formula STRING 0.0",
+                "2,1 formula string ab",
+                "2,2," + xf + " formula BOOLEAN 1.0",
+                "2,3," + xf + " formula ERROR " + (double) FormulaError.DIV0.getCode(),
+                "end 2",
+                "EOFRecord");
+        assertEquals(expected, events);
+    }
+
     private static class MockHSSFListener implements HSSFListener {
         private final List<Record> records = new ArrayList<Record>();
 
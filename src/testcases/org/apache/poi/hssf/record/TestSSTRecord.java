@@ -19,6 +19,7 @@ package org.apache.poi.hssf.record;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -28,14 +29,22 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
 import org.apache.poi.hssf.record.common.UnicodeString;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.util.HexRead;
+import org.apache.poi.util.IntMapper;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.LocaleUtil;
 import org.junit.Test;
@@ -147,6 +156,77 @@ public final class TestSSTRecord {
         return true;
     }
 
+    /**
+     * Strings read from a file are only decoded when they are looked up
+     */
+    @Test
+    public void testLazyStrings() throws IOException {
+        byte[] origData = concatHexDumps("BigSSTRecord2", "BigSSTRecord2CR1", "BigSSTRecord2CR2", "BigSSTRecord2CR3",
+                "BigSSTRecord2CR4", "BigSSTRecord2CR5", "BigSSTRecord2CR6", "BigSSTRecord2CR7");
+        SSTRecord record = createSSTFromRawData(origData);
+
+        RecordInputStream in = new RecordInputStream(new ByteArrayInputStream(origData));
+        in.nextRecord();
+        in.readInt();
+        in.readInt();
+        IntMapper<UnicodeString> expected = new IntMapper<UnicodeString>();
+        new SSTDeserializer(expected).manufactureStrings(record.getNumUniqueStrings(), in);
+
+        assertEquals(expected.size(), record.countStrings());
+        for (int k = expected.size() - 1; k >= 0; k--) {
+            UnicodeString us = record.getString(k);
+            assertEquals(expected.get(k), us);
+            assertSame(us, record.getString(k));
+        }
+
+        // adding a string decodes all strings first
+        UnicodeString us = record.getString(1000);
+        assertEquals(expected.getIndex(us), record.addString(new UnicodeString(us.getString())));
+        assertEquals(expected.size(), record.addString(new UnicodeString("new string")));
+        assertSame(us, record.getString(1000));
+        assertEquals(expected.size() + 1, record.countStrings());
+    }
+
+    /**
+     * Threads looking up the same strings at once all get the same instances
+     */
+    @Test
+    public void testParallelLookups() throws Exception {
+        byte[] origData = concatHexDumps("BigSSTRecord2", "BigSSTRecord2CR1", "BigSSTRecord2CR2", "BigSSTRecord2CR3",
+                "BigSSTRecord2CR4", "BigSSTRecord2CR5", "BigSSTRecord2CR6", "BigSSTRecord2CR7");
+        final SSTRecord record = createSSTFromRawData(origData);
+        final int nStrings = record.getNumUniqueStrings();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UnicodeString[]>> futures = new ArrayList<Future<UnicodeString[]>>();
+            for (int t = 0; t < 8; t++) {
+                // each thread starts at another string
+                final int start = t * nStrings / 8;
+                futures.add(executor.submit(new Callable<UnicodeString[]>() {
+                    public UnicodeString[] call() {
+                        UnicodeString[] result = new UnicodeString[nStrings];
+                        for (int n = 0; n < nStrings; n++) {
+                            int k = (start + n) % nStrings;
+                            result[k] = record.getString(k);
+                        }
+                        return result;
+                    }
+                }));
+            }
+            UnicodeString[] first = futures.get(0).get();
+            for (Future<UnicodeString[]> future : futures) {
+                UnicodeString[] strings = future.get();
+                for (int k = 0; k < nStrings; k++) {
+                    assertSame(record.getString(k), strings[k]);
+                }
+            }
+            assertEquals(nStrings, new HashSet<UnicodeString>(Arrays.asList(first)).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * Test capability of handling mondo big strings
      *
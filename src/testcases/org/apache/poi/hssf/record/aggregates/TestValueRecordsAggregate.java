@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.zip.CRC32;
 
@@ -32,14 +33,19 @@ import org.apache.poi.hssf.model.RowBlocksReader;
 import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.SharedFormulaRecord;
+import org.apache.poi.hssf.record.TestcaseRecordInputStream;
 import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.util.HexRead;
+import org.apache.poi.util.LittleEndian;
 import org.junit.Test;
 
 import junit.framework.AssertionFailedError;
@@ -417,4 +423,206 @@ public final class TestValueRecordsAggregate {
 		assertEquals(expectedNumberOfMulBlankRecords, bs.countMulBlankRecords);
 		assertEquals(expectedNumberOfSingleBlankRecords, bs.countSingleBlankRecords);
 	}
+
+	/**
+	 * @return a MULRK record for three cells of the second row with the values 1, 2 and 3
+	 */
+	private static MulRKRecord createMulRK(int firstColumn) {
+		byte[] data = new byte[6 + 3 * 6];
+		LittleEndian.putUShort(data, 0, 1);
+		LittleEndian.putUShort(data, 2, firstColumn);
+		for (int i = 0; i < 3; i++) {
+			LittleEndian.putUShort(data, 4 + i * 6, 0x0F);
+			LittleEndian.putInt(data, 6 + i * 6, ((i + 1) << 2) | 2);
+		}
+		LittleEndian.putUShort(data, data.length - 2, firstColumn + 2);
+		return new MulRKRecord(TestcaseRecordInputStream.create(MulRKRecord.sid, data));
+	}
+
+	private static NumberRecord newNumberRecord(int column, int row, double value) {
+		NumberRecord result = new NumberRecord();
+		result.setRow(row);
+		result.setColumn((short) column);
+		result.setValue(value);
+		return result;
+	}
+
+	/**
+	 * The cells stay packed until they are unpacked
+	 */
+	@Test
+	public void testPackedCells() {
+		MulRKRecord mrk = createMulRK(1);
+		MulBlankRecord mbr = new MulBlankRecord(1, 5, new short[] { 0x0F, 0x0F, });
+		LabelSSTRecord label = new LabelSSTRecord();
+		label.setRow(1);
+		label.setColumn((short) 9);
+		label.setSSTIndex(4);
+
+		valueRecord.addMultipleRKs(mrk);
+		valueRecord.addMultipleBlanks(mbr);
+		valueRecord.construct(newNumberRecord(7, 1, 4), null, null);
+		valueRecord.construct(newNumberRecord(8, 1, 5), null, null);
+		valueRecord.construct(label, null, null);
+		assertEquals(8, valueRecord.getPhysicalNumberOfCells());
+		assertEquals(1, valueRecord.getFirstCellNum());
+		assertEquals(9, valueRecord.getLastCellNum());
+		assertTrue(valueRecord.isPackedCell(1, 2));
+		assertTrue(valueRecord.isPackedCell(1, 9));
+		assertFalse(valueRecord.isPackedCell(1, 4));
+		assertFalse(valueRecord.iterator(false).hasNext());
+
+		// intact runs are written as the original record, the other cells as they were read
+		List<Record> written = confirmRowSize(1);
+		assertEquals(5, written.size());
+		assertArrayEquals(mrk.serialize(), written.get(0).serialize());
+		assertArrayEquals(mbr.serialize(), written.get(1).serialize());
+		assertEquals(4.0, ((NumberRecord) written.get(2)).getValue(), 0.0);
+		assertEquals(5.0, ((NumberRecord) written.get(3)).getValue(), 0.0);
+		assertEquals(4, ((LabelSSTRecord) written.get(4)).getSSTIndex());
+
+		NumberRecord nr = (NumberRecord) valueRecord.unpackCell(1, 2);
+		assertEquals(2.0, nr.getValue(), 0.0);
+		assertEquals(0x0F, nr.getXFIndex());
+		assertFalse(valueRecord.isPackedCell(1, 2));
+		assertNull(valueRecord.unpackCell(1, 2));
+		Iterator<CellValueRecordInterface> it = valueRecord.iterator(false);
+		assertSame(nr, it.next());
+		assertFalse(it.hasNext());
+
+		// the rest of a split run is written cell by cell
+		written = confirmRowSize(1);
+		assertEquals(7, written.size());
+		assertEquals(1.0, ((NumberRecord) written.get(0)).getValue(), 0.0);
+		assertSame(nr, written.get(1));
+		assertEquals(3.0, ((NumberRecord) written.get(2)).getValue(), 0.0);
+		assertArrayEquals(mbr.serialize(), written.get(3).serialize());
+
+		// a replaced cell doesn't affect the others
+		BlankRecord br = newBlankRecord(6, 1);
+		valueRecord.insertCell(br);
+		assertFalse(valueRecord.isPackedCell(1, 6));
+		assertTrue(valueRecord.isPackedCell(1, 5));
+		written = confirmRowSize(1);
+		assertEquals(7, written.size());
+		assertEquals(2, ((MulBlankRecord) written.get(3)).getNumColumns());
+
+		List<CellValueRecordInterface> cells = getValueRecords();
+		assertEquals(8, cells.size());
+		assertTrue(cells.get(0) instanceof NumberRecord);
+		assertTrue(cells.get(3) instanceof BlankRecord);
+		assertSame(br, cells.get(4));
+		assertTrue(cells.get(7) instanceof LabelSSTRecord);
+		for (int col = 1; col <= 9; col++) {
+			assertFalse(valueRecord.isPackedCell(1, col));
+		}
+
+		valueRecord.removeAllCellsValuesForRow(1);
+		assertEquals(0, valueRecord.getPhysicalNumberOfCells());
+	}
+
+	/**
+	 * Adjacent MULRK and MULBLANK records aren't merged
+	 */
+	@Test
+	public void testAdjacentRunsKept() {
+		MulRKRecord mrk1 = createMulRK(1);
+		MulRKRecord mrk2 = createMulRK(4);
+		MulBlankRecord mbr1 = new MulBlankRecord(1, 7, new short[] { 0x0F, 0x0F, });
+		MulBlankRecord mbr2 = new MulBlankRecord(1, 9, new short[] { 0x0F, 0x0F, });
+		valueRecord.addMultipleRKs(mrk1);
+		valueRecord.addMultipleRKs(mrk2);
+		valueRecord.addMultipleBlanks(mbr1);
+		valueRecord.addMultipleBlanks(mbr2);
+
+		List<Record> written = confirmRowSize(1);
+		assertEquals(4, written.size());
+		assertArrayEquals(mrk1.serialize(), written.get(0).serialize());
+		assertArrayEquals(mrk2.serialize(), written.get(1).serialize());
+		assertArrayEquals(mbr1.serialize(), written.get(2).serialize());
+		assertArrayEquals(mbr2.serialize(), written.get(3).serialize());
+
+		// removing the last cell of a run splits it
+		valueRecord.unpackCell(1, 6);
+		written = confirmRowSize(1);
+		assertEquals(6, written.size());
+		assertTrue(written.get(1) instanceof NumberRecord);
+		assertTrue(written.get(2) instanceof NumberRecord);
+		assertArrayEquals(mbr1.serialize(), written.get(4).serialize());
+	}
+
+	/**
+	 * Only the blocks of rows which have cells are allocated, and rows are found without
+	 * looking at every column
+	 */
+	@Test
+	public void testSparsePackedCells() {
+		for (int row = 0; row < 100; row++) {
+			for (int col = 0; col < 3; col++) {
+				valueRecord.construct(newNumberRecord(col, row, row), null, null);
+			}
+		}
+		for (int col = 0; col < 256; col++) {
+			valueRecord.construct(newBlankRecord(col, 0xFFFF), null, null);
+		}
+		assertEquals(556, valueRecord.getPhysicalNumberOfCells());
+		// 2 blocks for each of the first 3 columns, 1 for the cell in the last row of each column
+		assertEquals(3 * 2 + 256, valueRecord.getPackedBlockCount());
+		assertTrue(valueRecord.rowHasCells(99));
+		assertFalse(valueRecord.rowHasCells(100));
+		assertFalse(valueRecord.rowHasCells(0xFFFE));
+		assertTrue(valueRecord.rowHasCells(0xFFFF));
+		assertEquals(256, confirmRowSize(0xFFFF).size());
+
+		final List<Integer> rows = new ArrayList<Integer>();
+		valueRecord.visitPackedCells(new ValueRecordsAggregate.PackedCellsVisitor() {
+			public void visitPackedCells(int rowIndex, int firstColumn, int lastColumn) {
+				rows.add(Integer.valueOf(rowIndex));
+				assertEquals(0, firstColumn);
+				assertEquals(rowIndex == 0xFFFF ? 255 : 2, lastColumn);
+			}
+		});
+		assertEquals(101, rows.size());
+		assertEquals(Integer.valueOf(99), rows.get(99));
+		assertEquals(Integer.valueOf(0xFFFF), rows.get(100));
+
+		// the columns of a row shrink as its outer cells are unpacked
+		valueRecord.unpackCell(0xFFFF, 0);
+		valueRecord.unpackCell(0xFFFF, 255);
+		valueRecord.unpackCell(5, 0);
+		valueRecord.unpackCell(5, 1);
+		valueRecord.unpackCell(5, 2);
+		rows.clear();
+		valueRecord.visitPackedCells(new ValueRecordsAggregate.PackedCellsVisitor() {
+			public void visitPackedCells(int rowIndex, int firstColumn, int lastColumn) {
+				rows.add(Integer.valueOf(rowIndex));
+				if (rowIndex == 0xFFFF) {
+					assertEquals(1, firstColumn);
+					assertEquals(254, lastColumn);
+				}
+			}
+		});
+		assertEquals(100, rows.size());
+		assertFalse(rows.contains(Integer.valueOf(5)));
+		assertTrue(valueRecord.rowHasCells(5));
+		assertEquals(556, getValueRecords().size());
+	}
+
+	/**
+	 * @return the records written for the specified row, after checking their total size
+	 */
+	private List<Record> confirmRowSize(int rowIx) {
+		final List<Record> result = new ArrayList<Record>();
+		valueRecord.visitCellsForRow(rowIx, new RecordVisitor() {
+			public void visitRecord(Record r) {
+				result.add(r);
+			}
+		});
+		int size = 0;
+		for (Record r : result) {
+			size += r.getRecordSize();
+		}
+		assertEquals(size, valueRecord.getRowCellBlockSize(rowIx, rowIx));
+		return result;
+	}
 }
@@ -546,4 +546,35 @@ public final class TestCellStyle extends TestCase {
         
         wb.close();
     }
+
+    /**
+     * The same style object is returned for the same XF, until the XFs are changed
+     */
+    public void testStyleObjectsReused() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFCellStyle unused = wb.createCellStyle();
+        unused.setIndention((short) 1);
+        HSSFCellStyle cs = wb.createCellStyle();
+        cs.setIndention((short) 2);
+        HSSFSheet sheet = wb.createSheet();
+        HSSFCell c0 = sheet.createRow(0).createCell(0);
+        HSSFCell c1 = sheet.getRow(0).createCell(1);
+        c0.setCellStyle(cs);
+        c1.setCellStyle(cs);
+
+        assertSame(cs, c0.getCellStyle());
+        assertSame(cs, c1.getCellStyle());
+        assertSame(cs, wb.getCellStyleAt(cs.getIndex()));
+        assertSame(wb.getCellStyleAt(0), wb.getCellStyleAt(0));
+        assertNotSame(wb.getCellStyleAt(0), wb.getCellStyleAt(1));
+
+        // the unused style is removed, so the index of the used one changes
+        HSSFOptimiser.optimiseCellStyles(wb);
+        HSSFCellStyle optimised = c0.getCellStyle();
+        assertEquals(cs.getIndex() - 1, optimised.getIndex());
+        assertEquals(2, optimised.getIndention());
+        assertSame(optimised, c1.getCellStyle());
+
+        wb.close();
+    }
 }
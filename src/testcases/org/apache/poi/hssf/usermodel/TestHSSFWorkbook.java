@@ -18,10 +18,12 @@
 package org.apache.poi.hssf.usermodel;
 
 import static org.apache.poi.POITestCase.assertContains;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -34,8 +36,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.AssertionFailedError;
 
@@ -63,12 +69,15 @@ import org.apache.poi.ss.usermodel.BaseTestWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.ConditionalFormatting;
 import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.DataValidationConstraint;
+import org.apache.poi.ss.usermodel.DataValidationHelper;
 import org.apache.poi.ss.usermodel.Name;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellRangeAddressList;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LittleEndian;
 import org.apache.poi.util.RecordFormatException;
@@ -1278,6 +1287,38 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         assertEquals("Changed!", wb.getSheetAt(0).getRow(0).getCell(0).toString());
     }
     
+    @Test
+    public void inPlaceWriteFailure() throws Exception {
+        final File file = TempFile.createTempFile("TestHSSFWorkbook", ".xls");
+        IOUtils.copy(
+                POIDataSamples.getSpreadSheetInstance().openResourceAsStream("SampleSS.xls"),
+                new FileOutputStream(file)
+        );
+
+        HSSFWorkbook wb = new HSSFWorkbook(new NPOIFSFileSystem(file, false));
+        DirectoryNode root = wb.getDirectory();
+        byte[] original = IOUtils.toByteArray(root.createDocumentInputStream("Workbook"));
+
+        // rows which can't be written any more, once they are flushed and disposed
+        wb.setRowAccessWindowSize(10);
+        HSSFSheet sheet = wb.createSheet();
+        for (int i = 0; i < 1050; i++) {
+            sheet.createRow(i).createCell(0).setCellValue(i);
+        }
+        assertTrue(wb.dispose());
+        try {
+            wb.write();
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // the old Workbook stream is kept
+        assertFalse(root.hasEntry("Workbook.new"));
+        assertArrayEquals(original, IOUtils.toByteArray(root.createDocumentInputStream("Workbook")));
+        wb.close();
+    }
+
     @Test
     public void testWriteToNewFile() throws Exception {
         // Open from a Stream
@@ -1294,4 +1335,241 @@ public final class TestHSSFWorkbook extends BaseTestWorkbook {
         assertEquals(3, wb.getNumberOfSheets());
         wb.close();
     }
+
+    @Test
+    public void testWriteWorkbookStream() throws Exception {
+        // small enough for the mini stream, and a regular one
+        confirmWorkbookStream(new HSSFWorkbook());
+        confirmWorkbookStream(HSSFTestDataSamples.openSampleWorkbook("SampleSS.xls"));
+    }
+
+    private static void confirmWorkbookStream(HSSFWorkbook wb) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        NPOIFSFileSystem fs = new NPOIFSFileSystem(new ByteArrayInputStream(out.toByteArray()));
+        InputStream is = fs.createDocumentInputStream("Workbook");
+        byte[] written = IOUtils.toByteArray(is);
+        is.close();
+        fs.close();
+        // the records streamed into the document are those of the whole workbook stream
+        assertTrue(Arrays.equals(wb.getBytes(), written));
+        wb.close();
+    }
+
+    @Test
+    public void testLoadSheetsConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            HSSFLoadOptions options = new HSSFLoadOptions();
+            options.setSheetExecutor(executor);
+            // charts, custom views and an unsupported macro sheet
+            for (String sample : new String[] { "SampleSS.xls", "WithChart.xls", "29982.xls", "47251.xls" }) {
+                HSSFWorkbook expected = HSSFTestDataSamples.openSampleWorkbook(sample);
+                InputStream is = HSSFTestDataSamples.openSampleFileStream(sample);
+                HSSFWorkbook actual = new HSSFWorkbook(is, options);
+                is.close();
+
+                assertEquals(sample, expected.getNumberOfSheets(), actual.getNumberOfSheets());
+                for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+                    assertEquals(expected.getSheetName(i), actual.getSheetName(i));
+                    assertEquals(expected.getSheetAt(i).getPhysicalNumberOfRows(), actual.getSheetAt(i).getPhysicalNumberOfRows());
+                }
+                assertArrayEquals(sample, expected.getBytes(), actual.getBytes());
+                expected.close();
+                actual.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLoadSelectedSheets() throws Exception {
+        HSSFWorkbook expected = HSSFTestDataSamples.openSampleWorkbook("29982.xls");
+        HSSFLoadOptions options = new HSSFLoadOptions();
+        options.setSheetsToLoad(expected.getSheetName(1).toUpperCase(Locale.ROOT));
+        InputStream is = HSSFTestDataSamples.openSampleFileStream("29982.xls");
+        HSSFWorkbook actual = new HSSFWorkbook(is, options);
+        is.close();
+
+        assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+        assertNull(actual._sheets.get(0));
+        assertNotNull(actual._sheets.get(1));
+        // the other sheets are loaded on access
+        assertEquals(expected.getSheetAt(0).getLastRowNum(), actual.getSheetAt(0).getLastRowNum());
+        assertNotNull(actual._sheets.get(0));
+        assertSame(actual.getSheetAt(0), actual.getSheetAt(0));
+        assertNull(actual._sheets.get(2));
+
+        // the remaining sheets are loaded when the workbook is written
+        assertArrayEquals(expected.getBytes(), actual.getBytes());
+
+        actual.removeSheetAt(2);
+        expected.removeSheetAt(2);
+        HSSFSheet sheet = actual.createSheet("new");
+        assertSame(sheet, actual.getSheetAt(actual.getNumberOfSheets() - 1));
+        assertEquals(expected.getNumberOfSheets() + 1, actual.getNumberOfSheets());
+        expected.close();
+        actual.close();
+    }
+
+    @Test
+    public void testLoadOpaqueContent() throws Exception {
+        HSSFLoadOptions options = new HSSFLoadOptions();
+        options.setOpaqueContent(HSSFLoadOptions.SheetContent.values());
+
+        for (String sample : new String[] { "SimpleWithComments.xls", "WithChart.xls", "WithConditionalFormatting.xls" }) {
+            HSSFWorkbook expected = HSSFTestDataSamples.openSampleWorkbook(sample);
+            InputStream is = HSSFTestDataSamples.openSampleFileStream(sample);
+            HSSFWorkbook actual = new HSSFWorkbook(is, options);
+            is.close();
+            for (int i = 0; i < actual.getNumberOfSheets(); i++) {
+                HSSFSheet sheet = actual.getSheetAt(i);
+                assertNull(sheet.getDrawingPatriarch());
+                assertEquals(0, sheet.getSheetConditionalFormatting().getNumConditionalFormattings());
+            }
+            // the raw records are written back unchanged
+            actual = HSSFTestDataSamples.writeOutAndReadBack(actual);
+            assertArrayEquals(sample, expected.getBytes(), actual.getBytes());
+            expected.close();
+            actual.close();
+        }
+
+        HSSFWorkbook wb = HSSFTestDataSamples.openSampleWorkbook("SimpleWithComments.xls");
+        assertNotNull(wb.getSheetAt(0).getCellComment(0, 1));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+        wb = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()), options);
+        HSSFSheet sheet = wb.getSheetAt(0);
+        assertNull(sheet.getCellComment(0, 1));
+        assertTrue(sheet.getCellComments().isEmpty());
+        try {
+            sheet.createDrawingPatriarch();
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        wb.close();
+
+        wb = new HSSFWorkbook();
+        sheet = wb.createSheet();
+        DataValidationHelper helper = sheet.getDataValidationHelper();
+        DataValidationConstraint constraint = helper.createExplicitListConstraint(new String[] { "a", "b" });
+        sheet.addValidationData(helper.createValidation(constraint, new CellRangeAddressList(0, 0, 0, 0)));
+        out = new ByteArrayOutputStream();
+        wb.write(out);
+        wb.close();
+        wb = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()), options);
+        sheet = wb.getSheetAt(0);
+        assertEquals(0, sheet.getDataValidations().size());
+        try {
+            sheet.addValidationData(helper.createValidation(constraint, new CellRangeAddressList(1, 1, 0, 0)));
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        wb = HSSFTestDataSamples.writeOutAndReadBack(wb);
+        assertEquals(1, wb.getSheetAt(0).getDataValidations().size());
+        wb.close();
+
+        InputStream is = HSSFTestDataSamples.openSampleFileStream("WithConditionalFormatting.xls");
+        wb = new HSSFWorkbook(is, options);
+        is.close();
+        HSSFSheetConditionalFormatting cf = wb.getSheetAt(0).getSheetConditionalFormatting();
+        HSSFConditionalFormattingRule rule = cf.createConditionalFormattingRule("TRUE");
+        CellRangeAddress[] regions = { CellRangeAddress.valueOf("A1:B2") };
+        try {
+            cf.addConditionalFormatting(regions, rule);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            cf.removeConditionalFormatting(0);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the other sheets have no conditional formats to lose
+        HSSFSheetConditionalFormatting newCf = wb.createSheet().getSheetConditionalFormatting();
+        assertEquals(0, newCf.addConditionalFormatting(regions, newCf.createConditionalFormattingRule("TRUE")));
+        wb.close();
+    }
+
+    @Test
+    public void testRowAccessWindow() throws Exception {
+        HSSFWorkbook expected = createRowsWorkbook(-1);
+        HSSFWorkbook flushed = createRowsWorkbook(10);
+        HSSFSheet sheet = flushed.getSheetAt(0);
+        assertEquals(1023, sheet.getLastFlushedRowNum());
+        assertNull(sheet.getRow(0));
+        assertNotNull(sheet.getRow(1049));
+        assertEquals(0, sheet.getFirstRowNum());
+        assertEquals(1049, sheet.getLastRowNum());
+        try {
+            sheet.createRow(1000);
+            fail("expected exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // the flushed blocks are written exactly as if the rows had been kept
+        assertTrue(Arrays.equals(expected.getBytes(), flushed.getBytes()));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        flushed.write(out);
+        assertTrue(flushed.dispose());
+        HSSFWorkbook wb = new HSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+        for (int s = 0; s < 2; s++) {
+            HSSFSheet sh = wb.getSheetAt(s);
+            assertEquals(1050, sh.getPhysicalNumberOfRows());
+            for (int i = 0; i < 1050; i++) {
+                HSSFRow row = sh.getRow(i);
+                assertEquals(i * 0.5, row.getCell(0).getNumericCellValue(), 0.0);
+                assertEquals("row " + i, row.getCell(1).getStringCellValue());
+                assertEquals("A" + (i + 1) + "*2", row.getCell(2).getCellFormula());
+            }
+        }
+        wb.close();
+        expected.close();
+        flushed.close();
+    }
+
+    @Test
+    public void testRowAccessWindowClose() throws Exception {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        try {
+            wb.setRowAccessWindowSize(0);
+            fail("expected exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        wb.close();
+
+        // closing deletes the flushed rows
+        wb = createRowsWorkbook(10);
+        wb.close();
+        try {
+            wb.getBytes();
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static HSSFWorkbook createRowsWorkbook(int rowAccessWindowSize) {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        wb.setRowAccessWindowSize(rowAccessWindowSize);
+        for (int s = 0; s < 2; s++) {
+            HSSFSheet sheet = wb.createSheet();
+            for (int i = 0; i < 1050; i++) {
+                HSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i * 0.5);
+                row.createCell(1).setCellValue("row " + i);
+                row.createCell(2).setCellFormula("A" + (i + 1) + "*2");
+            }
+        }
+        return wb;
+    }
 }
@@ -1011,4 +1011,21 @@ public class TestCellFormat {
         assertNotNull(instance);
         assertEquals("01/01/1970", instance.apply(new Date(12345)).text);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInstancesPerLocale() {
+        String format = "mmmm yyyy";
+        CellFormat us = CellFormat.getInstance(format);
+        assertSame(us, CellFormat.getInstance(format));
+        assertEquals("January 1970", us.apply(new Date(12345)).text);
+        LocaleUtil.setUserLocale(Locale.GERMANY);
+        try {
+            CellFormat germany = CellFormat.getInstance(format);
+            assertNotSame(us, germany);
+            assertEquals("Januar 1970", germany.apply(new Date(12345)).text);
+        } finally {
+            LocaleUtil.setUserLocale(Locale.US);
+        }
+        assertSame(us, CellFormat.getInstance(format));
+    }
+}
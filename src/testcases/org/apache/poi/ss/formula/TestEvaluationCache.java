@@ -30,6 +30,7 @@ import junit.framework.TestCase;
 
 import org.apache.poi.hssf.model.HSSFFormulaParser;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.eval.AreaValueBlock;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -613,6 +614,180 @@ public class TestEvaluationCache extends TestCase {
 		assertEquals(2.6, cv.getNumberValue(), 0.0);
 	}
 
+	/**
+	 * The cached area values are bounded, the least recently used blocks are released first
+	 */
+	public void testAreaValuesBounded() {
+		EvaluationCache cache = new EvaluationCache(null);
+		cache.setMaxAreaBlockCells(10);
+		EvaluationTracker tracker = new EvaluationTracker(cache);
+		AreaValueCacheEntry[] entries = new AreaValueCacheEntry[3];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = cache.getOrCreateAreaValueEntry(0, 0, 0, i, 4, i);
+			storeAreaBlock(cache, tracker, entries[i]);
+		}
+		assertNull(entries[0].getBlock());
+		assertNotNull(entries[1].getBlock());
+		assertNotNull(entries[2].getBlock());
+		// the released entry is still shared, and stays valid for the formulas using it
+		assertSame(entries[0], cache.getOrCreateAreaValueEntry(0, 0, 0, 0, 4, 0));
+		assertNotNull(entries[0].getDependencyEntry().getValue());
+
+		cache.notifyAreaBlockUsed(entries[1]);
+		storeAreaBlock(cache, tracker, entries[0]);
+		assertNotNull(entries[0].getBlock());
+		assertNotNull(entries[1].getBlock());
+		assertNull(entries[2].getBlock());
+	}
+
+	private static void storeAreaBlock(EvaluationCache cache, EvaluationTracker tracker, AreaValueCacheEntry ace) {
+		assertTrue(tracker.startEvaluate(ace.getDependencyEntry()));
+		cache.storeAreaBlock(ace, new AreaValueBlock(5, 1), tracker);
+		tracker.endEvaluate(ace.getDependencyEntry());
+	}
+
+	/**
+	 * Full columns and whole sheets are read in one pass if they fit in a block, cell by cell
+	 * otherwise
+	 */
+	public void testLargeAreas() {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFSheet sheet = wb.createSheet("Sheet1");
+		sheet.createRow(0).createCell(0).setCellValue(1);
+		sheet.createRow(65535).createCell(255).setCellValue(2);
+		HSSFSheet sheet2 = wb.createSheet("Sheet2");
+		HSSFCell cellA1 = sheet2.createRow(0).createCell(0);
+		HSSFCell cellA2 = sheet2.createRow(1).createCell(0);
+		HSSFCell cellA3 = sheet2.createRow(2).createCell(0);
+		cellA1.setCellFormula("SUM(Sheet1!A:C)");
+		cellA2.setCellFormula("SUM(Sheet1!1:65536)");
+		cellA3.setCellFormula("SUMPRODUCT(Sheet1!1:65536,Sheet1!1:65536)");
+		HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+		assertEquals(1.0, fe.evaluate(cellA1).getNumberValue(), 0.0);
+		assertEquals(3.0, fe.evaluate(cellA2).getNumberValue(), 0.0);
+		assertEquals(5.0, fe.evaluate(cellA3).getNumberValue(), 0.0);
+
+		// the size of a whole sheet in Excel 2007 doesn't fit in an int
+		assertTrue(AreaValueBlock.isValidSize(65536, 3));
+		assertFalse(AreaValueBlock.isValidSize(65536, 256));
+		assertFalse(AreaValueBlock.isValidSize(1048576, 16384));
+		try {
+			new AreaValueBlock(1048576, 16384);
+			fail("expected exception");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Area values which aren't shared any more are still cleared when one of their
+	 * blank cells gets a value
+	 */
+	public void testUnsharedAreaValuesNotified() {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFCell cellA3 = wb.createSheet("Sheet1").createRow(2).createCell(0);
+		EvaluationCache cache = new EvaluationCache(null);
+		EvaluationTracker tracker = new EvaluationTracker(cache);
+		AreaValueCacheEntry ace = cache.getOrCreateAreaValueEntry(0, 0, 0, 0, 4, 0);
+		assertTrue(tracker.startEvaluate(ace.getDependencyEntry()));
+		tracker.acceptPlainValueDependency(0, 0, 2, 0, BlankEval.instance);
+		cache.storeAreaBlock(ace, new AreaValueBlock(5, 1), tracker);
+		tracker.endEvaluate(ace.getDependencyEntry());
+
+		// as done for areas containing circular references
+		cache.removeAreaValueEntry(ace);
+		assertNotSame(ace, cache.getOrCreateAreaValueEntry(0, 0, 0, 0, 4, 0));
+		assertNotNull(ace.getDependencyEntry().getValue());
+
+		cellA3.setCellValue(1);
+		cache.notifyUpdateCell(0, 0, HSSFEvaluationTestHelper.wrapCell(cellA3));
+		assertNull(ace.getDependencyEntry().getValue());
+	}
+
+	/**
+	 * Running totals reference a growing number of overlapping areas
+	 */
+	public void testRunningTotals() {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFSheet sheet = wb.createSheet("Sheet1");
+		int n = 200;
+		for (int i = 0; i < n; i++) {
+			HSSFRow row = sheet.createRow(i);
+			row.createCell(0).setCellValue(i + 1);
+			row.createCell(1).setCellFormula("SUM($A$1:A" + (i + 1) + ")");
+		}
+		HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+		for (int i = 0; i < n; i++) {
+			HSSFCell cell = sheet.getRow(i).getCell(1);
+			assertEquals((i + 1) * (i + 2) / 2.0, fe.evaluate(cell).getNumberValue(), 0.0);
+		}
+
+		sheet.getRow(0).getCell(0).setCellValue(11);
+		fe.notifyUpdateCell(sheet.getRow(0).getCell(0));
+		for (int i = 0; i < n; i++) {
+			HSSFCell cell = sheet.getRow(i).getCell(1);
+			assertEquals((i + 1) * (i + 2) / 2.0 + 10, fe.evaluate(cell).getNumberValue(), 0.0);
+		}
+	}
+
+	/**
+	 * Without an evaluation listener, the values of an area are read once and shared by all
+	 * formulas referencing that area. Make sure changes to the area cells still get through.
+	 */
+	public void testSharedAreaValues() {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFSheet sheet = wb.createSheet("Sheet1");
+		HSSFCell[] cellsA = new HSSFCell[4];
+		for (int i = 0; i < cellsA.length; i++) {
+			cellsA[i] = sheet.createRow(i).createCell(0);
+		}
+		cellsA[0].setCellValue(1);
+		cellsA[1].setCellValue(2);
+		cellsA[2].setCellValue(3);
+		// A4 is left blank
+		HSSFCell cellB1 = sheet.getRow(0).createCell(1);
+		HSSFCell cellB2 = sheet.getRow(1).createCell(1);
+		HSSFCell cellB3 = sheet.getRow(2).createCell(1);
+		cellB1.setCellFormula("SUM(A1:A4)");
+		cellB2.setCellFormula("AVERAGE(A1:A4)");
+		cellB3.setCellFormula("SUMPRODUCT(A1:A4,A1:A4)");
+		HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+
+		assertEquals(6.0, fe.evaluate(cellB1).getNumberValue(), 0.0);
+		assertEquals(2.0, fe.evaluate(cellB2).getNumberValue(), 0.0);
+		assertEquals(14.0, fe.evaluate(cellB3).getNumberValue(), 0.0);
+
+		cellsA[1].setCellValue(5);
+		fe.notifyUpdateCell(cellsA[1]);
+		assertEquals(9.0, fe.evaluate(cellB1).getNumberValue(), 0.0);
+		assertEquals(3.0, fe.evaluate(cellB2).getNumberValue(), 0.0);
+		assertEquals(35.0, fe.evaluate(cellB3).getNumberValue(), 0.0);
+
+		// blank cell changed to value cell
+		cellsA[3].setCellValue(3);
+		fe.notifyUpdateCell(cellsA[3]);
+		assertEquals(12.0, fe.evaluate(cellB1).getNumberValue(), 0.0);
+		assertEquals(3.0, fe.evaluate(cellB2).getNumberValue(), 0.0);
+		assertEquals(44.0, fe.evaluate(cellB3).getNumberValue(), 0.0);
+
+		// value cell changed to formula cell
+		cellsA[0].setCellFormula("B1/0");
+		fe.notifyUpdateCell(cellsA[0]);
+		assertEquals(CellType.ERROR, fe.evaluate(cellB1).getCellTypeEnum());
+		assertEquals(CellType.ERROR, fe.evaluate(cellB2).getCellTypeEnum());
+
+		// the shared area contains a cell referring back to the area
+		cellsA[0].setCellFormula("SUM(A1:A4)");
+		fe.notifyUpdateCell(cellsA[0]);
+		assertEquals(CellType.ERROR, fe.evaluate(cellB1).getCellTypeEnum());
+		assertEquals(ErrorEval.CIRCULAR_REF_ERROR.getErrorCode(), fe.evaluate(cellB1).getErrorValue());
+
+		cellsA[0].setCellFormula("SUM(A2:A4)");
+		fe.notifyUpdateCell(cellsA[0]);
+		assertEquals(22.0, fe.evaluate(cellB1).getNumberValue(), 0.0);
+		assertEquals(5.5, fe.evaluate(cellB2).getNumberValue(), 0.0);
+	}
+
 	/**
 	 * same use-case as the test for bug 46053, but checking trace values too
 	 */
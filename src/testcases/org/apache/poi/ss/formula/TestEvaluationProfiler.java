@@ -0,0 +1,109 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationProfiler.CellStats;
+import org.apache.poi.ss.formula.EvaluationProfiler.FunctionStats;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EvaluationProfiler}
+ */
+public final class TestEvaluationProfiler {
+
+    @Test
+    public void testStatistics() throws IOException {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Data");
+        for (int i = 0; i < 4; i++) {
+            sheet.createRow(i).createCell(0).setCellValue(i + 1);
+        }
+        Row row = sheet.getRow(0);
+        row.createCell(1).setCellFormula("SUM(A1:A4)");
+        row.createCell(2).setCellFormula("B1*2");
+        row.createCell(3).setCellFormula("C1+B1+A2");
+
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        EvaluationProfiler profiler = new EvaluationProfiler();
+        fe.setProfiler(profiler);
+        assertEquals(32.0, fe.evaluate(row.getCell(3)).getNumberValue(), 0.0);
+
+        // D1 -> C1 -> B1
+        assertEquals(3, profiler.getMaxDepth());
+        assertEquals(3, profiler.getFormulaCacheMisses());
+        // B1 referenced from D1 after being evaluated for C1
+        assertEquals(1, profiler.getFormulaCacheHits());
+        assertEquals(1, profiler.getAreaValueCacheMisses());
+        assertEquals(0, profiler.getAreaValueCacheHits());
+        // A1:A4, then A2 again
+        assertEquals(4, profiler.getPlainValueCacheMisses());
+        assertEquals(1, profiler.getPlainValueCacheHits());
+
+        Map<String, CellStats> cells = new HashMap<String, CellStats>();
+        for (CellStats cs : profiler.getCellStats()) {
+            cells.put(cs.getCellReference(), cs);
+            assertTrue(cs.getSelfNanos() <= cs.getTotalNanos());
+        }
+        assertEquals(3, cells.size());
+        assertEquals(1, cells.get("Data!B1").getEvaluationCount());
+        assertTrue(cells.get("Data!D1").getTotalNanos() >= cells.get("Data!C1").getTotalNanos());
+
+        Map<String, FunctionStats> functions = new HashMap<String, FunctionStats>();
+        for (FunctionStats fs : profiler.getFunctionStats()) {
+            functions.put(fs.getName(), fs);
+        }
+        assertEquals(1, functions.get("SUM").getCallCount());
+        assertEquals(1, functions.get("Multiply").getCallCount());
+        assertEquals(2, functions.get("Add").getCallCount());
+
+        // evaluating again only hits the cache
+        fe.evaluate(row.getCell(3));
+        assertEquals(3, profiler.getFormulaCacheMisses());
+        assertEquals(2, profiler.getFormulaCacheHits());
+
+        String report = profiler.createReport(10);
+        assertTrue(report, report.contains("Formula cache: 2 hits, 3 misses (40.0% hits)"));
+        assertTrue(report, report.contains("Data!D1"));
+        assertTrue(report, report.contains("SUM"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getCellStats().size());
+        assertEquals(0, profiler.getMaxDepth());
+
+        // detached profilers don't record anything
+        fe.setProfiler(null);
+        fe.clearAllCachedResultValues();
+        fe.evaluate(row.getCell(3));
+        List<FunctionStats> functionStats = profiler.getFunctionStats();
+        assertEquals(0, functionStats.size());
+
+        wb.close();
+    }
+}
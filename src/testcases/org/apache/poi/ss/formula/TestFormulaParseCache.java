@@ -0,0 +1,120 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FormulaParseCache}
+ */
+public final class TestFormulaParseCache {
+
+    @Test
+    public void testHitsReturnCopies() {
+        FormulaParseCache cache = new FormulaParseCache(10);
+        FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(new HSSFWorkbook());
+
+        Ptg[] ptgs1 = cache.parse("SUM(A1:B2)*C3", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        // modify the first result in place, like the FormulaShifter does
+        ((AreaPtg) ptgs1[0]).setFirstRow(5);
+        ((RefPtg) ptgs1[2]).setRow(7);
+
+        Ptg[] ptgs2 = cache.parse("SUM(A1:B2)*C3", fpb, FormulaType.CELL, 1, -1);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertNotSame(ptgs1[0], ptgs2[0]);
+        assertEquals("A1:B2", ((AreaPtg) ptgs2[0]).toFormulaString());
+        assertEquals("C3", ((RefPtg) ptgs2[2]).toFormulaString());
+        // non-operand tokens are never modified after parsing and can be shared
+        assertSame(ptgs1[1], ptgs2[1]);
+
+        Ptg[] ptgs3 = cache.parse("SUM(A1:B2)*C3", fpb, FormulaType.CELL, 0, -1);
+        assertNotSame(ptgs2[0], ptgs3[0]);
+        assertEquals("A1:B2", ((AreaPtg) ptgs3[0]).toFormulaString());
+    }
+
+    @Test
+    public void testKey() {
+        FormulaParseCache cache = new FormulaParseCache(10);
+        FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(new HSSFWorkbook());
+
+        cache.parse("A1", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("A1", fpb, FormulaType.NAMEDRANGE, 0, -1);
+        cache.parse("a1", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.size());
+
+        // shared between workbooks of the same spreadsheet version
+        FormulaParsingWorkbook fpb2 = HSSFEvaluationWorkbook.create(new HSSFWorkbook());
+        cache.parse("A1", fpb2, FormulaType.CELL, 0, -1);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testWorkbookDependentFormulasNotCached() {
+        FormulaParseCache cache = new FormulaParseCache(10);
+        HSSFWorkbook wb = new HSSFWorkbook();
+        wb.createSheet("Sheet1");
+        wb.createSheet("Sheet2");
+        FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(wb);
+
+        cache.parse("Sheet2!A1", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("Sheet2!A1", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("myFunc(A1)", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testMaxSize() {
+        FormulaParseCache cache = new FormulaParseCache(2);
+        FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(new HSSFWorkbook());
+
+        cache.parse("A1", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("A2", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("A1", fpb, FormulaType.CELL, 0, -1);
+        cache.parse("A3", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(2, cache.size());
+        // least recently used formula was dropped
+        cache.parse("A2", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(1, cache.getHitCount());
+
+        cache.setMaxSize(0);
+        assertEquals(0, cache.size());
+        cache.parse("A1", fpb, FormulaType.CELL, 0, -1);
+        assertEquals(0, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.poi.ss.formula;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -26,6 +27,7 @@ import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.ptg.AreaErrPtg;
 import org.apache.poi.ss.formula.ptg.AreaPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
 import org.apache.poi.ss.formula.ptg.Ref3DPtg;
 import org.apache.poi.ss.util.CellReference;
 
@@ -258,6 +260,38 @@ public final class TestFormulaShifter {
                 3, ((Ref3DPtg)ptgs[3]).getExternSheetIndex());
     }
     
+    @Test
+    public void testSkipUnaffectedFormulas() {
+        FormulaShifter shifter = FormulaShifter.createForRowShift(1, "Data", 3, 5, 2, SpreadsheetVersion.EXCEL2007);
+
+        // local references of the shifted sheet are always adjusted
+        assertFalse(shifter.adjustsOnly3DReferences(1));
+        assertTrue(shifter.mayAdjustFormula("SUM(A1:A10)", 1));
+
+        assertTrue(shifter.adjustsOnly3DReferences(0));
+        assertFalse(shifter.mayAdjustFormula("SUM(A1:A10)", 0));
+        assertFalse(shifter.mayAdjustFormula("Other!A4+1", 0));
+        assertTrue(shifter.mayAdjustFormula("Data!A4+1", 0));
+        assertTrue(shifter.mayAdjustFormula("'DATA'!A4+1", 0));
+        assertTrue(shifter.mayAdjustFormula("SUM(Table1[Column1])", 0));
+
+        // copies and sheet moves are not filtered by name
+        FormulaShifter copier = FormulaShifter.createForRowCopy(1, "Data", 3, 5, 2, SpreadsheetVersion.EXCEL2007);
+        assertFalse(copier.adjustsOnly3DReferences(0));
+        assertTrue(copier.mayAdjustFormula("A1", 0));
+        assertTrue(FormulaShifter.createForSheetShift(1, 2).adjustsOnly3DReferences(0));
+
+        Formula local = Formula.create(new Ptg[] { new RefPtg("A4"), });
+        assertFalse(local.mayContain3DReferences());
+        Ref3DPtg ref3D = new Ref3DPtg("A4", 1);
+        Formula external = Formula.create(new Ptg[] { new RefPtg("A4"), ref3D, });
+        assertTrue(external.mayContain3DReferences());
+
+        Ptg[] ptgs = { ref3D, };
+        assertTrue(shifter.adjustFormula(ptgs, 0));
+        assertEquals(5, ((Ref3DPtg) ptgs[0]).getRow());
+    }
+
     @Test
     public void testInvalidArgument() {
         try {
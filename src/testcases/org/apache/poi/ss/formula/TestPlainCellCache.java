@@ -19,6 +19,10 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
 import junit.framework.TestCase;
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
 import org.apache.poi.ss.formula.eval.*;
@@ -62,4 +66,35 @@ public class TestPlainCellCache extends TestCase {
 
         }
     }
+
+    /**
+     * Compares the open addressing table with a {@link HashMap} over many puts and removes
+     */
+    public void testPutGetRemove() {
+        PlainCellCache cache = new PlainCellCache();
+        Map<Long, PlainValueCellCacheEntry> expected = new HashMap<Long, PlainValueCellCacheEntry>();
+        Random random = new Random(12345);
+        for (int i = 0; i < 20000; i++) {
+            // a small range of locations, to get plenty of collisions and removals
+            long key = PlainCellCache.toKey(random.nextInt(2), random.nextInt(3), random.nextInt(40), random.nextInt(30));
+            if (random.nextInt(3) == 0) {
+                cache.remove(key);
+                expected.remove(key);
+            } else {
+                PlainValueCellCacheEntry entry = new PlainValueCellCacheEntry(new NumberEval(i));
+                cache.put(key, entry);
+                expected.put(key, entry);
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected.size(), cache.size());
+                for (Map.Entry<Long, PlainValueCellCacheEntry> e : expected.entrySet()) {
+                    assertSame(e.getValue(), cache.get(e.getKey().longValue()));
+                }
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(PlainCellCache.toKey(0, 0, 0, 0)));
+    }
 }
@@ -0,0 +1,187 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.functions.EvalFactory;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+/**
+ * Tests for {@link ArrayEval} and element-wise operators
+ */
+public final class TestArrayEval extends TestCase {
+
+	private static ArrayEval createColumn(double... values) {
+		AreaValueBlock block = new AreaValueBlock(values.length, 1);
+		for (int i = 0; i < values.length; i++) {
+			block.setNumber(i, values[i]);
+		}
+		return new ArrayEval(0, 0, block);
+	}
+
+	public void testElementwiseOperators() {
+		ArrayEval a = createColumn(1, 2, 3);
+		ArrayEval b = createColumn(4, 5, 6);
+
+		ValueEval result = TwoOperandNumericOperation.MultiplyEval.evaluate(new ValueEval[] { a, b, }, 0, 0);
+		confirmNumbers(result, 4, 10, 18);
+
+		// single values are applied to every element
+		result = TwoOperandNumericOperation.AddEval.evaluate(new ValueEval[] { a, new NumberEval(10), }, 0, 0);
+		confirmNumbers(result, 11, 12, 13);
+
+		result = TwoOperandNumericOperation.DivideEval.evaluate(new ValueEval[] { a, createColumn(1, 0, 2), }, 0, 0);
+		ArrayEval ae = (ArrayEval) result;
+		assertEquals(ErrorEval.DIV_ZERO, ae.getRelativeValue(1, 0));
+		assertEquals(1.5, ((NumberEval) ae.getRelativeValue(2, 0)).getNumberValue(), 0.0);
+
+		result = RelationalOperationEval.GreaterThanEval.evaluate(new ValueEval[] { a, new NumberEval(1), }, 0, 0);
+		ae = (ArrayEval) result;
+		assertEquals(BoolEval.FALSE, ae.getRelativeValue(0, 0));
+		assertEquals(BoolEval.TRUE, ae.getRelativeValue(1, 0));
+		assertEquals(BoolEval.TRUE, ae.getRelativeValue(2, 0));
+	}
+
+	public void testSizeMismatch() {
+		AreaValueBlock row = new AreaValueBlock(1, 2);
+		row.setNumber(0, 10);
+		row.setNumber(1, 20);
+		// a column combined with a row gives a 3x2 array
+		ValueEval result = TwoOperandNumericOperation.AddEval.evaluate(
+				new ValueEval[] { createColumn(1, 2, 3), new ArrayEval(0, 0, row), }, 0, 0);
+		ArrayEval ae = (ArrayEval) result;
+		assertEquals(3, ae.getHeight());
+		assertEquals(2, ae.getWidth());
+		assertEquals(23.0, ((NumberEval) ae.getRelativeValue(2, 1)).getNumberValue(), 0.0);
+
+		// missing elements of the smaller array evaluate to #N/A
+		result = TwoOperandNumericOperation.AddEval.evaluate(
+				new ValueEval[] { createColumn(1, 2, 3), createColumn(1, 2), }, 0, 0);
+		ae = (ArrayEval) result;
+		assertEquals(4.0, ((NumberEval) ae.getRelativeValue(1, 0)).getNumberValue(), 0.0);
+		assertEquals(ErrorEval.NA, ae.getRelativeValue(2, 0));
+		assertEquals(ErrorEval.NA, ae.getElement(5, 0));
+	}
+
+	public void testAreaSource() {
+		ValueEval[] values = {
+				new NumberEval(1), new StringEval("2"), BlankEval.instance, ErrorEval.NAME_INVALID,
+		};
+		AreaEval area = EvalFactory.createAreaEval(new AreaPtg("B2:B5"), values);
+		ArrayEval ae = ArrayEval.valueOf(area);
+		assertEquals(1, ae.getFirstColumn());
+		assertEquals(4, ae.getLastRow());
+		assertSame(ae, ArrayEval.valueOf(ae));
+
+		ValueEval result = TwoOperandNumericOperation.MultiplyEval.evaluate(new ValueEval[] { ae, new NumberEval(2), }, 0, 0);
+		ArrayEval product = (ArrayEval) result;
+		assertEquals(1, product.getFirstRow());
+		assertEquals(2.0, ((NumberEval) product.getRelativeValue(0, 0)).getNumberValue(), 0.0);
+		assertEquals(4.0, ((NumberEval) product.getRelativeValue(1, 0)).getNumberValue(), 0.0);
+		assertEquals(0.0, ((NumberEval) product.getRelativeValue(2, 0)).getNumberValue(), 0.0);
+		assertEquals(ErrorEval.NAME_INVALID, product.getRelativeValue(3, 0));
+	}
+
+	/**
+	 * Arrays wrapping a reference read single elements from it, without copying the whole area
+	 */
+	public void testAreaSourceNotCopied() {
+		final int[] readCount = { 0, };
+		AreaEval column = new AreaEvalBase(0, 0, 1048575, 0) {
+			public ValueEval getRelativeValue(int relativeRowIndex, int relativeColumnIndex) {
+				readCount[0]++;
+				return new NumberEval(relativeRowIndex);
+			}
+			public ValueEval getRelativeValue(int sheetIndex, int relativeRowIndex, int relativeColumnIndex) {
+				return getRelativeValue(relativeRowIndex, relativeColumnIndex);
+			}
+			public AreaEval offset(int relFirstRowIx, int relLastRowIx, int relFirstColIx, int relLastColIx) {
+				throw new AssertionError();
+			}
+			public AreaEval getRow(int rowIndex) {
+				throw new AssertionError();
+			}
+			public AreaEval getColumn(int columnIndex) {
+				throw new AssertionError();
+			}
+		};
+		ArrayEval ae = ArrayEval.valueOf(column);
+		assertEquals(0, readCount[0]);
+		assertEquals(7.0, ((NumberEval) ae.getElement(7, 3)).getNumberValue(), 0.0);
+		assertEquals(5.0, ((NumberEval) ae.getRelativeValue(5, 0)).getNumberValue(), 0.0);
+		assertEquals(2, readCount[0]);
+	}
+
+	public void testEvaluateFormulas() throws IOException {
+		HSSFWorkbook wb = new HSSFWorkbook();
+		HSSFSheet sheet = wb.createSheet();
+		for (int i = 0; i < 4; i++) {
+			Row row = sheet.createRow(i);
+			row.createCell(0).setCellValue(i + 1);
+			row.createCell(1).setCellValue(10 * (i + 1));
+		}
+		Row row = sheet.getRow(0);
+		Cell sumProduct = row.createCell(2);
+		sumProduct.setCellFormula("SUMPRODUCT((A1:A4>2)*B1:B4)");
+		Cell constant = row.createCell(3);
+		constant.setCellFormula("SUM({1,2;3,4}*2)");
+		Cell firstElement = row.createCell(4);
+		firstElement.setCellFormula("{5,6}+A4");
+
+		// {=A1:A4*B1:B4} spilled into F1:F4
+		sheet.setArrayFormula("A1:A4*B1:B4", CellRangeAddress.valueOf("F1:F4"));
+		// {=SUM(A1:A4*B1:B4)} in a single cell
+		sheet.setArrayFormula("SUM(A1:A4*B1:B4)", CellRangeAddress.valueOf("G1"));
+
+		HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+		assertEquals(70.0, fe.evaluate(sumProduct).getNumberValue(), 0.0);
+		assertEquals(20.0, fe.evaluate(constant).getNumberValue(), 0.0);
+		assertEquals(9.0, fe.evaluate(firstElement).getNumberValue(), 0.0);
+		for (int i = 0; i < 4; i++) {
+			CellValue cv = fe.evaluate(sheet.getRow(i).getCell(5));
+			assertEquals((i + 1) * 10.0 * (i + 1), cv.getNumberValue(), 0.0);
+		}
+		assertEquals(300.0, fe.evaluate(sheet.getRow(0).getCell(6)).getNumberValue(), 0.0);
+
+		// results are updated when inputs change
+		sheet.getRow(3).getCell(0).setCellValue(2);
+		fe.notifyUpdateCell(sheet.getRow(3).getCell(0));
+		assertEquals(30.0, fe.evaluate(sumProduct).getNumberValue(), 0.0);
+		assertEquals(80.0, fe.evaluate(sheet.getRow(3).getCell(5)).getNumberValue(), 0.0);
+
+		wb.close();
+	}
+
+	private static void confirmNumbers(ValueEval result, double... expected) {
+		ArrayEval ae = (ArrayEval) result;
+		assertEquals(expected.length, ae.getHeight());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], ((NumberEval) ae.getRelativeValue(i, 0)).getNumberValue(), 0.0);
+		}
+	}
+}
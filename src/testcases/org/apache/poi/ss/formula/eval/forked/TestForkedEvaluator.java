@@ -20,6 +20,7 @@ package org.apache.poi.ss.formula.eval.forked;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.formula.IStabilityClassifier;
@@ -93,6 +94,51 @@ public class TestForkedEvaluator {
 		wb.close();
 	}
 
+	/**
+	 * Evaluators created from a {@link ForkedEvaluationTemplate} share one snapshot of the
+	 * master workbook and can be created and used on many threads at once
+	 */
+	@Test
+	public void testTemplate() throws Exception {
+		Workbook wb = createWorkbook();
+		final ForkedEvaluationTemplate template = ForkedEvaluationTemplate.create(wb, null, null);
+		// the snapshot is independent of later changes to the master workbook
+		wb.getSheet("Inputs").getRow(0).getCell(0).setCellValue(100.0);
+
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			final int input = i;
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 50; j++) {
+						ForkedEvaluator fe = template.createEvaluator();
+						fe.updateCell("Inputs", 0, 1, new NumberEval(input));
+						double result = ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue();
+						if (result != 10.0 - input) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, failures.get());
+
+		ForkedEvaluator fe = template.createEvaluator();
+		assertEquals(7.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+		assertEquals(2.0, ((NumberEval) fe.evaluate("Inputs", 0, 0)).getNumberValue(), 0.0);
+		fe.updateCell("Inputs", 0, 0, new NumberEval(3.0));
+		assertEquals(12.0, ((NumberEval) fe.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+		// other evaluators are not affected
+		assertEquals(7.0, ((NumberEval) template.createEvaluator().evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+
+		wb.close();
+	}
+
 	/**
 	 * As of Sep 2009, the Forked evaluator can update values from existing cells (this is because
 	 * the underlying 'master' cell is used as a key into the calculation cache.  Prior to the fix
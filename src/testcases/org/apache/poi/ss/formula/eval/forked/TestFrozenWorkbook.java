@@ -0,0 +1,93 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.eval.forked;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FrozenWorkbook}
+ */
+public final class TestFrozenWorkbook {
+
+    @Test
+    public void testReferencedWorkbook() throws IOException {
+        HSSFWorkbook mainWorkbook = HSSFTestDataSamples.openSampleWorkbook("52575_main.xls");
+        HSSFWorkbook sourceWorkbook = HSSFTestDataSamples.openSampleWorkbook("52575_source.xls");
+        Sheet sourceSheet = sourceWorkbook.getSheetAt(0);
+        sourceSheet.createRow(10).createCell(0).setCellFormula("1+2");
+
+        Map<String, Workbook> sources = new HashMap<String, Workbook>();
+        sources.put("source_dummy.xls", sourceWorkbook);
+        FrozenWorkbook frozen = FrozenWorkbook.createAll(sources, null, 2).get("source_dummy.xls");
+        assertEquals(sourceWorkbook.getNumberOfSheets(), frozen.getNumberOfSheets());
+        String sheetName = sourceSheet.getSheetName();
+        assertEquals(sheetName, frozen.getSheetName(0));
+        assertEquals(3.0, frozen.getCellValue(sheetName, 10, 0).getNumberValue(), 0.0);
+        assertNull(frozen.getCellValue(sheetName, 10, 1));
+
+        // later changes of the source workbook are not seen
+        sourceSheet.getRow(10).getCell(0).setCellFormula("1+3");
+
+        FormulaEvaluator mainEvaluator = mainWorkbook.getCreationHelper().createFormulaEvaluator();
+        FormulaEvaluator frozenEvaluator = frozen.createFormulaEvaluator();
+        Map<String, FormulaEvaluator> evaluators = new HashMap<String, FormulaEvaluator>();
+        evaluators.put("52575_main.xls", mainEvaluator);
+        evaluators.put("source_dummy.xls", frozenEvaluator);
+        mainEvaluator.setupReferencedWorkbooks(evaluators);
+
+        Sheet mainSheet = mainWorkbook.getSheetAt(0);
+        assertEquals(20.0, mainEvaluator.evaluate(mainSheet.getRow(0).getCell(0)).getNumberValue(), 0.0);
+        assertEquals("Apache rocks!", mainEvaluator.evaluate(mainSheet.getRow(1).getCell(0)).getStringValue());
+        assertFalse(mainEvaluator.evaluate(mainSheet.getRow(2).getCell(0)).getBooleanValue());
+
+        Cell frozenCell = sourceSheet.getRow(10).getCell(0);
+        assertEquals(3.0, frozenEvaluator.evaluate(frozenCell).getNumberValue(), 0.0);
+        // changes are ignored, the frozen results are stored in the cells
+        frozenEvaluator.notifyUpdateCell(frozenCell);
+        assertEquals(CellType.NUMERIC, frozenEvaluator.evaluateFormulaCellEnum(frozenCell));
+        assertEquals(CellType.FORMULA, frozenCell.getCellTypeEnum());
+        assertEquals("1+3", frozenCell.getCellFormula());
+        assertEquals(3.0, frozenCell.getNumericCellValue(), 0.0);
+
+        frozenCell.setCellValue(0.0);
+        frozenEvaluator.evaluateAll();
+        assertEquals(3.0, frozenCell.getNumericCellValue(), 0.0);
+
+        assertEquals(frozenCell, frozenEvaluator.evaluateInCell(frozenCell));
+        assertEquals(CellType.NUMERIC, frozenCell.getCellTypeEnum());
+        assertEquals(3.0, frozenCell.getNumericCellValue(), 0.0);
+
+        mainWorkbook.close();
+        sourceWorkbook.close();
+    }
+}
@@ -18,6 +18,9 @@
 package org.apache.poi.ss.formula.functions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import org.apache.poi.hssf.usermodel.HSSFCell;
@@ -26,6 +29,8 @@ import org.apache.poi.hssf.usermodel.HSSFName;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.DynamicReference;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.usermodel.Cell;
@@ -180,6 +185,56 @@ public final class TestIndirect {
         wbA.close();
     }
 
+    @Test
+    public void testR1C1Style() throws Exception {
+        HSSFWorkbook wbA = createWBA();
+        // C6
+        HSSFCell c = wbA.getSheetAt(0).createRow(5).createCell(2);
+        HSSFFormulaEvaluator feA = new HSSFFormulaEvaluator(wbA);
+
+        confirm(feA, c, "INDIRECT(\"R2C3\", FALSE)", 23);
+        confirm(feA, c, "INDIRECT(\"r2c3\", FALSE)", 23);
+        confirm(feA, c, "INDIRECT(\"Sheet2!R1C2\", FALSE)", 55);
+        confirm(feA, c, "SUM(INDIRECT(\"Sheet2!R1C2:R3C3\", FALSE))", 351);
+        // relative to C6
+        confirm(feA, c, "INDIRECT(\"R[-4]C\", FALSE)", 23);
+        confirm(feA, c, "INDIRECT(\"R[-3]C[+1]\", FALSE)", 34);
+        confirm(feA, c, "SUM(INDIRECT(\"R1C[-2]:R3C\", FALSE))", 198);
+        // whole rows and columns
+        confirm(feA, c, "SUM(INDIRECT(\"R1:R2\", FALSE))", 140);
+        confirm(feA, c, "SUM(INDIRECT(\"Sheet2!C1:C2\", FALSE))", 321);
+        confirm(feA, c, "SUM(INDIRECT(A4, FALSE))", 50); // defined name
+
+        confirm(feA, c, "INDIRECT(\"R0C1\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"R[-6]C\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"R1\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"R1C1:R2\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"R[1C1\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"A1\", FALSE)", ErrorEval.REF_INVALID);
+        confirm(feA, c, "INDIRECT(\"R1C1\", TRUE)", ErrorEval.REF_INVALID);
+        // both sides of an A1 style area must be of the same type
+        confirm(feA, c, "INDIRECT(\"A1:2\")", ErrorEval.REF_INVALID);
+
+        wbA.close();
+    }
+
+    @Test
+    public void testParsedReferencesAreShared() {
+        DynamicReference ref = DynamicReference.valueOf("Sheet2!B1:C3", true, SpreadsheetVersion.EXCEL97);
+        assertSame(ref, DynamicReference.valueOf("Sheet2!B1:C3", true, SpreadsheetVersion.EXCEL97));
+        assertNotSame(ref, DynamicReference.valueOf("Sheet2!B1:C3", true, SpreadsheetVersion.EXCEL2007));
+        assertEquals(DynamicReference.Kind.AREA, ref.getKind());
+        assertEquals("Sheet2", ref.getSheetName());
+        assertEquals(0, ref.getFirstRow(10));
+        assertEquals(2, ref.getLastColumn(10));
+
+        ref = DynamicReference.valueOf("R[-1]C2", false, SpreadsheetVersion.EXCEL97);
+        assertEquals(DynamicReference.Kind.CELL, ref.getKind());
+        assertEquals(9, ref.getFirstRow(10));
+        assertEquals(1, ref.getFirstColumn(10));
+        assertFalse(ref.isValidAt(0, 0));
+    }
+
     private static void confirm(FormulaEvaluator fe, Cell cell, String formula,
             double expectedResult) {
         fe.clearAllCachedResultValues();
@@ -213,4 +213,34 @@ public abstract class BaseTestFont {
         );
         wb.close();
     }
+
+    /**
+     * Fonts changed after a lookup are found by their new attributes only
+     */
+    @Test
+    public void findFontAfterChange() throws IOException {
+        Workbook wb = _testDataProvider.createWorkbook();
+        Font font = wb.createFont();
+        font.setBold(true);
+        font.setFontName("Thingy");
+        font.setFontHeightInPoints((short) 13);
+        short color = font.getColor();
+
+        assertSame(font, wb.findFont(true, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+        assertNull(wb.findFont(false, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+
+        font.setBold(false);
+        assertNull(wb.findFont(true, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+        assertSame(font, wb.findFont(false, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+
+        // the first matching font is found
+        Font font2 = wb.createFont();
+        font2.setFontName("Thingy");
+        font2.setFontHeightInPoints((short) 13);
+        assertSame(font, wb.findFont(false, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+        font.setItalic(true);
+        assertSame(font2, wb.findFont(false, color, (short) (13*20), "Thingy", false, false, Font.SS_NONE, Font.U_NONE));
+
+        wb.close();
+    }
 }
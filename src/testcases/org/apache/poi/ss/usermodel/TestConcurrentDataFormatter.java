@@ -0,0 +1,142 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.usermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.Format;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.util.LocaleUtil;
+import org.junit.Test;
+
+/**
+ * Tests of {@link ConcurrentDataFormatter}
+ */
+public final class TestConcurrentDataFormatter {
+
+    @Test
+    public void testFormat() throws Exception {
+        ConcurrentDataFormatter formatter = new ConcurrentDataFormatter(Locale.GERMANY);
+        assertEquals(Locale.GERMANY, formatter.getLocale());
+        assertEquals("1.234,50", formatter.formatRawCellContents(1234.5, -1, "#,##0.00"));
+
+        Workbook wb = new HSSFWorkbook();
+        Cell cell = wb.createSheet().createRow(0).createCell(0);
+        cell.setCellValue(42370);
+        CellStyle style = wb.createCellStyle();
+        style.setDataFormat(wb.createDataFormat().getFormat("yyyy-mm-dd"));
+        cell.setCellStyle(style);
+        assertEquals("2016-01-01", formatter.formatCellValue(cell));
+        StringBuilder sb = new StringBuilder("A1=");
+        formatter.formatCellValue(cell, null, sb);
+        assertEquals("A1=2016-01-01", sb.toString());
+        wb.close();
+    }
+
+    @Test
+    public void testUserLocale() throws Exception {
+        ConcurrentDataFormatter formatter = new ConcurrentDataFormatter();
+        assertNull(formatter.getLocale());
+        Locale userLocale = LocaleUtil.getUserLocale();
+        try {
+            LocaleUtil.setUserLocale(Locale.US);
+            assertEquals("1,234.50", formatter.formatRawCellContents(1234.5, -1, "#,##0.00"));
+            LocaleUtil.setUserLocale(Locale.GERMANY);
+            assertEquals("1.234,50", formatter.formatRawCellContents(1234.5, -1, "#,##0.00"));
+        } finally {
+            LocaleUtil.setUserLocale(userLocale);
+        }
+    }
+
+    @Test
+    public void testCustomFormats() {
+        DecimalFormat custom = new DecimalFormat("'x'0", DecimalFormatSymbols.getInstance(Locale.US));
+        ConcurrentDataFormatter formatter = new ConcurrentDataFormatter(Locale.US, false,
+                Collections.singletonMap("0.0", custom));
+        assertEquals("x2", formatter.formatRawCellContents(1.5, -1, "0.0"));
+
+        // later changes of the format are not picked up
+        custom.applyPattern("'y'0");
+        assertEquals("x2", formatter.formatRawCellContents(1.5, -1, "0.0"));
+        assertEquals("1.5", new ConcurrentDataFormatter(Locale.US).formatRawCellContents(1.5, -1, "0.0"));
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        String[] formats = { "#,##0.00", "0.00E+00", "yyyy-mm-dd hh:mm", "0%", "# ?/?", };
+        confirmParallel(formats, 42370.25, 1.0);
+    }
+
+    /**
+     * Elapsed times and formats of three or more sections are formatted with formats shared
+     * by all formatters
+     */
+    @Test
+    public void testParallelSharedFormats() throws Exception {
+        String[] formats = { "[h]:mm:ss", "[mm]:ss.00", "[ss]", "yyyy-mm-dd hh:mm:ss;\"neg\";\"zero\"",
+                "0.00E+00;-0.00E+00;\"zero\"", };
+        confirmParallel(formats, 1.2345678, 1.3579);
+    }
+
+    private static void confirmParallel(final String[] formats, final double value, final double step)
+            throws Exception {
+        final ConcurrentDataFormatter formatter = new ConcurrentDataFormatter(Locale.US, false,
+                Collections.<String,Format>emptyMap());
+        final int nValues = 7;
+        final String[][] expected = new String[formats.length][nValues];
+        for (int i = 0; i < formats.length; i++) {
+            for (int j = 0; j < nValues; j++) {
+                expected[i][j] = formatter.formatRawCellContents(value + j * step, -1, formats[i]);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int n = 0; n < 5000; n++) {
+                            int i = n % formats.length;
+                            int j = n % nValues;
+                            assertEquals(expected[i][j], formatter.formatRawCellContents(value + j * step, -1, formats[i]));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
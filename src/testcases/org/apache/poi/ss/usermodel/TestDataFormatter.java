@@ -816,4 +816,65 @@ public class TestDataFormatter {
 
         wb.close();
     }
+
+    @Test
+    public void testFormatCellValueIntoStringBuilder() throws IOException {
+        Workbook wb = new HSSFWorkbook();
+        Row row = wb.createSheet().createRow(0);
+        DataFormat dataFormat = wb.createDataFormat();
+        String[] formats = { "General", "0.00", "0.00E+00", "yyyy-mm-dd", "# ?/?", };
+        for (int i = 0; i < formats.length; i++) {
+            Cell cell = row.createCell(i);
+            cell.setCellValue(42123.625);
+            CellStyle style = wb.createCellStyle();
+            style.setDataFormat(dataFormat.getFormat(formats[i]));
+            cell.setCellStyle(style);
+        }
+        row.createCell(5).setCellValue("text");
+        row.createCell(6).setCellValue(true);
+        row.createCell(7).setCellErrorValue(FormulaError.DIV0.getCode());
+        row.createCell(8).setCellFormula("A1*2");
+        row.createCell(9);
+
+        DataFormatter formatter = new DataFormatter(Locale.US);
+        FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        StringBuilder sb = new StringBuilder("prefix:");
+        for (int i = 0; i < 10; i++) {
+            Cell cell = row.getCell(i);
+            int start = sb.length();
+            formatter.formatCellValue(cell, evaluator, sb);
+            assertEquals(formatter.formatCellValue(cell, evaluator), sb.substring(start));
+        }
+        assertTrue(sb.toString(), sb.toString().startsWith("prefix:42123.6254"));
+        assertTrue(sb.toString(), sb.toString().contains("4.21E+04"));
+
+        formatter.formatCellValue(null, null, sb);
+        formatter.formatCellValue(row.getCell(8), null, sb);
+        assertTrue(sb.toString().endsWith("A1*2"));
+
+        wb.close();
+    }
+
+    /**
+     * Formats are shared between formatters, but only those with the same settings
+     */
+    @Test
+    public void testSharedFormats() throws IOException {
+        String format = "#,##0.00";
+        DataFormatter us = new DataFormatter(Locale.US);
+        DataFormatter germany = new DataFormatter(Locale.GERMANY);
+        DataFormatter us2 = new DataFormatter(Locale.US);
+        assertEquals("1,234.50", us.formatRawCellContents(1234.5, -1, format));
+        assertEquals("1.234,50", germany.formatRawCellContents(1234.5, -1, format));
+        assertEquals("1,234.50", us2.formatRawCellContents(1234.5, -1, format));
+
+        // date formats depend on the validity of the date
+        assertEquals("-1.0", us.formatRawCellContents(-1, -1, "yyyy-mm-dd"));
+        assertEquals("2016-01-01", us2.formatRawCellContents(42370, -1, "yyyy-mm-dd"));
+
+        // formats added to one formatter are not shared
+        us.addFormat("0.0", new java.text.DecimalFormat("'x'0", java.text.DecimalFormatSymbols.getInstance(Locale.US)));
+        assertEquals("x2", us.formatRawCellContents(1.5, -1, "0.0"));
+        assertEquals("1.5", us2.formatRawCellContents(1.5, -1, "0.0"));
+    }
 }
@@ -18,9 +18,13 @@
 package org.apache.poi.ss.usermodel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.apache.poi.util.LocaleUtil;
@@ -92,4 +96,57 @@ public class TestDateUtil {
         assertEquals(expCal, actCal[2]);
         assertEquals(expCal, actCal[3]);
     }
+
+    /**
+     * getJavaDate computes dates without a Calendar, except around time zone transitions
+     */
+    @Test
+    public void getJavaDate_SameAsCalendar() {
+        String[] timeZones = { "UTC", "Europe/Copenhagen", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata", };
+        Locale[] locales = { Locale.US, new Locale("th", "TH"), };
+        Locale userLocale = LocaleUtil.getUserLocale();
+        Random rnd = new Random(4711);
+        try {
+            for (Locale locale : locales) {
+                LocaleUtil.setUserLocale(locale);
+                for (String timeZone : timeZones) {
+                    TimeZone tz = TimeZone.getTimeZone(timeZone);
+                    for (int i = 0; i < 5000; i++) {
+                        double dateValue;
+                        if (i % 2 == 0) {
+                            // every other day from 2004 to 2017 at 02:30, including daylight saving gaps
+                            dateValue = 38000 + i + 2.5 / 24;
+                        } else if (i % 3 == 0) {
+                            // around 1900-02-29
+                            dateValue = rnd.nextInt(100) + rnd.nextDouble();
+                        } else {
+                            dateValue = rnd.nextDouble() * 60000;
+                        }
+                        for (int flags = 0; flags < 4; flags++) {
+                            boolean use1904windowing = (flags & 1) != 0;
+                            boolean roundSeconds = (flags & 2) != 0;
+                            Date expected = DateUtil.getJavaCalendar(dateValue, use1904windowing, tz, roundSeconds).getTime();
+                            assertEquals(locale + " " + timeZone + " " + dateValue + " " + flags,
+                                    expected, DateUtil.getJavaDate(dateValue, use1904windowing, tz, roundSeconds));
+                        }
+                    }
+                }
+            }
+        } finally {
+            LocaleUtil.setUserLocale(userLocale);
+        }
+    }
+
+    @Test
+    public void isADateFormat() {
+        // repeated to hit the cache
+        for (int i = 0; i < 2; i++) {
+            assertTrue(DateUtil.isADateFormat(-1, "yyyy-mm-dd"));
+            assertTrue(DateUtil.isADateFormat(-1, "[h]:mm"));
+            assertTrue(DateUtil.isADateFormat(0x0e, "General"));
+            assertFalse(DateUtil.isADateFormat(-1, "General"));
+            assertFalse(DateUtil.isADateFormat(-1, "#,##0.00"));
+            assertFalse(DateUtil.isADateFormat(-1, ""));
+        }
+    }
 }
@@ -140,6 +140,38 @@ public class BaseTestCellUtil {
         
     }
 
+    /**
+     * Styles modified after they were used by CellUtil are not re-used for their old properties
+     */
+    @Test
+    public void setCellStylePropertyAfterStyleChange() throws IOException {
+        Workbook wb = _testDataProvider.createWorkbook();
+        Row r = wb.createSheet().createRow(0);
+        Cell c0 = r.createCell(0);
+        Cell c1 = r.createCell(1);
+        Cell c2 = r.createCell(2);
+
+        CellUtil.setCellStyleProperty(c0, CellUtil.BORDER_TOP, BorderStyle.THIN);
+        CellStyle thin = c0.getCellStyle();
+        CellUtil.setCellStyleProperty(c1, CellUtil.BORDER_TOP, BorderStyle.THIN);
+        assertEquals(thin.getIndex(), c1.getCellStyle().getIndex());
+
+        // the style of both cells changes
+        int styleCount = wb.getNumCellStyles();
+        thin.setBorderTop(BorderStyle.THICK);
+        CellUtil.setCellStyleProperty(c2, CellUtil.BORDER_TOP, BorderStyle.THIN);
+        assertEquals(styleCount + 1, wb.getNumCellStyles());
+        assertNotEquals(thin.getIndex(), c2.getCellStyle().getIndex());
+        assertEquals(BorderStyle.THIN, c2.getCellStyle().getBorderTopEnum());
+
+        // an existing style which was changed to match is found
+        CellUtil.setCellStyleProperty(c2, CellUtil.BORDER_TOP, BorderStyle.THICK);
+        assertEquals(thin.getIndex(), c2.getCellStyle().getIndex());
+        assertEquals(styleCount + 1, wb.getNumCellStyles());
+
+        wb.close();
+    }
+
     @Test
     public void getRow() throws IOException {
         Workbook wb = _testDataProvider.createWorkbook();
@@ -22,6 +22,7 @@ import junit.framework.ComparisonFailure;
 import junit.framework.TestCase;
 
 import java.util.Locale;
+import java.util.Random;
 
 import org.apache.poi.hssf.record.FormulaRecord;
 import org.apache.poi.ss.formula.constant.ConstantValueParser;
@@ -125,4 +126,52 @@ public final class TestNumberToTextConverter extends TestCase {
 		}
 		assertEquals("0.06", actualText);
 	}
+
+	/**
+	 * Compares the fast conversion with the {@link NormalisedDecimal} based one, for all binary
+	 * exponents, values around powers of ten, whole numbers, money amounts and values close to
+	 * the middle between two 15 digit numbers
+	 */
+	public void testFastPathEquivalence() {
+		Random rnd = new Random(12345);
+		int[] failureCount = { 0, };
+		for (long biasedExponent = 0; biasedExponent < 0x800; biasedExponent++) {
+			confirmFastPath(biasedExponent << 52, failureCount);
+			confirmFastPath((biasedExponent << 52) | 0x000FFFFFFFFFFFFFL, failureCount);
+			for (int i = 0; i < 100; i++) {
+				confirmFastPath((biasedExponent << 52) | (rnd.nextLong() & 0x000FFFFFFFFFFFFFL), failureCount);
+			}
+		}
+		for (int pow = -308; pow <= 308; pow++) {
+			for (int digit = 1; digit <= 9; digit++) {
+				long rawBits = Double.doubleToLongBits(Double.parseDouble(digit + "E" + pow));
+				for (int ulps = -20; ulps <= 20; ulps++) {
+					confirmFastPath(rawBits + ulps, failureCount);
+				}
+			}
+		}
+		for (int i = 0; i < 200000; i++) {
+			confirmFastPath(Double.doubleToLongBits(i), failureCount);
+			confirmFastPath(Double.doubleToLongBits(-i / 100.0), failureCount);
+			confirmFastPath(rnd.nextLong(), failureCount);
+			// 16 significant digits, the last one 5
+			long digits = (1000000000000000L + (long) (rnd.nextDouble() * 9e15)) / 10 * 10 + 5;
+			confirmFastPath(Double.doubleToLongBits(digits * Math.pow(10, rnd.nextInt(60) - 40)), failureCount);
+		}
+		if (failureCount[0] > 0) {
+			throw new AssertionFailedError(failureCount[0]
+					+ " difference(s) between fast and exact number to text conversion (see std-err)");
+		}
+	}
+
+	private static void confirmFastPath(long rawBits, int[] failureCount) {
+		String expected = NumberToTextConverter.rawDoubleBitsToText(rawBits, false);
+		String actual = NumberToTextConverter.rawDoubleBitsToText(rawBits, true);
+		if (!expected.equals(actual)) {
+			if (failureCount[0]++ < 20) {
+				System.err.println("Different rendering of 0x" + Long.toHexString(rawBits)
+						+ ": expected '" + expected + "' but fast path gave '" + actual + "'");
+			}
+		}
+	}
 }